@@ -4,13 +4,22 @@ import com.zhishi.aiagent.app.TripMind;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @MapperScan("com.zhishi.aiagent.mapper")
+@EnableScheduling
 public class AiAgentApplication {
 
+    // 启动时间线最多记录的步骤数
+    private static final int STARTUP_STEPS = 10000;
+
     public static void main(String[] args) {
-        SpringApplication.run(AiAgentApplication.class, args);
+        SpringApplication application = new SpringApplication(AiAgentApplication.class);
+        // 记录启动时间线，就绪后由 StartupTimeline 汇总
+        application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEPS));
+        application.run(args);
     }
 
 }
\ No newline at end of file
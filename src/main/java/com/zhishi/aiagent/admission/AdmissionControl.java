@@ -0,0 +1,384 @@
+package com.zhishi.aiagent.admission;
+
+import cn.hutool.core.util.StrUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 准入控制
+ * 所有对话和规划接口共享一个全局并发上限，每个通道另有自己的并发预算；
+ * 空闲并发按优先级分配，同一通道内按 chatId（或客户端地址）轮转，单个用户同时执行的请求数有上限，避免一个用户占满通道；
+ * 队首等待时间超过通道的阈值或队列过长时，新请求直接返回 503，排队超时的请求同样返回 503
+ */
+@Component
+@Slf4j
+public class AdmissionControl {
+
+    // 每个通道最多排队的请求数为并发预算的倍数
+    private static final int MAX_QUEUE_PER_BUDGET = 8;
+
+    // 按优先级排列的通道
+    private static final List<AdmissionLane> LANES_BY_PRIORITY = Arrays.stream(AdmissionLane.values())
+            .sorted(Comparator.comparing(AdmissionLane::getPriority))
+            .toList();
+
+    // 未启用准入控制时发放的许可
+    private static final Permit NO_PERMIT = () -> {
+    };
+
+    private final boolean enabled;
+
+    private final int maxConcurrent;
+
+    private final int perKeyLimit;
+
+    private final Map<AdmissionLane, LaneState> lanes = new EnumMap<>(AdmissionLane.class);
+
+    // 全局占用的并发数
+    private int inUse;
+
+    public AdmissionControl(@Value("${admission.enabled:true}") boolean enabled,
+                            @Value("${admission.max-concurrent:32}") int maxConcurrent,
+                            @Value("${admission.per-key-limit:2}") int perKeyLimit,
+                            @Value("${admission.budget.master:24}") int masterBudget,
+                            @Value("${admission.budget.manus:12}") int manusBudget,
+                            @Value("${admission.budget.tripmind:8}") int tripmindBudget) {
+        this.enabled = enabled;
+        this.maxConcurrent = maxConcurrent;
+        this.perKeyLimit = perKeyLimit;
+        lanes.put(AdmissionLane.MASTER, new LaneState(masterBudget));
+        lanes.put(AdmissionLane.MANUS, new LaneState(manusBudget));
+        lanes.put(AdmissionLane.TRIPMIND, new LaneState(tripmindBudget));
+        if (enabled && masterBudget + manusBudget + tripmindBudget <= maxConcurrent) {
+            log.warn("Lane budgets ({}) never exceed max-concurrent ({}), priorities between lanes will not apply",
+                    masterBudget + manusBudget + tripmindBudget, maxConcurrent);
+        }
+    }
+
+    /**
+     * 同步执行，排队获得许可后调用
+     *
+     * @throws ResponseStatusException 503，被拒绝或排队超时
+     */
+    public <T> T call(AdmissionLane lane, String key, Supplier<T> work) {
+        if (!enabled) {
+            return work.get();
+        }
+        shedIfOverloaded(lane);
+        CompletableFuture<Ticket> pending = enqueue(lane, key);
+        Ticket ticket;
+        try {
+            ticket = pending.get();
+        } catch (InterruptedException e) {
+            pending.cancel(true);
+            Thread.currentThread().interrupt();
+            throw unavailable("请求已取消");
+        } catch (ExecutionException e) {
+            throw rejected(lane, e.getCause());
+        }
+        try {
+            return work.get();
+        } finally {
+            ticket.release();
+        }
+    }
+
+    /**
+     * 流式执行，排队获得许可后才创建并订阅事件流，事件流结束、出错或客户端断开时释放许可
+     * 排队期间不占用任何线程
+     *
+     * @throws ResponseStatusException 503，请求到达时通道已过载
+     */
+    public <T> Flux<T> admit(AdmissionLane lane, String key, Supplier<Flux<T>> source) {
+        if (!enabled) {
+            return Flux.defer(source);
+        }
+        return Flux.usingWhen(acquire(lane, key),
+                granted -> source.get(),
+                granted -> Mono.fromRunnable(granted::release),
+                (granted, error) -> Mono.fromRunnable(granted::release),
+                granted -> Mono.fromRunnable(granted::release));
+    }
+
+    /**
+     * 排队获得许可，由调用方在工作结束时归还；用于生命周期与客户端连接无关的工作，如断开后仍继续执行的代理运行
+     * 订阅时开始排队，排队期间不占用任何线程
+     *
+     * @throws ResponseStatusException 503，请求到达时通道已过载
+     */
+    public Mono<Permit> acquire(AdmissionLane lane, String key) {
+        if (!enabled) {
+            return Mono.just(NO_PERMIT);
+        }
+        shedIfOverloaded(lane);
+        return Mono.fromFuture(() -> enqueue(lane, key))
+                .onErrorMap(e -> e instanceof TimeoutException, e -> rejected(lane, e))
+                // 许可已发放但订阅恰好取消时，归还许可
+                .doOnDiscard(Ticket.class, Ticket::release)
+                .map(Permit.class::cast);
+    }
+
+    /**
+     * 公平排队使用的键：优先使用 chatId，否则使用客户端地址
+     */
+    public static String clientKey(String chatId, HttpServletRequest request) {
+        if (StrUtil.isNotBlank(chatId)) {
+            return "chat:" + chatId;
+        }
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        if (StrUtil.isNotBlank(forwardedFor)) {
+            return "ip:" + StrUtil.trim(StrUtil.subBefore(forwardedFor, ",", false));
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    /**
+     * 各通道的统计
+     */
+    public synchronized Map<String, AdmissionStats> getStats() {
+        long now = System.nanoTime();
+        Map<String, AdmissionStats> stats = new LinkedHashMap<>();
+        lanes.forEach((lane, state) -> {
+            long admitted = state.admitted.sum();
+            stats.put(lane.getValue(), new AdmissionStats(lane.getPriority(), state.budget, state.running, state.queued,
+                    admitted, state.shed.sum(), state.timedOut.sum(),
+                    admitted == 0 ? 0 : state.totalQueueMs.sum() / admitted, state.maxQueueMs.get(),
+                    TimeUnit.NANOSECONDS.toMillis(state.headOfLineNanos(now))));
+        });
+        return stats;
+    }
+
+    private void shedIfOverloaded(AdmissionLane lane) {
+        synchronized (this) {
+            LaneState state = lanes.get(lane);
+            boolean queueTooLong = state.queued >= state.budget * MAX_QUEUE_PER_BUDGET;
+            boolean queueTooSlow = state.headOfLineNanos(System.nanoTime()) > lane.getShedLatency().toNanos();
+            if (!queueTooLong && !queueTooSlow) {
+                return;
+            }
+            state.shed.increment();
+        }
+        log.warn("Shedding request on lane {}", lane.getValue());
+        throw unavailable("服务繁忙，请稍后再试");
+    }
+
+    private CompletableFuture<Ticket> enqueue(AdmissionLane lane, String key) {
+        Waiter waiter = new Waiter(key);
+        synchronized (this) {
+            LaneState state = lanes.get(lane);
+            state.queues.computeIfAbsent(key, k -> new ArrayDeque<>()).add(waiter);
+            state.queued++;
+        }
+        waiter.future.orTimeout(lane.getMaxQueueTime().toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((ticket, error) -> {
+                    if (error != null) {
+                        // 排队超时或请求取消，移出队列
+                        remove(lane, waiter, error instanceof TimeoutException);
+                    }
+                });
+        dispatch();
+        return waiter.future;
+    }
+
+    private synchronized void remove(AdmissionLane lane, Waiter waiter, boolean timedOut) {
+        LaneState state = lanes.get(lane);
+        ArrayDeque<Waiter> queue = state.queues.get(waiter.key);
+        if (queue != null && queue.remove(waiter)) {
+            state.queued--;
+            if (queue.isEmpty()) {
+                state.queues.remove(waiter.key);
+            }
+            if (timedOut) {
+                state.timedOut.increment();
+            }
+        }
+    }
+
+    /**
+     * 分配空闲并发：每次从最高优先级开始查找可以放行的请求
+     */
+    private void dispatch() {
+        List<Runnable> grants = new ArrayList<>();
+        synchronized (this) {
+            boolean granted = true;
+            while (inUse < maxConcurrent && granted) {
+                granted = false;
+                for (AdmissionLane lane : LANES_BY_PRIORITY) {
+                    LaneState state = lanes.get(lane);
+                    Waiter waiter = state.next(perKeyLimit);
+                    if (waiter == null) {
+                        continue;
+                    }
+                    long queueMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waiter.enqueuedNanos);
+                    state.running++;
+                    state.runningByKey.merge(waiter.key, 1, Integer::sum);
+                    state.admitted.increment();
+                    state.totalQueueMs.add(queueMs);
+                    state.maxQueueMs.accumulateAndGet(queueMs, Math::max);
+                    inUse++;
+                    Ticket ticket = new Ticket(lane, waiter.key);
+                    grants.add(() -> {
+                        // 排队已超时或取消时立即归还
+                        if (!waiter.future.complete(ticket)) {
+                            ticket.release();
+                        }
+                    });
+                    granted = true;
+                    break;
+                }
+            }
+        }
+        grants.forEach(Runnable::run);
+    }
+
+    private ResponseStatusException rejected(AdmissionLane lane, Throwable cause) {
+        if (cause instanceof TimeoutException) {
+            return unavailable("排队超过 " + lane.getMaxQueueTime().toSeconds() + " 秒，请稍后再试");
+        }
+        return unavailable("请求已取消");
+    }
+
+    private static ResponseStatusException unavailable(String reason) {
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, reason);
+    }
+
+    /**
+     * 准入许可，工作结束后归还，重复归还无效
+     */
+    public interface Permit {
+
+        void release();
+    }
+
+    private final class Ticket implements Permit {
+
+        private final AdmissionLane lane;
+
+        private final String key;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Ticket(AdmissionLane lane, String key) {
+            this.lane = lane;
+            this.key = key;
+        }
+
+        @Override
+        public void release() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            synchronized (AdmissionControl.this) {
+                LaneState state = lanes.get(lane);
+                state.running--;
+                state.runningByKey.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+                inUse--;
+            }
+            dispatch();
+        }
+    }
+
+    private static final class Waiter {
+
+        private final String key;
+
+        private final long enqueuedNanos = System.nanoTime();
+
+        private final CompletableFuture<Ticket> future = new CompletableFuture<>();
+
+        private Waiter(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * 通道状态，由 AdmissionControl 加锁访问
+     */
+    private static final class LaneState {
+
+        private final int budget;
+
+        private int running;
+
+        private int queued;
+
+        private final Map<String, Integer> runningByKey = new HashMap<>();
+
+        // 按键分组的等待队列，迭代顺序即轮转顺序
+        private final LinkedHashMap<String, ArrayDeque<Waiter>> queues = new LinkedHashMap<>();
+
+        private final LongAdder admitted = new LongAdder();
+        private final LongAdder shed = new LongAdder();
+        private final LongAdder timedOut = new LongAdder();
+        private final LongAdder totalQueueMs = new LongAdder();
+        private final AtomicLong maxQueueMs = new AtomicLong();
+
+        private LaneState(int budget) {
+            this.budget = budget;
+        }
+
+        /**
+         * 按键轮转取出下一个可以放行的请求，放行后该键移到队尾
+         */
+        private Waiter next(int perKeyLimit) {
+            if (running >= budget) {
+                return null;
+            }
+            Iterator<Map.Entry<String, ArrayDeque<Waiter>>> iterator = queues.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, ArrayDeque<Waiter>> entry = iterator.next();
+                if (runningByKey.getOrDefault(entry.getKey(), 0) >= perKeyLimit) {
+                    continue;
+                }
+                ArrayDeque<Waiter> queue = entry.getValue();
+                Waiter waiter = queue.poll();
+                queued--;
+                iterator.remove();
+                if (!queue.isEmpty()) {
+                    queues.put(entry.getKey(), queue);
+                }
+                return waiter;
+            }
+            return null;
+        }
+
+        /**
+         * 各键队首请求中最长的等待时间
+         */
+        private long headOfLineNanos(long now) {
+            long oldest = 0;
+            for (ArrayDeque<Waiter> queue : queues.values()) {
+                Waiter head = queue.peek();
+                if (head != null) {
+                    oldest = Math.max(oldest, now - head.enqueuedNanos);
+                }
+            }
+            return oldest;
+        }
+    }
+}
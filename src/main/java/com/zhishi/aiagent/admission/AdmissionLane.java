@@ -0,0 +1,48 @@
+package com.zhishi.aiagent.admission;
+
+import java.time.Duration;
+
+/**
+ * 准入通道，每类接口一个，分别设置并发预算、优先级和排队时限
+ */
+public enum AdmissionLane {
+
+    MASTER("master", Priority.INTERACTIVE, Duration.ofSeconds(10), Duration.ofSeconds(3)),
+
+    MANUS("manus", Priority.STANDARD, Duration.ofSeconds(30), Duration.ofSeconds(10)),
+
+    TRIPMIND("tripmind", Priority.BATCH, Duration.ofSeconds(60), Duration.ofSeconds(20));
+
+    private final String value;
+
+    private final Priority priority;
+
+    // 单个请求最长排队时间
+    private final Duration maxQueueTime;
+
+    // 队首请求已等待超过该时间时，新请求直接拒绝
+    private final Duration shedLatency;
+
+    AdmissionLane(String value, Priority priority, Duration maxQueueTime, Duration shedLatency) {
+        this.value = value;
+        this.priority = priority;
+        this.maxQueueTime = maxQueueTime;
+        this.shedLatency = shedLatency;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public Duration getMaxQueueTime() {
+        return maxQueueTime;
+    }
+
+    public Duration getShedLatency() {
+        return shedLatency;
+    }
+}
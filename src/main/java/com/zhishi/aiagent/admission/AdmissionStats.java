@@ -0,0 +1,19 @@
+package com.zhishi.aiagent.admission;
+
+/**
+ * 准入通道的统计快照
+ *
+ * @param priority     优先级
+ * @param budget       并发预算
+ * @param running      执行中的请求数
+ * @param queued       排队中的请求数
+ * @param admitted     已放行的请求数
+ * @param shed         因排队延迟或队列过长被直接拒绝的请求数
+ * @param timedOut     排队超时的请求数
+ * @param avgQueueMs   放行请求的平均排队时间
+ * @param maxQueueMs   最长排队时间
+ * @param headOfLineMs 当前队首请求已等待的时间
+ */
+public record AdmissionStats(Priority priority, int budget, int running, int queued, long admitted, long shed,
+                             long timedOut, long avgQueueMs, long maxQueueMs, long headOfLineMs) {
+}
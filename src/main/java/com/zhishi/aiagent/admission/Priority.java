@@ -0,0 +1,22 @@
+package com.zhishi.aiagent.admission;
+
+/**
+ * 优先级，空闲并发先分配给高优先级的排队请求
+ */
+public enum Priority {
+
+    /**
+     * 情感陪聊等交互式对话
+     */
+    INTERACTIVE,
+
+    /**
+     * 智能体运行
+     */
+    STANDARD,
+
+    /**
+     * 旅行规划等批量生成
+     */
+    BATCH
+}
@@ -0,0 +1,71 @@
+package com.zhishi.aiagent.advisor;
+
+import com.zhishi.aiagent.memory.LongTermMemory;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+/**
+ * 长期记忆检索 Advisor
+ * 把与本轮消息相关的记忆附在发送给模型的用户消息前面，不改动系统提示词和历史消息，提示词前缀保持不变；
+ * 排在对话记忆 Advisor 之后执行，写入对话记忆的仍是用户原话
+ */
+public class MemoryRecallAdvisor implements CallAdvisor, StreamAdvisor {
+
+    private final LongTermMemory longTermMemory;
+
+    public MemoryRecallAdvisor(LongTermMemory longTermMemory) {
+        this.longTermMemory = longTermMemory;
+    }
+
+    private ChatClientRequest before(ChatClientRequest chatClientRequest) {
+        Object chatId = chatClientRequest.context().get(ChatMemory.CONVERSATION_ID);
+        String userText = chatClientRequest.prompt().getUserMessage().getText();
+        if (chatId == null) {
+            return chatClientRequest;
+        }
+        List<String> memories = longTermMemory.recall(chatId.toString(), userText);
+        if (memories.isEmpty()) {
+            return chatClientRequest;
+        }
+        StringBuilder augmented = new StringBuilder("（你记得的关于用户的信息，来自之前的对话：\n");
+        memories.forEach(memory -> augmented.append("- ").append(memory).append('\n'));
+        augmented.append("）\n\n").append(userText);
+        Prompt newPrompt = chatClientRequest.prompt().augmentUserMessage(augmented.toString());
+        return new ChatClientRequest(newPrompt, chatClientRequest.context());
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest chatClientRequest, CallAdvisorChain chain) {
+        return chain.nextCall(this.before(chatClientRequest));
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest chatClientRequest, StreamAdvisorChain chain) {
+        // 检索需要一次向量化调用，放到弹性线程上，不阻塞订阅线程
+        return Mono.fromCallable(() -> this.before(chatClientRequest))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(chain::nextStream);
+    }
+
+    @Override
+    public int getOrder() {
+        return Advisor.DEFAULT_CHAT_MEMORY_PRECEDENCE_ORDER + 1;
+    }
+
+    @Override
+    public String getName() {
+        return this.getClass().getSimpleName();
+    }
+}
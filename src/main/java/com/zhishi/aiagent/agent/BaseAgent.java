@@ -2,17 +2,23 @@ package com.zhishi.aiagent.agent;
 
 import cn.hutool.core.util.StrUtil;
 import com.zhishi.aiagent.agent.model.AgentState;
+import com.zhishi.aiagent.sse.AgentEvent;
+import com.zhishi.aiagent.sse.AgentEventType;
+import com.zhishi.aiagent.tools.ToolProgress;
+import com.zhishi.aiagent.tools.cache.ToolCacheScope;
+import com.zhishi.aiagent.tools.cache.ToolMemoizer;
+import com.zhishi.aiagent.tools.cache.ToolResultCache;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.UserMessage;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * 抽象基础代理类，用于管理代理状态和执行流程。
@@ -23,6 +29,9 @@ import java.util.concurrent.CompletableFuture;
 @Slf4j
 public abstract class BaseAgent {
 
+    private static final Consumer<AgentEvent> NO_EVENT_LISTENER = event -> {
+    };
+
     // 核心属性
     private String name;
 
@@ -43,6 +52,15 @@ public abstract class BaseAgent {
     // Memory 记忆（需要自主维护会话上下文）
     private List<Message> messageList = new ArrayList<>();
 
+    // 流式运行时的事件监听
+    private Consumer<AgentEvent> eventListener = NO_EVENT_LISTENER;
+
+    // 客户端断开后置位，执行循环在步骤之间检查
+    private volatile boolean cancelled = false;
+
+    // 本次运行内的工具结果缓存，相同的幂等工具调用只执行一次
+    private final ToolResultCache runToolCache = new ToolResultCache(ToolMemoizer.RUN_CACHE_SIZE);
+
     /**
      * 运行代理
      *
@@ -63,9 +81,10 @@ public abstract class BaseAgent {
         messageList.add(new UserMessage(userPrompt));
         // 保存结果列表
         List<String> results = new ArrayList<>();
+        ToolCacheScope.bind(runToolCache);
         try {
             // 执行循环
-            for (int i = 0; i < maxSteps && state != AgentState.FINISHED; i++) {
+            for (int i = 0; i < maxSteps && state != AgentState.FINISHED && !cancelled; i++) {
                 int stepNumber = i + 1;
                 currentStep = stepNumber;
                 log.info("Executing step {}/{}", stepNumber, maxSteps);
@@ -85,6 +104,7 @@ public abstract class BaseAgent {
             log.error("error executing agent", e);
             return "执行错误" + e.getMessage();
         } finally {
+            ToolCacheScope.unbind();
             // 3、清理资源
             this.cleanup();
         }
@@ -92,87 +112,108 @@ public abstract class BaseAgent {
 
     /**
      * 运行代理（流式输出）
+     * 执行循环运行在独立的虚拟线程上，不占用请求线程和公共线程池；订阅取消（客户端断开）时停止后续步骤并中断当前调用
      *
      * @param userPrompt 用户提示词
-     * @return 执行结果
+     * @return 事件流
      */
-    public SseEmitter runStream(String userPrompt) {
-        // 创建一个超时时间较长的 SseEmitter
-        SseEmitter sseEmitter = new SseEmitter(300000L); // 5 分钟超时
-        // 使用线程异步处理，避免阻塞主线程
-        CompletableFuture.runAsync(() -> {
-            // 1、基础校验
-            try {
-                if (this.state != AgentState.IDLE) {
-                    sseEmitter.send("错误：无法从状态运行代理：" + this.state);
-                    sseEmitter.complete();
-                    return;
-                }
-                if (StrUtil.isBlank(userPrompt)) {
-                    sseEmitter.send("错误：不能使用空提示词运行代理");
-                    sseEmitter.complete();
-                    return;
+    public Flux<AgentEvent> runStream(String userPrompt) {
+        if (StrUtil.isBlank(userPrompt)) {
+            return Flux.just(AgentEvent.of(AgentEventType.ERROR, "错误：不能使用空提示词运行代理"));
+        }
+        return loopStream(userPrompt);
+    }
+
+    /**
+     * 从检查点继续运行（流式输出）
+     * 调用前需已恢复 messageList 和 currentStep，从下一步开始执行，不追加用户消息
+     *
+     * @return 事件流
+     */
+    public Flux<AgentEvent> resumeStream() {
+        return loopStream(null);
+    }
+
+    private Flux<AgentEvent> loopStream(String userPrompt) {
+        return Flux.create(sink -> {
+            Thread runner = Thread.ofVirtual()
+                    .name("agent-" + name)
+                    .unstarted(() -> runLoop(userPrompt, sink));
+            sink.onCancel(() -> {
+                if (runner.isAlive()) {
+                    log.info("Client disconnected, cancelling agent {}", name);
+                    cancelled = true;
+                    runner.interrupt();
                 }
-            } catch (Exception e) {
-                sseEmitter.completeWithError(e);
-            }
-            // 2、执行，更改状态
-            this.state = AgentState.RUNNING;
-            // 记录消息上下文
+            });
+            runner.start();
+        }, FluxSink.OverflowStrategy.BUFFER);
+    }
+
+    /**
+     * 执行循环
+     *
+     * @param userPrompt 用户提示词，为 null 时表示从检查点继续
+     */
+    private void runLoop(String userPrompt, FluxSink<AgentEvent> sink) {
+        // 1、基础校验
+        if (this.state != AgentState.IDLE) {
+            sink.next(AgentEvent.of(AgentEventType.ERROR, "错误：无法从状态运行代理：" + this.state));
+            sink.complete();
+            return;
+        }
+        // 2、执行，更改状态
+        this.state = AgentState.RUNNING;
+        // 记录消息上下文，恢复运行时上下文已在检查点中
+        if (userPrompt != null) {
             messageList.add(new UserMessage(userPrompt));
-            // 保存结果列表
-            List<String> results = new ArrayList<>();
-            try {
-                // 执行循环
-                for (int i = 0; i < maxSteps && state != AgentState.FINISHED; i++) {
-                    int stepNumber = i + 1;
-                    currentStep = stepNumber;
-                    log.info("Executing step {}/{}", stepNumber, maxSteps);
-                    // 单步执行
-                    String stepResult = step();
-                    String result = "Step " + stepNumber + ": " + stepResult;
-                    results.add(result);
-                    // 输出当前每一步的结果到 SSE
-                    sseEmitter.send(result);
-                }
-                // 检查是否超出步骤限制
-                if (currentStep >= maxSteps) {
-                    state = AgentState.FINISHED;
-                    results.add("Terminated: Reached max steps (" + maxSteps + ")");
-                    sseEmitter.send("执行结束：达到最大步骤（" + maxSteps + "）");
-                }
-                // 正常完成
-                sseEmitter.complete();
-            } catch (Exception e) {
+        }
+        // 步骤内部的思考、工具调用和工具进度都作为事件推送
+        this.eventListener = sink::next;
+        ToolProgress.bind(message -> sink.next(AgentEvent.of(AgentEventType.PROGRESS, message)));
+        ToolCacheScope.bind(runToolCache);
+        try {
+            String lastResult = "";
+            // 执行循环
+            for (int i = currentStep; i < maxSteps && state != AgentState.FINISHED && !cancelled; i++) {
+                int stepNumber = i + 1;
+                currentStep = stepNumber;
+                log.info("Executing step {}/{}", stepNumber, maxSteps);
+                // 单步执行
+                lastResult = step();
+                // 输出当前每一步的结果
+                sink.next(AgentEvent.of(AgentEventType.STEP, "Step " + stepNumber + ": " + lastResult));
+            }
+            if (cancelled) {
                 state = AgentState.ERROR;
-                log.error("error executing agent", e);
-                try {
-                    sseEmitter.send("执行错误：" + e.getMessage());
-                    sseEmitter.complete();
-                } catch (IOException ex) {
-                    sseEmitter.completeWithError(ex);
-                }
-            } finally {
-                // 3、清理资源
-                this.cleanup();
+                return;
             }
-        });
-
-        // 设置超时回调
-        sseEmitter.onTimeout(() -> {
-            this.state = AgentState.ERROR;
-            this.cleanup();
-            log.warn("SSE connection timeout");
-        });
-        // 设置完成回调
-        sseEmitter.onCompletion(() -> {
-            if (this.state == AgentState.RUNNING) {
-                this.state = AgentState.FINISHED;
+            // 检查是否超出步骤限制
+            if (state != AgentState.FINISHED && currentStep >= maxSteps) {
+                state = AgentState.FINISHED;
+                lastResult = "执行结束：达到最大步骤（" + maxSteps + "）";
             }
+            sink.next(AgentEvent.of(AgentEventType.FINAL, lastResult));
+            sink.complete();
+        } catch (Exception e) {
+            state = AgentState.ERROR;
+            log.error("error executing agent", e);
+            sink.next(AgentEvent.of(AgentEventType.ERROR, "执行错误：" + e.getMessage()));
+            sink.complete();
+        } finally {
+            ToolProgress.unbind();
+            ToolCacheScope.unbind();
+            this.eventListener = NO_EVENT_LISTENER;
+            // 3、清理资源
             this.cleanup();
-            log.info("SSE connection completed");
-        });
-        return sseEmitter;
+        }
+    }
+
+    /**
+     * 推送步骤内部的事件，非流式运行时忽略
+     */
+    protected void emit(AgentEvent event) {
+        eventListener.accept(event);
     }
 
     /**
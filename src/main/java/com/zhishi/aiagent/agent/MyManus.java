@@ -1,18 +1,17 @@
 package com.zhishi.aiagent.agent;
 
 import com.zhishi.aiagent.advisor.MyLoggerAdvisor;
+import com.zhishi.aiagent.routing.RouteTask;
+import com.zhishi.aiagent.routing.RoutingChatModel;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.tool.ToolCallback;
-import org.springframework.stereotype.Component;
 
 /**
  *  AI 超级智能体（拥有自主规划能力，可以直接使用）
  */
-@Component
 public class MyManus extends ToolCallAgent {
 
-    public MyManus(ToolCallback[] allTools, ChatModel dashscopeChatModel) {
+    public MyManus(ToolCallback[] allTools, RoutingChatModel routingChatModel) {
         super(allTools);
         this.setName("MyManus");
         String SYSTEM_PROMPT = """
@@ -28,8 +27,8 @@ public class MyManus extends ToolCallAgent {
                 """;
         this.setNextStepPrompt(NEXT_STEP_PROMPT);
         this.setMaxSteps(5);
-        // 初始化 AI 对话客户端
-        ChatClient chatClient = ChatClient.builder(dashscopeChatModel)
+        // 初始化 AI 对话客户端（首步规划走旗舰模型，后续单步决策由路由下沉到中等模型）
+        ChatClient chatClient = ChatClient.builder(routingChatModel.forTask(RouteTask.AGENT_STEP))
                 .defaultAdvisors(new MyLoggerAdvisor())
                 .build();
         this.setChatClient(chatClient);
@@ -0,0 +1,341 @@
+package com.zhishi.aiagent.agent;
+
+import cn.hutool.core.util.StrUtil;
+import com.zhishi.aiagent.agent.model.AgentState;
+import com.zhishi.aiagent.agent.model.PlanTask;
+import com.zhishi.aiagent.agent.model.TaskPlan;
+import com.zhishi.aiagent.agent.prefetch.PrefetchSettings;
+import com.zhishi.aiagent.agent.select.ToolCatalog;
+import com.zhishi.aiagent.routing.RouteTask;
+import com.zhishi.aiagent.routing.RoutingChatModel;
+import com.zhishi.aiagent.sse.AgentEvent;
+import com.zhishi.aiagent.sse.AgentEventType;
+import com.zhishi.aiagent.tools.ToolProgress;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.converter.BeanOutputConverter;
+import org.springframework.ai.tool.ToolCallback;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * 规划-执行代理
+ * 与 ToolCallAgent 逐步思考不同，先由规划模型一次性生成任务图，再把互不依赖的子任务交给各自独立上下文的子代理并发执行，
+ * 最后汇总结果；总耗时取决于任务图的关键路径，而不是所有步骤之和
+ * 三个步骤依次为：规划、执行、汇总
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+@Slf4j
+public class PlanExecuteAgent extends BaseAgent {
+
+    private static final int MAX_TASKS = 8;
+    private static final int MAX_PARALLEL_TASKS = 4;
+    private static final int SUB_AGENT_MAX_STEPS = 4;
+
+    // 传给下游子任务和汇总步骤的单个结果长度上限，保证子代理上下文有界
+    private static final int MAX_RESULT_CHARS = 3000;
+
+    private static final String PLAN_PROMPT = """
+            You are a task planner. Break the user's request into at most %d subtasks that together fully answer it.
+            Each subtask must be completable by an assistant with web, map, file and PDF tools.
+            Only declare a dependency when a subtask needs another subtask's result; independent subtasks run in parallel.
+            Do not add a final summarising subtask, results are merged automatically.
+            """.formatted(MAX_TASKS);
+
+    private static final String SUB_AGENT_PROMPT = """
+            You are a focused assistant working on one subtask of a larger request.
+            Use the available tools only as needed for your subtask, then reply with a concise summary of your findings
+            and call the `terminate` tool.
+            """;
+
+    private static final String MERGE_PROMPT = """
+            You are MyManus. Combine the subtask results below into one complete, well-organised answer to the user's request.
+            Resolve overlaps and contradictions, and keep concrete details such as names, addresses, times and prices.
+            """;
+
+    private final ToolCallback[] availableTools;
+
+    // 子代理使用的对话客户端
+    private final ChatClient subAgentChatClient;
+
+    // 子代理的工具预取配置
+    private PrefetchSettings prefetchSettings = PrefetchSettings.defaults();
+
+    // 子代理按步骤挑选工具使用的工具目录
+    private ToolCatalog toolCatalog;
+
+    private final BeanOutputConverter<TaskPlan> planConverter = new BeanOutputConverter<>(TaskPlan.class);
+
+    private List<PlanTask> tasks = new ArrayList<>();
+
+    private final Map<String, String> taskResults = new ConcurrentHashMap<>();
+
+    // 执行中的子代理，取消时一并停止
+    private final Set<BaseAgent> runningSubAgents = ConcurrentHashMap.newKeySet();
+
+    public PlanExecuteAgent(ToolCallback[] availableTools, RoutingChatModel routingChatModel) {
+        this.availableTools = availableTools;
+        this.setName("PlanExecuteAgent");
+        this.setMaxSteps(3);
+        // 规划和汇总需要较强的推理能力，子任务的单步决策由路由下沉
+        this.setChatClient(ChatClient.builder(routingChatModel.forTask(RouteTask.PLANNING)).build());
+        this.subAgentChatClient = ChatClient.builder(routingChatModel.forTask(RouteTask.AGENT_STEP)).build();
+    }
+
+    @Override
+    public String step() {
+        return switch (getCurrentStep()) {
+            case 1 -> plan();
+            case 2 -> execute();
+            default -> merge();
+        };
+    }
+
+    /**
+     * 规划：一次调用生成任务图
+     */
+    private String plan() {
+        String content = getChatClient().prompt()
+                .system(PLAN_PROMPT)
+                .user(userRequest() + "\n\n" + planConverter.getFormat())
+                .call()
+                .content();
+        List<PlanTask> planned = parsePlan(content);
+        if (planned.isEmpty()) {
+            // 规划无法解析或为空时，整个请求作为一个子任务执行
+            log.warn("Task plan is empty or malformed, running the request as a single task");
+            PlanTask single = new PlanTask();
+            single.setId("t1");
+            single.setDescription(userRequest());
+            planned = List.of(single);
+        }
+        if (planned.size() > MAX_TASKS) {
+            planned = planned.subList(0, MAX_TASKS);
+        }
+        this.tasks = order(planned);
+        String summary = tasks.stream()
+                .map(task -> task.getId() + (task.getDependsOn().isEmpty() ? "" : "（依赖 " + String.join("、", task.getDependsOn()) + "）")
+                        + "：" + task.getDescription())
+                .collect(Collectors.joining("\n"));
+        emit(AgentEvent.of(AgentEventType.THOUGHT, "任务规划：\n" + summary));
+        return "规划了 " + tasks.size() + " 个子任务\n" + summary;
+    }
+
+    private List<PlanTask> parsePlan(String content) {
+        try {
+            TaskPlan plan = planConverter.convert(content);
+            return plan == null || plan.getTasks() == null ? List.of() : plan.getTasks();
+        } catch (RuntimeException e) {
+            log.warn("Failed to parse task plan: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * 执行：每个子任务在前置任务全部完成后立即启动，同时运行的子代理数量有上限
+     */
+    private String execute() {
+        if (tasks.isEmpty()) {
+            return "没有需要执行的子任务";
+        }
+        long start = System.currentTimeMillis();
+        Consumer<String> progress = ToolProgress.current();
+        Semaphore permits = new Semaphore(MAX_PARALLEL_TASKS);
+        Map<String, CompletableFuture<String>> futures = new HashMap<>();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            // tasks 已按拓扑序排列，依赖的 future 总是先创建；前置任务失败时仍执行，失败结果作为其输入
+            for (PlanTask task : tasks) {
+                CompletableFuture<?>[] dependencies = task.getDependsOn().stream()
+                        .map(futures::get)
+                        .toArray(CompletableFuture[]::new);
+                futures.put(task.getId(), CompletableFuture.allOf(dependencies)
+                        .handleAsync((ignored, error) -> runTask(task, permits, progress), executor));
+            }
+            CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new)).get();
+        } catch (InterruptedException e) {
+            // 先停止子代理再返回，不等待执行中的子任务结束
+            setCancelled(true);
+            runningSubAgents.forEach(subAgent -> subAgent.setCancelled(true));
+            futures.values().forEach(future -> future.cancel(true));
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            return "执行被取消";
+        } catch (ExecutionException e) {
+            log.error("Subtask execution failed", e.getCause());
+            String failure = "子任务执行失败：" + e.getCause().getMessage();
+            tasks.forEach(task -> taskResults.putIfAbsent(task.getId(), failure));
+            return String.format("%d 个子任务执行结束，其中有子任务失败：%s，耗时 %d ms", tasks.size(), e.getCause().getMessage(),
+                    System.currentTimeMillis() - start);
+        } finally {
+            // 正常结束时所有子任务均已完成，不需要等待
+            executor.shutdown();
+        }
+        return String.format("%d 个子任务执行完成，耗时 %d ms", taskResults.size(), System.currentTimeMillis() - start);
+    }
+
+    private String runTask(PlanTask task, Semaphore permits, Consumer<String> progress) {
+        if (isCancelled()) {
+            return "";
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "";
+        }
+        String result;
+        BaseAgent subAgent = null;
+        ToolProgress.bind(progress);
+        try {
+            subAgent = createSubAgent(task);
+            runningSubAgents.add(subAgent);
+            // 加入后再检查一次，取消与启动同时发生时不漏掉
+            if (isCancelled()) {
+                return "";
+            }
+            emit(AgentEvent.of(AgentEventType.PROGRESS, "子任务 " + task.getId() + " 开始：" + task.getDescription()));
+            String output = subAgent.run(subTaskPrompt(task));
+            result = StrUtil.maxLength(StrUtil.blankToDefault(lastAssistantText(subAgent.getMessageList()), output), MAX_RESULT_CHARS);
+        } catch (Exception e) {
+            log.warn("Subtask {} failed: {}", task.getId(), e.getMessage());
+            result = "子任务执行失败：" + e.getMessage();
+        } finally {
+            ToolProgress.unbind();
+            if (subAgent != null) {
+                runningSubAgents.remove(subAgent);
+            }
+            permits.release();
+        }
+        taskResults.put(task.getId(), result);
+        emit(AgentEvent.of(AgentEventType.PROGRESS, "子任务 " + task.getId() + " 完成"));
+        return result;
+    }
+
+    /**
+     * 为子任务创建独立上下文的子代理
+     */
+    protected BaseAgent createSubAgent(PlanTask task) {
+        ToolCallAgent subAgent = new ToolCallAgent(availableTools);
+        subAgent.setName(getName() + "-" + task.getId());
+        subAgent.setSystemPrompt(SUB_AGENT_PROMPT);
+        subAgent.setMaxSteps(SUB_AGENT_MAX_STEPS);
+        subAgent.setChatClient(subAgentChatClient);
+        subAgent.setPrefetchSettings(prefetchSettings);
+        subAgent.setToolCatalog(toolCatalog);
+        // 子代理的工具调用事件转发到本代理的事件流
+        subAgent.setEventListener(event -> {
+            if (event.type() == AgentEventType.TOOL_CALL || event.type() == AgentEventType.TOOL_RESULT) {
+                emit(event);
+            }
+        });
+        return subAgent;
+    }
+
+    /**
+     * 子代理的上下文只包含总体需求、自身任务和直接前置任务的结果
+     */
+    private String subTaskPrompt(PlanTask task) {
+        StringBuilder prompt = new StringBuilder()
+                .append("总体需求：").append(userRequest()).append("\n\n")
+                .append("你的子任务：").append(task.getDescription()).append("\n");
+        for (String dependency : task.getDependsOn()) {
+            prompt.append("\n前置子任务 ").append(dependency).append(" 的结果：\n")
+                    .append(taskResults.getOrDefault(dependency, "（无结果）")).append("\n");
+        }
+        return prompt.toString();
+    }
+
+    /**
+     * 汇总：合并所有子任务结果为最终回答
+     */
+    private String merge() {
+        StringBuilder results = new StringBuilder("用户请求：").append(userRequest()).append("\n");
+        for (PlanTask task : tasks) {
+            results.append("\n## 子任务 ").append(task.getId()).append("：").append(task.getDescription()).append("\n")
+                    .append(taskResults.getOrDefault(task.getId(), "（未执行）")).append("\n");
+        }
+        String answer = getChatClient().prompt()
+                .system(MERGE_PROMPT)
+                .user(results.toString())
+                .call()
+                .content();
+        getMessageList().add(new AssistantMessage(answer));
+        setState(AgentState.FINISHED);
+        return answer;
+    }
+
+    private String userRequest() {
+        return getMessageList().isEmpty() ? "" : getMessageList().get(0).getText();
+    }
+
+    private static String lastAssistantText(List<Message> messages) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i) instanceof AssistantMessage assistantMessage && StrUtil.isNotBlank(assistantMessage.getText())) {
+                return assistantMessage.getText();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 清理任务图并按拓扑序排列：去掉重复 ID、未知依赖和自依赖；存在环时退化为按原顺序串行执行
+     */
+    static List<PlanTask> order(List<PlanTask> planned) {
+        Map<String, PlanTask> byId = new LinkedHashMap<>();
+        for (PlanTask task : planned) {
+            if (task != null && StrUtil.isNotBlank(task.getId()) && !byId.containsKey(task.getId())) {
+                byId.put(task.getId(), task);
+            }
+        }
+        for (PlanTask task : byId.values()) {
+            List<String> dependsOn = task.getDependsOn() == null ? List.of() : task.getDependsOn();
+            task.setDependsOn(dependsOn.stream()
+                    .filter(dependency -> byId.containsKey(dependency) && !dependency.equals(task.getId()))
+                    .distinct()
+                    .collect(Collectors.toCollection(ArrayList::new)));
+        }
+        // Kahn 算法
+        List<PlanTask> ordered = new ArrayList<>(byId.size());
+        Set<String> done = new HashSet<>();
+        boolean progressed = true;
+        while (ordered.size() < byId.size() && progressed) {
+            progressed = false;
+            for (PlanTask task : byId.values()) {
+                if (!done.contains(task.getId()) && done.containsAll(task.getDependsOn())) {
+                    ordered.add(task);
+                    done.add(task.getId());
+                    progressed = true;
+                }
+            }
+        }
+        if (ordered.size() < byId.size()) {
+            log.warn("Task plan contains a cycle, falling back to sequential execution");
+            List<PlanTask> sequential = new ArrayList<>(byId.values());
+            for (int i = 0; i < sequential.size(); i++) {
+                sequential.get(i).setDependsOn(i == 0 ? new ArrayList<>() : new ArrayList<>(List.of(sequential.get(i - 1).getId())));
+            }
+            return sequential;
+        }
+        return ordered;
+    }
+}
@@ -4,6 +4,13 @@ import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.StrUtil;
 import com.alibaba.cloud.ai.dashscope.chat.DashScopeChatOptions;
 import com.zhishi.aiagent.agent.model.AgentState;
+import com.zhishi.aiagent.agent.prefetch.PrefetchSettings;
+import com.zhishi.aiagent.agent.prefetch.ToolPrefetcher;
+import com.zhishi.aiagent.agent.select.ToolCatalog;
+import com.zhishi.aiagent.agent.select.ToolSelector;
+import com.zhishi.aiagent.prompt.PromptPrefix;
+import com.zhishi.aiagent.sse.AgentEvent;
+import com.zhishi.aiagent.sse.AgentEventType;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.extern.slf4j.Slf4j;
@@ -14,6 +21,7 @@ import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.ChatOptions;
 import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
 import org.springframework.ai.model.tool.ToolCallingManager;
 import org.springframework.ai.model.tool.ToolExecutionResult;
 import org.springframework.ai.tool.ToolCallback;
@@ -41,9 +49,18 @@ public class ToolCallAgent extends ReActAgent {
     // 禁用 Spring AI 内置的工具调用机制，自己维护选项和消息上下文
     private final ChatOptions chatOptions;
 
+    // 工具预取配置，首次思考时创建预取器
+    private PrefetchSettings prefetchSettings = PrefetchSettings.defaults();
+    private ToolPrefetcher toolPrefetcher;
+
+    // 工具目录，设置后每步只提供相关的工具；为 null 时每步提供全部工具
+    private ToolCatalog toolCatalog;
+    private ToolSelector toolSelector;
+
     public ToolCallAgent(ToolCallback[] availableTools) {
         super();
-        this.availableTools = availableTools;
+        // 工具定义按名称排序，每一步请求的前缀逐字节相同，命中模型服务的前缀缓存
+        this.availableTools = PromptPrefix.canonicalTools(availableTools);
         this.toolCallingManager = ToolCallingManager.builder().build();
         // 禁用 Spring AI 内置的工具调用机制，自己维护选项和消息上下文；默认不开启联网搜索，逐次调用时再补充
         this.chatOptions = DashScopeChatOptions.builder()
@@ -63,14 +80,19 @@ public class ToolCallAgent extends ReActAgent {
             UserMessage userMessage = new UserMessage(getNextStepPrompt());
             getMessageList().add(userMessage);
         }
-        // 2、调用 AI 大模型，获取工具调用结果
+        // 2、等待模型期间，根据上一步的工具结果预取可能用到的只读工具
         List<Message> messageList = getMessageList();
+        prefetcher().prefetch(messageList);
+        // 挑选本步提供的工具，未配置工具目录时提供全部工具
+        ToolSelector selector = selector();
+        ToolCallback[] exposedTools = selector == null ? availableTools : selector.select(messageList);
+        // 调用 AI 大模型，获取工具调用结果；请求依次为系统提示词、工具定义、历史消息，历史只追加不改写
         Prompt prompt = new Prompt(messageList, this.chatOptions);
         try {
             ChatResponse chatResponse = getChatClient().prompt(prompt)
                     .system(getSystemPrompt())
                     // 使用注解工具回调注册，避免 MethodToolCallback 找不到 @Tool 方法的错误
-                    .toolCallbacks(availableTools)
+                    .toolCallbacks(exposedTools)
 //                    .tools(availableTools)
                     //开启联网搜索
                     .options(DashScopeChatOptions.builder().withEnableSearch(true).build())
@@ -91,8 +113,16 @@ public class ToolCallAgent extends ReActAgent {
                     .map(toolCall -> String.format("工具名称：%s，参数：%s", toolCall.name(), toolCall.arguments()))
                     .collect(Collectors.joining("\n"));
             log.info(toolCallInfo);
+            if (StrUtil.isNotBlank(result)) {
+                emit(AgentEvent.of(AgentEventType.THOUGHT, result));
+            }
+            toolCallList.forEach(toolCall -> emit(AgentEvent.toolCall(toolCall.name(), toolCall.arguments())));
             // 如果不需要调用工具，返回 false
             if (toolCallList.isEmpty()) {
+                // 只提供了部分工具时，可能是缺少需要的工具，之后的步骤提供全部工具
+                if (selector != null && !selector.isExpanded() && exposedTools.length < availableTools.length) {
+                    selector.expand();
+                }
                 // 只有不调用工具时，才需要手动记录助手消息
                 getMessageList().add(assistantMessage);
                 return false;
@@ -117,8 +147,12 @@ public class ToolCallAgent extends ReActAgent {
         if (!toolCallChatResponse.hasToolCalls()) {
             return "没有工具需要调用";
         }
-        // 调用工具
-        Prompt prompt = new Prompt(getMessageList(), this.chatOptions);
+        // 调用工具，已预取的调用直接返回结果
+        ToolCallingChatOptions toolOptions = ToolCallingChatOptions.builder()
+                .toolCallbacks(prefetcher().wrap(availableTools))
+                .internalToolExecutionEnabled(false)
+                .build();
+        Prompt prompt = new Prompt(getMessageList(), toolOptions);
         ToolExecutionResult toolExecutionResult = toolCallingManager.executeToolCalls(prompt, toolCallChatResponse);
         // 记录消息上下文，conversationHistory 已经包含了助手消息和工具调用返回的结果
         setMessageList(toolExecutionResult.conversationHistory());
@@ -130,10 +164,33 @@ public class ToolCallAgent extends ReActAgent {
             // 任务结束，更改状态
             setState(AgentState.FINISHED);
         }
+        toolResponseMessage.getResponses()
+                .forEach(response -> emit(AgentEvent.toolResult(response.name(), response.responseData())));
         String results = toolResponseMessage.getResponses().stream()
                 .map(response -> "工具 " + response.name() + " 返回的结果：" + response.responseData())
                 .collect(Collectors.joining("\n"));
         log.info(results);
         return results;
     }
+
+    @Override
+    protected void cleanup() {
+        if (toolPrefetcher != null) {
+            toolPrefetcher.clear();
+        }
+    }
+
+    private ToolSelector selector() {
+        if (toolSelector == null && toolCatalog != null) {
+            toolSelector = toolCatalog.newSelector();
+        }
+        return toolSelector;
+    }
+
+    private ToolPrefetcher prefetcher() {
+        if (toolPrefetcher == null) {
+            toolPrefetcher = new ToolPrefetcher(availableTools, prefetchSettings);
+        }
+        return toolPrefetcher;
+    }
 }
@@ -0,0 +1,23 @@
+package com.zhishi.aiagent.agent.model;
+
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 任务图中的一个子任务
+ */
+@Data
+public class PlanTask {
+
+    @JsonPropertyDescription("子任务 ID，如 t1、t2")
+    private String id;
+
+    @JsonPropertyDescription("子任务描述，需能由一个助手借助工具独立完成")
+    private String description;
+
+    @JsonPropertyDescription("依赖的子任务 ID，需要用到其结果时才填写；彼此独立的子任务不要互相依赖，以便并行执行")
+    private List<String> dependsOn = new ArrayList<>();
+}
@@ -0,0 +1,17 @@
+package com.zhishi.aiagent.agent.model;
+
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 任务图（有向无环图），由规划模型一次生成
+ */
+@Data
+public class TaskPlan {
+
+    @JsonPropertyDescription("子任务列表")
+    private List<PlanTask> tasks = new ArrayList<>();
+}
@@ -0,0 +1,10 @@
+package com.zhishi.aiagent.agent.prefetch;
+
+/**
+ * 预测的工具调用
+ *
+ * @param toolName  工具名称
+ * @param arguments JSON 格式的调用参数
+ */
+public record PrefetchCall(String toolName, String arguments) {
+}
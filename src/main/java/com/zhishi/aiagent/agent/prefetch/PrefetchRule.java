@@ -0,0 +1,37 @@
+package com.zhishi.aiagent.agent.prefetch;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预取规则：某个工具返回后，根据它的参数和结果预测下一步最可能调用的工具
+ * 目标工具必须是只读且幂等的，预取结果未被使用时不会产生副作用
+ *
+ * @param sourceTool 触发规则的工具
+ * @param targetTool 预取的工具
+ * @param predictor  根据触发工具的参数和结果生成目标工具的参数，按可能性从高到低排列
+ */
+public record PrefetchRule(String sourceTool, String targetTool, Predictor predictor) {
+
+    @FunctionalInterface
+    public interface Predictor {
+
+        List<Map<String, Object>> predict(JSONObject arguments, String result);
+    }
+
+    /**
+     * 规则名称，用于配置，格式：触发工具:预取工具
+     */
+    public String name() {
+        return sourceTool + ":" + targetTool;
+    }
+
+    public List<PrefetchCall> predict(JSONObject arguments, String result) {
+        return predictor.predict(arguments, result).stream()
+                .map(args -> new PrefetchCall(targetTool, JSONUtil.toJsonStr(args)))
+                .toList();
+    }
+}
@@ -0,0 +1,105 @@
+package com.zhishi.aiagent.agent.prefetch;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 内置的预取规则
+ */
+@Slf4j
+public final class PrefetchRules {
+
+    // 每条规则最多预测的调用数
+    private static final int TOP_RESULTS = 3;
+
+    private static final Map<String, PrefetchRule> BUILT_IN = new LinkedHashMap<>();
+
+    static {
+        // 兴趣点搜索后，模型通常会对排在前面的结果做地理编码
+        register(new PrefetchRule("placeSearch", "geocode", (arguments, result) -> topItems(result).stream()
+                .filter(poi -> StrUtil.isNotBlank(poi.getStr("name")))
+                .map(poi -> {
+                    Map<String, Object> args = new LinkedHashMap<>();
+                    args.put("address", poi.getStr("name"));
+                    args.put("city", arguments.getStr("city"));
+                    return args;
+                })
+                .toList()));
+        // 兴趣点搜索后，模型通常会规划相邻结果之间的步行路线
+        register(new PrefetchRule("placeSearch", "walkingDirection", (arguments, result) -> {
+            List<String> locations = topItems(result).stream()
+                    .map(poi -> poi.getStr("location"))
+                    .filter(StrUtil::isNotBlank)
+                    .toList();
+            List<Map<String, Object>> calls = new ArrayList<>();
+            for (int i = 0; i + 1 < locations.size(); i++) {
+                calls.add(Map.of("origin", locations.get(i), "destination", locations.get(i + 1)));
+            }
+            return calls;
+        }));
+        // 网页搜索后，模型通常会抓取前几个链接
+        register(new PrefetchRule("searchWeb", "scrapeWebPage", (arguments, result) -> topItems(result).stream()
+                .map(item -> item.getStr("link"))
+                .filter(StrUtil::isNotBlank)
+                .map(link -> Map.<String, Object>of("url", link))
+                .toList()));
+    }
+
+    private PrefetchRules() {
+    }
+
+    private static void register(PrefetchRule rule) {
+        BUILT_IN.put(rule.name(), rule);
+    }
+
+    /**
+     * 全部内置规则
+     */
+    public static List<PrefetchRule> defaults() {
+        return List.copyOf(BUILT_IN.values());
+    }
+
+    /**
+     * 按名称选择内置规则，忽略未知名称
+     */
+    public static List<PrefetchRule> of(Collection<String> names) {
+        List<PrefetchRule> rules = new ArrayList<>();
+        for (String name : names) {
+            PrefetchRule rule = BUILT_IN.get(StrUtil.trim(name));
+            if (rule == null) {
+                log.warn("Unknown prefetch rule: {}, available: {}", name, BUILT_IN.keySet());
+                continue;
+            }
+            rules.add(rule);
+        }
+        return rules;
+    }
+
+    /**
+     * 工具结果是以逗号拼接的 JSON 对象，取前几项
+     */
+    private static List<JSONObject> topItems(String result) {
+        if (StrUtil.isBlank(result) || !result.startsWith("{")) {
+            return List.of();
+        }
+        try {
+            JSONArray items = JSONUtil.parseArray("[" + result + "]");
+            return items.stream()
+                    .limit(TOP_RESULTS)
+                    .filter(JSONObject.class::isInstance)
+                    .map(JSONObject.class::cast)
+                    .toList();
+        } catch (Exception e) {
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.zhishi.aiagent.agent.prefetch;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 预取配置
+ *
+ * @param enabled         是否开启
+ * @param ttl             预取结果的有效期
+ * @param maxCallsPerStep 每步最多发起的预取调用数
+ * @param rules           启用的规则
+ */
+public record PrefetchSettings(boolean enabled, Duration ttl, int maxCallsPerStep, List<PrefetchRule> rules) {
+
+    public static PrefetchSettings defaults() {
+        return new PrefetchSettings(true, Duration.ofSeconds(30), 3, PrefetchRules.defaults());
+    }
+
+    public static PrefetchSettings disabled() {
+        return new PrefetchSettings(false, Duration.ZERO, 0, List.of());
+    }
+}
@@ -0,0 +1,43 @@
+package com.zhishi.aiagent.agent.prefetch;
+
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+/**
+ * 先查预取结果的工具回调，未命中时调用原工具
+ */
+class PrefetchingToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+
+    private final ToolPrefetcher prefetcher;
+
+    PrefetchingToolCallback(ToolCallback delegate, ToolPrefetcher prefetcher) {
+        this.delegate = delegate;
+        this.prefetcher = prefetcher;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        String prefetched = prefetcher.take(getToolDefinition().name(), toolInput);
+        return prefetched != null ? prefetched : delegate.call(toolInput);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        String prefetched = prefetcher.take(getToolDefinition().name(), toolInput);
+        return prefetched != null ? prefetched : delegate.call(toolInput, toolContext);
+    }
+}
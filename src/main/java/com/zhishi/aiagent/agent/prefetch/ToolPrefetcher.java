@@ -0,0 +1,194 @@
+package com.zhishi.aiagent.agent.prefetch;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zhishi.aiagent.tools.cache.ToolCallKey;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.tool.ToolCallback;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 工具预取
+ * 模型思考期间，按规则根据上一步的工具结果提前执行最可能被调用的只读工具，结果按工具名和规范化参数短暂缓存；
+ * 行动阶段请求相同的调用时直接返回缓存结果（仍在执行时等待其完成），预测失败或过期时照常调用工具
+ * 每个代理实例一个，缓存不跨运行共享
+ */
+@Slf4j
+public class ToolPrefetcher {
+
+    // 预取调用运行在虚拟线程上，不占用代理线程
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private record Prefetched(CompletableFuture<String> result, long expiresAt) {
+    }
+
+    private final PrefetchSettings settings;
+
+    private final Map<String, ToolCallback> toolsByName;
+
+    private final Map<String, Prefetched> cache = new ConcurrentHashMap<>();
+
+    private final AtomicInteger issued = new AtomicInteger();
+    private final AtomicInteger hits = new AtomicInteger();
+
+    public ToolPrefetcher(ToolCallback[] tools, PrefetchSettings settings) {
+        this.settings = settings;
+        this.toolsByName = Arrays.stream(tools)
+                .collect(Collectors.toMap(tool -> tool.getToolDefinition().name(), Function.identity(), (a, b) -> a));
+    }
+
+    /**
+     * 根据上下文中最近一次工具调用的结果发起预取
+     */
+    public void prefetch(List<Message> messages) {
+        if (!settings.enabled() || messages.size() < 2
+                || !(messages.get(messages.size() - 1) instanceof ToolResponseMessage toolResponseMessage)
+                || !(messages.get(messages.size() - 2) instanceof AssistantMessage assistantMessage)) {
+            return;
+        }
+        evictExpired();
+        Map<String, String> argumentsById = new HashMap<>();
+        assistantMessage.getToolCalls().forEach(toolCall -> argumentsById.put(toolCall.id(), toolCall.arguments()));
+        int remaining = settings.maxCallsPerStep();
+        for (ToolResponseMessage.ToolResponse response : toolResponseMessage.getResponses()) {
+            for (PrefetchRule rule : settings.rules()) {
+                if (remaining <= 0) {
+                    return;
+                }
+                if (!rule.sourceTool().equals(response.name())) {
+                    continue;
+                }
+                List<PrefetchCall> calls = rule.predict(parseArguments(argumentsById.get(response.id())), unwrap(response.responseData()));
+                for (PrefetchCall call : calls) {
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    if (submit(call)) {
+                        remaining--;
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean submit(PrefetchCall call) {
+        ToolCallback tool = toolsByName.get(call.toolName());
+        if (tool == null) {
+            return false;
+        }
+        String key = key(call.toolName(), call.arguments());
+        long expiresAt = System.currentTimeMillis() + settings.ttl().toMillis();
+        boolean[] created = {false};
+        cache.computeIfAbsent(key, k -> {
+            created[0] = true;
+            return new Prefetched(CompletableFuture.supplyAsync(() -> tool.call(call.arguments()), EXECUTOR), expiresAt);
+        });
+        if (created[0]) {
+            issued.incrementAndGet();
+            log.debug("Prefetching {} {}", call.toolName(), call.arguments());
+        }
+        return created[0];
+    }
+
+    /**
+     * 取出预取结果
+     *
+     * @return 结果，未命中、已过期或预取失败时返回 null
+     */
+    String take(String toolName, String arguments) {
+        Prefetched prefetched = cache.get(key(toolName, arguments));
+        if (prefetched == null || prefetched.expiresAt() < System.currentTimeMillis()) {
+            return null;
+        }
+        try {
+            String result = prefetched.result().join();
+            hits.incrementAndGet();
+            log.info("Prefetch hit: {}", toolName);
+            return result;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 包装工具，调用时先查预取结果
+     */
+    public ToolCallback[] wrap(ToolCallback[] tools) {
+        if (!settings.enabled()) {
+            return tools;
+        }
+        return Arrays.stream(tools)
+                .map(tool -> new PrefetchingToolCallback(tool, this))
+                .toArray(ToolCallback[]::new);
+    }
+
+    /**
+     * 清空缓存，运行结束时调用
+     */
+    public void clear() {
+        if (issued.get() > 0) {
+            log.info("Prefetch summary: {} issued, {} hits", issued.get(), hits.get());
+        }
+        cache.clear();
+    }
+
+    public int getIssued() {
+        return issued.get();
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        cache.values().removeIf(prefetched -> prefetched.expiresAt() < now);
+    }
+
+    /**
+     * 缓存键：工具名加规范化参数，忽略键顺序和空值的差异
+     */
+    static String key(String toolName, String arguments) {
+        return ToolCallKey.of(toolName, arguments);
+    }
+
+    private static JSONObject parseArguments(String arguments) {
+        try {
+            return StrUtil.isBlank(arguments) ? new JSONObject() : JSONUtil.parseObj(arguments);
+        } catch (Exception e) {
+            return new JSONObject();
+        }
+    }
+
+    /**
+     * 工具的字符串返回值在工具响应中被序列化为 JSON 字符串，还原为原文
+     */
+    private static String unwrap(String responseData) {
+        if (responseData != null && responseData.startsWith("\"")) {
+            try {
+                return OBJECT_MAPPER.readValue(responseData, String.class);
+            } catch (Exception e) {
+                return responseData;
+            }
+        }
+        return responseData;
+    }
+}
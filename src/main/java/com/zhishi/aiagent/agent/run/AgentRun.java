@@ -0,0 +1,155 @@
+package com.zhishi.aiagent.agent.run;
+
+import com.zhishi.aiagent.agent.BaseAgent;
+import com.zhishi.aiagent.sse.AgentEvent;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 一次代理运行
+ * 运行与客户端连接解耦：事件按序编号后写入有界的重放缓冲，客户端可随时按 Last-Event-ID 重新订阅，
+ * 只收到尚未收到且仍在缓冲中的事件
+ * 事件序号按块预留并随检查点持久化，恢复运行后从预留上限之后继续编号，不会与恢复前已发出的事件重复
+ */
+public class AgentRun {
+
+    // 每次预留的事件序号数
+    static final long EVENT_ID_BLOCK = 1000;
+
+    private final String runId;
+
+    private final String prompt;
+
+    private final BaseAgent agent;
+
+    private final Sinks.Many<AgentEvent> events;
+
+    private final AtomicLong sequence;
+
+    // 已预留的事件序号上限，发出的序号不会超过它
+    private volatile long reservedEventId;
+
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    // 订阅者数量变化回调，由注册表处理无人订阅时的取消
+    private final Consumer<AgentRun> onSubscribersChanged;
+
+    // 预留新的事件序号块后回调，由注册表持久化预留上限
+    private final Consumer<AgentRun> onEventIdsReserved;
+
+    // 运行结束（完成、出错或停止）时执行一次，用于归还准入许可
+    private final Runnable onCompleted;
+
+    private volatile Disposable execution;
+
+    private volatile boolean completed;
+
+    /**
+     * @param lastEventId 此前分配过的最大事件序号，新事件从其后开始编号
+     * @param onCompleted 运行结束时执行
+     */
+    AgentRun(String runId, String prompt, BaseAgent agent, long lastEventId, int bufferSize,
+             Consumer<AgentRun> onSubscribersChanged, Consumer<AgentRun> onEventIdsReserved, Runnable onCompleted) {
+        this.runId = runId;
+        this.prompt = prompt;
+        this.agent = agent;
+        this.sequence = new AtomicLong(lastEventId);
+        this.reservedEventId = lastEventId;
+        this.events = Sinks.many().replay().limit(bufferSize);
+        this.onSubscribersChanged = onSubscribersChanged;
+        this.onEventIdsReserved = onEventIdsReserved;
+        this.onCompleted = onCompleted;
+    }
+
+    /**
+     * 编号并写入缓冲，工具进度可能来自其他线程，需串行写入
+     */
+    synchronized void publish(AgentEvent event) {
+        if (!completed) {
+            long id = sequence.incrementAndGet();
+            if (id > reservedEventId) {
+                // 先持久化新的上限再发出事件
+                reservedEventId = id + EVENT_ID_BLOCK;
+                onEventIdsReserved.accept(this);
+            }
+            events.tryEmitNext(event.withId(id));
+        }
+    }
+
+    void complete() {
+        synchronized (this) {
+            if (completed) {
+                return;
+            }
+            completed = true;
+            events.tryEmitComplete();
+        }
+        onCompleted.run();
+    }
+
+    /**
+     * 订阅事件
+     *
+     * @param lastEventId 客户端已收到的最后一个事件序号，首次订阅为 0
+     */
+    public Flux<AgentEvent> events(long lastEventId) {
+        return events.asFlux()
+                .filter(event -> event.id() > lastEventId)
+                .doOnSubscribe(subscription -> {
+                    subscribers.incrementAndGet();
+                    onSubscribersChanged.accept(this);
+                })
+                .doFinally(signal -> {
+                    subscribers.decrementAndGet();
+                    onSubscribersChanged.accept(this);
+                });
+    }
+
+    void setExecution(Disposable execution) {
+        this.execution = execution;
+    }
+
+    /**
+     * 停止执行，已完成的步骤保留在检查点中
+     */
+    void stop() {
+        Disposable current = execution;
+        if (current != null) {
+            current.dispose();
+        }
+        complete();
+    }
+
+    public String getRunId() {
+        return runId;
+    }
+
+    public String getPrompt() {
+        return prompt;
+    }
+
+    public BaseAgent getAgent() {
+        return agent;
+    }
+
+    public long getLastEventId() {
+        return sequence.get();
+    }
+
+    public long getReservedEventId() {
+        return reservedEventId;
+    }
+
+    public int getSubscribers() {
+        return subscribers.get();
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+}
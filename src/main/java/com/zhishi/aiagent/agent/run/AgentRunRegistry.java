@@ -0,0 +1,265 @@
+package com.zhishi.aiagent.agent.run;
+
+import com.zhishi.aiagent.agent.BaseAgent;
+import com.zhishi.aiagent.agent.MyManus;
+import com.zhishi.aiagent.agent.model.AgentState;
+import com.zhishi.aiagent.agent.prefetch.PrefetchSettings;
+import com.zhishi.aiagent.agent.select.ToolCatalog;
+import com.zhishi.aiagent.routing.RoutingChatModel;
+import com.zhishi.aiagent.sse.AgentEvent;
+import com.zhishi.aiagent.sse.AgentEventType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 代理运行注册表
+ * 按运行 ID 管理 Manus 运行：每完成一步保存检查点；客户端断开后保留一段宽限期，期间可按 Last-Event-ID 重连，
+ * 超时无人订阅则停止运行，避免在后台继续消耗 token；停止或服务重启后再次重连时，从检查点继续执行，不重复已完成的步骤
+ */
+@Component
+@Slf4j
+public class AgentRunRegistry {
+
+    // 每个运行在内存中保留的事件数
+    private static final int EVENT_BUFFER_SIZE = 512;
+
+    // 无人订阅多久后停止运行
+    private static final long ORPHAN_GRACE_SECONDS = 60;
+
+    // 运行结束后在内存中保留多久，供客户端取回最后的事件
+    private static final long RETENTION_SECONDS = 600;
+
+    private final Map<String, AgentRun> runs = new ConcurrentHashMap<>();
+
+    private final Map<String, Disposable> pendingStops = new ConcurrentHashMap<>();
+
+    private final RunCheckpointStore checkpointStore;
+
+    private final Supplier<BaseAgent> agentFactory;
+
+    @Autowired
+    public AgentRunRegistry(ToolCallback[] allTools, RoutingChatModel routingChatModel, RunCheckpointStore checkpointStore,
+                            PrefetchSettings prefetchSettings, ToolCatalog toolCatalog) {
+        this(checkpointStore, () -> {
+            MyManus agent = new MyManus(allTools, routingChatModel);
+            agent.setPrefetchSettings(prefetchSettings);
+            agent.setToolCatalog(toolCatalog);
+            return agent;
+        });
+    }
+
+    AgentRunRegistry(RunCheckpointStore checkpointStore, Supplier<BaseAgent> agentFactory) {
+        this.checkpointStore = checkpointStore;
+        this.agentFactory = agentFactory;
+    }
+
+    /**
+     * 创建并启动一次运行
+     */
+    public AgentRun start(String prompt) {
+        return start(prompt, () -> {
+        });
+    }
+
+    /**
+     * 创建并启动一次运行
+     *
+     * @param onCompleted 运行结束（完成、出错、取消或无人订阅被停止）时执行，与客户端连接无关
+     */
+    public AgentRun start(String prompt, Runnable onCompleted) {
+        String runId = RunIds.next();
+        BaseAgent agent;
+        try {
+            agent = agentFactory.get();
+        } catch (RuntimeException e) {
+            onCompleted.run();
+            throw e;
+        }
+        AgentRun run = new AgentRun(runId, prompt, agent, 0,
+                EVENT_BUFFER_SIZE, this::onSubscribersChanged, this::onEventIdsReserved, onCompleted);
+        runs.put(runId, run);
+        execute(run, run.getAgent().runStream(prompt));
+        return run;
+    }
+
+    /**
+     * 查找内存中的运行，不触发恢复
+     */
+    public AgentRun get(String runId) {
+        return runId == null ? null : runs.get(runId);
+    }
+
+    /**
+     * 查找运行，内存中不存在时尝试从检查点恢复并继续执行
+     *
+     * @return 运行，不存在时返回 null
+     */
+    public AgentRun find(String runId) {
+        return find(runId, () -> {
+        });
+    }
+
+    /**
+     * 查找运行，内存中不存在时尝试从检查点恢复并继续执行
+     *
+     * @param onCompleted 从检查点恢复的运行结束时执行；没有恢复新的运行时立即执行
+     * @return 运行，不存在时返回 null
+     */
+    public AgentRun find(String runId, Runnable onCompleted) {
+        AgentRun resumed = null;
+        try {
+            if (!RunIds.isValid(runId)) {
+                return null;
+            }
+            AgentRun existing = runs.get(runId);
+            if (existing != null) {
+                return existing;
+            }
+            synchronized (this) {
+                existing = runs.get(runId);
+                if (existing != null) {
+                    return existing;
+                }
+                RunCheckpoint checkpoint = checkpointStore.load(runId);
+                if (checkpoint == null) {
+                    return null;
+                }
+                resumed = resume(checkpoint, onCompleted);
+                return resumed;
+            }
+        } finally {
+            if (resumed == null) {
+                onCompleted.run();
+            }
+        }
+    }
+
+    /**
+     * 运行在内存中，或者存在可恢复的检查点
+     */
+    public boolean exists(String runId) {
+        return RunIds.isValid(runId) && (runs.containsKey(runId) || checkpointStore.load(runId) != null);
+    }
+
+    /**
+     * 主动取消运行，删除检查点
+     */
+    public boolean cancel(String runId) {
+        if (!RunIds.isValid(runId)) {
+            return false;
+        }
+        AgentRun run = runs.remove(runId);
+        if (run != null) {
+            run.stop();
+        }
+        boolean checkpointed = checkpointStore.load(runId) != null;
+        checkpointStore.delete(runId);
+        return run != null || checkpointed;
+    }
+
+    private AgentRun resume(RunCheckpoint checkpoint, Runnable onCompleted) {
+        BaseAgent agent = agentFactory.get();
+        agent.setMessageList(new ArrayList<>(RunCheckpointStore.fromStored(checkpoint.getMessages())));
+        agent.setCurrentStep(checkpoint.getCurrentStep());
+        // 检查点之后发出的事件序号可能大于 lastEventId，从预留上限之后继续编号
+        long lastEventId = Math.max(checkpoint.getLastEventId(), checkpoint.getEventIdLimit());
+        AgentRun run = new AgentRun(checkpoint.getRunId(), checkpoint.getPrompt(), agent, lastEventId,
+                EVENT_BUFFER_SIZE, this::onSubscribersChanged, this::onEventIdsReserved, onCompleted);
+        runs.put(run.getRunId(), run);
+        log.info("Resuming run {} from step {}", run.getRunId(), checkpoint.getCurrentStep());
+        execute(run, agent.resumeStream());
+        return run;
+    }
+
+    private void execute(AgentRun run, Flux<AgentEvent> source) {
+        run.publish(AgentEvent.of(AgentEventType.RUN, run.getRunId()));
+        run.setExecution(source.subscribe(
+                event -> {
+                    run.publish(event);
+                    // 步骤事件在执行线程上同步送达，此时该步骤的上下文已全部写入
+                    if (event.type() == AgentEventType.STEP) {
+                        checkpoint(run);
+                    }
+                },
+                error -> {
+                    run.publish(AgentEvent.of(AgentEventType.ERROR, error.getMessage()));
+                    finish(run);
+                },
+                () -> finish(run)));
+    }
+
+    private void checkpoint(AgentRun run) {
+        BaseAgent agent = run.getAgent();
+        // 与事件序号预留串行，后写入的检查点不会覆盖更大的预留上限
+        synchronized (run) {
+            RunCheckpoint checkpoint = new RunCheckpoint();
+            checkpoint.setRunId(run.getRunId());
+            checkpoint.setPrompt(run.getPrompt());
+            checkpoint.setState(agent.getState());
+            checkpoint.setCurrentStep(agent.getCurrentStep());
+            checkpoint.setLastEventId(run.getLastEventId());
+            checkpoint.setEventIdLimit(run.getReservedEventId());
+            checkpoint.setMessages(RunCheckpointStore.toStored(new ArrayList<>(agent.getMessageList())));
+            checkpoint.setUpdatedAt(System.currentTimeMillis());
+            checkpointStore.save(checkpoint);
+        }
+    }
+
+    /**
+     * 持久化新的事件序号上限；还没有检查点时无需持久化，之后的检查点会带上
+     * 在 AgentRun 的锁内调用
+     */
+    private void onEventIdsReserved(AgentRun run) {
+        RunCheckpoint checkpoint = checkpointStore.load(run.getRunId());
+        if (checkpoint != null) {
+            checkpoint.setEventIdLimit(run.getReservedEventId());
+            checkpointStore.save(checkpoint);
+        }
+    }
+
+    /**
+     * 运行正常结束：删除检查点，内存中的事件保留一段时间后清除
+     */
+    private void finish(AgentRun run) {
+        run.complete();
+        if (run.getAgent().getState() != AgentState.RUNNING) {
+            checkpointStore.delete(run.getRunId());
+        }
+        Schedulers.parallel().schedule(() -> runs.remove(run.getRunId(), run), RETENTION_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 无人订阅时延迟停止，宽限期内重连则取消停止
+     */
+    private void onSubscribersChanged(AgentRun run) {
+        String runId = run.getRunId();
+        if (run.getSubscribers() > 0 || run.isCompleted()) {
+            Disposable pending = pendingStops.remove(runId);
+            if (pending != null) {
+                pending.dispose();
+            }
+            return;
+        }
+        pendingStops.computeIfAbsent(runId, id -> Schedulers.parallel().schedule(() -> {
+            pendingStops.remove(id);
+            if (run.getSubscribers() == 0 && !run.isCompleted()) {
+                log.info("No subscriber for run {} after {}s, stopping at step {}", id, ORPHAN_GRACE_SECONDS,
+                        run.getAgent().getCurrentStep());
+                // 保留检查点，之后重连可继续
+                run.stop();
+                runs.remove(id, run);
+            }
+        }, ORPHAN_GRACE_SECONDS, TimeUnit.SECONDS));
+    }
+}
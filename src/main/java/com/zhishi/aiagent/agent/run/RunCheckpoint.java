@@ -0,0 +1,71 @@
+package com.zhishi.aiagent.agent.run;
+
+import com.zhishi.aiagent.agent.model.AgentState;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 代理运行检查点，每完成一步保存一次
+ */
+@Data
+public class RunCheckpoint {
+
+    private String runId;
+
+    private String prompt;
+
+    private AgentState state;
+
+    // 已完成的步骤数
+    private int currentStep;
+
+    // 保存检查点时最后一个事件的序号
+    private long lastEventId;
+
+    // 已预留的事件序号上限，之后发出的事件序号都不超过它；恢复运行后从这里继续编号，保证客户端的 Last-Event-ID 仍然有效
+    private long eventIdLimit;
+
+    private List<StoredMessage> messages = new ArrayList<>();
+
+    private long updatedAt;
+
+    /**
+     * 可序列化的消息
+     */
+    @Data
+    public static class StoredMessage {
+
+        // USER、ASSISTANT、SYSTEM、TOOL
+        private String type;
+
+        private String text;
+
+        private List<StoredToolCall> toolCalls = new ArrayList<>();
+
+        private List<StoredToolResponse> toolResponses = new ArrayList<>();
+    }
+
+    @Data
+    public static class StoredToolCall {
+
+        private String id;
+
+        private String type;
+
+        private String name;
+
+        private String arguments;
+    }
+
+    @Data
+    public static class StoredToolResponse {
+
+        private String id;
+
+        private String name;
+
+        private String responseData;
+    }
+}
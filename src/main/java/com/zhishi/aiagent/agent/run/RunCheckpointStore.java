@@ -0,0 +1,127 @@
+package com.zhishi.aiagent.agent.run;
+
+import cn.hutool.json.JSONUtil;
+import com.zhishi.aiagent.constant.FileConstant;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 检查点的文件存储，每个运行一个 JSON 文件，先写临时文件再原子替换，进程中途退出不会留下半个检查点
+ */
+@Component
+@Slf4j
+public class RunCheckpointStore {
+
+    private final Path dir;
+
+    public RunCheckpointStore() {
+        this(Paths.get(FileConstant.FILE_SAVE_DIR, "runs"));
+    }
+
+    RunCheckpointStore(Path dir) {
+        this.dir = dir;
+    }
+
+    public void save(RunCheckpoint checkpoint) {
+        try {
+            Files.createDirectories(dir);
+            Path temp = dir.resolve(checkpoint.getRunId() + ".json.tmp");
+            Files.writeString(temp, JSONUtil.toJsonStr(checkpoint));
+            Files.move(temp, dir.resolve(checkpoint.getRunId() + ".json"),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to save checkpoint for run {}: {}", checkpoint.getRunId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 读取检查点
+     *
+     * @return 不存在或无法解析时返回 null
+     */
+    public RunCheckpoint load(String runId) {
+        if (!RunIds.isValid(runId)) {
+            return null;
+        }
+        Path file = dir.resolve(runId + ".json");
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return JSONUtil.toBean(Files.readString(file), RunCheckpoint.class);
+        } catch (Exception e) {
+            log.warn("Failed to load checkpoint for run {}: {}", runId, e.getMessage());
+            return null;
+        }
+    }
+
+    public void delete(String runId) {
+        try {
+            Files.deleteIfExists(dir.resolve(runId + ".json"));
+        } catch (IOException e) {
+            log.warn("Failed to delete checkpoint for run {}: {}", runId, e.getMessage());
+        }
+    }
+
+    public static List<RunCheckpoint.StoredMessage> toStored(List<Message> messages) {
+        List<RunCheckpoint.StoredMessage> stored = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            RunCheckpoint.StoredMessage item = new RunCheckpoint.StoredMessage();
+            item.setType(message.getMessageType().name());
+            item.setText(message.getText());
+            if (message instanceof AssistantMessage assistantMessage) {
+                for (AssistantMessage.ToolCall toolCall : assistantMessage.getToolCalls()) {
+                    RunCheckpoint.StoredToolCall call = new RunCheckpoint.StoredToolCall();
+                    call.setId(toolCall.id());
+                    call.setType(toolCall.type());
+                    call.setName(toolCall.name());
+                    call.setArguments(toolCall.arguments());
+                    item.getToolCalls().add(call);
+                }
+            } else if (message instanceof ToolResponseMessage toolResponseMessage) {
+                for (ToolResponseMessage.ToolResponse toolResponse : toolResponseMessage.getResponses()) {
+                    RunCheckpoint.StoredToolResponse response = new RunCheckpoint.StoredToolResponse();
+                    response.setId(toolResponse.id());
+                    response.setName(toolResponse.name());
+                    response.setResponseData(toolResponse.responseData());
+                    item.getToolResponses().add(response);
+                }
+            }
+            stored.add(item);
+        }
+        return stored;
+    }
+
+    public static List<Message> fromStored(List<RunCheckpoint.StoredMessage> stored) {
+        List<Message> messages = new ArrayList<>(stored.size());
+        for (RunCheckpoint.StoredMessage item : stored) {
+            switch (item.getType()) {
+                case "USER" -> messages.add(new UserMessage(item.getText()));
+                case "SYSTEM" -> messages.add(new SystemMessage(item.getText()));
+                case "ASSISTANT" -> messages.add(new AssistantMessage(item.getText(), Map.of(),
+                        item.getToolCalls().stream()
+                                .map(call -> new AssistantMessage.ToolCall(call.getId(), call.getType(), call.getName(), call.getArguments()))
+                                .toList()));
+                case "TOOL" -> messages.add(new ToolResponseMessage(item.getToolResponses().stream()
+                        .map(response -> new ToolResponseMessage.ToolResponse(response.getId(), response.getName(), response.getResponseData()))
+                        .toList()));
+                default -> log.warn("Skipping unknown message type in checkpoint: {}", item.getType());
+            }
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,27 @@
+package com.zhishi.aiagent.agent.run;
+
+import cn.hutool.core.util.IdUtil;
+
+import java.util.regex.Pattern;
+
+/**
+ * 运行 ID
+ */
+final class RunIds {
+
+    private static final Pattern VALID = Pattern.compile("[0-9a-f]{32}");
+
+    private RunIds() {
+    }
+
+    static String next() {
+        return IdUtil.simpleUUID();
+    }
+
+    /**
+     * 运行 ID 会用作文件名，只接受自己生成的格式
+     */
+    static boolean isValid(String runId) {
+        return runId != null && VALID.matcher(runId).matches();
+    }
+}
@@ -0,0 +1,41 @@
+package com.zhishi.aiagent.agent.select;
+
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+/**
+ * 使用预先压缩的工具定义的工具回调，调用原样转发
+ */
+class CompactToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+
+    private final ToolDefinition definition;
+
+    CompactToolCallback(ToolCallback delegate, ToolDefinition definition) {
+        this.delegate = delegate;
+        this.definition = definition;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return definition;
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return delegate.call(toolInput);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        return delegate.call(toolInput, toolContext);
+    }
+}
@@ -0,0 +1,288 @@
+package com.zhishi.aiagent.agent.select;
+
+import cn.hutool.core.util.StrUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 工具目录
+ * 启动时把每个工具的定义压缩一次（去掉缩进和 $schema），之后每步请求直接复用；
+ * 工具描述和参数说明在首次选择时批量向量化并缓存，每步只需向量化任务和最新的思考，用于 {@link ToolSelector} 按相关度挑选工具
+ */
+@Slf4j
+public class ToolCatalog {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    // 单次向量化请求的文本数上限
+    private static final int EMBED_BATCH_SIZE = 10;
+
+    // 缓存的查询向量数
+    private static final int MAX_CACHED_QUERIES = 256;
+
+    // 向量化失败后多久再重试，期间提供全部工具
+    private static final long EMBED_RETRY_MILLIS = 60_000;
+
+    private final ToolCallback[] tools;
+
+    private final String[] names;
+
+    private final String[] embeddingTexts;
+
+    private final long[] schemaChars;
+
+    private final long fullSchemaChars;
+
+    private final Function<List<String>, List<float[]>> embedder;
+
+    private final boolean enabled;
+
+    private final int maxTools;
+
+    private final double minScore;
+
+    private final Set<String> alwaysInclude;
+
+    private volatile float[][] toolEmbeddings;
+
+    private volatile long embedRetryAt;
+
+    private final Map<String, float[]> queryCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+            return size() > MAX_CACHED_QUERIES;
+        }
+    };
+
+    private final LongAdder selections = new LongAdder();
+    private final LongAdder exposedTools = new LongAdder();
+    private final LongAdder exposedChars = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    /**
+     * @param tools         全部工具，顺序即提供给模型的顺序
+     * @param embedder      批量向量化
+     * @param enabled       是否按步骤挑选工具，关闭时每步提供全部工具
+     * @param maxTools      每步最多提供的工具数，已使用过的工具和常驻工具不受限制
+     * @param minScore      相关度（余弦相似度）低于该值的工具不提供
+     * @param alwaysInclude 每步都提供的工具名
+     */
+    public ToolCatalog(ToolCallback[] tools, Function<List<String>, List<float[]>> embedder, boolean enabled,
+                       int maxTools, double minScore, List<String> alwaysInclude) {
+        this.tools = Arrays.stream(tools).map(ToolCatalog::compact).toArray(ToolCallback[]::new);
+        this.names = Arrays.stream(this.tools).map(tool -> tool.getToolDefinition().name()).toArray(String[]::new);
+        this.embeddingTexts = Arrays.stream(this.tools).map(ToolCatalog::embeddingText).toArray(String[]::new);
+        this.schemaChars = Arrays.stream(this.tools).mapToLong(ToolCatalog::schemaChars).toArray();
+        this.fullSchemaChars = Arrays.stream(schemaChars).sum();
+        this.embedder = embedder;
+        this.enabled = enabled;
+        this.maxTools = maxTools;
+        this.minScore = minScore;
+        this.alwaysInclude = new LinkedHashSet<>(alwaysInclude);
+        log.info("Tool catalog: {} tools, {} schema chars", this.tools.length, fullSchemaChars);
+    }
+
+    /**
+     * 每次运行一个选择器
+     */
+    public ToolSelector newSelector() {
+        return new ToolSelector(this);
+    }
+
+    public ToolCallback[] getTools() {
+        return tools;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getMaxTools() {
+        return maxTools;
+    }
+
+    public double getMinScore() {
+        return minScore;
+    }
+
+    public Set<String> getAlwaysInclude() {
+        return alwaysInclude;
+    }
+
+    public ToolSelectionStats getStats() {
+        long count = selections.sum();
+        return new ToolSelectionStats(tools.length, fullSchemaChars, count,
+                count == 0 ? 0 : (double) exposedTools.sum() / count,
+                count == 0 ? 0 : exposedChars.sum() / count, fallbacks.sum());
+    }
+
+    String name(int index) {
+        return names[index];
+    }
+
+    /**
+     * 各工具与文本的相关度，顺序与 {@link #getTools()} 一致
+     *
+     * @return 相关度，向量化失败时返回 null
+     */
+    double[] scores(String text) {
+        float[][] embeddings = toolEmbeddings();
+        if (embeddings == null || StrUtil.isBlank(text)) {
+            return null;
+        }
+        float[] query = embedQuery(text);
+        if (query == null) {
+            return null;
+        }
+        double[] scores = new double[embeddings.length];
+        for (int i = 0; i < embeddings.length; i++) {
+            scores[i] = dot(query, embeddings[i]);
+        }
+        return scores;
+    }
+
+    /**
+     * 记录一次选择
+     */
+    void record(ToolCallback[] selected, boolean fallback) {
+        selections.increment();
+        exposedTools.add(selected.length);
+        for (ToolCallback tool : selected) {
+            exposedChars.add(schemaChars(tool));
+        }
+        if (fallback) {
+            fallbacks.increment();
+        }
+    }
+
+    private float[][] toolEmbeddings() {
+        float[][] embeddings = toolEmbeddings;
+        if (embeddings != null || System.currentTimeMillis() < embedRetryAt) {
+            return embeddings;
+        }
+        synchronized (this) {
+            if (toolEmbeddings != null) {
+                return toolEmbeddings;
+            }
+            try {
+                List<float[]> vectors = new ArrayList<>(embeddingTexts.length);
+                for (int from = 0; from < embeddingTexts.length; from += EMBED_BATCH_SIZE) {
+                    List<String> batch = List.of(embeddingTexts).subList(from, Math.min(from + EMBED_BATCH_SIZE, embeddingTexts.length));
+                    embedder.apply(batch).forEach(vector -> vectors.add(normalize(vector)));
+                }
+                toolEmbeddings = vectors.toArray(float[][]::new);
+                log.info("Embedded {} tool descriptions", vectors.size());
+            } catch (Exception e) {
+                embedRetryAt = System.currentTimeMillis() + EMBED_RETRY_MILLIS;
+                log.warn("Failed to embed tool descriptions: {}", e.getMessage());
+            }
+            return toolEmbeddings;
+        }
+    }
+
+    private float[] embedQuery(String text) {
+        synchronized (queryCache) {
+            float[] cached = queryCache.get(text);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        try {
+            float[] query = normalize(embedder.apply(List.of(text)).get(0));
+            synchronized (queryCache) {
+                queryCache.put(text, query);
+            }
+            return query;
+        } catch (Exception e) {
+            log.warn("Failed to embed tool selection query: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 压缩工具定义：参数结构去掉缩进和 $schema，描述去掉首尾空白
+     */
+    static ToolCallback compact(ToolCallback tool) {
+        ToolDefinition definition = tool.getToolDefinition();
+        String inputSchema = definition.inputSchema();
+        try {
+            JsonNode schema = OBJECT_MAPPER.readTree(inputSchema);
+            if (schema instanceof ObjectNode objectNode) {
+                objectNode.remove("$schema");
+            }
+            inputSchema = OBJECT_MAPPER.writeValueAsString(schema);
+        } catch (Exception e) {
+            log.warn("Failed to compact schema of tool {}: {}", definition.name(), e.getMessage());
+        }
+        ToolDefinition compacted = ToolDefinition.builder()
+                .name(definition.name())
+                .description(StrUtil.trim(definition.description()))
+                .inputSchema(inputSchema)
+                .build();
+        return new CompactToolCallback(tool, compacted);
+    }
+
+    /**
+     * 用于向量化的文本：工具名、描述和各参数的说明
+     */
+    static String embeddingText(ToolCallback tool) {
+        ToolDefinition definition = tool.getToolDefinition();
+        StringBuilder text = new StringBuilder(definition.name()).append(": ").append(definition.description());
+        try {
+            JsonNode properties = OBJECT_MAPPER.readTree(definition.inputSchema()).path("properties");
+            properties.fields().forEachRemaining(entry -> {
+                String description = entry.getValue().path("description").asText("");
+                if (StrUtil.isNotBlank(description)) {
+                    text.append("\n").append(entry.getKey()).append(": ").append(description);
+                }
+            });
+        } catch (Exception e) {
+            // 参数结构无法解析时只使用描述
+        }
+        return text.toString();
+    }
+
+    private static long schemaChars(ToolCallback tool) {
+        ToolDefinition definition = tool.getToolDefinition();
+        return definition.name().length() + StrUtil.length(definition.description()) + StrUtil.length(definition.inputSchema());
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        if (norm == 0) {
+            return vector;
+        }
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        int length = Math.min(a.length, b.length);
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
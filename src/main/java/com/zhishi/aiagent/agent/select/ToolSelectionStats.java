@@ -0,0 +1,15 @@
+package com.zhishi.aiagent.agent.select;
+
+/**
+ * 工具选择统计
+ *
+ * @param tools               工具总数
+ * @param fullSchemaChars     全部工具定义的字符数
+ * @param selections          选择次数
+ * @param averageTools        平均每步提供的工具数
+ * @param averageSchemaChars  平均每步发送的工具定义字符数
+ * @param fallbacks           向量化失败或模型未调用工具后提供全部工具的次数
+ */
+public record ToolSelectionStats(int tools, long fullSchemaChars, long selections, double averageTools,
+                                 long averageSchemaChars, long fallbacks) {
+}
@@ -0,0 +1,153 @@
+package com.zhishi.aiagent.agent.select;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.tool.ToolCallback;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * 按步骤挑选工具
+ * 每步只提供常驻工具、本次运行已使用过的工具，以及与任务或最新思考最相关的几个工具（连同常驻工具不超过上限）；
+ * 选中过的工具在本次运行内一直保留，工具列表只增不减，请求前缀尽量保持不变；
+ * 向量化失败或模型在部分工具下没有调用任何工具时，之后的步骤提供全部工具，不损失能力
+ * 每个代理实例一个
+ */
+@Slf4j
+public class ToolSelector {
+
+    private final ToolCatalog catalog;
+
+    private final Set<String> selected = new HashSet<>();
+
+    private double[] taskScores;
+
+    private String lastThought;
+
+    private double[] thoughtScores;
+
+    // 是否已退化为提供全部工具
+    private boolean expanded;
+
+    ToolSelector(ToolCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * 本步提供给模型的工具，顺序与工具目录一致
+     */
+    public ToolCallback[] select(List<Message> messages) {
+        ToolCallback[] tools = catalog.getTools();
+        if (!catalog.isEnabled() || expanded || tools.length <= catalog.getMaxTools()) {
+            catalog.record(tools, false);
+            return tools;
+        }
+        if (taskScores == null) {
+            taskScores = catalog.scores(task(messages));
+            if (taskScores == null) {
+                return expand();
+            }
+        }
+        String thought = lastThought(messages);
+        if (thought != null && !thought.equals(lastThought)) {
+            lastThought = thought;
+            thoughtScores = catalog.scores(thought);
+        }
+        // 本步最相关的工具：相关度相同时优先与最新思考相关的工具
+        double[] scores = combine(taskScores, thoughtScores);
+        double[] tieBreak = thoughtScores == null ? new double[tools.length] : thoughtScores;
+        List<Integer> ranked = IntStream.range(0, tools.length).boxed()
+                .sorted(Comparator.comparingDouble((Integer index) -> scores[index])
+                        .thenComparingDouble(index -> tieBreak[index])
+                        .reversed())
+                .toList();
+        Set<String> relevant = new LinkedHashSet<>(catalog.getAlwaysInclude());
+        for (int index : ranked) {
+            if (relevant.size() >= catalog.getMaxTools() || scores[index] < catalog.getMinScore()) {
+                break;
+            }
+            relevant.add(catalog.name(index));
+        }
+        selected.addAll(relevant);
+        selected.addAll(usedTools(messages));
+        ToolCallback[] result = IntStream.range(0, tools.length)
+                .filter(index -> selected.contains(catalog.name(index)))
+                .mapToObj(index -> tools[index])
+                .toArray(ToolCallback[]::new);
+        catalog.record(result, false);
+        log.info("Selected {}/{} tools: {}", result.length, tools.length,
+                Arrays.stream(result).map(tool -> tool.getToolDefinition().name()).toList());
+        return result;
+    }
+
+    /**
+     * 之后的步骤提供全部工具
+     */
+    public ToolCallback[] expand() {
+        expanded = true;
+        ToolCallback[] tools = catalog.getTools();
+        catalog.record(tools, true);
+        log.info("Exposing all {} tools", tools.length);
+        return tools;
+    }
+
+    public boolean isExpanded() {
+        return expanded;
+    }
+
+    /**
+     * 任务：第一条用户消息
+     */
+    private static String task(List<Message> messages) {
+        return messages.stream()
+                .filter(message -> message instanceof UserMessage)
+                .map(Message::getText)
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * 最新一条非空的助手消息
+     */
+    private static String lastThought(List<Message> messages) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i) instanceof AssistantMessage assistantMessage && StrUtil.isNotBlank(assistantMessage.getText())) {
+                return assistantMessage.getText();
+            }
+        }
+        return null;
+    }
+
+    private static Set<String> usedTools(List<Message> messages) {
+        Set<String> used = new HashSet<>();
+        for (Message message : messages) {
+            if (message instanceof AssistantMessage assistantMessage) {
+                assistantMessage.getToolCalls().forEach(toolCall -> used.add(toolCall.name()));
+            } else if (message instanceof ToolResponseMessage toolResponseMessage) {
+                toolResponseMessage.getResponses().forEach(response -> used.add(response.name()));
+            }
+        }
+        return used;
+    }
+
+    private static double[] combine(double[] taskScores, double[] thoughtScores) {
+        if (thoughtScores == null) {
+            return taskScores;
+        }
+        double[] combined = new double[taskScores.length];
+        for (int i = 0; i < combined.length; i++) {
+            combined[i] = Math.max(taskScores[i], thoughtScores[i]);
+        }
+        return combined;
+    }
+}
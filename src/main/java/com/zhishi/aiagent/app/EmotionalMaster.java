@@ -1,46 +1,75 @@
 package com.zhishi.aiagent.app;
 
+import com.zhishi.aiagent.advisor.MemoryRecallAdvisor;
+import com.zhishi.aiagent.dedup.MessageCoalescer;
+import com.zhishi.aiagent.memory.LongTermMemory;
+import com.zhishi.aiagent.memory.SummarizingChatMemory;
+import com.zhishi.aiagent.routing.RouteTask;
+import com.zhishi.aiagent.routing.RoutingChatModel;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
 import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
 import org.springframework.ai.chat.memory.MessageWindowChatMemory;
-import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Component
 @Slf4j
 public class EmotionalMaster {
 
         private final ChatClient chatClient;
-        private final PromptTemplate promptTemplate;
 
-        // 新增 ResourceLoader 用于加载模板文件
-        public EmotionalMaster(ChatModel dashscopeChatModel, ResourceLoader resourceLoader) {
+        // 系统提示词只渲染一次，每轮请求逐字节相同，命中模型服务的前缀缓存
+        private final String systemPrompt;
 
+        // 合并同一会话中重复发送的消息
+        private final MessageCoalescer messageCoalescer;
 
-            // 初始化对话记忆（虽然本次任务为单次生成，但保留以支持未来扩展）
-            MessageWindowChatMemory chatMemory = MessageWindowChatMemory.builder()
+        // 新增 ResourceLoader 用于加载模板文件
+        // 长期记忆关闭（memory.enabled=false）时不创建 LongTermMemory
+        public EmotionalMaster(RoutingChatModel routingChatModel, ResourceLoader resourceLoader,
+                               ObjectProvider<LongTermMemory> longTermMemoryProvider, MessageCoalescer messageCoalescer,
+                               @Value("${memory.recent-messages:8}") int recentMessages,
+                               @Value("${memory.summarize-batch:12}") int summarizeBatch) {
+
+            LongTermMemory longTermMemory = longTermMemoryProvider.getIfAvailable();
+            // 对话记忆：启用长期记忆时只保留最近几条，较早的消息总结为长期记忆
+            ChatMemory chatMemory = longTermMemory != null
+                    ? new SummarizingChatMemory(new InMemoryChatMemoryRepository(), recentMessages, summarizeBatch,
+                    longTermMemory::remember)
+                    : MessageWindowChatMemory.builder()
                     .chatMemoryRepository(new InMemoryChatMemoryRepository())
                     .maxMessages(20)
                     .build();
-
-            this.chatClient = ChatClient.builder(dashscopeChatModel)
-                    .defaultAdvisors(
-                            MessageChatMemoryAdvisor.builder(chatMemory).build()
-//                        ,new MyLoggerAdvisor()
-                    )
+            List<Advisor> advisors = new ArrayList<>();
+            advisors.add(MessageChatMemoryAdvisor.builder(chatMemory).build());
+            if (longTermMemory != null) {
+                // 相关记忆附在本轮用户消息上，系统提示词和历史消息不变
+                advisors.add(new MemoryRecallAdvisor(longTermMemory));
+            }
+//            advisors.add(new MyLoggerAdvisor());
+
+            // 情感对话多为短句，由路由下沉到小模型
+            this.chatClient = ChatClient.builder(routingChatModel.forTask(RouteTask.CHAT))
+                    .defaultAdvisors(advisors)
                     .build();
 
             // 加载提示词模板
-            this.promptTemplate = new PromptTemplate(
+            this.systemPrompt = new PromptTemplate(
                     resourceLoader.getResource("classpath:templates/EmotionalMasterPrompt.st")
-            );
+            ).render();
+            this.messageCoalescer = messageCoalescer;
         }
 
     /**
@@ -51,12 +80,14 @@ public class EmotionalMaster {
      * @return
      */
     public String chatWithMaster(String message, String chatId) {
+        // 重复发送的相同消息共用一次调用
+        return messageCoalescer.call(chatId, message, () -> doChatWithMaster(message, chatId));
+    }
 
-        String render = promptTemplate.render();
-
+    private String doChatWithMaster(String message, String chatId) {
         ChatResponse chatResponse = chatClient
                 .prompt()
-                .system(render)
+                .system(systemPrompt)
                 .user(message)
                 .advisors(spec -> spec.param(ChatMemory.CONVERSATION_ID, chatId))
                 .call()
@@ -75,14 +106,14 @@ public class EmotionalMaster {
      * @return
      */
     public Flux<String> chatWithMasterByStream(String message, String chatId) {
-        String render = promptTemplate.render();
-        return chatClient
+        // 重复发送的相同消息共享同一个事件流，后到的请求从头重放
+        return messageCoalescer.stream(chatId, message, () -> chatClient
                 .prompt()
-                .system(render)
+                .system(systemPrompt)
                 .user(message)
                 .advisors(spec -> spec.param(ChatMemory.CONVERSATION_ID, chatId))
                 .stream()
-                .content();
+                .content());
     }
 
 
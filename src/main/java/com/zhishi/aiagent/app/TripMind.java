@@ -2,20 +2,31 @@ package com.zhishi.aiagent.app;
 
 import com.alibaba.cloud.ai.dashscope.chat.DashScopeChatOptions;
 import com.zhishi.aiagent.dto.TravelPlanDTO;
+import com.zhishi.aiagent.itinerary.Itinerary;
+import com.zhishi.aiagent.itinerary.ItineraryDay;
+import com.zhishi.aiagent.itinerary.StreamingItineraryParser;
 import com.zhishi.aiagent.mapper.TravelPlanMapper;
+import com.zhishi.aiagent.routing.RouteTask;
+import com.zhishi.aiagent.routing.RoutingChatModel;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
 import org.springframework.ai.chat.memory.MessageWindowChatMemory;
-import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.MessageAggregator;
 import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.ai.converter.BeanOutputConverter;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 //@Transactional
 @Component
@@ -26,19 +37,27 @@ public class TripMind {
 
     private final PromptTemplate promptTemplate;
 
+    // 结构化输出提示词模板
+    private final PromptTemplate structuredPromptTemplate;
+
+    // 结构化行程的 JSON Schema 与转换器
+    private final BeanOutputConverter<Itinerary> itineraryConverter = new BeanOutputConverter<>(Itinerary.class);
+
     private final TravelPlanMapper travelPlanMapper; // MyBatis Mapper
 
+    private final ChatMemory chatMemory;
+
     // 新增 ResourceLoader 用于加载模板文件
-    public TripMind(ChatModel dashscopeChatModel, ResourceLoader resourceLoader, TravelPlanMapper travelPlanMapper) {
+    public TripMind(RoutingChatModel routingChatModel, ResourceLoader resourceLoader, TravelPlanMapper travelPlanMapper) {
         this.travelPlanMapper = travelPlanMapper;
 
         // 初始化对话记忆（虽然本次任务为单次生成，但保留以支持未来扩展）
-        MessageWindowChatMemory chatMemory = MessageWindowChatMemory.builder()
+        this.chatMemory = MessageWindowChatMemory.builder()
                 .chatMemoryRepository(new InMemoryChatMemoryRepository())
                 .maxMessages(20)
                 .build();
 
-        this.chatClient = ChatClient.builder(dashscopeChatModel)
+        this.chatClient = ChatClient.builder(routingChatModel.forTask(RouteTask.PLANNING))
                 .defaultAdvisors(
                         MessageChatMemoryAdvisor.builder(chatMemory).build()
 //                        ,new MyLoggerAdvisor()
@@ -49,6 +68,9 @@ public class TripMind {
         this.promptTemplate = new PromptTemplate(
                 resourceLoader.getResource("classpath:templates/TripMindPrompt.st")
         );
+        this.structuredPromptTemplate = new PromptTemplate(
+                resourceLoader.getResource("classpath:templates/TripMindStructuredPrompt.st")
+        );
     }
 
     /**
@@ -83,6 +105,125 @@ public class TripMind {
         String content = chatResponse.getResult().getOutput().getText();
 
         log.info("Generated travel plan: {}", content);
+        saveTokenUsage(chatId, chatResponse);
+
+        return content;
+    }
+
+    /**
+     * 生成结构化旅行攻略（JSON Schema 约束输出），供 HTML、地图、PDF 等直接使用，无需再次解析或调用大模型
+     *
+     * @param destination   目的地（如“日本京都”）
+     * @param travelDates   出行时间（如“2025年10月1日-10月5日”）
+     * @param interests     兴趣偏好（如“历史文化、美食、摄影”）
+     * @param budget        预算(如“500-1000￥”)
+     * @return 结构化行程
+     */
+    public Itinerary generateStructuredTravelPlan(String chatId, String destination, String travelDates, String interests, String budget) {
+        String renderedPrompt = renderStructuredPrompt(destination, travelDates, interests, budget);
+        ChatResponse chatResponse = chatClient
+                .prompt()
+                .user(renderedPrompt)
+                //开启联网搜索
+                .options(DashScopeChatOptions.builder().withEnableSearch(true).build())
+                .advisors(spec -> spec.param(ChatMemory.CONVERSATION_ID, chatId))
+                .call()
+                .chatResponse();
+        saveTokenUsage(chatId, chatResponse);
+        Itinerary itinerary = parseItinerary(chatResponse.getResult().getOutput().getText());
+        if (itinerary.getDestination() == null) {
+            itinerary.setDestination(destination);
+        }
+        if (itinerary.getTravelDates() == null) {
+            itinerary.setTravelDates(travelDates);
+        }
+        log.info("Generated structured travel plan with {} days", itinerary.getDays().size());
+        return itinerary;
+    }
+
+    /**
+     * 转换结构化输出；模型输出为空或 null 时退回到流式解析器识别出的单日行程，都没有时报错
+     */
+    private Itinerary parseItinerary(String text) {
+        Itinerary itinerary = text == null || text.isBlank() ? null : itineraryConverter.convert(text);
+        if (itinerary == null) {
+            List<ItineraryDay> days = new StreamingItineraryParser().feed(text);
+            if (days.isEmpty()) {
+                throw new IllegalStateException("模型未返回可解析的行程");
+            }
+            itinerary = new Itinerary();
+            itinerary.setDays(new ArrayList<>(days));
+        }
+        if (itinerary.getDays() == null) {
+            itinerary.setDays(new ArrayList<>());
+        }
+        return itinerary;
+    }
+
+    /**
+     * 流式生成结构化旅行攻略，每生成完一天的行程就立即输出该天
+     *
+     * @param destination   目的地
+     * @param travelDates   出行时间
+     * @param interests     兴趣偏好
+     * @param budget        预算
+     * @return 按天输出的行程流
+     */
+    public Flux<ItineraryDay> streamStructuredTravelPlan(String chatId, String destination, String travelDates, String interests, String budget) {
+        String renderedPrompt = renderStructuredPrompt(destination, travelDates, interests, budget);
+        return Flux.defer(() -> {
+            StreamingItineraryParser parser = new StreamingItineraryParser();
+            AtomicInteger days = new AtomicInteger();
+            Flux<ChatResponse> responses = chatClient
+                    .prompt()
+                    .user(renderedPrompt)
+                    .options(DashScopeChatOptions.builder().withEnableSearch(true).build())
+                    .advisors(spec -> spec.param(ChatMemory.CONVERSATION_ID, chatId))
+                    .stream()
+                    .chatResponse();
+            // 流结束时汇总各块的用量，与同步生成一样记录
+            return new MessageAggregator().aggregate(responses, aggregated -> {
+                        try {
+                            saveTokenUsage(chatId, aggregated);
+                        } catch (Exception e) {
+                            log.warn("Failed to save token usage for {}: {}", chatId, e.getMessage());
+                        }
+                    })
+                    .concatMapIterable(response -> parser.feed(textOf(response)))
+                    .doOnNext(day -> days.incrementAndGet())
+                    .concatWith(Flux.defer(() -> days.get() > 0 ? Flux.empty()
+                            : Flux.error(new IllegalStateException("模型未返回可解析的行程"))));
+        });
+    }
+
+    private static String textOf(ChatResponse response) {
+        if (response == null || response.getResult() == null || response.getResult().getOutput() == null) {
+            return null;
+        }
+        return response.getResult().getOutput().getText();
+    }
+
+    private String renderStructuredPrompt(String destination, String travelDates, String interests, String budget) {
+        return structuredPromptTemplate.render(Map.of(
+                "destination", destination,
+                "travelDates", travelDates,
+                "interests", interests,
+                "budget", budget,
+                "format", itineraryConverter.getFormat()
+        ));
+    }
+
+    /**
+     * 清除会话的对话记忆，用于一次性的会话，如批量生成
+     */
+    public void clearMemory(String chatId) {
+        chatMemory.clear(chatId);
+    }
+
+    /**
+     * 记录 token 用量并持久化到 MySQL
+     */
+    private void saveTokenUsage(String chatId, ChatResponse chatResponse) {
         // 提取元数据
         var usage = chatResponse.getMetadata().getUsage();
         Integer inputTokens = usage.getPromptTokens();
@@ -104,8 +245,6 @@ public class TripMind {
 
         // 持久化到 MySQL
         travelPlanMapper.insertCost(dto);
-
-        return content;
     }
 
 // TODO 地图API Tool 报告生成
@@ -1,7 +1,14 @@
 package com.zhishi.aiagent.app;
 
+import cn.hutool.core.util.StrUtil;
 import com.zhishi.aiagent.advisor.MyLoggerAdvisor;
+import com.zhishi.aiagent.itinerary.Itinerary;
+import com.zhishi.aiagent.itinerary.MarkdownItineraryParser;
+import com.zhishi.aiagent.render.TravelHtmlRenderer;
+import com.zhishi.aiagent.routing.RouteTask;
+import com.zhishi.aiagent.routing.RoutingChatModel;
 import com.zhishi.aiagent.service.MapService;
+import com.zhishi.aiagent.tools.FileOperationTool;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
@@ -10,7 +17,6 @@ import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
 import org.springframework.ai.chat.memory.MessageWindowChatMemory;
 import org.springframework.ai.chat.metadata.Usage;
-import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.PromptTemplate;
 import org.springframework.ai.tool.ToolCallback;
@@ -26,12 +32,23 @@ public class TripMindWithMCPandTools {
 
     private final ChatClient chatClient;
 
+    private final ChatMemory chatMemory;
+
+    // HTML 格式化专用客户端，由路由下沉到小模型
+    private final ChatClient htmlChatClient;
+
     private final PromptTemplate promptTemplate;
     
     private final ResourceLoader resourceLoader;
     
     private final MapService mapService;
 
+    private final TravelHtmlRenderer travelHtmlRenderer;
+
+    // HTML 生成方式：template 为模板渲染（失败时回退大模型），llm 为始终由大模型生成
+    @Value("${travel.html.mode:template}")
+    private String htmlMode;
+
     @Resource
     private ToolCallback[] allTools;
     
@@ -46,22 +63,26 @@ public class TripMindWithMCPandTools {
     private int totalCompletionTokens = 0;
 
     // 新增 ResourceLoader 用于加载模板文件
-    public TripMindWithMCPandTools(ChatModel dashscopeChatModel, ResourceLoader resourceLoader, MapService mapService) {
+    public TripMindWithMCPandTools(RoutingChatModel routingChatModel, ResourceLoader resourceLoader, MapService mapService,
+                                   TravelHtmlRenderer travelHtmlRenderer) {
         this.resourceLoader = resourceLoader;
         this.mapService = mapService;
+        this.travelHtmlRenderer = travelHtmlRenderer;
 
         // 初始化对话记忆（虽然本次任务为单次生成，但保留以支持未来扩展）
-        MessageWindowChatMemory chatMemory = MessageWindowChatMemory.builder()
+        this.chatMemory = MessageWindowChatMemory.builder()
                 .chatMemoryRepository(new InMemoryChatMemoryRepository())
                 .maxMessages(20)
                 .build();
 
-        this.chatClient = ChatClient.builder(dashscopeChatModel)
+        this.chatClient = ChatClient.builder(routingChatModel.forTask(RouteTask.PLANNING))
                 .defaultAdvisors(
                         MessageChatMemoryAdvisor.builder(chatMemory).build()
 //                        ,new MyLoggerAdvisor()
                 )
                 .build();
+        this.htmlChatClient = ChatClient.builder(routingChatModel.forTask(RouteTask.HTML_RENDER))
+                .build();
 
         // 加载提示词模板
         this.promptTemplate = new PromptTemplate(
@@ -69,6 +90,13 @@ public class TripMindWithMCPandTools {
         );
     }
 
+    /**
+     * 清除会话的对话记忆，用于一次性的会话，如预生成攻略
+     */
+    public void clearMemory(String chatId) {
+        chatMemory.clear(chatId);
+    }
+
     /**
      * 生成个性化旅行攻略
      *
@@ -122,15 +150,73 @@ public class TripMindWithMCPandTools {
      * @param travelPlan AI生成的旅行规划内容
      * @param destination 目的地
      * @param time 时间戳（用于生成文件名）
-     * @return AI生成的HTML内容
+     * @return HTML内容
      */
     public String generateTravelHtml(String travelPlan, String destination, String time) {
+        // 如果time为空，生成当前时间戳
+        if (time == null || time.isEmpty()) {
+            time = String.valueOf(System.currentTimeMillis());
+        }
+        if (!"llm".equalsIgnoreCase(htmlMode)) {
+            String htmlContent = renderTravelHtml(travelPlan, destination, time);
+            if (htmlContent != null) {
+                return htmlContent;
+            }
+            log.info("Travel plan could not be parsed into an itinerary, falling back to LLM HTML generation");
+        }
+        return generateTravelHtmlWithLLM(travelPlan, destination, time);
+    }
+
+    /**
+     * 使用模板渲染HTML，不调用大模型
+     * @param travelPlan AI生成的旅行规划内容
+     * @param destination 目的地
+     * @param time 时间戳（用于生成文件名）
+     * @return HTML内容，无法识别出按天行程时返回null
+     */
+    private String renderTravelHtml(String travelPlan, String destination, String time) {
         try {
-            // 如果time为空，生成当前时间戳
-            if (time == null || time.isEmpty()) {
-                time = String.valueOf(System.currentTimeMillis());
+            long start = System.currentTimeMillis();
+            Itinerary itinerary = MarkdownItineraryParser.parse(travelPlan, destination);
+            if (itinerary.getDays().isEmpty()) {
+                return null;
             }
+            String htmlContent = generateTravelHtml(itinerary, time);
+            log.info("Rendered HTML travel plan from template in {} ms, days: {}",
+                    System.currentTimeMillis() - start, itinerary.getDays().size());
+            return htmlContent;
+        } catch (Exception e) {
+            log.error("Error rendering HTML travel plan from template", e);
+            return null;
+        }
+    }
+
+    /**
+     * 直接渲染结构化行程为HTML（结构化输出无需解析，也不调用大模型）
+     * @param itinerary 结构化行程
+     * @param time 时间戳（用于生成文件名）
+     * @return HTML内容
+     */
+    public String generateTravelHtml(Itinerary itinerary, String time) {
+        if (time == null || time.isEmpty()) {
+            time = String.valueOf(System.currentTimeMillis());
+        }
+        String htmlContent = travelHtmlRenderer.render(itinerary, mapService.buildMapFragment(itinerary));
+        // 与大模型生成时一致，保存为 {destination}_plan_{time}.html
+        String fileName = StrUtil.blankToDefault(itinerary.getDestination(), "travel").replaceAll("\\s+", "_") + "_plan_" + time + ".html";
+        log.info(new FileOperationTool().writeFile(fileName, htmlContent));
+        return htmlContent;
+    }
 
+    /**
+     * 将AI生成的旅行规划交给大模型转换为HTML格式（模板渲染的回退方案）
+     * @param travelPlan AI生成的旅行规划内容
+     * @param destination 目的地
+     * @param time 时间戳（用于生成文件名）
+     * @return AI生成的HTML内容
+     */
+    private String generateTravelHtmlWithLLM(String travelPlan, String destination, String time) {
+        try {
             // 加载HTML模板提示词
             PromptTemplate htmlPromptTemplate = new PromptTemplate(
                     resourceLoader.getResource("classpath:templates/TravelHtmlPrompt.st")
@@ -147,7 +233,7 @@ public class TripMindWithMCPandTools {
             log.info("Rendered HTML prompt: {}", renderedHtmlPrompt);
 
             // 调用AI生成HTML
-            ChatResponse htmlResponse = chatClient
+            ChatResponse htmlResponse = htmlChatClient
                     .prompt()
                     .user(renderedHtmlPrompt)
                     .toolCallbacks(allTools) // 添加工具回调，允许AI调用工具
@@ -181,7 +267,7 @@ public class TripMindWithMCPandTools {
      * @param travelDates 出行时间
      * @param interests 兴趣偏好
      * @param budget 预算
-     * @return 包含旅游规划文本和HTML内容的结果
+     * @return 包含旅游规划文本、HTML内容和消耗token数的结果
      */
     public Map<String, String> generateTravelPlanWithHtml(String chatId, String destination, String travelDates, String interests, String budget) {
         // 1. 重置全局token统计
@@ -210,10 +296,11 @@ public class TripMindWithMCPandTools {
 //        String filePath = fileOperationTool.writeFile(fileName, htmlWithMap);
 //        log.info("手动保存HTML文件成功: {}", filePath);
 
-        // 6. 返回结果
+        // 6. 返回结果（totalTokens 供预生成统计 token 预算）
         return Map.of(
                 "travelPlan", travelPlan,
-                "htmlContent", htmlContent
+                "htmlContent", htmlContent,
+                "totalTokens", String.valueOf(totalTokens)
         );
     }
 
@@ -0,0 +1,35 @@
+package com.zhishi.aiagent.batch;
+
+import com.zhishi.aiagent.entity.PlanRequest;
+import lombok.Data;
+
+/**
+ * 批量任务中的单个请求，生成结果按 key 单独保存，不放在任务文件里
+ */
+@Data
+public class BatchItem {
+
+    private int index;
+
+    private PlanRequest request;
+
+    // 规范化键，相同的请求只生成一次
+    private String key;
+
+    private BatchItemStatus status = BatchItemStatus.PENDING;
+
+    private String error;
+
+    /**
+     * 副本，请求提交后不再修改，与原对象共用
+     */
+    BatchItem snapshot() {
+        BatchItem copy = new BatchItem();
+        copy.index = index;
+        copy.request = request;
+        copy.key = key;
+        copy.status = status;
+        copy.error = error;
+        return copy;
+    }
+}
@@ -0,0 +1,10 @@
+package com.zhishi.aiagent.batch;
+
+/**
+ * 批量任务中单个请求的状态
+ */
+public enum BatchItemStatus {
+    PENDING,
+    SUCCEEDED,
+    FAILED
+}
@@ -0,0 +1,63 @@
+package com.zhishi.aiagent.batch;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量生成任务
+ */
+@Data
+public class BatchJob {
+
+    private String jobId;
+
+    private BatchJobStatus status = BatchJobStatus.QUEUED;
+
+    private int total;
+
+    // 去重后实际需要生成的请求数
+    private int distinct;
+
+    private int succeeded;
+
+    private int failed;
+
+    private long createdAt;
+
+    private long updatedAt;
+
+    private List<BatchItem> items = new ArrayList<>();
+
+    /**
+     * 副本，与任务后续的状态变化无关；调用方需持有任务的锁
+     */
+    BatchJob snapshot() {
+        BatchJob copy = new BatchJob();
+        copy.jobId = jobId;
+        copy.status = status;
+        copy.total = total;
+        copy.distinct = distinct;
+        copy.succeeded = succeeded;
+        copy.failed = failed;
+        copy.createdAt = createdAt;
+        copy.updatedAt = updatedAt;
+        items.forEach(item -> copy.items.add(item.snapshot()));
+        return copy;
+    }
+
+    /**
+     * 按各请求状态重新统计
+     */
+    void recount() {
+        succeeded = (int) items.stream().filter(item -> item.getStatus() == BatchItemStatus.SUCCEEDED).count();
+        failed = (int) items.stream().filter(item -> item.getStatus() == BatchItemStatus.FAILED).count();
+        if (succeeded + failed == total) {
+            status = BatchJobStatus.COMPLETED;
+        } else if (succeeded + failed > 0) {
+            status = BatchJobStatus.RUNNING;
+        }
+        updatedAt = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,348 @@
+package com.zhishi.aiagent.batch;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.zhishi.aiagent.admission.AdmissionControl;
+import com.zhishi.aiagent.admission.AdmissionLane;
+import com.zhishi.aiagent.app.TripMind;
+import com.zhishi.aiagent.constant.FileConstant;
+import com.zhishi.aiagent.entity.PlanRequest;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 批量旅行攻略生成
+ * 任务提交后立即持久化并返回任务 ID，由后台按有限并发逐个生成；相同的请求（任务内或跨任务）只生成一次，
+ * 结果按规范化键写入文件，有效期内再次提交直接复用；生成经由准入控制的旅行规划通道和上游限流，
+ * 所有批量任务共用一个公平排队键，不会挤占在线请求；服务重启后继续未完成的任务
+ */
+@Component
+// 延迟初始化时仍在启动阶段创建：启动后需要继续未完成的任务
+@Lazy(false)
+@Slf4j
+public class BatchJobService {
+
+    // 所有批量任务在准入控制中共用的排队键
+    private static final String ADMISSION_KEY = "batch";
+
+    // 第 n 次失败后等待 n 倍的退避时间再重试
+    private static final Duration RETRY_BACKOFF = Duration.ofSeconds(10);
+
+    private static final Duration SHUTDOWN_WAIT = Duration.ofSeconds(5);
+
+    private final BatchJobStore store;
+
+    private final Function<PlanRequest, String> generator;
+
+    private final AdmissionControl admissionControl;
+
+    private final int maxItems;
+
+    private final int maxAttempts;
+
+    private final Duration resultTtl;
+
+    // 同时生成的请求数
+    private final Semaphore permits;
+
+    // 等待许可的生成任务运行在虚拟线程上，排队不占用平台线程
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // 生成中的请求，相同键的并发请求合并为一次生成
+    private final Map<String, CompletableFuture<BatchResult>> inFlight = new ConcurrentHashMap<>();
+
+    // 未完成的任务
+    private final Map<String, BatchJob> activeJobs = new ConcurrentHashMap<>();
+
+    // 服务关闭中，此后的失败都视为中断
+    private volatile boolean stopping;
+
+    @Autowired
+    public BatchJobService(@Lazy TripMind tripMind,
+                           AdmissionControl admissionControl,
+                           @Value("${batch.parallelism:2}") int parallelism,
+                           @Value("${batch.max-items:500}") int maxItems,
+                           @Value("${batch.max-attempts:3}") int maxAttempts,
+                           @Value("${batch.result-ttl-hours:24}") long resultTtlHours) {
+        this(new BatchJobStore(Paths.get(FileConstant.FILE_SAVE_DIR, "batch")),
+                request -> {
+                    // 每个请求使用独立的会话，避免上一份攻略进入下一份的上下文；生成后清除，对话记忆不随请求数增长
+                    String chatId = "batch-" + PlanRequestKey.of(request);
+                    try {
+                        return tripMind.generateTravelPlan(chatId, request.getDestination(),
+                                request.getTravelDates(), request.getInterests(), request.getBudget());
+                    } finally {
+                        tripMind.clearMemory(chatId);
+                    }
+                },
+                admissionControl, parallelism, maxItems, maxAttempts, Duration.ofHours(resultTtlHours));
+    }
+
+    BatchJobService(BatchJobStore store, Function<PlanRequest, String> generator, AdmissionControl admissionControl,
+                    int parallelism, int maxItems, int maxAttempts, Duration resultTtl) {
+        this.store = store;
+        this.generator = generator;
+        this.admissionControl = admissionControl;
+        this.permits = new Semaphore(parallelism, true);
+        this.maxItems = maxItems;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.resultTtl = resultTtl;
+    }
+
+    /**
+     * 继续服务重启前未完成的任务
+     */
+    @PostConstruct
+    public void resumeUnfinished() {
+        executor.execute(() -> store.loadJobs().stream()
+                .filter(job -> job.getStatus() != BatchJobStatus.COMPLETED)
+                .forEach(job -> {
+                    log.info("Resuming batch job {} ({}/{} done)", job.getJobId(), job.getSucceeded() + job.getFailed(), job.getTotal());
+                    activeJobs.put(job.getJobId(), job);
+                    schedule(job);
+                }));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // 未完成的请求保持 PENDING，重启后继续
+        stopping = true;
+        executor.shutdownNow();
+        try {
+            // 等待生成线程响应中断，关闭后不再写入任务文件
+            executor.awaitTermination(SHUTDOWN_WAIT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 提交批量任务
+     *
+     * @throws ResponseStatusException 400，请求为空、超过上限或缺少目的地
+     */
+    public BatchJob submit(List<PlanRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "请求列表不能为空");
+        }
+        if (requests.size() > maxItems) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "单个任务最多 " + maxItems + " 个请求");
+        }
+        BatchJob job = new BatchJob();
+        job.setJobId(IdUtil.simpleUUID());
+        job.setTotal(requests.size());
+        job.setCreatedAt(System.currentTimeMillis());
+        job.setUpdatedAt(job.getCreatedAt());
+        for (int i = 0; i < requests.size(); i++) {
+            PlanRequest request = requests.get(i);
+            if (request == null || StrUtil.isBlank(request.getDestination())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "第 " + (i + 1) + " 个请求缺少目的地");
+            }
+            BatchItem item = new BatchItem();
+            item.setIndex(i);
+            item.setRequest(withDefaults(request));
+            item.setKey(PlanRequestKey.of(item.getRequest()));
+            job.getItems().add(item);
+        }
+        job.setDistinct((int) job.getItems().stream().map(BatchItem::getKey).distinct().count());
+        store.saveJob(job);
+        activeJobs.put(job.getJobId(), job);
+        log.info("Batch job {} submitted: {} requests, {} distinct", job.getJobId(), job.getTotal(), job.getDistinct());
+        BatchJob snapshot;
+        synchronized (job) {
+            snapshot = job.snapshot();
+        }
+        schedule(job);
+        return snapshot;
+    }
+
+    /**
+     * 查询任务，返回当前状态的副本
+     *
+     * @throws ResponseStatusException 404，任务不存在
+     */
+    public BatchJob getJob(String jobId) {
+        BatchJob job = jobId == null ? null : activeJobs.get(jobId);
+        if (job != null) {
+            synchronized (job) {
+                return job.snapshot();
+            }
+        }
+        // 从文件读取的任务本身就是副本
+        job = store.loadJob(jobId);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "任务不存在：" + jobId);
+        }
+        return job;
+    }
+
+    /**
+     * 以 NDJSON 逐行写出任务中每个请求的状态和结果，结果逐个从文件读取，不整体加载到内存
+     */
+    public void writeResults(BatchJob job, OutputStream out) throws IOException {
+        List<BatchItem> items;
+        synchronized (job) {
+            items = List.copyOf(job.getItems());
+        }
+        for (BatchItem item : items) {
+            BatchResultLine line = new BatchResultLine();
+            line.setIndex(item.getIndex());
+            line.setStatus(item.getStatus());
+            line.setRequest(item.getRequest());
+            line.setError(item.getError());
+            if (item.getStatus() == BatchItemStatus.SUCCEEDED) {
+                BatchResult result = store.loadResult(item.getKey());
+                line.setContent(result == null ? null : result.getContent());
+            }
+            out.write((JSONUtil.toJsonStr(line) + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+    }
+
+    /**
+     * 为任务中每个未完成的不同请求安排生成
+     */
+    private void schedule(BatchJob job) {
+        Map<String, PlanRequest> pending = new LinkedHashMap<>();
+        synchronized (job) {
+            job.getItems().stream()
+                    .filter(item -> item.getStatus() == BatchItemStatus.PENDING)
+                    .forEach(item -> pending.putIfAbsent(item.getKey(), item.getRequest()));
+        }
+        pending.forEach((key, request) -> result(key, request)
+                .whenComplete((result, error) -> complete(job, key, error)));
+    }
+
+    private CompletableFuture<BatchResult> result(String key, PlanRequest request) {
+        CompletableFuture<BatchResult> future = inFlight.computeIfAbsent(key,
+                k -> CompletableFuture.supplyAsync(() -> generate(k, request), executor));
+        future.whenComplete((result, error) -> inFlight.remove(key, future));
+        return future;
+    }
+
+    /**
+     * 生成单个请求：有效期内已有结果时直接复用，否则排队获得许可后生成，失败时退避重试
+     */
+    private BatchResult generate(String key, PlanRequest request) {
+        BatchResult existing = store.loadResult(key);
+        if (existing != null && System.currentTimeMillis() - existing.getGeneratedAt() < resultTtl.toMillis()) {
+            return existing;
+        }
+        RuntimeException lastError = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                permits.acquire();
+                try {
+                    String content = admissionControl.call(AdmissionLane.TRIPMIND, ADMISSION_KEY, () -> generator.apply(request));
+                    BatchResult result = new BatchResult();
+                    result.setKey(key);
+                    result.setRequest(request);
+                    result.setContent(content);
+                    result.setGeneratedAt(System.currentTimeMillis());
+                    store.saveResult(result);
+                    return result;
+                } finally {
+                    permits.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            } catch (RuntimeException e) {
+                if (causedByShutdown(e)) {
+                    // 服务关闭，不再重试
+                    throw new CompletionException(e);
+                }
+                // 限流排队超时、准入拒绝和模型调用失败都重试，退避期间不占用许可
+                lastError = e;
+                log.warn("Batch generation for {} failed (attempt {}/{}): {}", request.getDestination(), attempt, maxAttempts, e.getMessage());
+                if (attempt < maxAttempts) {
+                    try {
+                        Thread.sleep(RETRY_BACKOFF.multipliedBy(attempt).toMillis());
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                        throw new CompletionException(interrupted);
+                    }
+                }
+            }
+        }
+        throw lastError;
+    }
+
+    private void complete(BatchJob job, String key, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause != null && causedByShutdown(cause)) {
+            // 服务关闭，保持 PENDING
+            return;
+        }
+        synchronized (job) {
+            for (BatchItem item : job.getItems()) {
+                if (key.equals(item.getKey()) && item.getStatus() == BatchItemStatus.PENDING) {
+                    item.setStatus(cause == null ? BatchItemStatus.SUCCEEDED : BatchItemStatus.FAILED);
+                    item.setError(cause == null ? null : cause.getMessage());
+                }
+            }
+            job.recount();
+            store.saveJob(job);
+            if (job.getStatus() == BatchJobStatus.COMPLETED) {
+                activeJobs.remove(job.getJobId(), job);
+                log.info("Batch job {} completed: {} succeeded, {} failed", job.getJobId(), job.getSucceeded(), job.getFailed());
+            }
+        }
+    }
+
+    /**
+     * 失败是否由服务关闭引起：中断和取消可能被调用链包装在任意层的 cause 中
+     */
+    private boolean causedByShutdown(Throwable error) {
+        if (stopping || Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException || cause instanceof InterruptedIOException
+                    || cause instanceof ClosedByInterruptException || cause instanceof CancellationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 缺省字段补为空串，模板渲染不接受 null
+     */
+    private static PlanRequest withDefaults(PlanRequest request) {
+        PlanRequest copy = new PlanRequest();
+        copy.setDestination(StrUtil.trim(request.getDestination()));
+        copy.setTravelDates(StrUtil.nullToEmpty(request.getTravelDates()));
+        copy.setInterests(StrUtil.nullToEmpty(request.getInterests()));
+        copy.setBudget(StrUtil.nullToEmpty(request.getBudget()));
+        return copy;
+    }
+}
@@ -0,0 +1,10 @@
+package com.zhishi.aiagent.batch;
+
+/**
+ * 批量任务状态，全部请求结束（无论成功与否）即为 COMPLETED
+ */
+public enum BatchJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED
+}
@@ -0,0 +1,112 @@
+package com.zhishi.aiagent.batch;
+
+import cn.hutool.json.JSONUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 批量任务的文件存储
+ * 任务和结果各自一个 JSON 文件，先写临时文件再原子替换；结果按规范化键命名，不同任务中的相同请求共用一份
+ */
+@Slf4j
+public class BatchJobStore {
+
+    // 任务 ID 和结果键都会用作文件名，只接受自己生成的格式
+    private static final Pattern JOB_ID = Pattern.compile("[0-9a-f]{32}");
+    private static final Pattern RESULT_KEY = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path jobDir;
+
+    private final Path resultDir;
+
+    public BatchJobStore(Path dir) {
+        this.jobDir = dir.resolve("jobs");
+        this.resultDir = dir.resolve("results");
+    }
+
+    public static boolean isValidJobId(String jobId) {
+        return jobId != null && JOB_ID.matcher(jobId).matches();
+    }
+
+    public void saveJob(BatchJob job) {
+        write(jobDir, job.getJobId(), JSONUtil.toJsonStr(job));
+    }
+
+    /**
+     * 读取任务
+     *
+     * @return 不存在或无法解析时返回 null
+     */
+    public BatchJob loadJob(String jobId) {
+        if (!isValidJobId(jobId)) {
+            return null;
+        }
+        return read(jobDir.resolve(jobId + ".json"), BatchJob.class);
+    }
+
+    /**
+     * 所有已保存的任务，用于重启后继续未完成的任务
+     */
+    public List<BatchJob> loadJobs() {
+        List<BatchJob> jobs = new ArrayList<>();
+        if (!Files.isDirectory(jobDir)) {
+            return jobs;
+        }
+        try (Stream<Path> files = Files.list(jobDir)) {
+            files.filter(file -> file.getFileName().toString().endsWith(".json"))
+                    .map(file -> read(file, BatchJob.class))
+                    .filter(job -> job != null)
+                    .forEach(jobs::add);
+        } catch (IOException e) {
+            log.warn("Failed to list batch jobs: {}", e.getMessage());
+        }
+        return jobs;
+    }
+
+    public void saveResult(BatchResult result) {
+        write(resultDir, result.getKey(), JSONUtil.toJsonStr(result));
+    }
+
+    /**
+     * 读取结果
+     *
+     * @return 不存在或无法解析时返回 null
+     */
+    public BatchResult loadResult(String key) {
+        if (key == null || !RESULT_KEY.matcher(key).matches()) {
+            return null;
+        }
+        return read(resultDir.resolve(key + ".json"), BatchResult.class);
+    }
+
+    private void write(Path dir, String name, String json) {
+        try {
+            Files.createDirectories(dir);
+            Path temp = dir.resolve(name + ".json.tmp");
+            Files.writeString(temp, json);
+            Files.move(temp, dir.resolve(name + ".json"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to save batch file {}: {}", name, e.getMessage());
+        }
+    }
+
+    private <T> T read(Path file, Class<T> type) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return JSONUtil.toBean(Files.readString(file), type);
+        } catch (Exception e) {
+            log.warn("Failed to load batch file {}: {}", file.getFileName(), e.getMessage());
+            return null;
+        }
+    }
+}
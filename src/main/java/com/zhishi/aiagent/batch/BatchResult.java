@@ -0,0 +1,19 @@
+package com.zhishi.aiagent.batch;
+
+import com.zhishi.aiagent.entity.PlanRequest;
+import lombok.Data;
+
+/**
+ * 单个请求的生成结果，按规范化键保存，跨任务复用
+ */
+@Data
+public class BatchResult {
+
+    private String key;
+
+    private PlanRequest request;
+
+    private String content;
+
+    private long generatedAt;
+}
@@ -0,0 +1,21 @@
+package com.zhishi.aiagent.batch;
+
+import com.zhishi.aiagent.entity.PlanRequest;
+import lombok.Data;
+
+/**
+ * 结果下载中的一行（NDJSON），对应任务中的一个请求
+ */
+@Data
+public class BatchResultLine {
+
+    private int index;
+
+    private BatchItemStatus status;
+
+    private PlanRequest request;
+
+    private String content;
+
+    private String error;
+}
@@ -0,0 +1,33 @@
+package com.zhishi.aiagent.batch;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.zhishi.aiagent.entity.PlanRequest;
+
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 规划请求的规范化键
+ * 忽略首尾空白、连续空白和大小写的差异，内容相同的请求得到相同的键；键同时用作结果文件名
+ */
+public final class PlanRequestKey {
+
+    private PlanRequestKey() {
+    }
+
+    public static String of(PlanRequest request) {
+        String canonical = Stream.of(request.getDestination(), request.getTravelDates(), request.getInterests(), request.getBudget())
+                .map(PlanRequestKey::normalize)
+                .collect(Collectors.joining("\u0001"));
+        return DigestUtil.sha256Hex(canonical);
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return StrUtil.trim(value).replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,59 @@
+package com.zhishi.aiagent.config;
+
+import com.zhishi.aiagent.ratelimit.RateLimitedChatModel;
+import com.zhishi.aiagent.ratelimit.RateLimiterRegistry;
+import com.zhishi.aiagent.routing.RoutingChatModel;
+import com.zhishi.aiagent.routing.RoutingPolicy;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 模型路由配置
+ */
+@Configuration
+public class ModelRoutingConfig {
+
+    @Value("${ai.routing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.routing.local-enabled:false}")
+    private boolean localEnabled;
+
+    @Value("${ai.routing.small-model:qwen-turbo}")
+    private String smallModel;
+
+    @Value("${ai.routing.medium-model:qwen-plus}")
+    private String mediumModel;
+
+    @Value("${ai.routing.large-model:}")
+    private String largeModel;
+
+    @Value("${ai.routing.short-message-chars:200}")
+    private int shortMessageChars;
+
+    @Value("${ai.routing.long-prompt-chars:12000}")
+    private int longPromptChars;
+
+    @Bean
+    public RoutingChatModel routingChatModel(ChatModel dashscopeChatModel,
+                                             ObjectProvider<OllamaChatModel> ollamaChatModelProvider,
+                                             RateLimiterRegistry rateLimiterRegistry) {
+        RoutingPolicy policy = new RoutingPolicy();
+        policy.setEnabled(enabled);
+        policy.setLocalEnabled(localEnabled);
+        policy.setSmallModel(smallModel);
+        policy.setMediumModel(mediumModel);
+        policy.setLargeModel(largeModel);
+        policy.setShortMessageChars(shortMessageChars);
+        policy.setLongPromptChars(longPromptChars);
+        ChatModel ollamaChatModel = localEnabled ? ollamaChatModelProvider.getIfAvailable() : null;
+        // DashScope 的所有调用共享 RPM、TPM 限流
+        ChatModel rateLimitedChatModel = new RateLimitedChatModel(dashscopeChatModel,
+                rateLimiterRegistry.get(RateLimiterRegistry.DASHSCOPE));
+        return new RoutingChatModel(rateLimitedChatModel, ollamaChatModel, policy);
+    }
+}
@@ -0,0 +1,60 @@
+package com.zhishi.aiagent.controller;
+
+import com.zhishi.aiagent.batch.BatchJob;
+import com.zhishi.aiagent.batch.BatchJobService;
+import com.zhishi.aiagent.entity.PlanRequest;
+import jakarta.annotation.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+
+/**
+ * 批量旅行攻略生成：提交后立即返回任务 ID，轮询状态或一次性下载全部结果
+ */
+@RestController
+@RequestMapping("/tripmind/batch")
+public class BatchController {
+
+    @Resource
+    private BatchJobService batchJobService;
+
+    /**
+     * 提交批量任务
+     *
+     * @param requests 规划请求列表，destination 必填
+     * @return 任务，包含 jobId 和各请求的初始状态
+     */
+    @PostMapping
+    public BatchJob submit(@RequestBody List<PlanRequest> requests) {
+        return batchJobService.submit(requests);
+    }
+
+    /**
+     * 查询任务状态
+     */
+    @GetMapping("/{jobId}")
+    public BatchJob getJob(@PathVariable String jobId) {
+        return batchJobService.getJob(jobId);
+    }
+
+    /**
+     * 下载任务结果（NDJSON，每行一个请求），任务未完成时未完成的请求状态为 PENDING
+     */
+    @GetMapping("/{jobId}/results")
+    public ResponseEntity<StreamingResponseBody> downloadResults(@PathVariable String jobId) {
+        BatchJob job = batchJobService.getJob(jobId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + jobId + ".ndjson\"")
+                .body(out -> batchJobService.writeResults(job, out));
+    }
+}
@@ -1,20 +1,18 @@
 package com.zhishi.aiagent.controller;
 
-import com.zhishi.aiagent.agent.MyManus;
+import com.zhishi.aiagent.admission.AdmissionControl;
+import com.zhishi.aiagent.admission.AdmissionLane;
 import com.zhishi.aiagent.app.EmotionalMaster;
+import com.zhishi.aiagent.sse.SseTransport;
 import jakarta.annotation.Resource;
-import org.springframework.ai.chat.model.ChatModel;
-import org.springframework.ai.tool.ToolCallback;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import reactor.core.publisher.Flux;
 
-import java.io.IOException;
-
 @RestController
 @RequestMapping("/ai")
 public class EmotionalMasterController {
@@ -23,10 +21,7 @@ public class EmotionalMasterController {
     private EmotionalMaster emotionalMaster;
 
     @Resource
-    private ToolCallback[] allTools;
-
-    @Resource
-    private ChatModel dashscopeChatModel;
+    private AdmissionControl admissionControl;
 
     /**
      * 同步调用 AI 情感大师应用
@@ -36,58 +31,23 @@ public class EmotionalMasterController {
      * @return
      */
     @GetMapping("/master/chat/sync")
-    public String doChatWithMasterSync(String message, String chatId) {
-        return emotionalMaster.chatWithMaster(message, chatId);
-    }
-
-    /**
-     * SSE 流式调用 AI 情感大师应用
-     *
-     * @param message
-     * @param chatId
-     * @return
-     */
-    @GetMapping(value = "/master/chat/sse", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Flux<String> doChatWithMasterSSE(String message, String chatId) {
-        return emotionalMaster.chatWithMasterByStream(message, chatId);
-    }
-
-    /**
-     * SSE 流式调用 AI 情感大师应用
-     *
-     * @param message
-     * @param chatId
-     * @return
-     */
-    @GetMapping(value = "/master/chat/server_sent_event")
-    public Flux<ServerSentEvent<String>> doChatWithMasterServerSentEvent(String message, String chatId) {
-        return emotionalMaster.chatWithMasterByStream(message, chatId)
-                .map(chunk -> ServerSentEvent.<String>builder()
-                        .data(chunk)
-                        .build());
+    public String doChatWithMasterSync(String message, String chatId, HttpServletRequest request) {
+        return admissionControl.call(AdmissionLane.MASTER, AdmissionControl.clientKey(chatId, request),
+                () -> emotionalMaster.chatWithMaster(message, chatId));
     }
 
     /**
      * SSE 流式调用 AI 情感大师应用
+     * 原有的三个流式地址保留为同一实现，统一输出 token 和 final 事件
      *
      * @param message
      * @param chatId
      * @return
      */
-    @GetMapping(value = "/master/chat/sse_emitter")
-    public SseEmitter doChatWithMasterServerSseEmitter(String message, String chatId) {
-        // 创建一个超时时间较长的 SseEmitter
-        SseEmitter sseEmitter = new SseEmitter(180000L); // 3 分钟超时
-        // 获取 Flux 响应式数据流并且直接通过订阅推送给 SseEmitter
-        emotionalMaster.chatWithMasterByStream(message, chatId)
-                .subscribe(chunk -> {
-                    try {
-                        sseEmitter.send(chunk);
-                    } catch (IOException e) {
-                        sseEmitter.completeWithError(e);
-                    }
-                }, sseEmitter::completeWithError, sseEmitter::complete);
-        // 返回
-        return sseEmitter;
+    @GetMapping(value = {"/master/chat/sse", "/master/chat/server_sent_event", "/master/chat/sse_emitter"},
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> doChatWithMasterSSE(String message, String chatId, HttpServletRequest request) {
+        return SseTransport.streamText(admissionControl.admit(AdmissionLane.MASTER, AdmissionControl.clientKey(chatId, request),
+                () -> emotionalMaster.chatWithMasterByStream(message, chatId)));
     }
 }
@@ -0,0 +1,128 @@
+package com.zhishi.aiagent.controller;
+
+import com.zhishi.aiagent.admission.AdmissionControl;
+import com.zhishi.aiagent.admission.AdmissionStats;
+import com.zhishi.aiagent.dedup.DedupStats;
+import com.zhishi.aiagent.dedup.MessageCoalescer;
+import com.zhishi.aiagent.mcp.McpServerStats;
+import com.zhishi.aiagent.mcp.McpToolRegistry;
+import com.zhishi.aiagent.poi.PoiIndex;
+import com.zhishi.aiagent.poi.PoiIndexStats;
+import com.zhishi.aiagent.precompute.PlanWarmupService;
+import com.zhishi.aiagent.precompute.PrecomputeStats;
+import com.zhishi.aiagent.ratelimit.RateLimiterRegistry;
+import com.zhishi.aiagent.ratelimit.RateLimiterStats;
+import com.zhishi.aiagent.routing.RouteStats;
+import com.zhishi.aiagent.routing.RoutingChatModel;
+import com.zhishi.aiagent.startup.StartupReport;
+import com.zhishi.aiagent.startup.StartupTimeline;
+import jakarta.annotation.Resource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+
+/**
+ * 运行指标
+ */
+@RestController
+@RequestMapping("/metrics")
+public class MetricsController {
+
+    @Resource
+    private RateLimiterRegistry rateLimiterRegistry;
+
+    @Resource
+    private RoutingChatModel routingChatModel;
+
+    @Resource
+    private AdmissionControl admissionControl;
+
+    @Resource
+    private PlanWarmupService planWarmupService;
+
+    @Autowired
+    private ObjectProvider<PoiIndex> poiIndexProvider;
+
+    @Resource
+    private McpToolRegistry mcpToolRegistry;
+
+    @Resource
+    private StartupTimeline startupTimeline;
+
+    @Resource
+    private MessageCoalescer messageCoalescer;
+
+    /**
+     * 各准入通道的并发、排队、拒绝和排队延迟
+     */
+    @GetMapping("/admission")
+    public Map<String, AdmissionStats> getAdmission() {
+        return admissionControl.getStats();
+    }
+
+    /**
+     * 情感对话中重复消息的合并次数
+     */
+    @GetMapping("/dedup")
+    public DedupStats getDedup() {
+        return messageCoalescer.getStats();
+    }
+
+    /**
+     * 各 MCP 服务的进程数、重启次数、启动耗时和工具调用耗时
+     */
+    @GetMapping("/mcp")
+    public Map<String, McpServerStats> getMcp() {
+        return mcpToolRegistry.getStats();
+    }
+
+    /**
+     * 兴趣点索引的规模和周边搜索的本地命中情况
+     */
+    @GetMapping("/poi")
+    public PoiIndexStats getPoi() {
+        PoiIndex poiIndex = poiIndexProvider.getIfAvailable();
+        if (poiIndex == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "兴趣点索引未启用");
+        }
+        return poiIndex.getStats();
+    }
+
+    /**
+     * 预生成攻略的数量、命中情况和最近一次预热
+     */
+    @GetMapping("/precompute")
+    public PrecomputeStats getPrecompute() {
+        return planWarmupService.getStats();
+    }
+
+    /**
+     * 各上游的限流、排队和配额使用情况
+     */
+    @GetMapping("/rate-limits")
+    public Map<String, RateLimiterStats> getRateLimits() {
+        return rateLimiterRegistry.getStats();
+    }
+
+    /**
+     * 本次启动的耗时、各阶段耗时和最慢的 Bean
+     */
+    @GetMapping("/startup")
+    public StartupReport getStartup() {
+        return startupTimeline.getReport();
+    }
+
+    /**
+     * 各模型路由的调用统计
+     */
+    @GetMapping("/routes")
+    public Map<String, RouteStats> getRoutes() {
+        return routingChatModel.getRouteStats();
+    }
+}
@@ -1,39 +1,153 @@
 package com.zhishi.aiagent.controller;
 
-import com.zhishi.aiagent.agent.MyManus;
-import com.zhishi.aiagent.app.EmotionalMaster;
+import com.zhishi.aiagent.admission.AdmissionControl;
+import com.zhishi.aiagent.admission.AdmissionLane;
+import com.zhishi.aiagent.agent.PlanExecuteAgent;
+import com.zhishi.aiagent.agent.prefetch.PrefetchSettings;
+import com.zhishi.aiagent.agent.run.AgentRun;
+import com.zhishi.aiagent.agent.run.AgentRunRegistry;
+import com.zhishi.aiagent.agent.select.ToolCatalog;
+import com.zhishi.aiagent.agent.select.ToolSelectionStats;
+import com.zhishi.aiagent.routing.RoutingChatModel;
+import com.zhishi.aiagent.sse.SseTransport;
+import com.zhishi.aiagent.tools.cache.ToolCacheStats;
+import com.zhishi.aiagent.tools.cache.ToolMemoizer;
 import jakarta.annotation.Resource;
-import org.springframework.ai.chat.model.ChatModel;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.ai.tool.ToolCallback;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 
-import java.io.IOException;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/ai")
 public class MymanusController {
 
+    @Resource
+    private AgentRunRegistry agentRunRegistry;
+
     @Resource
     private ToolCallback[] allTools;
 
     @Resource
-    private ChatModel dashscopeChatModel;
+    private RoutingChatModel routingChatModel;
+
+    @Resource
+    private PrefetchSettings prefetchSettings;
+
+    @Resource
+    private ToolMemoizer toolMemoizer;
+
+    @Resource
+    private ToolCatalog toolCatalog;
+
+    @Resource
+    private AdmissionControl admissionControl;
 
     /**
      * 流式调用 Manus 超级智能体
+     * 首个事件为 run，内容为运行 ID，连接断开后可通过 /manus/runs/{runId}/events 续传
      *
      * @param message
-     * @return
+     * @return 事件流：run、step、thought、tool_call、tool_result、progress、final、error
+     */
+    @GetMapping(value = "/manus/chat", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> doChatWithManus(String message, HttpServletRequest request) {
+        // 获得准入许可后才启动运行；许可在运行结束时归还，客户端断开不影响
+        return SseTransport.stream(admissionControl.acquire(AdmissionLane.MANUS, AdmissionControl.clientKey(null, request))
+                .flatMapMany(permit -> agentRunRegistry.start(message, permit::release).events(0)));
+    }
+
+    /**
+     * 规划-执行模式：先拆分为子任务图，无依赖的子任务并发执行后汇总
+     *
+     * @param message
+     * @return 事件流：thought（任务规划）、progress（子任务开始与完成）、tool_call、tool_result、step、final、error
+     */
+    @GetMapping(value = "/manus/plan", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> doPlanWithManus(String message, HttpServletRequest request) {
+        return SseTransport.stream(admissionControl.admit(AdmissionLane.MANUS, AdmissionControl.clientKey(null, request), () -> {
+            PlanExecuteAgent planExecuteAgent = new PlanExecuteAgent(allTools, routingChatModel);
+            planExecuteAgent.setPrefetchSettings(prefetchSettings);
+            planExecuteAgent.setToolCatalog(toolCatalog);
+            return planExecuteAgent.runStream(message);
+        }));
+    }
+
+    /**
+     * 重新连接运行的事件流，只返回 Last-Event-ID 之后的事件；运行已停止时从检查点继续执行
+     */
+    @GetMapping(value = "/manus/runs/{runId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> resumeManusRun(@PathVariable String runId,
+                                                        @RequestHeader(value = "Last-Event-ID", required = false, defaultValue = "0") long lastEventId,
+                                                        HttpServletRequest request) {
+        AgentRun run = agentRunRegistry.get(runId);
+        if (run != null) {
+            // 运行仍在内存中，已持有许可
+            return SseTransport.stream(run.events(lastEventId));
+        }
+        if (!agentRunRegistry.exists(runId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Run not found: " + runId);
+        }
+        // 从检查点继续执行同样需要准入许可
+        return SseTransport.stream(admissionControl.acquire(AdmissionLane.MANUS, AdmissionControl.clientKey(null, request))
+                .flatMapMany(permit -> {
+                    AgentRun resumed = agentRunRegistry.find(runId, permit::release);
+                    if (resumed == null) {
+                        return Flux.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Run not found: " + runId));
+                    }
+                    return resumed.events(lastEventId);
+                }));
+    }
+
+    /**
+     * 查询运行状态，只查询内存中的运行，不会从检查点恢复
+     */
+    @GetMapping("/manus/runs/{runId}")
+    public Map<String, Object> getManusRun(@PathVariable String runId) {
+        AgentRun run = agentRunRegistry.get(runId);
+        if (run == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Run not found: " + runId);
+        }
+        return Map.of(
+                "runId", run.getRunId(),
+                "state", run.getAgent().getState(),
+                "currentStep", run.getAgent().getCurrentStep(),
+                "lastEventId", run.getLastEventId(),
+                "completed", run.isCompleted());
+    }
+
+    /**
+     * 取消运行
+     */
+    @DeleteMapping("/manus/runs/{runId}")
+    public boolean cancelManusRun(@PathVariable String runId) {
+        return agentRunRegistry.cancel(runId);
+    }
+
+    /**
+     * 幂等工具的缓存命中统计
+     */
+    @GetMapping("/manus/tools/stats")
+    public Map<String, ToolCacheStats> getToolCacheStats() {
+        return toolMemoizer.getStats();
+    }
+
+    /**
+     * 按步骤挑选工具的统计：每步平均提供的工具数和工具定义字符数
      */
-    @GetMapping("/manus/chat")
-    public SseEmitter doChatWithManus(String message) {
-        MyManus myManus = new MyManus(allTools, dashscopeChatModel);
-        return myManus.runStream(message);
+    @GetMapping("/manus/tools/selection")
+    public ToolSelectionStats getToolSelectionStats() {
+        return toolCatalog.getStats();
     }
 }
@@ -1,17 +1,39 @@
 package com.zhishi.aiagent.controller;
 
+import cn.hutool.json.JSONUtil;
+import com.zhishi.aiagent.admission.AdmissionControl;
+import com.zhishi.aiagent.admission.AdmissionLane;
 import com.zhishi.aiagent.app.TripMind;
+import com.zhishi.aiagent.entity.PlanRequest;
+import com.zhishi.aiagent.itinerary.Itinerary;
+import com.zhishi.aiagent.precompute.PlanWarmupService;
+import com.zhishi.aiagent.precompute.PrecomputedPlan;
+import com.zhishi.aiagent.sse.AgentEvent;
+import com.zhishi.aiagent.sse.AgentEventType;
+import com.zhishi.aiagent.sse.SseTransport;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 
 @RestController
 public class TripMindController {
 
     private final TripMind tripMind;
 
-    public TripMindController(TripMind tripMind) {
+    private final AdmissionControl admissionControl;
+
+    private final PlanWarmupService planWarmupService;
+
+    public TripMindController(TripMind tripMind, AdmissionControl admissionControl, PlanWarmupService planWarmupService) {
         this.tripMind = tripMind;
+        this.admissionControl = admissionControl;
+        this.planWarmupService = planWarmupService;
     }
 
     @GetMapping("/tripmind/plan")
@@ -21,12 +43,77 @@ public class TripMindController {
             @RequestParam String travelDates,
             @RequestParam String interests,
             @RequestParam String budget,
-            @RequestParam(required = false, defaultValue = "") String time) {
+            @RequestParam(required = false, defaultValue = "") String time,
+            HttpServletRequest request) {
 
         // time参数用于HTML生成时的文件名，如果为空则使用当前时间戳
         // 这里只是接收参数，实际使用在HTML生成时
-        return tripMind.generateTravelPlan(chatId, destination, travelDates, interests, budget);
+        PlanRequest planRequest = planRequest(destination, travelDates, interests, budget);
+        planWarmupService.record(planRequest);
+        // 热门请求已预生成时直接返回，不排队也不调用大模型
+        PrecomputedPlan precomputed = planWarmupService.lookup(planRequest);
+        if (precomputed != null) {
+            return precomputed.getTravelPlan();
+        }
+        return admissionControl.call(AdmissionLane.TRIPMIND, AdmissionControl.clientKey(chatId, request),
+                () -> tripMind.generateTravelPlan(chatId, destination, travelDates, interests, budget));
     }
 
+    /**
+     * 查询预生成的旅行攻略（包含 HTML），未预生成时返回 404
+     */
+    @GetMapping("/tripmind/plan/precomputed")
+    public PrecomputedPlan precomputedTravelPlan(
+            @RequestParam String destination,
+            @RequestParam String travelDates,
+            @RequestParam String interests,
+            @RequestParam String budget) {
+        PrecomputedPlan precomputed = planWarmupService.lookup(planRequest(destination, travelDates, interests, budget));
+        if (precomputed == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "该请求没有预生成的攻略");
+        }
+        return precomputed;
+    }
 
-}
+    /**
+     * 生成结构化旅行攻略（JSON）
+     */
+    @GetMapping("/tripmind/plan/structured")
+    public Itinerary structuredTravelPlan(
+            @RequestParam String chatId,
+            @RequestParam String destination,
+            @RequestParam String travelDates,
+            @RequestParam String interests,
+            @RequestParam String budget,
+            HttpServletRequest request) {
+        return admissionControl.call(AdmissionLane.TRIPMIND, AdmissionControl.clientKey(chatId, request),
+                () -> tripMind.generateStructuredTravelPlan(chatId, destination, travelDates, interests, budget));
+    }
+
+    /**
+     * SSE 流式生成结构化旅行攻略，每完成一天推送一个 step 事件（单日行程 JSON），全部完成后推送 final 事件
+     */
+    @GetMapping(value = "/tripmind/plan/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> streamTravelPlan(
+            @RequestParam String chatId,
+            @RequestParam String destination,
+            @RequestParam String travelDates,
+            @RequestParam String interests,
+            @RequestParam String budget,
+            HttpServletRequest request) {
+        Flux<AgentEvent> events = admissionControl.admit(AdmissionLane.TRIPMIND, AdmissionControl.clientKey(chatId, request),
+                () -> tripMind.streamStructuredTravelPlan(chatId, destination, travelDates, interests, budget)
+                        .map(day -> AgentEvent.of(AgentEventType.STEP, JSONUtil.toJsonStr(day)))
+                        .concatWithValues(AgentEvent.of(AgentEventType.FINAL, "")));
+        return SseTransport.stream(events);
+    }
+
+    private static PlanRequest planRequest(String destination, String travelDates, String interests, String budget) {
+        PlanRequest planRequest = new PlanRequest();
+        planRequest.setDestination(destination);
+        planRequest.setTravelDates(travelDates);
+        planRequest.setInterests(interests);
+        planRequest.setBudget(budget);
+        return planRequest;
+    }
+}
\ No newline at end of file
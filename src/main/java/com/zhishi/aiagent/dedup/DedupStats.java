@@ -0,0 +1,12 @@
+package com.zhishi.aiagent.dedup;
+
+/**
+ * 重复消息合并的统计
+ *
+ * @param entries   缓存中的条目数（含执行中的）
+ * @param calls     实际调用模型的次数
+ * @param coalesced 等待同一次执行中调用的重复消息数
+ * @param hits      直接返回已缓存回答的重复消息数
+ */
+public record DedupStats(int entries, long calls, long coalesced, long hits) {
+}
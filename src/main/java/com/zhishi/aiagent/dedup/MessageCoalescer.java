@@ -0,0 +1,214 @@
+package com.zhishi.aiagent.dedup;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 同一会话重复消息的合并
+ * 按 chatId 和消息内容的摘要合并：执行中的相同消息等待同一次模型调用，完成后窗口期内的相同消息直接返回已有回答，
+ * 重复消息不会再次调用模型，也不会在对话记忆中留下重复的记录；
+ * 流式调用共享同一个事件流，后到的订阅者从头重放已输出的内容；同步和流式请求之间同样合并
+ * 调用失败或流式调用超时时移除条目，下一次相同消息重新调用；没有 chatId 的请求不合并
+ * 条目数超过上限时按最近最少使用淘汰已完成的条目，执行中的条目有请求在等待，不会被淘汰
+ */
+@Component
+@Slf4j
+public class MessageCoalescer {
+
+    private final boolean enabled;
+
+    private final long windowMillis;
+
+    private final int maxEntries;
+
+    private final Duration streamTimeout;
+
+    // 按访问顺序排列，用于淘汰
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    public MessageCoalescer(@Value("${dedup.enabled:true}") boolean enabled,
+                            @Value("${dedup.window-seconds:30}") long windowSeconds,
+                            @Value("${dedup.max-entries:1000}") int maxEntries,
+                            @Value("${dedup.stream-timeout-seconds:180}") long streamTimeoutSeconds) {
+        this.enabled = enabled;
+        this.windowMillis = Duration.ofSeconds(windowSeconds).toMillis();
+        this.maxEntries = maxEntries;
+        this.streamTimeout = Duration.ofSeconds(streamTimeoutSeconds);
+    }
+
+    /**
+     * 同步调用，相同消息只执行一次
+     */
+    public String call(String chatId, String message, Supplier<String> call) {
+        if (!enabled || StrUtil.isBlank(chatId)) {
+            return call.get();
+        }
+        String key = key(chatId, message);
+        Entry entry;
+        boolean owner = false;
+        synchronized (entries) {
+            entry = lookup(key);
+            if (entry == null) {
+                entry = new Entry(null);
+                put(key, entry);
+                owner = true;
+            }
+        }
+        if (!owner) {
+            record(key, entry);
+            try {
+                return entry.answer.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        calls.increment();
+        try {
+            String answer = call.get();
+            complete(entry, answer);
+            return answer;
+        } catch (Throwable e) {
+            // 任何失败都要结束条目，否则等待同一次调用的请求会一直阻塞
+            fail(key, entry, e);
+            throw e;
+        }
+    }
+
+    /**
+     * 流式调用，相同消息共享同一个事件流
+     * 共享的事件流在订阅者全部断开后仍会执行完，回答留给之后重发的相同消息
+     */
+    public Flux<String> stream(String chatId, String message, Supplier<Flux<String>> source) {
+        if (!enabled || StrUtil.isBlank(chatId)) {
+            return Flux.defer(source);
+        }
+        return Flux.defer(() -> {
+            String key = key(chatId, message);
+            Entry entry;
+            synchronized (entries) {
+                entry = lookup(key);
+                if (entry == null) {
+                    entry = newStreamEntry(key, source);
+                    put(key, entry);
+                    calls.increment();
+                    return entry.tokens;
+                }
+            }
+            record(key, entry);
+            if (entry.tokens != null) {
+                return entry.tokens;
+            }
+            // 同步请求的回答整体作为一段输出
+            return Mono.fromFuture(entry.answer).flux();
+        });
+    }
+
+    public DedupStats getStats() {
+        synchronized (entries) {
+            return new DedupStats(entries.size(), calls.sum(), coalesced.sum(), hits.sum());
+        }
+    }
+
+    private Entry newStreamEntry(String key, Supplier<Flux<String>> source) {
+        StringBuilder answer = new StringBuilder();
+        Entry[] holder = new Entry[1];
+        Flux<String> tokens = Flux.defer(source)
+                // 订阅者全部断开后上游仍在执行，卡住时也要结束，避免条目一直处于执行中
+                .timeout(streamTimeout)
+                .doOnNext(answer::append)
+                .doOnComplete(() -> complete(holder[0], answer.toString()))
+                .doOnError(e -> fail(key, holder[0], e))
+                // 只订阅一次上游，输出的内容缓存下来供之后的订阅者重放
+                .cache();
+        holder[0] = new Entry(tokens);
+        return holder[0];
+    }
+
+    /**
+     * 加入条目，超过上限时从最近最少使用的一端淘汰已完成的条目
+     */
+    private void put(String key, Entry entry) {
+        entries.put(key, entry);
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            if (iterator.next().completedAt > 0) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 有效的条目：执行中，或完成后仍在窗口期内
+     */
+    private Entry lookup(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.completedAt > 0 && System.currentTimeMillis() - entry.completedAt > windowMillis) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    private void record(String key, Entry entry) {
+        if (entry.answer.isDone()) {
+            hits.increment();
+        } else {
+            coalesced.increment();
+        }
+        log.debug("Coalesced duplicate message {}", key);
+    }
+
+    private void complete(Entry entry, String answer) {
+        entry.completedAt = System.currentTimeMillis();
+        entry.answer.complete(answer);
+    }
+
+    private void fail(String key, Entry entry, Throwable error) {
+        synchronized (entries) {
+            entries.remove(key, entry);
+        }
+        entry.answer.completeExceptionally(error);
+    }
+
+    private static String key(String chatId, String message) {
+        return chatId + ":" + DigestUtil.md5Hex(StrUtil.trim(StrUtil.nullToEmpty(message)));
+    }
+
+    /**
+     * 一次模型调用：完整回答，流式调用另有可重放的事件流
+     */
+    private static final class Entry {
+
+        private final CompletableFuture<String> answer = new CompletableFuture<>();
+
+        private final Flux<String> tokens;
+
+        // 完成时间，执行中为 0
+        private volatile long completedAt;
+
+        private Entry(Flux<String> tokens) {
+            this.tokens = tokens;
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.zhishi.aiagent.download;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.http.HttpRequest;
+import cn.hutool.http.HttpResponse;
+import cn.hutool.json.JSONUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 下载引擎
+ * 响应体经 FileChannel.transferFrom 直接写入目标文件，不经过中间字节数组；
+ * 服务端支持 Range 时大文件拆分为多个分段在虚拟线程上并行下载，断点信息保存在 .part.json 中，中断后可续传；
+ * 未完成的文件按目标文件名和资源地址区分，同一目标文件同时只允许一个下载；
+ * 下载完成后在 .blobs 目录按 SHA-256 登记首次下载该内容的文件，用于识别重复内容；内容只保存在目标文件中，各目标文件互相独立
+ */
+@Slf4j
+public class DownloadEngine {
+
+    // 超过该大小才拆分分段
+    static final long SEGMENT_THRESHOLD = 8L * 1024 * 1024;
+    private static final int MAX_SEGMENTS = 4;
+
+    // 单次 transferFrom 的字节数，也是断点信息的保存粒度
+    private static final long TRANSFER_CHUNK = 1024 * 1024;
+
+    private static final int TIMEOUT_MS = 30000;
+    private static final long PROGRESS_INTERVAL_MS = 2000;
+
+    private static final String PART_SUFFIX = ".part";
+    private static final String STATE_SUFFIX = ".part.json";
+    private static final String BLOB_DIR = ".blobs";
+
+    // 正在下载的目标文件
+    private static final Map<Path, Boolean> ACTIVE_TARGETS = new ConcurrentHashMap<>();
+
+    private final Path baseDir;
+
+    private final long maxBytes;
+
+    public DownloadEngine(Path baseDir, long maxBytes) {
+        this.baseDir = baseDir;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 下载资源
+     *
+     * @param url      资源地址
+     * @param fileName 保存的文件名，只取文件名部分
+     * @param progress 进度回调
+     * @return 下载结果
+     */
+    public DownloadResult download(String url, String fileName, Consumer<String> progress) throws IOException {
+        String name = FileUtil.getName(fileName);
+        if (StrUtil.isBlank(name)) {
+            throw new IOException("Invalid file name: " + fileName);
+        }
+        Files.createDirectories(baseDir);
+        Path target = baseDir.resolve(name);
+        Path key = target.toAbsolutePath().normalize();
+        if (ACTIVE_TARGETS.putIfAbsent(key, Boolean.TRUE) != null) {
+            throw new IOException("Already downloading to " + name);
+        }
+        try {
+            return download(url, name, target, progress);
+        } finally {
+            ACTIVE_TARGETS.remove(key);
+        }
+    }
+
+    private DownloadResult download(String url, String name, Path target, Consumer<String> progress) throws IOException {
+        // 不同资源下载到同名文件时，各自的断点互不覆盖
+        String partName = name + "." + DigestUtil.sha256Hex(url).substring(0, 16);
+        Path part = baseDir.resolve(partName + PART_SUFFIX);
+        Path statePath = baseDir.resolve(partName + STATE_SUFFIX);
+
+        Probe probe = probe(url);
+        if (probe.length > maxBytes) {
+            throw new IOException("Resource too large: " + probe.length + " bytes, limit is " + maxBytes);
+        }
+
+        DownloadState state = probe.rangeSupported ? loadState(statePath) : null;
+        boolean resumed = state != null && state.getUrl().equals(url) && state.getLength() == probe.length
+                && Objects.equals(state.getEtag(), probe.etag)
+                && Objects.equals(state.getLastModified(), probe.lastModified)
+                && Files.exists(part);
+        if (!resumed) {
+            Files.deleteIfExists(part);
+            state = probe.rangeSupported ? newState(url, probe) : null;
+        }
+
+        ProgressTracker tracker = new ProgressTracker(name, probe.length, progress);
+        int segments;
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (state != null) {
+                segments = state.getSegments().size();
+                tracker.add(state.getSegments().stream().mapToLong(DownloadState.Segment::getDone).sum());
+                saveState(statePath, state);
+                downloadSegments(url, state, statePath, channel, tracker);
+            } else {
+                segments = 1;
+                downloadWhole(url, channel, tracker);
+            }
+        }
+        Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(statePath);
+        tracker.finish();
+
+        long size = Files.size(target);
+        String sha256 = DigestUtil.sha256Hex(target.toFile());
+        boolean deduplicated = deduplicate(target, sha256);
+        return new DownloadResult(target, size, sha256, deduplicated, resumed, segments);
+    }
+
+    /**
+     * 探测资源大小和是否支持 Range，只请求首字节
+     */
+    private Probe probe(String url) throws IOException {
+        try (HttpResponse response = HttpRequest.get(url)
+                .header("Range", "bytes=0-0")
+                .setFollowRedirects(true)
+                .timeout(TIMEOUT_MS)
+                .executeAsync()) {
+            if (!response.isOk()) {
+                throw new IOException("HTTP " + response.getStatus() + " for " + url);
+            }
+            Probe probe = new Probe();
+            probe.etag = response.header("ETag");
+            probe.lastModified = response.header("Last-Modified");
+            String contentRange = response.header("Content-Range");
+            // 206 且返回总长度时才能分段，形如 bytes 0-0/12345
+            if (response.getStatus() == 206 && StrUtil.isNotBlank(contentRange) && !contentRange.endsWith("/*")) {
+                probe.rangeSupported = true;
+                probe.length = Long.parseLong(StrUtil.subAfter(contentRange, "/", true).trim());
+            } else {
+                probe.length = response.contentLength();
+            }
+            return probe;
+        }
+    }
+
+    private DownloadState newState(String url, Probe probe) {
+        DownloadState state = new DownloadState();
+        state.setUrl(url);
+        state.setLength(probe.length);
+        state.setEtag(probe.etag);
+        state.setLastModified(probe.lastModified);
+        int count = probe.length < SEGMENT_THRESHOLD ? 1
+                : (int) Math.min(MAX_SEGMENTS, (probe.length + SEGMENT_THRESHOLD - 1) / SEGMENT_THRESHOLD);
+        long size = (probe.length + count - 1) / count;
+        for (long start = 0; start < probe.length; start += size) {
+            DownloadState.Segment segment = new DownloadState.Segment();
+            segment.setStart(start);
+            segment.setEnd(Math.min(start + size, probe.length) - 1);
+            state.getSegments().add(segment);
+        }
+        return state;
+    }
+
+    private void downloadSegments(String url, DownloadState state, Path statePath,
+                                  FileChannel channel, ProgressTracker tracker) throws IOException {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (DownloadState.Segment segment : state.getSegments()) {
+                if (segment.remaining() > 0) {
+                    futures.add(CompletableFuture.runAsync(() -> {
+                        try {
+                            downloadSegment(url, segment, state, statePath, channel, tracker);
+                        } catch (IOException e) {
+                            throw new CompletionException(e);
+                        }
+                    }, executor));
+                }
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            // 已完成部分保留在断点信息中，下次可续传
+            saveState(statePath, state);
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+    }
+
+    private void downloadSegment(String url, DownloadState.Segment segment, DownloadState state, Path statePath,
+                                 FileChannel channel, ProgressTracker tracker) throws IOException {
+        long position = segment.getStart() + segment.getDone();
+        try (HttpResponse response = HttpRequest.get(url)
+                .header("Range", "bytes=" + position + "-" + segment.getEnd())
+                .setFollowRedirects(true)
+                .timeout(TIMEOUT_MS)
+                .executeAsync();
+             ReadableByteChannel in = Channels.newChannel(response.bodyStream())) {
+            if (response.getStatus() != 206) {
+                throw new IOException("Range request rejected with HTTP " + response.getStatus());
+            }
+            while (segment.remaining() > 0) {
+                long transferred = channel.transferFrom(in, position, Math.min(TRANSFER_CHUNK, segment.remaining()));
+                if (transferred <= 0) {
+                    throw new IOException("Connection closed with " + segment.remaining() + " bytes remaining");
+                }
+                position += transferred;
+                synchronized (state) {
+                    segment.setDone(segment.getDone() + transferred);
+                }
+                tracker.add(transferred);
+                saveState(statePath, state);
+            }
+        }
+    }
+
+    /**
+     * 不支持 Range 时整体下载，长度未知时边下载边检查大小上限
+     */
+    private void downloadWhole(String url, FileChannel channel, ProgressTracker tracker) throws IOException {
+        channel.truncate(0);
+        try (HttpResponse response = HttpRequest.get(url)
+                .setFollowRedirects(true)
+                .timeout(TIMEOUT_MS)
+                .executeAsync();
+             ReadableByteChannel in = Channels.newChannel(response.bodyStream())) {
+            if (!response.isOk()) {
+                throw new IOException("HTTP " + response.getStatus() + " for " + url);
+            }
+            long position = 0;
+            long transferred;
+            while ((transferred = channel.transferFrom(in, position, TRANSFER_CHUNK)) > 0) {
+                position += transferred;
+                if (position > maxBytes) {
+                    throw new IOException("Resource exceeds size limit of " + maxBytes + " bytes");
+                }
+                tracker.add(transferred);
+            }
+        }
+    }
+
+    /**
+     * 按内容哈希登记：.blobs 中只保存首次下载该内容的文件名、大小和修改时间，不另存一份内容；
+     * 登记的文件已删除或被修改时改为登记当前文件
+     *
+     * @return 是否已下载过相同内容
+     */
+    private boolean deduplicate(Path target, String sha256) throws IOException {
+        Path blobDir = baseDir.resolve(BLOB_DIR);
+        Files.createDirectories(blobDir);
+        Path blob = blobDir.resolve(sha256);
+        if (Files.exists(blob) && isIntact(Files.readString(blob), target)) {
+            return true;
+        }
+        // 先写临时文件再改名，并发登记同一内容时不会留下不完整的登记
+        Path temp = Files.createTempFile(blobDir, sha256, ".tmp");
+        try {
+            Files.writeString(temp, Files.size(target) + "\t" + Files.getLastModifiedTime(target).toMillis()
+                    + "\t" + baseDir.relativize(target));
+            Files.move(temp, blob, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return false;
+    }
+
+    /**
+     * 登记的文件是否仍是登记时的内容；旧版本保存的完整副本无法解析，按失效处理
+     */
+    private boolean isIntact(String entry, Path target) {
+        String[] fields = entry.split("\t", 3);
+        if (fields.length < 3) {
+            return false;
+        }
+        try {
+            Path canonical = baseDir.resolve(fields[2]).toAbsolutePath().normalize();
+            return !canonical.equals(target.toAbsolutePath().normalize()) && Files.isRegularFile(canonical)
+                    && Files.size(canonical) == Long.parseLong(fields[0])
+                    && Files.getLastModifiedTime(canonical).toMillis() == Long.parseLong(fields[1]);
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private DownloadState loadState(Path statePath) {
+        if (!Files.exists(statePath)) {
+            return null;
+        }
+        try {
+            return JSONUtil.toBean(Files.readString(statePath), DownloadState.class);
+        } catch (Exception e) {
+            log.warn("Ignoring corrupt download state {}: {}", statePath, e.getMessage());
+            return null;
+        }
+    }
+
+    private void saveState(Path statePath, DownloadState state) throws IOException {
+        // 各分段并发更新，序列化和写入都需串行
+        synchronized (state) {
+            Files.writeString(statePath, JSONUtil.toJsonStr(state));
+        }
+    }
+
+    private static class Probe {
+        long length = -1;
+        boolean rangeSupported;
+        String etag;
+        String lastModified;
+    }
+
+    /**
+     * 汇总各分段进度，按时间间隔节流上报
+     */
+    private static class ProgressTracker {
+
+        private final String name;
+        private final long total;
+        private final Consumer<String> listener;
+        private final AtomicLong downloaded = new AtomicLong();
+        private final AtomicLong lastReport = new AtomicLong(System.currentTimeMillis());
+
+        ProgressTracker(String name, long total, Consumer<String> listener) {
+            this.name = name;
+            this.total = total;
+            this.listener = listener;
+        }
+
+        void add(long bytes) {
+            long current = downloaded.addAndGet(bytes);
+            long now = System.currentTimeMillis();
+            long last = lastReport.get();
+            if (now - last >= PROGRESS_INTERVAL_MS && lastReport.compareAndSet(last, now)) {
+                listener.accept(format(current));
+            }
+        }
+
+        void finish() {
+            listener.accept(format(downloaded.get()));
+        }
+
+        private String format(long current) {
+            String size = FileUtil.readableFileSize(current);
+            if (total > 0) {
+                return String.format("下载 %s：%d%%（%s / %s）", name, current * 100 / total, size, FileUtil.readableFileSize(total));
+            }
+            return String.format("下载 %s：%s", name, size);
+        }
+    }
+}
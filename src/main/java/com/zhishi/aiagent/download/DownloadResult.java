@@ -0,0 +1,16 @@
+package com.zhishi.aiagent.download;
+
+import java.nio.file.Path;
+
+/**
+ * 下载结果
+ *
+ * @param path         保存路径
+ * @param size         文件大小（字节）
+ * @param sha256       内容哈希
+ * @param deduplicated 是否已下载过相同内容
+ * @param resumed      是否从上次中断处续传
+ * @param segments     并行下载的分段数
+ */
+public record DownloadResult(Path path, long size, String sha256, boolean deduplicated, boolean resumed, int segments) {
+}
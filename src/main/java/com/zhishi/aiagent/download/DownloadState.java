@@ -0,0 +1,42 @@
+package com.zhishi.aiagent.download;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 未完成下载的断点信息，与 .part 文件一起保存，用于续传
+ */
+@Data
+public class DownloadState {
+
+    private String url;
+
+    private long length;
+
+    // 资源校验信息，任一不一致说明服务端内容已变化，需要重新下载
+    private String etag;
+
+    private String lastModified;
+
+    private List<Segment> segments = new ArrayList<>();
+
+    /**
+     * 分段，区间为闭区间 [start, end]
+     */
+    @Data
+    public static class Segment {
+
+        private long start;
+
+        private long end;
+
+        // 已写入的字节数
+        private long done;
+
+        public long remaining() {
+            return end - start + 1 - done;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.zhishi.aiagent.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 大文件的局部写入：追加和按行替换
+ * 替换时未改动的前后部分经 FileChannel.transferTo 直接复制到临时文件，再原子替换原文件
+ */
+public final class FilePatcher {
+
+    private FilePatcher() {
+    }
+
+    /**
+     * 追加内容到文件末尾，文件不存在时创建
+     */
+    public static void append(Path path, String content) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            writeFully(channel, content);
+        } finally {
+            LineIndexCache.invalidate(path);
+        }
+    }
+
+    /**
+     * 替换行区间 [startLine, endLine]，endLine 为 startLine - 1 时表示在 startLine 之前插入，content 为空时表示删除
+     *
+     * @param startLine 起始行号，从 1 开始
+     * @param endLine   结束行号（包含）
+     */
+    public static void replaceLines(Path path, int startLine, int endLine, String content) throws IOException {
+        LineIndex index = LineIndexCache.get(path);
+        if (startLine < 1 || startLine > index.getLineCount() + 1 || endLine < startLine - 1 || endLine > index.getLineCount()) {
+            throw new IllegalArgumentException("Invalid line range " + startLine + "-" + endLine
+                    + " for file with " + index.getLineCount() + " lines");
+        }
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ);
+                 FileChannel target = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                long size = source.size();
+                long from = index.offsetOf(source, startLine - 1);
+                long to = index.offsetOf(source, endLine);
+                transferFully(source, 0, from, target);
+                // 插入到末尾且原文件缺少结尾换行时补齐
+                if (from == size && size > 0 && !content.isEmpty() && !endsWithNewline(source, size)) {
+                    writeFully(target, "\n");
+                }
+                writeFully(target, content);
+                if (to < size && !content.isEmpty() && !content.endsWith("\n")) {
+                    writeFully(target, "\n");
+                }
+                transferFully(source, to, size - to, target);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+            LineIndexCache.invalidate(path);
+        }
+    }
+
+    private static boolean endsWithNewline(FileChannel channel, long size) throws IOException {
+        ByteBuffer last = ByteBuffer.allocate(1);
+        channel.read(last, size - 1);
+        return last.get(0) == '\n';
+    }
+
+    private static void transferFully(FileChannel source, long position, long count, FileChannel target) throws IOException {
+        while (count > 0) {
+            long transferred = source.transferTo(position, count, target);
+            position += transferred;
+            count -= transferred;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, String content) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
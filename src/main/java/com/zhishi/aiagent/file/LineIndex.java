@@ -0,0 +1,114 @@
+package com.zhishi.aiagent.file;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 稀疏行偏移索引
+ * 通过内存映射扫描一次文件，每 STRIDE 行记录一个起始偏移，定位任意行时从最近的检查点向后扫描不超过 STRIDE 行，
+ * 千万行的文件索引也只占几 MB；索引记录构建时的文件大小和修改时间，用于判断是否失效
+ */
+public final class LineIndex {
+
+    // 检查点间隔行数
+    static final int STRIDE = 64;
+
+    // 单次映射的窗口大小
+    static final long MAP_WINDOW = 64L * 1024 * 1024;
+
+    private final long size;
+    private final long lastModified;
+    private final int lineCount;
+    private final long[] checkpoints;
+
+    private LineIndex(long size, long lastModified, int lineCount, long[] checkpoints) {
+        this.size = size;
+        this.lastModified = lastModified;
+        this.lineCount = lineCount;
+        this.checkpoints = checkpoints;
+    }
+
+    /**
+     * 扫描文件构建索引
+     */
+    public static LineIndex build(Path path) throws IOException {
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] checkpoints = new long[16];
+            int lineCount = 0;
+            if (size > 0) {
+                checkpoints[0] = 0;
+                lineCount = 1;
+            }
+            for (long base = 0; base < size; base += MAP_WINDOW) {
+                int length = (int) Math.min(MAP_WINDOW, size - base);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, base, length);
+                for (int i = 0; i < length; i++) {
+                    // 末尾的换行不产生新行
+                    if (buffer.get(i) == '\n' && base + i + 1 < size) {
+                        if (lineCount % STRIDE == 0) {
+                            int slot = lineCount / STRIDE;
+                            if (slot == checkpoints.length) {
+                                checkpoints = Arrays.copyOf(checkpoints, slot * 2);
+                            }
+                            checkpoints[slot] = base + i + 1;
+                        }
+                        lineCount++;
+                    }
+                }
+            }
+            return new LineIndex(size, lastModified, lineCount,
+                    Arrays.copyOf(checkpoints, (lineCount + STRIDE - 1) / STRIDE));
+        }
+    }
+
+    /**
+     * 定位某一行的起始字节偏移
+     *
+     * @param channel 已打开的文件通道
+     * @param line    行号，从 0 开始；大于等于总行数时返回文件大小
+     */
+    public long offsetOf(FileChannel channel, int line) throws IOException {
+        if (line <= 0) {
+            return 0;
+        }
+        if (line >= lineCount) {
+            return size;
+        }
+        long position = checkpoints[line / STRIDE];
+        int remaining = line % STRIDE;
+        while (remaining > 0 && position < size) {
+            int length = (int) Math.min(MAP_WINDOW, size - position);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            int i = 0;
+            for (; i < length && remaining > 0; i++) {
+                if (buffer.get(i) == '\n') {
+                    remaining--;
+                }
+            }
+            position += i;
+        }
+        return position;
+    }
+
+    /**
+     * 索引是否仍与文件一致
+     */
+    public boolean matches(long size, long lastModified) {
+        return this.size == size && this.lastModified == lastModified;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+}
@@ -0,0 +1,57 @@
+package com.zhishi.aiagent.file;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 行索引缓存，按文件路径缓存 LineIndex，文件大小或修改时间变化时重建，最多保留 MAX_ENTRIES 个文件
+ */
+public final class LineIndexCache {
+
+    private static final int MAX_ENTRIES = 64;
+
+    private static final Map<Path, LineIndex> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, LineIndex> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private LineIndexCache() {
+    }
+
+    /**
+     * 获取文件的行索引，缓存失效时重新构建
+     */
+    public static LineIndex get(Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        synchronized (CACHE) {
+            LineIndex index = CACHE.get(key);
+            if (index != null && index.matches(size, lastModified)) {
+                return index;
+            }
+        }
+        // 构建耗时与文件大小相关，不在锁内进行
+        LineIndex index = LineIndex.build(key);
+        synchronized (CACHE) {
+            CACHE.put(key, index);
+        }
+        return index;
+    }
+
+    /**
+     * 主动失效，写入文件后调用，避免修改时间精度不足导致命中旧索引
+     */
+    public static void invalidate(Path path) {
+        synchronized (CACHE) {
+            CACHE.remove(path.toAbsolutePath().normalize());
+        }
+    }
+}
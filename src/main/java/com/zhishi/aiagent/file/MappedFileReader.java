@@ -0,0 +1,159 @@
+package com.zhishi.aiagent.file;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.regex.Pattern;
+
+/**
+ * 基于内存映射的大文件窗口读取
+ * 只映射和解码需要的区间，读取开销与窗口大小相关，与文件总大小无关
+ */
+public final class MappedFileReader {
+
+    private MappedFileReader() {
+    }
+
+    /**
+     * 行访问器
+     */
+    @FunctionalInterface
+    public interface LineVisitor {
+
+        /**
+         * @param lineNumber 行号，从 1 开始
+         * @param line       行内容，不含换行符
+         * @return 是否继续遍历
+         */
+        boolean visit(int lineNumber, String line);
+    }
+
+    /**
+     * 读取字节区间，按 UTF-8 解码，区间边界截断的字符以替换符表示
+     *
+     * @param offset 起始字节偏移
+     * @param length 最多读取的字节数
+     */
+    public static String readBytes(Path path, long offset, int length) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (offset >= size || length <= 0) {
+                return "";
+            }
+            int actual = (int) Math.min(length, size - offset);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, actual);
+            byte[] bytes = new byte[actual];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 从指定行开始逐行遍历，借助行索引直接定位起始行，不扫描之前的内容
+     *
+     * @param startLine 起始行号，从 1 开始
+     */
+    public static void forEachLine(Path path, int startLine, LineVisitor visitor) throws IOException {
+        LineIndex index = LineIndexCache.get(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = Math.min(channel.size(), index.getSize());
+            long position = index.offsetOf(channel, startLine - 1);
+            int lineNumber = Math.max(startLine, 1);
+            byte[] line = new byte[256];
+            int lineLength = 0;
+            while (position < size) {
+                int length = (int) Math.min(LineIndex.MAP_WINDOW, size - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                for (int i = 0; i < length; i++) {
+                    byte b = buffer.get(i);
+                    if (b == '\n') {
+                        if (!visitor.visit(lineNumber++, decode(line, lineLength))) {
+                            return;
+                        }
+                        lineLength = 0;
+                    } else {
+                        if (lineLength == line.length) {
+                            line = Arrays.copyOf(line, lineLength * 2);
+                        }
+                        line[lineLength++] = b;
+                    }
+                }
+                position += length;
+            }
+            if (lineLength > 0) {
+                visitor.visit(lineNumber, decode(line, lineLength));
+            }
+        }
+    }
+
+    /**
+     * 读取行区间，每行带行号
+     *
+     * @param startLine 起始行号，从 1 开始
+     * @param count     行数
+     */
+    public static String readLines(Path path, int startLine, int count) throws IOException {
+        StringBuilder out = new StringBuilder();
+        int endLine = startLine + count - 1;
+        forEachLine(path, startLine, (lineNumber, line) -> {
+            out.append(lineNumber).append('\t').append(line).append('\n');
+            return lineNumber < endLine;
+        });
+        return out.toString();
+    }
+
+    /**
+     * 按正则逐行搜索，输出匹配行及其上下文，每行带行号，不同匹配块之间以 -- 分隔
+     *
+     * @param contextLines 上下文行数
+     * @param maxMatches   最多返回的匹配数
+     */
+    public static String grep(Path path, Pattern pattern, int contextLines, int maxMatches) throws IOException {
+        StringBuilder out = new StringBuilder();
+        Deque<String> before = new ArrayDeque<>(contextLines + 1);
+        int[] state = new int[3]; // 0：匹配数；1：还需输出的后文行数；2：最后输出的行号
+        forEachLine(path, 1, (lineNumber, line) -> {
+            String numbered = lineNumber + "\t" + line;
+            if (pattern.matcher(line).find()) {
+                if (state[0] >= maxMatches) {
+                    out.append("... (more matches omitted)\n");
+                    return false;
+                }
+                if (state[2] > 0 && lineNumber - before.size() > state[2] + 1) {
+                    out.append("--\n");
+                }
+                before.forEach(previous -> out.append(previous).append('\n'));
+                before.clear();
+                out.append(numbered).append('\n');
+                state[0]++;
+                state[1] = contextLines;
+                state[2] = lineNumber;
+            } else if (state[1] > 0) {
+                out.append(numbered).append('\n');
+                state[1]--;
+                state[2] = lineNumber;
+            } else if (contextLines > 0) {
+                if (before.size() == contextLines) {
+                    before.removeFirst();
+                }
+                before.addLast(numbered);
+            }
+            return true;
+        });
+        return out.toString();
+    }
+
+    private static String decode(byte[] bytes, int length) {
+        // 兼容 CRLF 换行
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
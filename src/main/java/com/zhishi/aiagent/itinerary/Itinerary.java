@@ -0,0 +1,35 @@
+package com.zhishi.aiagent.itinerary;
+
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 结构化旅行行程
+ */
+@Data
+public class Itinerary {
+
+    @JsonPropertyDescription("攻略标题，如“南京两日游：古都与美食”")
+    private String title;
+
+    @JsonPropertyDescription("目的地城市")
+    private String destination;
+
+    @JsonPropertyDescription("出行时间")
+    private String travelDates;
+
+    @JsonPropertyDescription("旅行概览，Markdown 格式")
+    private String overview;
+
+    @JsonPropertyDescription("按天组织的行程，按日期先后排列")
+    private List<ItineraryDay> days = new ArrayList<>();
+
+    @JsonPropertyDescription("天气与穿衣、住宿、交通、行前清单、预算说明等其他章节")
+    private List<ItinerarySection> sections = new ArrayList<>();
+
+    @JsonPropertyDescription("总预估花费（人民币元）")
+    private Double totalCost;
+}
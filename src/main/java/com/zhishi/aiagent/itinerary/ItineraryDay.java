@@ -0,0 +1,29 @@
+package com.zhishi.aiagent.itinerary;
+
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单日行程
+ */
+@Data
+public class ItineraryDay {
+
+    @JsonPropertyDescription("第几天，从 1 开始")
+    private Integer day;
+
+    @JsonPropertyDescription("当日标题，如“第一天：故宫与天安门”")
+    private String title;
+
+    @JsonPropertyDescription("当日活动安排，按时间先后排列")
+    private List<ItinerarySlot> slots = new ArrayList<>();
+
+    @JsonPropertyDescription("交通建议、当日花费明细等补充说明，Markdown 格式")
+    private String notes;
+
+    @JsonPropertyDescription("当日预估花费（人民币元）")
+    private Double cost;
+}
@@ -0,0 +1,21 @@
+package com.zhishi.aiagent.itinerary;
+
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 行程之外的攻略章节
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItinerarySection {
+
+    @JsonPropertyDescription("章节标题")
+    private String title;
+
+    @JsonPropertyDescription("章节内容，Markdown 格式")
+    private String content;
+}
@@ -0,0 +1,29 @@
+package com.zhishi.aiagent.itinerary;
+
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import lombok.Data;
+
+/**
+ * 行程中的单个活动
+ */
+@Data
+public class ItinerarySlot {
+
+    @JsonPropertyDescription("时间段，如“上午”“09:00-11:00”")
+    private String time;
+
+    @JsonPropertyDescription("活动标题")
+    private String title;
+
+    @JsonPropertyDescription("活动详情，可使用 Markdown 行内格式")
+    private String details;
+
+    @JsonPropertyDescription("活动地点")
+    private Poi poi;
+
+    @JsonPropertyDescription("从上一个地点到此处的交通建议，如“地铁2号线约15分钟”")
+    private String transport;
+
+    @JsonPropertyDescription("预估花费（人民币元），无花费时为 0")
+    private Double cost;
+}
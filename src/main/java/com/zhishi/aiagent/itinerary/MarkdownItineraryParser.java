@@ -0,0 +1,283 @@
+package com.zhishi.aiagent.itinerary;
+
+import cn.hutool.core.util.StrUtil;
+import com.zhishi.aiagent.render.MarkdownBlock;
+import com.zhishi.aiagent.render.MarkdownBlockParser;
+import com.zhishi.aiagent.render.MarkdownHtml;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 把大模型生成的 Markdown 攻略解析为结构化行程
+ * 识别“第X天 / DayX”标题作为单日行程，列表项中的“上午：xxx”“09:00 xxx”作为活动，其余标题作为普通章节
+ */
+public class MarkdownItineraryParser {
+
+    private static final Pattern DAY_TITLE = Pattern.compile(
+            "第\\s*[一二三四五六七八九十百\\d]+\\s*[天日]|(?i:day)\\s*\\d+|\\bD\\d+\\b");
+
+    private static final Pattern TIMED_TEXT = Pattern.compile(
+            "^((?:\\d{1,2}[:：]\\d{2}(?:\\s*[-~–—至到]+\\s*\\d{1,2}[:：]\\d{2})?)"
+                    + "|(?:上午|下午|中午|早上|早晨|清晨|傍晚|晚上|夜间|夜晚|全天|早餐|午餐|晚餐|午饭|晚饭|夜宵)"
+                    + "(?:\\s*[（(][^）)]*[）)])?)\\s*[：:\\-—]?\\s*(.+)$");
+
+    private static final Pattern TIME_LABEL = Pattern.compile(
+            "^(?:\\d{1,2}[:：]\\d{2}(?:\\s*[-~–—至到]+\\s*\\d{1,2}[:：]\\d{2})?|(?:上午|下午|中午|早上|早晨|清晨|傍晚|晚上|夜间|夜晚|全天)(?:\\s*[（(][^）)]*[）)])?)$");
+
+    private static final Pattern LEADING_SYMBOLS = Pattern.compile("^[^\\p{L}\\p{N}]+");
+
+    private static final Pattern BOLD_TEXT = Pattern.compile("\\*\\*(.+?)\\*\\*");
+
+    private static final Pattern ACTION_PREFIX = Pattern.compile(
+            "^(?:乘车前往|步行前往|打车前往|步行至|打车至|前往|参观|游览|打卡|漫步|逛逛|逛|品尝|体验|入住|抵达|登|爬)+");
+
+    private static final Pattern RESTAURANT_WORDS = Pattern.compile("餐|美食|小吃|吃|饭|烤鸭|火锅|面馆|咖啡|茶|夜宵|酒楼|饭店");
+
+    private static final Pattern HOTEL_WORDS = Pattern.compile("酒店|住宿|民宿|入住|宾馆|客栈");
+
+    // 解析状态
+    private final Itinerary itinerary = new Itinerary();
+    private final StringBuilder overview = new StringBuilder();
+    private ItineraryDay day;
+    private int dayLevel;
+    private StringBuilder dayNotes;
+    private String timeLabel;
+    private ItinerarySlot lastSlot;
+    private String sectionTitle;
+    private StringBuilder sectionContent;
+
+    private MarkdownItineraryParser(String destination) {
+        itinerary.setDestination(destination);
+    }
+
+    /**
+     * 解析 Markdown 攻略
+     *
+     * @param markdown    攻略内容
+     * @param destination 目的地
+     * @return 结构化行程，未识别到任何单日行程时 days 为空
+     */
+    public static Itinerary parse(String markdown, String destination) {
+        MarkdownItineraryParser parser = new MarkdownItineraryParser(destination);
+        for (MarkdownBlock block : MarkdownBlockParser.parse(markdown)) {
+            parser.accept(block);
+        }
+        return parser.finish();
+    }
+
+    private void accept(MarkdownBlock block) {
+        switch (block.type()) {
+            case HEADING -> acceptHeading(block);
+            case PARAGRAPH -> acceptParagraph(block);
+            case LIST_ITEM, ORDERED_LIST_ITEM -> acceptListItem(block);
+            default -> appendMarkdown(block);
+        }
+    }
+
+    private void acceptHeading(MarkdownBlock block) {
+        String text = MarkdownHtml.plain(block.text());
+        if (block.level() == 1 && itinerary.getTitle() == null && day == null && sectionTitle == null
+                && itinerary.getDays().isEmpty()) {
+            itinerary.setTitle(text);
+            return;
+        }
+        if (DAY_TITLE.matcher(text).find()) {
+            startDay(text, block.level());
+            return;
+        }
+        if (day != null && block.level() > dayLevel) {
+            // 单日行程内的小标题：时间段作为后续活动的默认时间，其余作为备注
+            if (TIME_LABEL.matcher(text).matches()) {
+                timeLabel = text;
+                lastSlot = null;
+            } else if (!addTimedSlot(block.text())) {
+                timeLabel = null;
+                lastSlot = null;
+                dayNotes.append("**").append(text).append("**\n\n");
+            }
+            return;
+        }
+        startSection(text);
+    }
+
+    private void acceptParagraph(MarkdownBlock block) {
+        String text = block.text();
+        // 整行加粗的“**第一天：xxx**”也视为单日标题
+        if (!text.contains("\n") && text.startsWith("**") && text.endsWith("**")
+                && DAY_TITLE.matcher(text).find()) {
+            startDay(MarkdownHtml.plain(text), 7);
+            return;
+        }
+        if (day != null && !text.contains("\n") && addTimedSlot(text)) {
+            return;
+        }
+        appendMarkdown(block);
+    }
+
+    private void acceptListItem(MarkdownBlock block) {
+        if (day == null && sectionTitle != null && block.level() == 0 && parseTimed(block.text()) != null) {
+            // 单日游常省略“第一天”标题，直接在“行程安排”章节下列出时间段，此时把章节提升为单日行程
+            String title = sectionTitle;
+            String notes = sectionContent.toString();
+            sectionTitle = null;
+            startDay(title, 7);
+            dayNotes.append(notes);
+        }
+        if (day == null) {
+            appendMarkdown(block);
+            return;
+        }
+        if (block.level() > 0 && lastSlot != null) {
+            String detail = block.text();
+            lastSlot.setDetails(StrUtil.isBlank(lastSlot.getDetails()) ? detail : lastSlot.getDetails() + "；" + detail);
+            return;
+        }
+        if (addTimedSlot(block.text())) {
+            return;
+        }
+        if (timeLabel != null && block.level() == 0) {
+            addSlot(timeLabel, block.text());
+            return;
+        }
+        lastSlot = null;
+        appendMarkdown(block);
+    }
+
+    private boolean addTimedSlot(String text) {
+        String[] timed = parseTimed(text);
+        if (timed == null) {
+            return false;
+        }
+        addSlot(timed[0], timed[1]);
+        return true;
+    }
+
+    /**
+     * 识别“时间：活动”格式，返回 [时间, 活动]
+     */
+    private String[] parseTimed(String text) {
+        String plain = LEADING_SYMBOLS.matcher(MarkdownHtml.plain(text)).replaceFirst("");
+        Matcher matcher = TIMED_TEXT.matcher(plain);
+        if (!matcher.matches()) {
+            return null;
+        }
+        return new String[]{matcher.group(1).strip(), matcher.group(2).strip()};
+    }
+
+    private void addSlot(String time, String text) {
+        String plain = LEADING_SYMBOLS.matcher(MarkdownHtml.plain(text)).replaceFirst("");
+        ItinerarySlot slot = new ItinerarySlot();
+        slot.setTime(time);
+        // 取第一个分句作为标题，其余作为详情
+        int cut = indexOfAny(plain, "，,。；;（(");
+        if (cut >= 2) {
+            slot.setTitle(plain.substring(0, cut));
+            String details = plain.substring(cut).replaceFirst("^[，,。；;]\\s*", "");
+            slot.setDetails(details);
+        } else {
+            slot.setTitle(plain);
+        }
+        Matcher bold = BOLD_TEXT.matcher(text);
+        String placeName = bold.find() ? MarkdownHtml.plain(bold.group(1))
+                : ACTION_PREFIX.matcher(slot.getTitle()).replaceFirst("");
+        Poi poi = new Poi();
+        poi.setName(StrUtil.isBlank(placeName) ? slot.getTitle() : placeName);
+        poi.setType(guessType(slot.getTitle() + poi.getName()));
+        slot.setPoi(poi);
+        day.getSlots().add(slot);
+        lastSlot = slot;
+    }
+
+    private void startDay(String title, int level) {
+        closeDay();
+        closeSection();
+        day = new ItineraryDay();
+        day.setTitle(title);
+        dayLevel = level;
+        dayNotes = new StringBuilder();
+        timeLabel = null;
+        lastSlot = null;
+    }
+
+    private void startSection(String title) {
+        closeDay();
+        closeSection();
+        sectionTitle = title;
+        sectionContent = new StringBuilder();
+    }
+
+    private void closeDay() {
+        if (day != null) {
+            day.setDay(itinerary.getDays().size() + 1);
+            day.setNotes(dayNotes.toString().strip());
+            itinerary.getDays().add(day);
+            day = null;
+        }
+    }
+
+    private void closeSection() {
+        if (sectionTitle != null) {
+            String content = sectionContent.toString().strip();
+            // 只起分组作用的空章节（如“详细行程”）不输出
+            if (!content.isEmpty()) {
+                itinerary.getSections().add(new ItinerarySection(sectionTitle, content));
+            }
+            sectionTitle = null;
+        }
+    }
+
+    private Itinerary finish() {
+        closeDay();
+        closeSection();
+        itinerary.setOverview(overview.toString().strip());
+        return itinerary;
+    }
+
+    /**
+     * 把块按原样追加到当前所在的单日备注、章节或概览中
+     */
+    private void appendMarkdown(MarkdownBlock block) {
+        StringBuilder target = day != null ? dayNotes : sectionTitle != null ? sectionContent : overview;
+        switch (block.type()) {
+            case HEADING -> target.append("#".repeat(block.level())).append(' ').append(block.text()).append("\n\n");
+            case PARAGRAPH -> target.append(block.text()).append("\n\n");
+            case LIST_ITEM -> target.append("  ".repeat(block.level())).append("- ").append(block.text()).append('\n');
+            case ORDERED_LIST_ITEM -> target.append("  ".repeat(block.level())).append("1. ").append(block.text()).append('\n');
+            case TABLE -> {
+                List<List<String>> rows = block.rows();
+                for (int i = 0; i < rows.size(); i++) {
+                    target.append("| ").append(String.join(" | ", rows.get(i))).append(" |\n");
+                    if (i == 0) {
+                        target.append(rows.get(0).stream().map(cell -> "---").collect(Collectors.joining("|", "|", "|\n")));
+                    }
+                }
+                target.append('\n');
+            }
+            case IMAGE -> target.append("![").append(block.text()).append("](").append(block.url()).append(")\n\n");
+            case CODE -> target.append("```text\n").append(block.text()).append("\n```\n\n");
+            case RULE -> target.append("---\n\n");
+        }
+    }
+
+    private static int indexOfAny(String text, String chars) {
+        for (int i = 0; i < text.length(); i++) {
+            if (chars.indexOf(text.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String guessType(String text) {
+        if (HOTEL_WORDS.matcher(text).find()) {
+            return "hotel";
+        }
+        if (RESTAURANT_WORDS.matcher(text).find()) {
+            return "restaurant";
+        }
+        return "attraction";
+    }
+}
@@ -0,0 +1,33 @@
+package com.zhishi.aiagent.itinerary;
+
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import lombok.Data;
+
+/**
+ * 兴趣点（景点、餐厅、酒店）
+ */
+@Data
+public class Poi {
+
+    @JsonPropertyDescription("地点名称，需可直接用于高德地图搜索，如“故宫博物院”")
+    private String name;
+
+    @JsonPropertyDescription("地点类型：attraction | restaurant | hotel")
+    private String type;
+
+    @JsonPropertyDescription("详细地址，未知时留空")
+    private String address;
+
+    @JsonPropertyDescription("经度（GCJ-02），未知时留空")
+    private Double lng;
+
+    @JsonPropertyDescription("纬度（GCJ-02），未知时留空")
+    private Double lat;
+
+    /**
+     * 是否已有坐标
+     */
+    public boolean hasLocation() {
+        return lng != null && lat != null;
+    }
+}
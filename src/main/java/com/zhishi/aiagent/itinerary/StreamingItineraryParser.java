@@ -0,0 +1,122 @@
+package com.zhishi.aiagent.itinerary;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 结构化行程的流式 JSON 解析器
+ * 按块输入模型的流式输出，跟踪 JSON 嵌套层级，每当顶层对象中 days 数组的一个元素闭合，就立即反序列化为 ItineraryDay，
+ * 不必等整份行程生成完毕。已扫描的字符不会重复扫描，单次输入的开销只与新增内容长度相关
+ * 非线程安全，每次生成使用一个实例
+ */
+@Slf4j
+public class StreamingItineraryParser {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static final String DAYS_KEY = "days";
+
+    private final StringBuilder buffer = new StringBuilder();
+
+    // 已扫描到的位置
+    private int position = 0;
+
+    private int depth = 0;
+    private boolean inString = false;
+    private boolean escaped = false;
+
+    // 顶层对象中最近一个字符串的起始位置和内容，用于识别键名
+    private int stringStart = -1;
+    private String lastTopLevelString;
+    private String currentTopLevelKey;
+
+    // days 数组所在层级，-1 表示尚未进入
+    private int daysArrayDepth = -1;
+    private int dayStart = -1;
+
+    /**
+     * 输入一段模型输出
+     *
+     * @param chunk 新增文本
+     * @return 本次输入后新闭合的单日行程
+     */
+    public List<ItineraryDay> feed(String chunk) {
+        List<ItineraryDay> completed = new ArrayList<>();
+        if (chunk == null || chunk.isEmpty()) {
+            return completed;
+        }
+        buffer.append(chunk);
+        for (; position < buffer.length(); position++) {
+            char c = buffer.charAt(position);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                    if (depth == 1) {
+                        lastTopLevelString = buffer.substring(stringStart + 1, position);
+                    }
+                }
+                continue;
+            }
+            switch (c) {
+                case '"' -> {
+                    inString = true;
+                    stringStart = position;
+                }
+                case ':' -> {
+                    if (depth == 1) {
+                        currentTopLevelKey = lastTopLevelString;
+                    }
+                }
+                case '{', '[' -> {
+                    if (c == '[' && depth == 1 && DAYS_KEY.equals(currentTopLevelKey)) {
+                        daysArrayDepth = depth + 1;
+                    } else if (c == '{' && depth == daysArrayDepth) {
+                        dayStart = position;
+                    }
+                    depth++;
+                }
+                case '}', ']' -> {
+                    depth--;
+                    if (c == '}' && depth == daysArrayDepth && dayStart >= 0) {
+                        ItineraryDay day = parseDay(buffer.substring(dayStart, position + 1));
+                        if (day != null) {
+                            completed.add(day);
+                        }
+                        dayStart = -1;
+                    } else if (c == ']' && depth == daysArrayDepth - 1) {
+                        daysArrayDepth = -1;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * 获取目前为止收到的完整文本
+     */
+    public String getText() {
+        return buffer.toString();
+    }
+
+    private ItineraryDay parseDay(String json) {
+        try {
+            return OBJECT_MAPPER.readValue(json, ItineraryDay.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to parse streamed itinerary day: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.zhishi.aiagent.mcp;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个 MCP 工具的调用统计（调用次数、失败次数、耗时）
+ */
+public class McpCallStats {
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalLatencyMs = new LongAdder();
+    private final AtomicLong maxLatencyMs = new AtomicLong();
+
+    void record(long latencyMs, boolean success) {
+        calls.increment();
+        if (!success) {
+            errors.increment();
+        }
+        totalLatencyMs.add(latencyMs);
+        maxLatencyMs.accumulateAndGet(latencyMs, Math::max);
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getAvgLatencyMs() {
+        long count = calls.sum();
+        return count == 0 ? 0 : totalLatencyMs.sum() / count;
+    }
+
+    public long getMaxLatencyMs() {
+        return maxLatencyMs.get();
+    }
+}
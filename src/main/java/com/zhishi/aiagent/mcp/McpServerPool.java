@@ -0,0 +1,396 @@
+package com.zhishi.aiagent.mcp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.client.transport.ServerParameters;
+import io.modelcontextprotocol.client.transport.StdioClientTransport;
+import io.modelcontextprotocol.spec.McpSchema;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个 stdio MCP 服务的进程池
+ * 启动时在后台拉起固定数量的进程并完成初始化，之后一直保持；每次调用交给执行中调用最少的进程，
+ * 同一进程上的并发调用按 JSON-RPC 请求 ID 复用同一连接；调用失败或定期探活没有响应时关闭该进程并按退避重新拉起
+ * 调用失败不会自动重试，工具可能有副作用
+ */
+@Slf4j
+public class McpServerPool {
+
+    private static final McpSchema.Implementation CLIENT_INFO = new McpSchema.Implementation("mianbao-agent", "1.0.0");
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    // 空闲进程的探活间隔
+    private static final long HEALTH_CHECK_SECONDS = 30;
+
+    // 重启退避的上限
+    private static final long MAX_BACKOFF_MILLIS = 60_000;
+
+    private final McpServerSpec spec;
+
+    private final Duration requestTimeout;
+
+    private final Slot[] slots;
+
+    private final Map<String, McpCallStats> stats = new ConcurrentHashMap<>();
+
+    private final LongAdder restarts = new LongAdder();
+    private final LongAdder startups = new LongAdder();
+    private final LongAdder totalStartupMs = new LongAdder();
+
+    private Disposable healthTask;
+
+    private volatile boolean closed;
+
+    public McpServerPool(McpServerSpec spec, Duration requestTimeout) {
+        this.spec = spec;
+        this.requestTimeout = requestTimeout;
+        this.slots = new Slot[spec.poolSize()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot(i);
+        }
+    }
+
+    /**
+     * 在后台拉起所有进程并开始定期探活，不等待启动完成
+     */
+    public void start() {
+        for (Slot slot : slots) {
+            Schedulers.boundedElastic().schedule(() -> connect(slot));
+        }
+        healthTask = Schedulers.boundedElastic().schedulePeriodically(this::checkHealth,
+                HEALTH_CHECK_SECONDS, HEALTH_CHECK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 等待至少一个进程可用
+     *
+     * @return 超时前是否有可用的进程
+     */
+    public synchronized boolean awaitReady(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!closed && liveCount() == 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return liveCount() > 0;
+    }
+
+    /**
+     * 查询服务提供的工具（tools/list，自动翻页）
+     */
+    public List<McpToolSpec> listTools() {
+        Lease lease = acquire();
+        try {
+            List<McpToolSpec> tools = new ArrayList<>();
+            String cursor = null;
+            do {
+                McpSchema.ListToolsResult result = cursor == null ? lease.client().listTools() : lease.client().listTools(cursor);
+                for (McpSchema.Tool tool : result.tools()) {
+                    tools.add(new McpToolSpec(tool.name(), tool.description(), schema(tool)));
+                }
+                cursor = result.nextCursor();
+            } while (cursor != null);
+            return tools;
+        } catch (RuntimeException e) {
+            checkLater(lease);
+            throw e;
+        } finally {
+            release(lease);
+        }
+    }
+
+    /**
+     * 调用工具
+     *
+     * @throws IllegalStateException 等待超时仍没有可用的进程
+     */
+    public McpSchema.CallToolResult call(String toolName, Map<String, Object> arguments) {
+        Lease lease = acquire();
+        long start = System.currentTimeMillis();
+        boolean success = false;
+        try {
+            McpSchema.CallToolResult result = lease.client().callTool(new McpSchema.CallToolRequest(toolName, arguments));
+            success = !Boolean.TRUE.equals(result.isError());
+            return result;
+        } catch (RuntimeException e) {
+            checkLater(lease);
+            throw e;
+        } finally {
+            release(lease);
+            stats.computeIfAbsent(toolName, name -> new McpCallStats()).record(System.currentTimeMillis() - start, success);
+        }
+    }
+
+    public String getName() {
+        return spec.name();
+    }
+
+    public McpServerSpec getSpec() {
+        return spec;
+    }
+
+    public synchronized McpServerStats getStats() {
+        int inFlight = 0;
+        for (Slot slot : slots) {
+            inFlight += slot.inFlight;
+        }
+        long count = startups.sum();
+        return new McpServerStats(slots.length, liveCount(), inFlight, restarts.sum(),
+                count == 0 ? 0 : totalStartupMs.sum() / count, new TreeMap<>(stats));
+    }
+
+    public void close() {
+        List<McpSyncClient> clients = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            for (Slot slot : slots) {
+                if (slot.client != null) {
+                    clients.add(slot.client);
+                    slot.client = null;
+                }
+            }
+            notifyAll();
+        }
+        if (healthTask != null) {
+            healthTask.dispose();
+        }
+        clients.forEach(McpServerPool::closeQuietly);
+    }
+
+    /**
+     * 取执行中调用最少的可用进程，没有可用进程时等待重启完成
+     */
+    private synchronized Lease acquire() {
+        long deadline = System.nanoTime() + requestTimeout.toNanos();
+        while (true) {
+            if (closed) {
+                throw new IllegalStateException("MCP 服务 " + spec.name() + " 已关闭");
+            }
+            Slot best = null;
+            for (Slot slot : slots) {
+                if (slot.usable() && (best == null || slot.inFlight < best.inFlight)) {
+                    best = slot;
+                }
+            }
+            if (best != null) {
+                best.inFlight++;
+                return new Lease(best, best.client);
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new IllegalStateException("MCP 服务 " + spec.name() + " 没有可用的进程");
+            }
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待 MCP 服务 " + spec.name() + " 时被中断");
+            }
+        }
+    }
+
+    private synchronized void release(Lease lease) {
+        lease.slot().inFlight--;
+    }
+
+    private void connect(Slot slot) {
+        synchronized (this) {
+            slot.restarting = false;
+            if (closed) {
+                return;
+            }
+        }
+        long start = System.currentTimeMillis();
+        McpSyncClient client;
+        try {
+            client = newClient();
+        } catch (Exception e) {
+            log.warn("Failed to start MCP server {} #{}: {}", spec.name(), slot.index, e.getMessage());
+            restart(slot, null);
+            return;
+        }
+        long startupMs = System.currentTimeMillis() - start;
+        synchronized (this) {
+            if (closed) {
+                closeQuietly(client);
+                return;
+            }
+            slot.client = client;
+            slot.suspect = false;
+            slot.failures = 0;
+            notifyAll();
+        }
+        startups.increment();
+        totalStartupMs.add(startupMs);
+        log.info("MCP server {} #{} ready in {} ms", spec.name(), slot.index, startupMs);
+    }
+
+    private McpSyncClient newClient() {
+        ServerParameters parameters = ServerParameters.builder(spec.command())
+                .args(spec.args())
+                .env(spec.env())
+                .build();
+        McpSyncClient client = McpClient.sync(new StdioClientTransport(parameters))
+                .requestTimeout(requestTimeout)
+                .initializationTimeout(requestTimeout)
+                .clientInfo(CLIENT_INFO)
+                .build();
+        try {
+            client.initialize();
+            return client;
+        } catch (RuntimeException e) {
+            closeQuietly(client);
+            throw e;
+        }
+    }
+
+    /**
+     * 关闭进程并按退避重新拉起
+     *
+     * @param expected 只有进程仍是该客户端时才重启，为 null 时表示启动失败
+     */
+    private void restart(Slot slot, McpSyncClient expected) {
+        McpSyncClient old;
+        long delay;
+        synchronized (this) {
+            if (closed || slot.restarting || (expected != null && slot.client != expected)) {
+                return;
+            }
+            old = slot.client;
+            slot.client = null;
+            slot.restarting = true;
+            slot.failures++;
+            delay = Math.min(1000L << Math.min(slot.failures - 1, 6), MAX_BACKOFF_MILLIS);
+        }
+        restarts.increment();
+        log.warn("Restarting MCP server {} #{} in {} ms", spec.name(), slot.index, delay);
+        if (old != null) {
+            Schedulers.boundedElastic().schedule(() -> closeQuietly(old));
+        }
+        Schedulers.boundedElastic().schedule(() -> connect(slot), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 调用失败后探活，区分工具自身的错误和进程崩溃；探活完成前不再向该进程分配调用
+     */
+    private void checkLater(Lease lease) {
+        synchronized (this) {
+            if (lease.slot().client != lease.client()) {
+                return;
+            }
+            lease.slot().suspect = true;
+        }
+        Schedulers.boundedElastic().schedule(() -> {
+            if (!ping(lease.client())) {
+                restart(lease.slot(), lease.client());
+                return;
+            }
+            synchronized (this) {
+                if (lease.slot().client == lease.client()) {
+                    lease.slot().suspect = false;
+                    notifyAll();
+                }
+            }
+        });
+    }
+
+    private void checkHealth() {
+        List<Lease> idle = new ArrayList<>();
+        synchronized (this) {
+            for (Slot slot : slots) {
+                if (slot.usable() && slot.inFlight == 0) {
+                    idle.add(new Lease(slot, slot.client));
+                }
+            }
+        }
+        for (Lease lease : idle) {
+            if (!ping(lease.client())) {
+                restart(lease.slot(), lease.client());
+            }
+        }
+    }
+
+    private boolean ping(McpSyncClient client) {
+        try {
+            client.ping();
+            return true;
+        } catch (Exception e) {
+            log.warn("MCP server {} did not respond to ping: {}", spec.name(), e.getMessage());
+            return false;
+        }
+    }
+
+    private int liveCount() {
+        int live = 0;
+        for (Slot slot : slots) {
+            if (slot.usable()) {
+                live++;
+            }
+        }
+        return live;
+    }
+
+    private static String schema(McpSchema.Tool tool) {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(tool.inputSchema());
+        } catch (Exception e) {
+            return "{\"type\":\"object\",\"properties\":{}}";
+        }
+    }
+
+    private static void closeQuietly(McpSyncClient client) {
+        try {
+            client.closeGracefully();
+        } catch (Exception e) {
+            log.debug("Failed to close MCP client: {}", e.getMessage());
+        }
+    }
+
+    private record Lease(Slot slot, McpSyncClient client) {
+    }
+
+    /**
+     * 一个进程位，由 McpServerPool 加锁访问
+     */
+    private static final class Slot {
+
+        private final int index;
+
+        // 为 null 表示进程启动中或重启中
+        private McpSyncClient client;
+
+        private int inFlight;
+
+        private boolean restarting;
+
+        // 调用失败后等待探活结果
+        private boolean suspect;
+
+        // 连续失败次数，决定重启退避
+        private int failures;
+
+        private Slot(int index) {
+            this.index = index;
+        }
+
+        private boolean usable() {
+            return client != null && !suspect;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.zhishi.aiagent.mcp;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * stdio MCP 服务的启动配置
+ *
+ * @param name     服务名，也是工具名前缀
+ * @param command  启动命令
+ * @param args     命令参数
+ * @param env      额外的环境变量
+ * @param poolSize 常驻的进程数
+ */
+public record McpServerSpec(String name, String command, List<String> args, Map<String, String> env, int poolSize) {
+
+    /**
+     * 解析 mcp-servers.json，格式与 Claude Desktop 相同：{"mcpServers": {"名称": {"command": "", "args": [], "env": {}}}}
+     * 可选的 poolSize 覆盖默认进程数
+     */
+    public static List<McpServerSpec> parse(String json, int defaultPoolSize) {
+        List<McpServerSpec> specs = new ArrayList<>();
+        if (StrUtil.isBlank(json)) {
+            return specs;
+        }
+        JSONObject servers = JSONUtil.parseObj(json).getJSONObject("mcpServers");
+        if (servers == null) {
+            return specs;
+        }
+        for (String name : servers.keySet()) {
+            JSONObject server = servers.getJSONObject(name);
+            if (server == null || StrUtil.isBlank(server.getStr("command"))) {
+                continue;
+            }
+            JSONArray args = server.getJSONArray("args");
+            JSONObject env = server.getJSONObject("env");
+            Map<String, String> environment = new LinkedHashMap<>();
+            if (env != null) {
+                env.forEach((key, value) -> environment.put(key, String.valueOf(value)));
+            }
+            specs.add(new McpServerSpec(name, server.getStr("command"),
+                    args == null ? List.of() : args.toList(String.class), environment,
+                    Math.max(1, server.getInt("poolSize", defaultPoolSize))));
+        }
+        return specs;
+    }
+
+    /**
+     * 启动配置的指纹，配置变化后缓存的工具列表失效
+     */
+    public String fingerprint() {
+        return DigestUtil.sha256Hex(command + "\n" + String.join("\n", args) + "\n" + new TreeMap<>(env));
+    }
+}
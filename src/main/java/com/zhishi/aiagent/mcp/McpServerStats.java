@@ -0,0 +1,17 @@
+package com.zhishi.aiagent.mcp;
+
+import java.util.Map;
+
+/**
+ * MCP 服务的统计快照
+ *
+ * @param poolSize     常驻进程数
+ * @param live         可用的进程数
+ * @param inFlight     执行中的调用数
+ * @param restarts     崩溃或失去响应后重启的次数
+ * @param avgStartupMs 进程启动到完成初始化的平均耗时
+ * @param tools        各工具的调用统计
+ */
+public record McpServerStats(int poolSize, int live, int inFlight, long restarts, long avgStartupMs,
+                             Map<String, McpCallStats> tools) {
+}
@@ -0,0 +1,78 @@
+package com.zhishi.aiagent.mcp;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * tools/list 结果的本地缓存
+ * 按服务名保存，启动配置变化或超过有效期后失效；启动时直接用缓存注册工具，不必等待 MCP 进程启动
+ */
+@Slf4j
+class McpToolCache {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * @param fingerprint 启动配置的指纹
+     * @param fetchedAt   查询时间
+     * @param tools       工具列表
+     */
+    record Entry(String fingerprint, long fetchedAt, List<McpToolSpec> tools) {
+    }
+
+    private final Path file;
+
+    private final Duration ttl;
+
+    private final Map<String, Entry> entries = new TreeMap<>();
+
+    McpToolCache(Path file, Duration ttl) {
+        this.file = file;
+        this.ttl = ttl;
+        if (file != null && Files.exists(file)) {
+            try {
+                entries.putAll(OBJECT_MAPPER.readValue(file.toFile(), new TypeReference<Map<String, Entry>>() {
+                }));
+            } catch (IOException e) {
+                log.warn("Failed to load MCP tool cache, ignoring: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 有效的缓存工具列表，没有或已失效时返回 null
+     */
+    synchronized List<McpToolSpec> get(McpServerSpec spec) {
+        Entry entry = entries.get(spec.name());
+        if (entry == null || !spec.fingerprint().equals(entry.fingerprint())
+                || System.currentTimeMillis() - entry.fetchedAt() > ttl.toMillis()) {
+            return null;
+        }
+        return entry.tools();
+    }
+
+    synchronized void put(McpServerSpec spec, List<McpToolSpec> tools) {
+        entries.put(spec.name(), new Entry(spec.fingerprint(), System.currentTimeMillis(), List.copyOf(tools)));
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            OBJECT_MAPPER.writeValue(tmp.toFile(), entries);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to save MCP tool cache: {}", e.getMessage());
+        }
+    }
+}
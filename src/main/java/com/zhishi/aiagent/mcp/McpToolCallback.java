@@ -0,0 +1,73 @@
+package com.zhishi.aiagent.mcp;
+
+import cn.hutool.core.util.StrUtil;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.modelcontextprotocol.spec.McpSchema;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * MCP 工具的回调，调用经由进程池执行；工具名加上服务名前缀，避免与本地工具重名
+ */
+@Slf4j
+class McpToolCallback implements ToolCallback {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final McpServerPool pool;
+
+    private final McpToolSpec tool;
+
+    private final ToolDefinition definition;
+
+    McpToolCallback(McpServerPool pool, McpToolSpec tool) {
+        this.pool = pool;
+        this.tool = tool;
+        this.definition = ToolDefinition.builder()
+                .name(toolName(pool.getName(), tool.name()))
+                .description(StrUtil.blankToDefault(tool.description(), tool.name()))
+                .inputSchema(tool.inputSchema())
+                .build();
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return definition;
+    }
+
+    @Override
+    public String call(String toolInput) {
+        try {
+            Map<String, Object> arguments = StrUtil.isBlank(toolInput) ? Map.of()
+                    : OBJECT_MAPPER.readValue(toolInput, new TypeReference<>() {
+            });
+            McpSchema.CallToolResult result = pool.call(tool.name(), arguments);
+            String text = text(result);
+            return Boolean.TRUE.equals(result.isError()) ? "MCP 工具返回错误：" + text : text;
+        } catch (Exception e) {
+            log.warn("MCP tool {} failed: {}", definition.name(), e.getMessage());
+            return "MCP 工具调用失败：" + e.getMessage();
+        }
+    }
+
+    /**
+     * 工具名只能包含字母、数字、下划线和连字符
+     */
+    static String toolName(String server, String tool) {
+        return (server + "_" + tool).replaceAll("[^a-zA-Z0-9_-]", "_");
+    }
+
+    private static String text(McpSchema.CallToolResult result) {
+        if (result.content() == null) {
+            return "";
+        }
+        return result.content().stream()
+                .map(content -> content instanceof McpSchema.TextContent textContent ? textContent.text() : "[" + content.type() + "]")
+                .collect(Collectors.joining("\n"));
+    }
+}
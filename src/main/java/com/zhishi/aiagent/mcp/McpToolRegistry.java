@@ -0,0 +1,106 @@
+package com.zhishi.aiagent.mcp;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tool.ToolCallback;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * MCP 工具注册
+ * 为每个 stdio MCP 服务维护一个常驻进程池，把各服务提供的工具转换为工具回调，与本地 @Tool 工具合并注册；
+ * 工具列表优先使用本地缓存，进程启动完成后在后台刷新缓存；没有缓存的服务在启动时等待首个进程就绪后查询
+ * 工具列表在启动时确定，服务新增的工具在下次启动时生效
+ */
+@Slf4j
+public class McpToolRegistry {
+
+    private final List<McpServerPool> pools = new ArrayList<>();
+
+    private final List<ToolCallback> toolCallbacks = new ArrayList<>();
+
+    private McpToolRegistry() {
+    }
+
+    /**
+     * 启动所有服务并注册工具
+     *
+     * @param cacheFile      工具列表缓存文件，为 null 时不缓存
+     * @param requestTimeout 单次请求的超时时间
+     * @param startupTimeout 没有缓存时等待服务就绪的时间
+     * @param cacheTtl       工具列表缓存的有效期
+     */
+    public static McpToolRegistry start(List<McpServerSpec> specs, Path cacheFile, Duration requestTimeout,
+                                        Duration startupTimeout, Duration cacheTtl) {
+        McpToolRegistry registry = new McpToolRegistry();
+        McpToolCache cache = new McpToolCache(cacheFile, cacheTtl);
+        // 所有服务并行启动
+        for (McpServerSpec spec : specs) {
+            McpServerPool pool = new McpServerPool(spec, requestTimeout);
+            pool.start();
+            registry.pools.add(pool);
+        }
+        for (McpServerPool pool : registry.pools) {
+            List<McpToolSpec> tools = cache.get(pool.getSpec());
+            if (tools != null) {
+                Schedulers.boundedElastic().schedule(() -> refresh(pool, cache, startupTimeout));
+            } else {
+                tools = discover(pool, cache, startupTimeout);
+            }
+            tools.forEach(tool -> registry.toolCallbacks.add(new McpToolCallback(pool, tool)));
+            log.info("Registered {} tools from MCP server {}", tools.size(), pool.getName());
+        }
+        return registry;
+    }
+
+    public ToolCallback[] getToolCallbacks() {
+        return toolCallbacks.toArray(ToolCallback[]::new);
+    }
+
+    /**
+     * 各服务的进程和调用统计
+     */
+    public Map<String, McpServerStats> getStats() {
+        Map<String, McpServerStats> stats = new TreeMap<>();
+        pools.forEach(pool -> stats.put(pool.getName(), pool.getStats()));
+        return stats;
+    }
+
+    public void close() {
+        pools.forEach(McpServerPool::close);
+    }
+
+    private static List<McpToolSpec> discover(McpServerPool pool, McpToolCache cache, Duration startupTimeout) {
+        try {
+            if (!pool.awaitReady(startupTimeout)) {
+                log.warn("MCP server {} not ready within {} s, no tools registered", pool.getName(), startupTimeout.toSeconds());
+                return List.of();
+            }
+            List<McpToolSpec> tools = pool.listTools();
+            cache.put(pool.getSpec(), tools);
+            return tools;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return List.of();
+        } catch (Exception e) {
+            log.warn("Failed to list tools of MCP server {}: {}", pool.getName(), e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * 进程就绪后刷新缓存，工具列表有变化时提示重启
+     */
+    private static void refresh(McpServerPool pool, McpToolCache cache, Duration startupTimeout) {
+        List<McpToolSpec> cached = cache.get(pool.getSpec());
+        List<McpToolSpec> tools = discover(pool, cache, startupTimeout);
+        if (!tools.isEmpty() && !tools.equals(cached)) {
+            log.info("Tools of MCP server {} changed, restart to register them", pool.getName());
+        }
+    }
+}
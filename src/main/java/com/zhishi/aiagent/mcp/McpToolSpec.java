@@ -0,0 +1,11 @@
+package com.zhishi.aiagent.mcp;
+
+/**
+ * MCP 服务提供的工具
+ *
+ * @param name        工具名
+ * @param description 描述
+ * @param inputSchema 参数的 JSON Schema
+ */
+public record McpToolSpec(String name, String description, String inputSchema) {
+}
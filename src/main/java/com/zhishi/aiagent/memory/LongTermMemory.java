@@ -0,0 +1,260 @@
+package com.zhishi.aiagent.memory;
+
+import cn.hutool.core.util.StrUtil;
+import com.zhishi.aiagent.constant.FileConstant;
+import com.zhishi.aiagent.routing.RouteTask;
+import com.zhishi.aiagent.routing.RoutingChatModel;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * 情感对话的长期记忆
+ * 移出最近窗口的对话在后台总结为简短事实并向量化，按会话保存；每轮只检索与当前消息最相关的几条事实放入提示词，
+ * 无论对话持续多久，每轮发送的内容都有上限
+ */
+@Component
+@ConditionalOnProperty(name = "memory.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class LongTermMemory {
+
+    private static final String SUMMARY_PROMPT = """
+            你是记忆整理助手。阅读下面的对话片段，提取关于用户、以后聊天仍然有用的事实，如经历、感情状况、重要的人、偏好、计划和情绪变化。
+            每条事实一行，以"- "开头，用第三人称"用户"描述，不超过 50 字；没有值得记住的内容时只输出"无"。
+            """;
+
+    // 与已有事实的相似度超过该值时视为同一事实，用新的表述替换
+    private static final double DUPLICATE_SCORE = 0.92;
+
+    // 内存中缓存的会话数
+    private static final int MAX_CACHED_CHATS = 1000;
+
+    private final MemoryStore store;
+
+    private final Function<String, List<String>> summarizer;
+
+    private final Function<List<String>, List<float[]>> embedder;
+
+    private final int topK;
+
+    private final double minScore;
+
+    private final int maxFacts;
+
+    // 总结和向量化在虚拟线程上执行，不阻塞对话
+    private final ExecutorService executor;
+
+    private final Map<String, List<MemoryFact>> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<MemoryFact>> eldest) {
+            return size() > MAX_CACHED_CHATS;
+        }
+    };
+
+    @Autowired
+    public LongTermMemory(RoutingChatModel routingChatModel,
+                          EmbeddingModel dashscopeEmbeddingModel,
+                          @Value("${memory.top-k:5}") int topK,
+                          @Value("${memory.min-score:0.35}") double minScore,
+                          @Value("${memory.max-facts:500}") int maxFacts) {
+        this(new MemoryStore(Path.of(FileConstant.FILE_SAVE_DIR, "memory")),
+                summarizer(ChatClient.builder(routingChatModel.forTask(RouteTask.CHAT)).build()),
+                dashscopeEmbeddingModel::embed, topK, minScore, maxFacts, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    LongTermMemory(MemoryStore store, Function<String, List<String>> summarizer, Function<List<String>, List<float[]>> embedder,
+                   int topK, double minScore, int maxFacts, ExecutorService executor) {
+        this.store = store;
+        this.summarizer = summarizer;
+        this.embedder = embedder;
+        this.topK = topK;
+        this.minScore = minScore;
+        this.maxFacts = maxFacts;
+        this.executor = executor;
+    }
+
+    /**
+     * 在后台把移出窗口的消息总结为事实并保存
+     */
+    public void remember(String chatId, List<Message> messages) {
+        String transcript = transcript(messages);
+        if (StrUtil.isBlank(transcript)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                List<String> facts = summarizer.apply(transcript);
+                if (facts.isEmpty()) {
+                    return;
+                }
+                List<float[]> embeddings = embedder.apply(facts);
+                merge(chatId, facts, embeddings);
+                log.info("Remembered {} facts for chat {}", facts.size(), chatId);
+            } catch (Exception e) {
+                log.warn("Failed to summarise memories for chat {}: {}", chatId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 与当前消息最相关的事实，按相关度降序；还没有任何记忆时不调用向量化
+     */
+    public List<String> recall(String chatId, String message) {
+        List<MemoryFact> facts = snapshot(chatId);
+        if (facts.isEmpty() || StrUtil.isBlank(message)) {
+            return List.of();
+        }
+        float[] query;
+        try {
+            query = normalize(embedder.apply(List.of(message)).get(0));
+        } catch (Exception e) {
+            log.warn("Failed to embed message for recall: {}", e.getMessage());
+            return List.of();
+        }
+        record Scored(MemoryFact fact, double score) {
+        }
+        return facts.stream()
+                .map(fact -> new Scored(fact, dot(query, fact.getEmbedding())))
+                .filter(scored -> scored.score() >= minScore)
+                .sorted(Comparator.comparingDouble(Scored::score).reversed())
+                .limit(topK)
+                .map(scored -> scored.fact().getText())
+                .toList();
+    }
+
+    public int size(String chatId) {
+        return snapshot(chatId).size();
+    }
+
+    private void merge(String chatId, List<String> texts, List<float[]> embeddings) {
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            List<MemoryFact> facts = facts(chatId);
+            for (int i = 0; i < texts.size(); i++) {
+                float[] embedding = normalize(embeddings.get(i));
+                MemoryFact duplicate = null;
+                for (MemoryFact fact : facts) {
+                    if (dot(embedding, fact.getEmbedding()) >= DUPLICATE_SCORE) {
+                        duplicate = fact;
+                        break;
+                    }
+                }
+                if (duplicate != null) {
+                    duplicate.setText(texts.get(i));
+                    duplicate.setEmbedding(embedding);
+                    duplicate.setUpdatedAt(now);
+                    // 列表按更新顺序排列
+                    facts.remove(duplicate);
+                    facts.add(duplicate);
+                    continue;
+                }
+                MemoryFact fact = new MemoryFact();
+                fact.setText(texts.get(i));
+                fact.setEmbedding(embedding);
+                fact.setCreatedAt(now);
+                fact.setUpdatedAt(now);
+                facts.add(fact);
+            }
+            // 超出上限时淘汰最久没有更新的事实
+            if (facts.size() > maxFacts) {
+                facts.subList(0, facts.size() - maxFacts).clear();
+            }
+            store.save(chatId, facts);
+        }
+    }
+
+    private List<MemoryFact> snapshot(String chatId) {
+        synchronized (cache) {
+            return new ArrayList<>(facts(chatId));
+        }
+    }
+
+    /**
+     * 会话的事实列表，调用方持有 cache 锁
+     */
+    private List<MemoryFact> facts(String chatId) {
+        return cache.computeIfAbsent(chatId, store::load);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // 等待进行中的总结完成并写入文件
+        executor.close();
+    }
+
+    private static Function<String, List<String>> summarizer(ChatClient chatClient) {
+        return transcript -> {
+            String content = chatClient.prompt()
+                    .system(SUMMARY_PROMPT)
+                    .user(transcript)
+                    .call()
+                    .content();
+            return StrUtil.split(StrUtil.nullToEmpty(content), '\n', true, true).stream()
+                    .filter(line -> line.startsWith("-"))
+                    .map(line -> StrUtil.trim(StrUtil.removePrefix(line, "-")))
+                    .filter(StrUtil::isNotBlank)
+                    .toList();
+        };
+    }
+
+    private static String transcript(List<Message> messages) {
+        StringBuilder transcript = new StringBuilder();
+        for (Message message : messages) {
+            if (StrUtil.isBlank(message.getText())) {
+                continue;
+            }
+            if (message instanceof UserMessage) {
+                transcript.append("用户：").append(message.getText()).append('\n');
+            } else if (message instanceof AssistantMessage) {
+                transcript.append("助手：").append(message.getText()).append('\n');
+            }
+        }
+        return transcript.toString();
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            return vector;
+        }
+        float[] normalized = Arrays.copyOf(vector, vector.length);
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < normalized.length; i++) {
+            normalized[i] *= scale;
+        }
+        return normalized;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
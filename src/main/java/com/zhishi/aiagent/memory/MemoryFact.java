@@ -0,0 +1,19 @@
+package com.zhishi.aiagent.memory;
+
+import lombok.Data;
+
+/**
+ * 长期记忆中的一条事实，由较早的对话总结而来
+ */
+@Data
+public class MemoryFact {
+
+    private String text;
+
+    // 归一化后的向量，相似度直接用点积
+    private float[] embedding;
+
+    private long createdAt;
+
+    private long updatedAt;
+}
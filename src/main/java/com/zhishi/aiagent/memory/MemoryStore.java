@@ -0,0 +1,96 @@
+package com.zhishi.aiagent.memory;
+
+import cn.hutool.core.codec.Base64;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 长期记忆的文件存储
+ * 每个会话一个 JSON 文件，文件名为 chatId 的摘要；向量按 float 字节序列 Base64 编码，先写临时文件再原子替换
+ */
+@Slf4j
+public class MemoryStore {
+
+    private final Path dir;
+
+    public MemoryStore(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * @return 不存在或无法解析时返回空列表
+     */
+    public List<MemoryFact> load(String chatId) {
+        Path file = fileOf(chatId);
+        List<MemoryFact> facts = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return facts;
+        }
+        try {
+            JSONArray array = JSONUtil.parseArray(FileUtil.readUtf8String(file.toFile()));
+            for (int i = 0; i < array.size(); i++) {
+                JSONObject item = array.getJSONObject(i);
+                MemoryFact fact = new MemoryFact();
+                fact.setText(item.getStr("text"));
+                fact.setEmbedding(decode(item.getStr("embedding")));
+                fact.setCreatedAt(item.getLong("createdAt", 0L));
+                fact.setUpdatedAt(item.getLong("updatedAt", 0L));
+                facts.add(fact);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to load memories from {}: {}", file, e.getMessage());
+        }
+        return facts;
+    }
+
+    public void save(String chatId, List<MemoryFact> facts) {
+        JSONArray array = new JSONArray();
+        for (MemoryFact fact : facts) {
+            JSONObject item = new JSONObject();
+            item.set("text", fact.getText());
+            item.set("embedding", encode(fact.getEmbedding()));
+            item.set("createdAt", fact.getCreatedAt());
+            item.set("updatedAt", fact.getUpdatedAt());
+            array.add(item);
+        }
+        Path file = fileOf(chatId);
+        try {
+            Files.createDirectories(dir);
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(tmp, array.toString(), StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            log.warn("Failed to save memories to {}: {}", file, e.getMessage());
+        }
+    }
+
+    private Path fileOf(String chatId) {
+        // chatId 由客户端传入，不直接用作文件名
+        return dir.resolve(DigestUtil.sha256Hex(chatId) + ".json");
+    }
+
+    private static String encode(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES);
+        buffer.asFloatBuffer().put(vector);
+        return Base64.encode(buffer.array());
+    }
+
+    private static float[] decode(String encoded) {
+        ByteBuffer buffer = ByteBuffer.wrap(Base64.decode(encoded));
+        float[] vector = new float[buffer.remaining() / Float.BYTES];
+        buffer.asFloatBuffer().get(vector);
+        return vector;
+    }
+}
@@ -0,0 +1,86 @@
+package com.zhishi.aiagent.memory;
+
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * 只保留最近若干条消息的对话记忆
+ * 消息数超过保留条数加一个批次时，把较早的消息整批移出并交给回调（总结为长期记忆），
+ * 保留的窗口总是从用户消息开始，每轮发送的历史长度有上限
+ */
+public class SummarizingChatMemory implements ChatMemory {
+
+    // 按会话分段加锁，同一会话的读写互斥
+    private static final int LOCK_STRIPES = 64;
+
+    private final ChatMemoryRepository repository;
+
+    private final int recentMessages;
+
+    private final int summarizeBatch;
+
+    private final BiConsumer<String, List<Message>> onEvict;
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    /**
+     * @param recentMessages 每轮随请求发送的最近消息数
+     * @param summarizeBatch 超出保留条数多少条后移出一批
+     * @param onEvict        移出的消息，按时间顺序
+     */
+    public SummarizingChatMemory(ChatMemoryRepository repository, int recentMessages, int summarizeBatch,
+                                 BiConsumer<String, List<Message>> onEvict) {
+        this.repository = repository;
+        this.recentMessages = recentMessages;
+        this.summarizeBatch = summarizeBatch;
+        this.onEvict = onEvict;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        List<Message> evicted = List.of();
+        synchronized (lockOf(conversationId)) {
+            List<Message> all = new ArrayList<>(repository.findByConversationId(conversationId));
+            all.addAll(messages);
+            if (all.size() >= recentMessages + summarizeBatch) {
+                int split = all.size() - recentMessages;
+                while (split < all.size() && !(all.get(split) instanceof UserMessage)) {
+                    split++;
+                }
+                evicted = new ArrayList<>(all.subList(0, split));
+                all = new ArrayList<>(all.subList(split, all.size()));
+            }
+            repository.saveAll(conversationId, all);
+        }
+        if (!evicted.isEmpty()) {
+            onEvict.accept(conversationId, evicted);
+        }
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        synchronized (lockOf(conversationId)) {
+            return repository.findByConversationId(conversationId);
+        }
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        synchronized (lockOf(conversationId)) {
+            repository.deleteByConversationId(conversationId);
+        }
+    }
+
+    private Object lockOf(String conversationId) {
+        return locks[Math.floorMod(conversationId.hashCode(), LOCK_STRIPES)];
+    }
+}
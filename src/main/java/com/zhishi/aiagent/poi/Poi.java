@@ -0,0 +1,10 @@
+package com.zhishi.aiagent.poi;
+
+/**
+ * 兴趣点，字段与高德返回的 pois 一致
+ *
+ * @param type     类型名称，如 "餐饮服务;中餐厅;中餐厅"
+ * @param typecode 类型编码，如 "050100"，多个用 | 分隔
+ */
+public record Poi(String id, String name, String type, String typecode, String address, double lng, double lat) {
+}
@@ -0,0 +1,8 @@
+package com.zhishi.aiagent.poi;
+
+/**
+ * 按列存放的兴趣点，用于索引与文件之间的读写，数组长度可以大于 size
+ */
+record PoiColumns(int size, double[] lngs, double[] lats, int[] codes, String[] ids, String[] names, String[] types,
+                  String[] typecodes, String[] addresses) {
+}
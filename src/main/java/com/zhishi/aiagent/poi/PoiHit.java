@@ -0,0 +1,9 @@
+package com.zhishi.aiagent.poi;
+
+/**
+ * 查询结果
+ *
+ * @param meters 到查询点的距离
+ */
+public record PoiHit(Poi poi, double meters) {
+}
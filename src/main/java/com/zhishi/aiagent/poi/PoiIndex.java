@@ -0,0 +1,452 @@
+package com.zhishi.aiagent.poi;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import com.zhishi.aiagent.route.DistanceMatrix;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 兴趣点空间索引
+ * 收录高德搜索返回过的兴趣点，坐标和类型编码按列存放在基本类型数组中，按固定边长的经纬度网格（相当于定长 geohash）分桶；
+ * 最近邻和半径查询从查询点所在网格逐圈向外扫描，已找到的结果比下一圈更近时停止
+ * 周边搜索覆盖不足时才请求高德，请求过但结果确实不多的圆形区域记为已覆盖，有效期内完全落在其中的查询不再重复请求
+ */
+@Slf4j
+public class PoiIndex {
+
+    // 网格边长（度），纬度方向约 1.1 公里
+    private static final double CELL_DEGREES = 0.01;
+
+    private static final double METERS_PER_DEGREE = 111_195;
+
+    // 不限半径的最近邻查询最远搜索的距离
+    private static final double MAX_SEARCH_METERS = 50_000;
+
+    // 有变更时写入文件的间隔
+    private static final long FLUSH_SECONDS = 60;
+
+    private record Candidate(int index, double meters) {
+    }
+
+    /**
+     * 已请求过的圆形区域
+     */
+    private record Coverage(double lng, double lat, double radius, long expiresAt) {
+
+        /**
+         * 查询圆完全落在该区域内
+         */
+        boolean contains(double lng, double lat, double radius) {
+            return DistanceMatrix.haversine(this.lng, this.lat, lng, lat) + radius <= this.radius;
+        }
+    }
+
+    /**
+     * 网格中的点下标
+     */
+    private static final class Cell {
+
+        private int[] points = new int[4];
+
+        private int count;
+
+        private void add(int index) {
+            if (count == points.length) {
+                points = Arrays.copyOf(points, count * 2);
+            }
+            points[count++] = index;
+        }
+
+        private void remove(int index) {
+            for (int i = 0; i < count; i++) {
+                if (points[i] == index) {
+                    points[i] = points[--count];
+                    return;
+                }
+            }
+        }
+    }
+
+    private final int maxPoints;
+
+    private final long coverageTtlMillis;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 按列存放，下标即点的编号
+    private double[] lngs = new double[0];
+    private double[] lats = new double[0];
+    private int[] codes = new int[0];
+    private String[] ids = new String[0];
+    private String[] names = new String[0];
+    private String[] types = new String[0];
+    private String[] typecodes = new String[0];
+    private String[] addresses = new String[0];
+    private int size;
+
+    private final Map<String, Integer> byId = new HashMap<>();
+
+    private final Map<Long, Cell> cells = new HashMap<>();
+
+    // 已向高德请求过的区域，键为类型前缀，访问时对列表加锁
+    private final Map<String, List<Coverage>> coverage = new ConcurrentHashMap<>();
+
+    private final AtomicLong localHits = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    private volatile boolean dirty;
+
+    private Path file;
+
+    private Disposable flushTask;
+
+    /**
+     * 只在内存中的索引
+     *
+     * @param maxPoints   最多收录的兴趣点数，达到后不再收录新点
+     * @param coverageTtl 已覆盖区域的有效期
+     */
+    public PoiIndex(int maxPoints, Duration coverageTtl) {
+        this.maxPoints = maxPoints;
+        this.coverageTtlMillis = coverageTtl.toMillis();
+    }
+
+    /**
+     * 从文件加载，之后定期把变更写回文件
+     */
+    public static PoiIndex open(Path file, int maxPoints, Duration coverageTtl) {
+        PoiIndex index = new PoiIndex(maxPoints, coverageTtl);
+        index.file = file;
+        long start = System.currentTimeMillis();
+        try {
+            PoiColumns columns = PoiIndexFile.read(file);
+            if (columns != null) {
+                index.load(columns);
+                log.info("Loaded {} POIs in {} ms", index.size, System.currentTimeMillis() - start);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to load POI index, starting empty: {}", e.getMessage());
+        }
+        // 写文件是阻塞 IO，不占用 parallel 的计算线程
+        index.flushTask = Schedulers.boundedElastic().schedulePeriodically(index::flush,
+                FLUSH_SECONDS, FLUSH_SECONDS, TimeUnit.SECONDS);
+        return index;
+    }
+
+    /**
+     * 收录高德返回的 pois 数组，缺少坐标的跳过
+     *
+     * @return 新收录或更新的数量
+     */
+    public int addAll(JSONArray pois) {
+        int added = 0;
+        for (int i = 0; pois != null && i < pois.size(); i++) {
+            Poi poi = parse(pois.getJSONObject(i));
+            if (poi != null && add(poi)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * 收录兴趣点，ID 已存在时更新
+     *
+     * @return 是否收录，索引已满时返回 false
+     */
+    public boolean add(Poi poi) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = byId.get(poi.id());
+            int index;
+            if (existing != null) {
+                index = existing;
+                long oldCell = cellOf(lngs[index], lats[index]);
+                long newCell = cellOf(poi.lng(), poi.lat());
+                if (oldCell != newCell) {
+                    cells.get(oldCell).remove(index);
+                    cells.computeIfAbsent(newCell, key -> new Cell()).add(index);
+                }
+            } else {
+                if (size >= maxPoints) {
+                    return false;
+                }
+                ensureCapacity(size + 1);
+                index = size++;
+                byId.put(poi.id(), index);
+                cells.computeIfAbsent(cellOf(poi.lng(), poi.lat()), key -> new Cell()).add(index);
+            }
+            lngs[index] = poi.lng();
+            lats[index] = poi.lat();
+            codes[index] = PoiTypeFilter.parseCode(poi.typecode());
+            ids[index] = poi.id();
+            names[index] = poi.name();
+            types[index] = poi.type();
+            typecodes[index] = poi.typecode();
+            addresses[index] = poi.address();
+            dirty = true;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 最近的 k 个兴趣点，按距离升序
+     */
+    public List<PoiHit> nearest(double lng, double lat, PoiTypeFilter filter, int k) {
+        return search(lng, lat, filter, k, MAX_SEARCH_METERS);
+    }
+
+    /**
+     * 半径内的兴趣点，按距离升序
+     *
+     * @param limit 最多返回的数量
+     */
+    public List<PoiHit> within(double lng, double lat, PoiTypeFilter filter, double radius, int limit) {
+        return search(lng, lat, filter, limit, radius);
+    }
+
+    private List<PoiHit> search(double lng, double lat, PoiTypeFilter filter, int k, double maxMeters) {
+        if (k <= 0) {
+            return List.of();
+        }
+        // 按距离降序的堆，堆顶是当前第 k 近的点
+        PriorityQueue<Candidate> best = new PriorityQueue<>(Comparator.comparingDouble(Candidate::meters).reversed());
+        int cx = cellX(lng);
+        int cy = cellY(lat);
+        // 网格的最短边，纬度越高经度方向越窄
+        double cellMeters = CELL_DEGREES * METERS_PER_DEGREE * Math.cos(Math.toRadians(Math.min(89, Math.abs(lat) + 1)));
+        int maxRing = (int) Math.ceil(maxMeters / cellMeters) + 1;
+        lock.readLock().lock();
+        try {
+            for (int ring = 0; ring <= maxRing; ring++) {
+                for (int dy = -ring; dy <= ring; dy++) {
+                    // 圈内只扫描边上的网格
+                    int step = Math.abs(dy) == ring ? 1 : 2 * ring;
+                    for (int dx = -ring; dx <= ring; dx += step) {
+                        Cell cell = cells.get(cellKey(cx + dx, cy + dy));
+                        if (cell != null) {
+                            collect(cell, lng, lat, filter, k, maxMeters, best);
+                        }
+                    }
+                }
+                // 尚未扫描的点距离查询点都不小于 ring 个网格
+                double reach = ring * cellMeters;
+                if (reach > maxMeters || (best.size() >= k && best.peek().meters() <= reach)) {
+                    break;
+                }
+            }
+            List<PoiHit> hits = new ArrayList<>(best.size());
+            while (!best.isEmpty()) {
+                Candidate candidate = best.poll();
+                hits.add(new PoiHit(poiAt(candidate.index()), candidate.meters()));
+            }
+            Collections.reverse(hits);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void collect(Cell cell, double lng, double lat, PoiTypeFilter filter, int k, double maxMeters,
+                         PriorityQueue<Candidate> best) {
+        for (int i = 0; i < cell.count; i++) {
+            int index = cell.points[i];
+            if (!filter.matches(codes[index])) {
+                continue;
+            }
+            double meters = DistanceMatrix.haversine(lng, lat, lngs[index], lats[index]);
+            if (meters > maxMeters) {
+                continue;
+            }
+            if (best.size() < k) {
+                best.add(new Candidate(index, meters));
+            } else if (meters < best.peek().meters()) {
+                best.poll();
+                best.add(new Candidate(index, meters));
+            }
+        }
+    }
+
+    /**
+     * 查询区域是否完全落在某个已向高德请求过、结果已收录的区域内
+     */
+    public boolean isCovered(double lng, double lat, PoiTypeFilter filter, double radius) {
+        List<Coverage> circles = coverage.get(filter.getKey());
+        if (circles == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (circles) {
+            for (Coverage covered : circles) {
+                if (covered.expiresAt() > now && covered.contains(lng, lat, radius)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public void markCovered(double lng, double lat, PoiTypeFilter filter, double radius) {
+        long now = System.currentTimeMillis();
+        Coverage covered = new Coverage(lng, lat, radius, now + coverageTtlMillis);
+        List<Coverage> circles = coverage.computeIfAbsent(filter.getKey(), key -> new ArrayList<>());
+        synchronized (circles) {
+            // 已过期的和被新区域完全包含的记录不再需要，新区域过期得更晚
+            circles.removeIf(old -> old.expiresAt() <= now || covered.contains(old.lng(), old.lat(), old.radius()));
+            circles.add(covered);
+        }
+    }
+
+    public void recordLocalHit() {
+        localHits.incrementAndGet();
+    }
+
+    public void recordFallback() {
+        fallbacks.incrementAndGet();
+    }
+
+    public PoiIndexStats getStats() {
+        lock.readLock().lock();
+        try {
+            return new PoiIndexStats(size, cells.size(), localHits.get(), fallbacks.get());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 有变更时写入文件，只在内存中的索引忽略
+     */
+    public void flush() {
+        if (file == null || !dirty) {
+            return;
+        }
+        PoiColumns snapshot;
+        lock.readLock().lock();
+        try {
+            dirty = false;
+            // 写文件期间可能有新点追加，复制数组保证快照不变
+            snapshot = new PoiColumns(size, Arrays.copyOf(lngs, size), Arrays.copyOf(lats, size), Arrays.copyOf(codes, size),
+                    Arrays.copyOf(ids, size), Arrays.copyOf(names, size), Arrays.copyOf(types, size),
+                    Arrays.copyOf(typecodes, size), Arrays.copyOf(addresses, size));
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            PoiIndexFile.write(file, snapshot);
+        } catch (Exception e) {
+            dirty = true;
+            log.warn("Failed to save POI index: {}", e.getMessage());
+        }
+    }
+
+    public void close() {
+        if (flushTask != null) {
+            flushTask.dispose();
+        }
+        flush();
+    }
+
+    /**
+     * 解析高德返回的单个兴趣点，坐标缺失或格式错误时返回 null
+     */
+    static Poi parse(JSONObject poi) {
+        String location = poi.getStr("location");
+        String id = poi.getStr("id");
+        if (StrUtil.isBlank(id) || StrUtil.isBlank(location) || !location.contains(",")) {
+            return null;
+        }
+        try {
+            double lng = Double.parseDouble(StrUtil.subBefore(location, ",", false).trim());
+            double lat = Double.parseDouble(StrUtil.subAfter(location, ",", false).trim());
+            return new Poi(id, poi.getStr("name", ""), text(poi, "type"), text(poi, "typecode"), text(poi, "address"), lng, lat);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 高德在字段为空时返回空数组而不是空字符串
+     */
+    private static String text(JSONObject poi, String field) {
+        Object value = poi.get(field);
+        return value instanceof String text ? text : "";
+    }
+
+    private void load(PoiColumns columns) {
+        lock.writeLock().lock();
+        try {
+            int count = Math.min(columns.size(), maxPoints);
+            lngs = columns.lngs();
+            lats = columns.lats();
+            codes = columns.codes();
+            ids = columns.ids();
+            names = columns.names();
+            types = columns.types();
+            typecodes = columns.typecodes();
+            addresses = columns.addresses();
+            size = count;
+            for (int i = 0; i < count; i++) {
+                byId.put(ids[i], i);
+                cells.computeIfAbsent(cellOf(lngs[i], lats[i]), key -> new Cell()).add(i);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Poi poiAt(int index) {
+        return new Poi(ids[index], names[index], types[index], typecodes[index], addresses[index], lngs[index], lats[index]);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= lngs.length) {
+            return;
+        }
+        int grown = Math.min(Math.max(16, lngs.length * 2), Math.max(maxPoints, capacity));
+        lngs = Arrays.copyOf(lngs, grown);
+        lats = Arrays.copyOf(lats, grown);
+        codes = Arrays.copyOf(codes, grown);
+        ids = Arrays.copyOf(ids, grown);
+        names = Arrays.copyOf(names, grown);
+        types = Arrays.copyOf(types, grown);
+        typecodes = Arrays.copyOf(typecodes, grown);
+        addresses = Arrays.copyOf(addresses, grown);
+    }
+
+    private static long cellOf(double lng, double lat) {
+        return cellKey(cellX(lng), cellY(lat));
+    }
+
+    private static int cellX(double lng) {
+        return (int) Math.floor(lng / CELL_DEGREES);
+    }
+
+    private static int cellY(double lat) {
+        return (int) Math.floor(lat / CELL_DEGREES);
+    }
+
+    private static long cellKey(int x, int y) {
+        return ((long) y << 32) | (x & 0xffffffffL);
+    }
+}
@@ -0,0 +1,117 @@
+package com.zhishi.aiagent.poi;
+
+import cn.hutool.core.util.StrUtil;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 兴趣点索引文件
+ * 格式：魔数、版本、数量，随后是经度、纬度、类型编码三个定长数组，最后是每个点的 ID、名称、类型、类型编码和地址（2 字节长度加 UTF-8）；
+ * 读取时整体映射，定长数组直接批量拷贝为基本类型数组，不逐条解析
+ */
+final class PoiIndexFile {
+
+    private static final int MAGIC = 0x504F4931;
+
+    private static final int VERSION = 1;
+
+    // 单个字符串的最大字符数，保证 UTF-8 长度不超过 2 字节能表示的范围
+    private static final int MAX_STRING_CHARS = 2000;
+
+    private PoiIndexFile() {
+    }
+
+    /**
+     * @return 文件不存在时返回 null
+     * @throws IOException 文件损坏或格式不符
+     */
+    static PoiColumns read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Unsupported POI index file: " + path);
+            }
+            int count = buffer.getInt();
+            double[] lngs = new double[count];
+            double[] lats = new double[count];
+            int[] codes = new int[count];
+            buffer.asDoubleBuffer().get(lngs);
+            buffer.position(buffer.position() + count * Double.BYTES);
+            buffer.asDoubleBuffer().get(lats);
+            buffer.position(buffer.position() + count * Double.BYTES);
+            buffer.asIntBuffer().get(codes);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+            String[] ids = new String[count];
+            String[] names = new String[count];
+            String[] types = new String[count];
+            String[] typecodes = new String[count];
+            String[] addresses = new String[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = readString(buffer);
+                names[i] = readString(buffer);
+                types[i] = readString(buffer);
+                typecodes[i] = readString(buffer);
+                addresses[i] = readString(buffer);
+            }
+            return new PoiColumns(count, lngs, lats, codes, ids, names, types, typecodes, addresses);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupted POI index file: " + path, e);
+        }
+    }
+
+    /**
+     * 先写临时文件再原子替换
+     */
+    static void write(Path path, PoiColumns columns) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        int count = columns.size();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                out.writeDouble(columns.lngs()[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeDouble(columns.lats()[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeInt(columns.codes()[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                writeString(out, columns.ids()[i]);
+                writeString(out, columns.names()[i]);
+                writeString(out, columns.types()[i]);
+                writeString(out, columns.typecodes()[i]);
+                writeString(out, columns.addresses()[i]);
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String readString(MappedByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = StrUtil.maxLength(StrUtil.nullToEmpty(value), MAX_STRING_CHARS).getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,12 @@
+package com.zhishi.aiagent.poi;
+
+/**
+ * 兴趣点索引统计
+ *
+ * @param points     已收录的兴趣点数
+ * @param cells      非空网格数
+ * @param localHits  由本地索引直接返回的周边搜索次数
+ * @param fallbacks  覆盖不足、改为请求高德的周边搜索次数
+ */
+public record PoiIndexStats(int points, int cells, long localHits, long fallbacks) {
+}
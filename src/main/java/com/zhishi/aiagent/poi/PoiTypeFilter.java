@@ -0,0 +1,91 @@
+package com.zhishi.aiagent.poi;
+
+import cn.hutool.core.util.StrUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按高德类型编码前缀过滤
+ * 编码为 6 位：大类 2 位、中类 2 位、小类 2 位，末尾的 00 表示整类，如 050000 匹配所有餐饮，050100 匹配所有中餐厅
+ */
+public final class PoiTypeFilter {
+
+    public static final PoiTypeFilter ANY = new PoiTypeFilter(new int[0], new int[0], "");
+
+    private final int[] prefixes;
+
+    private final int[] divisors;
+
+    private final String key;
+
+    private PoiTypeFilter(int[] prefixes, int[] divisors, String key) {
+        this.prefixes = prefixes;
+        this.divisors = divisors;
+        this.key = key;
+    }
+
+    /**
+     * @param types 类型编码，多个用 | 分隔，为空时不过滤；无法识别的编码忽略
+     */
+    public static PoiTypeFilter of(String types) {
+        if (StrUtil.isBlank(types)) {
+            return ANY;
+        }
+        List<String> codes = new ArrayList<>();
+        for (String type : StrUtil.split(types, '|', true, true)) {
+            if (type.length() == 6 && StrUtil.isNumeric(type)) {
+                // 去掉末尾成对的 0，得到前缀
+                String prefix = type;
+                while (prefix.length() > 2 && prefix.endsWith("00")) {
+                    prefix = prefix.substring(0, prefix.length() - 2);
+                }
+                codes.add(prefix);
+            }
+        }
+        if (codes.isEmpty()) {
+            return ANY;
+        }
+        codes.sort(null);
+        int[] prefixes = new int[codes.size()];
+        int[] divisors = new int[codes.size()];
+        for (int i = 0; i < codes.size(); i++) {
+            prefixes[i] = Integer.parseInt(codes.get(i));
+            divisors[i] = (int) Math.pow(10, 6 - codes.get(i).length());
+        }
+        return new PoiTypeFilter(prefixes, divisors, String.join("|", codes));
+    }
+
+    /**
+     * @param code 6 位类型编码的整数值，未知时为 -1
+     */
+    public boolean matches(int code) {
+        if (prefixes.length == 0) {
+            return true;
+        }
+        if (code < 0) {
+            return false;
+        }
+        for (int i = 0; i < prefixes.length; i++) {
+            if (code / divisors[i] == prefixes[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 规范化后的前缀，用作覆盖记录的键
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 取第一个类型编码的整数值，无法解析时为 -1
+     */
+    static int parseCode(String typecode) {
+        String first = StrUtil.subBefore(StrUtil.nullToEmpty(typecode), "|", false);
+        return first.length() == 6 && StrUtil.isNumeric(first) ? Integer.parseInt(first) : -1;
+    }
+}
@@ -0,0 +1,31 @@
+package com.zhishi.aiagent.precompute;
+
+import com.zhishi.aiagent.entity.PlanRequest;
+import lombok.Data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 单个规范化请求的使用次数，按天统计
+ */
+@Data
+public class PlanUsage {
+
+    private String key;
+
+    private PlanRequest request;
+
+    // 日期（yyyy-MM-dd）到当日次数
+    private Map<String, Integer> dailyCounts = new HashMap<>();
+
+    /**
+     * 指定日期（含）之后的总次数
+     */
+    long countSince(String fromDate) {
+        return dailyCounts.entrySet().stream()
+                .filter(entry -> entry.getKey().compareTo(fromDate) >= 0)
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+    }
+}
@@ -0,0 +1,120 @@
+package com.zhishi.aiagent.precompute;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.zhishi.aiagent.batch.PlanRequestKey;
+import com.zhishi.aiagent.entity.PlanRequest;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 规划请求的使用统计
+ * 按规范化请求和日期计数，只保留统计窗口内的天数；计数保存在内存中，定期写入文件（先写临时文件再原子替换）
+ */
+@Slf4j
+public class PlanUsageStore {
+
+    // 最多跟踪的不同请求数，超出时淘汰次数最少的
+    private static final int MAX_TRACKED = 10000;
+
+    private final File file;
+
+    private final Clock clock;
+
+    private final int windowDays;
+
+    private final Map<String, PlanUsage> usage = new HashMap<>();
+
+    private boolean dirty;
+
+    public PlanUsageStore(File file, Clock clock, int windowDays) {
+        this.file = file;
+        this.clock = clock;
+        this.windowDays = windowDays;
+        load();
+    }
+
+    public synchronized void record(PlanRequest request) {
+        String key = PlanRequestKey.of(request);
+        PlanUsage current = usage.computeIfAbsent(key, k -> {
+            PlanUsage created = new PlanUsage();
+            created.setKey(k);
+            created.setRequest(request);
+            return created;
+        });
+        current.getDailyCounts().merge(LocalDate.now(clock).toString(), 1, Integer::sum);
+        dirty = true;
+    }
+
+    /**
+     * 统计窗口内次数最多的请求
+     */
+    public synchronized List<PlanUsage> top(int limit) {
+        String from = windowStart();
+        return usage.values().stream()
+                .filter(item -> item.countSince(from) > 0)
+                .sorted(Comparator.comparingLong((PlanUsage item) -> item.countSince(from)).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    public synchronized int size() {
+        return usage.size();
+    }
+
+    /**
+     * 清理窗口外的计数，有变更时写入文件
+     */
+    public synchronized void flush() {
+        if (!dirty) {
+            return;
+        }
+        String from = windowStart();
+        usage.values().forEach(item -> item.getDailyCounts().keySet().removeIf(date -> date.compareTo(from) < 0));
+        usage.values().removeIf(item -> item.getDailyCounts().isEmpty());
+        if (usage.size() > MAX_TRACKED) {
+            List<String> evicted = usage.values().stream()
+                    .sorted(Comparator.comparingLong(item -> item.countSince(from)))
+                    .limit(usage.size() - MAX_TRACKED)
+                    .map(PlanUsage::getKey)
+                    .toList();
+            evicted.forEach(usage::remove);
+        }
+        try {
+            FileUtil.mkParentDirs(file);
+            File tmp = new File(file.getPath() + ".tmp");
+            FileUtil.writeString(JSONUtil.toJsonStr(usage), tmp, StandardCharsets.UTF_8);
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (Exception e) {
+            log.warn("Failed to save plan usage: {}", e.getMessage());
+        }
+    }
+
+    private String windowStart() {
+        return LocalDate.now(clock).minusDays(windowDays - 1L).toString();
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            JSONObject stored = JSONUtil.parseObj(FileUtil.readUtf8String(file));
+            stored.forEach((key, value) -> usage.put(key, JSONUtil.toBean((JSONObject) value, PlanUsage.class)));
+        } catch (Exception e) {
+            log.warn("Failed to load plan usage, starting from zero: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.zhishi.aiagent.precompute;
+
+import com.zhishi.aiagent.app.TripMindWithMCPandTools;
+import com.zhishi.aiagent.batch.PlanRequestKey;
+import com.zhishi.aiagent.constant.FileConstant;
+import com.zhishi.aiagent.entity.PlanRequest;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 热门目的地攻略预生成
+ * 记录 /tripmind/plan 的请求次数，低峰时段定期取统计窗口内最热门的规范化请求，
+ * 按热度依次为缺失或过期的请求生成攻略和 HTML 并保存；每日消耗的 token 有上限，超出或离开低峰时段即停止，下次继续；
+ * 高峰时段命中预生成攻略的请求直接返回，不调用大模型
+ */
+@Component
+// 延迟初始化时仍在启动阶段创建：启动后需要注册定时预热
+@Lazy(false)
+@Slf4j
+public class PlanWarmupService {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    // 使用统计写入文件的间隔
+    private static final long USAGE_FLUSH_SECONDS = 60;
+
+    // 尚未观测到实际消耗时，单份攻略的 token 估计
+    private static final long DEFAULT_TOKENS_PER_PLAN = 20000;
+
+    private final PlanUsageStore usageStore;
+
+    private final PrecomputedPlanStore planStore;
+
+    private final Function<PlanRequest, PrecomputedPlan> generator;
+
+    private final Clock clock;
+
+    private final boolean enabled;
+
+    private final int topN;
+
+    private final Duration refreshAfter;
+
+    private final Duration serveMaxAge;
+
+    private final long dailyTokenBudget;
+
+    private final int offPeakStartHour;
+
+    private final int offPeakEndHour;
+
+    private final Disposable usageFlushTask;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // 当日已消耗的 token，按北京时间零点重置
+    private LocalDate budgetDate;
+    private long spentTokens;
+
+    // 历史平均消耗，用于判断剩余预算是否够生成下一份
+    private long observedTokens;
+    private int observedPlans;
+
+    private volatile PrecomputeStats lastRun = new PrecomputeStats(0, 0, 0, 0, 0, 0, null);
+
+    @Autowired
+    public PlanWarmupService(@Lazy TripMindWithMCPandTools tripMindWithMCPandTools,
+                             @Value("${precompute.enabled:true}") boolean enabled,
+                             @Value("${precompute.top-n:300}") int topN,
+                             @Value("${precompute.usage-window-days:7}") int usageWindowDays,
+                             @Value("${precompute.refresh-after-hours:24}") long refreshAfterHours,
+                             @Value("${precompute.serve-max-age-hours:72}") long serveMaxAgeHours,
+                             @Value("${precompute.daily-token-budget:2000000}") long dailyTokenBudget,
+                             @Value("${precompute.off-peak-start-hour:1}") int offPeakStartHour,
+                             @Value("${precompute.off-peak-end-hour:7}") int offPeakEndHour) {
+        this(new PlanUsageStore(new File(FileConstant.FILE_SAVE_DIR + "/precompute/usage.json"), Clock.system(ZONE), usageWindowDays),
+                new PrecomputedPlanStore(Paths.get(FileConstant.FILE_SAVE_DIR, "precompute", "plans")),
+                request -> generate(tripMindWithMCPandTools, request),
+                Clock.system(ZONE), enabled, topN, Duration.ofHours(refreshAfterHours), Duration.ofHours(serveMaxAgeHours),
+                dailyTokenBudget, offPeakStartHour, offPeakEndHour);
+    }
+
+    PlanWarmupService(PlanUsageStore usageStore, PrecomputedPlanStore planStore, Function<PlanRequest, PrecomputedPlan> generator,
+                      Clock clock, boolean enabled, int topN, Duration refreshAfter, Duration serveMaxAge, long dailyTokenBudget,
+                      int offPeakStartHour, int offPeakEndHour) {
+        this.usageStore = usageStore;
+        this.planStore = planStore;
+        this.generator = generator;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.topN = topN;
+        this.refreshAfter = refreshAfter;
+        this.serveMaxAge = serveMaxAge;
+        this.dailyTokenBudget = dailyTokenBudget;
+        this.offPeakStartHour = offPeakStartHour;
+        this.offPeakEndHour = offPeakEndHour;
+        this.usageFlushTask = Schedulers.parallel().schedulePeriodically(usageStore::flush,
+                USAGE_FLUSH_SECONDS, USAGE_FLUSH_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 记录一次请求
+     */
+    public void record(PlanRequest request) {
+        if (enabled) {
+            usageStore.record(request);
+        }
+    }
+
+    /**
+     * 查找预生成的攻略
+     *
+     * @return 未生成或超过最长使用期限时返回 null
+     */
+    public PrecomputedPlan lookup(PlanRequest request) {
+        if (!enabled) {
+            return null;
+        }
+        String key = PlanRequestKey.of(request);
+        Long generatedAt = planStore.generatedAt(key);
+        PrecomputedPlan plan = generatedAt != null && clock.millis() - generatedAt <= serveMaxAge.toMillis()
+                ? planStore.load(key) : null;
+        if (plan == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return plan;
+    }
+
+    /**
+     * 定时触发，只在低峰时段内执行；每次从最热门的缺失或过期请求开始，已是最新的跳过
+     */
+    @Scheduled(cron = "${precompute.cron:0 */30 * * * *}", zone = "Asia/Shanghai")
+    public void scheduledWarmUp() {
+        if (enabled && inOffPeak()) {
+            warmUp();
+        }
+    }
+
+    /**
+     * 执行一轮预生成
+     *
+     * @return 本轮生成的攻略数
+     */
+    public int warmUp() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        long startedAt = clock.millis();
+        int generated = 0;
+        long tokens = 0;
+        String stopReason = "completed";
+        try {
+            usageStore.flush();
+            List<PlanUsage> candidates = usageStore.top(topN).stream()
+                    .filter(usage -> isStale(usage.getKey()))
+                    .toList();
+            for (PlanUsage usage : candidates) {
+                if (!inOffPeak()) {
+                    stopReason = "off-peak window ended";
+                    break;
+                }
+                if (!hasBudgetForNext()) {
+                    stopReason = "token budget exhausted";
+                    break;
+                }
+                try {
+                    PrecomputedPlan plan = generator.apply(usage.getRequest());
+                    plan.setKey(usage.getKey());
+                    plan.setRequest(usage.getRequest());
+                    plan.setGeneratedAt(clock.millis());
+                    planStore.save(plan);
+                    charge(plan.getTotalTokens());
+                    generated++;
+                    tokens += plan.getTotalTokens();
+                } catch (Exception e) {
+                    log.warn("Failed to precompute plan for {}: {}", usage.getRequest().getDestination(), e.getMessage());
+                }
+            }
+            log.info("Plan warm-up finished: {} of {} stale plans generated, {} tokens, {}",
+                    generated, candidates.size(), tokens, stopReason);
+        } finally {
+            lastRun = new PrecomputeStats(0, 0, 0, startedAt, generated, tokens, stopReason);
+            running.set(false);
+        }
+        return generated;
+    }
+
+    public PrecomputeStats getStats() {
+        PrecomputeStats run = lastRun;
+        return new PrecomputeStats(planStore.size(), hits.sum(), misses.sum(), run.lastRunAt(), run.lastGenerated(),
+                run.lastTokens(), run.lastStopReason());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        usageFlushTask.dispose();
+        usageStore.flush();
+    }
+
+    private boolean isStale(String key) {
+        Long generatedAt = planStore.generatedAt(key);
+        return generatedAt == null || clock.millis() - generatedAt > refreshAfter.toMillis();
+    }
+
+    private boolean inOffPeak() {
+        int hour = LocalTime.now(clock.withZone(ZONE)).getHour();
+        if (offPeakStartHour <= offPeakEndHour) {
+            return hour >= offPeakStartHour && hour < offPeakEndHour;
+        }
+        // 跨零点的时段，如 23 点到 6 点
+        return hour >= offPeakStartHour || hour < offPeakEndHour;
+    }
+
+    private synchronized boolean hasBudgetForNext() {
+        resetBudgetIfNewDay();
+        long estimate = observedPlans == 0 ? DEFAULT_TOKENS_PER_PLAN : observedTokens / observedPlans;
+        return spentTokens + estimate <= dailyTokenBudget;
+    }
+
+    private synchronized void charge(int tokens) {
+        resetBudgetIfNewDay();
+        spentTokens += tokens;
+        observedTokens += tokens;
+        observedPlans++;
+    }
+
+    private void resetBudgetIfNewDay() {
+        LocalDate today = LocalDate.now(clock.withZone(ZONE));
+        if (!today.equals(budgetDate)) {
+            budgetDate = today;
+            spentTokens = 0;
+        }
+    }
+
+    private static PrecomputedPlan generate(TripMindWithMCPandTools tripMindWithMCPandTools, PlanRequest request) {
+        // 每次刷新都是独立生成，不带上次的攻略作为历史，生成后清除会话
+        String chatId = "precompute-" + PlanRequestKey.of(request);
+        Map<String, String> result;
+        try {
+            result = tripMindWithMCPandTools.generateTravelPlanWithHtml(chatId,
+                    request.getDestination(), request.getTravelDates(), request.getInterests(), request.getBudget());
+        } finally {
+            tripMindWithMCPandTools.clearMemory(chatId);
+        }
+        PrecomputedPlan plan = new PrecomputedPlan();
+        plan.setTravelPlan(result.get("travelPlan"));
+        plan.setHtmlContent(result.get("htmlContent"));
+        plan.setTotalTokens(Integer.parseInt(result.getOrDefault("totalTokens", "0")));
+        return plan;
+    }
+}
@@ -0,0 +1,16 @@
+package com.zhishi.aiagent.precompute;
+
+/**
+ * 预生成统计
+ *
+ * @param entries        已保存的攻略数
+ * @param hits           直接返回预生成攻略的请求数
+ * @param misses         未命中的请求数
+ * @param lastRunAt      最近一次预热的开始时间，从未运行时为 0
+ * @param lastGenerated  最近一次预热生成的攻略数
+ * @param lastTokens     最近一次预热消耗的 token 数
+ * @param lastStopReason 最近一次预热结束的原因
+ */
+public record PrecomputeStats(int entries, long hits, long misses, long lastRunAt, int lastGenerated, long lastTokens,
+                              String lastStopReason) {
+}
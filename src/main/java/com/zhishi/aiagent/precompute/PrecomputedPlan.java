@@ -0,0 +1,24 @@
+package com.zhishi.aiagent.precompute;
+
+import com.zhishi.aiagent.entity.PlanRequest;
+import lombok.Data;
+
+/**
+ * 预先生成的旅行攻略及其 HTML
+ */
+@Data
+public class PrecomputedPlan {
+
+    private String key;
+
+    private PlanRequest request;
+
+    private String travelPlan;
+
+    private String htmlContent;
+
+    // 生成时消耗的 token 数
+    private int totalTokens;
+
+    private long generatedAt;
+}
@@ -0,0 +1,101 @@
+package com.zhishi.aiagent.precompute;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 预生成攻略的文件存储，每个规范化请求一个 JSON 文件，先写临时文件再原子替换
+ * 内存中只保留键到生成时间的索引，命中时才读取文件
+ */
+@Slf4j
+public class PrecomputedPlanStore {
+
+    private static final Pattern KEY = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path dir;
+
+    // 键到生成时间
+    private final Map<String, Long> index = new ConcurrentHashMap<>();
+
+    public PrecomputedPlanStore(Path dir) {
+        this.dir = dir;
+        loadIndex();
+    }
+
+    /**
+     * 生成时间
+     *
+     * @return 不存在时返回 null
+     */
+    public Long generatedAt(String key) {
+        return index.get(key);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public void save(PrecomputedPlan plan) {
+        try {
+            Files.createDirectories(dir);
+            Path temp = dir.resolve(plan.getKey() + ".json.tmp");
+            Files.writeString(temp, JSONUtil.toJsonStr(plan));
+            Files.move(temp, dir.resolve(plan.getKey() + ".json"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            index.put(plan.getKey(), plan.getGeneratedAt());
+        } catch (IOException e) {
+            log.warn("Failed to save precomputed plan {}: {}", plan.getKey(), e.getMessage());
+        }
+    }
+
+    /**
+     * 读取攻略
+     *
+     * @return 不存在或无法解析时返回 null
+     */
+    public PrecomputedPlan load(String key) {
+        if (key == null || !KEY.matcher(key).matches() || !index.containsKey(key)) {
+            return null;
+        }
+        try {
+            return JSONUtil.toBean(Files.readString(dir.resolve(key + ".json")), PrecomputedPlan.class);
+        } catch (Exception e) {
+            log.warn("Failed to load precomputed plan {}: {}", key, e.getMessage());
+            index.remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * 文件的修改时间即生成时间，启动时不读取文件内容
+     */
+    private void loadIndex() {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                String key = StrUtil.removeSuffix(name, ".json");
+                if (KEY.matcher(key).matches()) {
+                    try {
+                        index.put(key, Files.getLastModifiedTime(file).toMillis());
+                    } catch (IOException e) {
+                        log.warn("Failed to read precomputed plan {}: {}", name, e.getMessage());
+                    }
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Failed to list precomputed plans: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.zhishi.aiagent.process;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 有界输出缓冲
+ * 保留输出开头 headLimit 个字符和结尾 tailLimit 个字符，中间部分丢弃只计数，内存占用与输出总量无关
+ */
+public class BoundedOutput {
+
+    private final int headLimit;
+    private final int tailLimit;
+
+    private final StringBuilder head = new StringBuilder();
+    private final Deque<String> tail = new ArrayDeque<>();
+    private int tailChars;
+    private long droppedChars;
+
+    public BoundedOutput(int headLimit, int tailLimit) {
+        this.headLimit = headLimit;
+        this.tailLimit = tailLimit;
+    }
+
+    /**
+     * 追加一行，不含换行符
+     */
+    public synchronized void appendLine(String line) {
+        int length = line.length() + 1;
+        if (tail.isEmpty() && head.length() + length <= headLimit) {
+            head.append(line).append('\n');
+            return;
+        }
+        // 单行超过尾部容量时只保留行尾
+        if (length > tailLimit) {
+            droppedChars += length - tailLimit;
+            line = line.substring(line.length() - tailLimit + 1);
+            length = tailLimit;
+        }
+        tail.addLast(line);
+        tailChars += length;
+        while (tailChars > tailLimit) {
+            String removed = tail.removeFirst();
+            tailChars -= removed.length() + 1;
+            droppedChars += removed.length() + 1;
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return head.isEmpty() && tail.isEmpty();
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder out = new StringBuilder(head.length() + tailChars + 64).append(head);
+        if (droppedChars > 0) {
+            out.append("... [").append(droppedChars).append(" chars omitted] ...\n");
+        }
+        tail.forEach(line -> out.append(line).append('\n'));
+        return out.toString();
+    }
+}
@@ -0,0 +1,13 @@
+package com.zhishi.aiagent.process;
+
+/**
+ * 命令执行结果
+ *
+ * @param exitCode      退出码，被终止时为 -1
+ * @param stdout        标准输出（可能被截断）
+ * @param stderr        标准错误（可能被截断）
+ * @param timeout       超时原因，未超时为 null
+ * @param elapsedMillis 耗时（毫秒）
+ */
+public record ProcessResult(int exitCode, String stdout, String stderr, String timeout, long elapsedMillis) {
+}
@@ -0,0 +1,234 @@
+package com.zhishi.aiagent.process;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 命令执行引擎
+ * 按平台选择 shell；stdout 和 stderr 分别在虚拟线程上并发读取，避免管道写满导致子进程阻塞；
+ * 输出进入有界缓冲，并按固定间隔合并后实时推送，待推送内容写满一块时立即推送；超过墙钟时间或进程树累计 CPU 时间时终止整个进程树
+ */
+@Slf4j
+public class ProcessRunner {
+
+    private static final boolean WINDOWS = System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+
+    // Windows 控制台输出使用本地编码（如 GBK）
+    private static final Charset OUTPUT_CHARSET = Charset.forName(
+            System.getProperty("native.encoding", Charset.defaultCharset().name()));
+
+    private static final long POLL_INTERVAL_MS = 200;
+    private static final long KILL_GRACE_MS = 2000;
+    private static final long DRAIN_JOIN_MS = 2000;
+
+    // 单行最大长度，超过则强制断行，防止无换行的输出撑爆内存
+    private static final int MAX_LINE_CHARS = 8192;
+
+    // 每次实时推送的最大字符数，待推送内容达到该长度时不等轮询间隔立即推送
+    static final int MAX_LIVE_CHUNK = 4096;
+
+    private final File workingDirectory;
+    private final Duration wallTimeout;
+    private final Duration cpuTimeout;
+    private final int outputLimit;
+
+    /**
+     * @param workingDirectory 工作目录
+     * @param wallTimeout      墙钟超时
+     * @param cpuTimeout       进程树累计 CPU 时间上限
+     * @param outputLimit      stdout、stderr 各自保留的最大字符数，首尾各占一半
+     */
+    public ProcessRunner(File workingDirectory, Duration wallTimeout, Duration cpuTimeout, int outputLimit) {
+        this.workingDirectory = workingDirectory;
+        this.wallTimeout = wallTimeout;
+        this.cpuTimeout = cpuTimeout;
+        this.outputLimit = outputLimit;
+    }
+
+    /**
+     * 平台对应的 shell 命令行
+     */
+    static List<String> shellCommand(String command) {
+        return WINDOWS ? List.of("cmd.exe", "/c", command) : List.of("/bin/sh", "-c", command);
+    }
+
+    /**
+     * 执行命令
+     *
+     * @param command 命令
+     * @param live    实时输出回调
+     * @return 执行结果
+     */
+    public ProcessResult run(String command, Consumer<String> live) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        workingDirectory.mkdirs();
+        Process process = new ProcessBuilder(shellCommand(command))
+                .directory(workingDirectory)
+                .start();
+        // 不提供输入，避免命令等待 stdin
+        process.getOutputStream().close();
+
+        BoundedOutput stdout = new BoundedOutput(outputLimit / 2, outputLimit / 2);
+        BoundedOutput stderr = new BoundedOutput(outputLimit / 2, outputLimit / 2);
+        LiveOutput pending = new LiveOutput(live);
+        Thread stdoutDrainer = Thread.ofVirtual().name("proc-stdout-" + process.pid())
+                .start(() -> drain(process.getInputStream(), stdout, pending, ""));
+        Thread stderrDrainer = Thread.ofVirtual().name("proc-stderr-" + process.pid())
+                .start(() -> drain(process.getErrorStream(), stderr, pending, "[stderr] "));
+
+        String timeout = null;
+        try {
+            while (!process.waitFor(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                pending.flush();
+                if (System.nanoTime() - start > wallTimeout.toNanos()) {
+                    timeout = "wall-clock timeout of " + wallTimeout.toSeconds() + "s exceeded";
+                } else if (cpuTime(process.toHandle()).compareTo(cpuTimeout) > 0) {
+                    timeout = "CPU time limit of " + cpuTimeout.toSeconds() + "s exceeded";
+                }
+                if (timeout != null) {
+                    killTree(process.toHandle());
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            killTree(process.toHandle());
+            throw e;
+        }
+        // 后台残留的孙进程可能仍持有管道，读取线程不无限等待
+        stdoutDrainer.join(DRAIN_JOIN_MS);
+        stderrDrainer.join(DRAIN_JOIN_MS);
+        pending.flush();
+
+        int exitCode = process.isAlive() ? -1 : process.exitValue();
+        return new ProcessResult(timeout != null ? -1 : exitCode, stdout.toString(), stderr.toString(), timeout,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * 按字符块读取并切分为行，写入有界缓冲，同时放入待推送缓冲
+     */
+    private void drain(InputStream in, BoundedOutput output, LiveOutput pending, String livePrefix) {
+        try (Reader reader = new InputStreamReader(in, OUTPUT_CHARSET)) {
+            char[] buffer = new char[8192];
+            StringBuilder line = new StringBuilder();
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    char c = buffer[i];
+                    if (c == '\n' || line.length() >= MAX_LINE_CHARS) {
+                        emit(line, output, pending, livePrefix);
+                        if (c == '\n') {
+                            continue;
+                        }
+                    }
+                    if (c != '\r') {
+                        line.append(c);
+                    }
+                }
+            }
+            if (!line.isEmpty()) {
+                emit(line, output, pending, livePrefix);
+            }
+        } catch (IOException e) {
+            // 进程被终止时管道关闭属于正常情况
+            log.debug("Process output stream closed: {}", e.getMessage());
+        }
+    }
+
+    private void emit(StringBuilder line, BoundedOutput output, LiveOutput pending, String livePrefix) {
+        String text = line.toString();
+        line.setLength(0);
+        output.appendLine(text);
+        pending.append(livePrefix + text + '\n');
+    }
+
+    /**
+     * 待推送的实时输出，stdout 和 stderr 共用
+     * 推送串行执行，各块按写入顺序送达，每块不超过 {@link #MAX_LIVE_CHUNK} 个字符
+     */
+    private static final class LiveOutput {
+
+        private final Consumer<String> consumer;
+
+        private final StringBuilder pending = new StringBuilder();
+
+        private LiveOutput(Consumer<String> consumer) {
+            this.consumer = consumer;
+        }
+
+        void append(String text) {
+            boolean full;
+            synchronized (pending) {
+                pending.append(text);
+                full = pending.length() >= MAX_LIVE_CHUNK;
+            }
+            // 读取线程在推送完成前不再读取，输出过快时由管道反压子进程
+            if (full) {
+                flush();
+            }
+        }
+
+        synchronized void flush() {
+            String chunk;
+            synchronized (pending) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                chunk = pending.toString();
+                pending.setLength(0);
+            }
+            for (int start = 0; start < chunk.length(); start += MAX_LIVE_CHUNK) {
+                consumer.accept(chunk.substring(start, Math.min(chunk.length(), start + MAX_LIVE_CHUNK)));
+            }
+        }
+    }
+
+    /**
+     * 进程及其仍存活的子孙进程的累计 CPU 时间，已退出的子进程无法统计
+     */
+    private Duration cpuTime(ProcessHandle handle) {
+        Duration total = handle.info().totalCpuDuration().orElse(Duration.ZERO);
+        return handle.descendants()
+                .map(descendant -> descendant.info().totalCpuDuration().orElse(Duration.ZERO))
+                .reduce(total, Duration::plus);
+    }
+
+    /**
+     * 终止进程树：先终止子孙进程，防止 shell 退出后子进程被托管继续运行；先正常终止，宽限期后强制终止，
+     * 返回前等待整棵树退出，调用方看到超时结果时不会有仍在运行的子孙进程
+     */
+    private void killTree(ProcessHandle root) {
+        List<ProcessHandle> handles = new ArrayList<>(root.descendants().toList());
+        handles.add(root);
+        handles.forEach(ProcessHandle::destroy);
+        awaitExit(handles);
+        List<ProcessHandle> survivors = handles.stream().filter(ProcessHandle::isAlive).toList();
+        if (!survivors.isEmpty()) {
+            survivors.forEach(ProcessHandle::destroyForcibly);
+            awaitExit(survivors);
+        }
+    }
+
+    private static void awaitExit(List<ProcessHandle> handles) {
+        try {
+            CompletableFuture.allOf(handles.stream().map(ProcessHandle::onExit).toArray(CompletableFuture[]::new))
+                    .get(KILL_GRACE_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // 宽限期内未全部退出
+        }
+    }
+}
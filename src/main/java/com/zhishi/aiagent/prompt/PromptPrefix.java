@@ -0,0 +1,73 @@
+package com.zhishi.aiagent.prompt;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.tool.ToolCallback;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 提示词前缀缓存
+ * DashScope 等服务对与之前请求逐字节相同的前缀复用已计算的结果（隐式上下文缓存），命中部分的处理更快、计费更低；
+ * 请求按“系统提示词、按名称排序的工具定义、历史消息、本轮变化的内容”组装，前缀在多轮、多步之间保持不变
+ */
+public final class PromptPrefix {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    // 各服务在用量中报告缓存命中 token 数的字段名
+    private static final Set<String> CACHED_TOKEN_FIELDS = Set.of("cached_tokens", "cachedTokens", "cache_read_input_tokens");
+
+    private PromptPrefix() {
+    }
+
+    /**
+     * 按工具名排序并去重（同名保留先出现的），工具定义的顺序与注册顺序无关
+     */
+    public static ToolCallback[] canonicalTools(ToolCallback[] tools) {
+        Map<String, ToolCallback> byName = new LinkedHashMap<>();
+        for (ToolCallback tool : tools) {
+            byName.putIfAbsent(tool.getToolDefinition().name(), tool);
+        }
+        return byName.values().stream()
+                .sorted(Comparator.comparing(tool -> tool.getToolDefinition().name()))
+                .toArray(ToolCallback[]::new);
+    }
+
+    /**
+     * 本次请求中命中缓存的提示词 token 数，服务未报告时为 0
+     */
+    public static long cachedTokens(Usage usage) {
+        if (usage == null || usage.getNativeUsage() == null) {
+            return 0;
+        }
+        try {
+            return find(OBJECT_MAPPER.valueToTree(usage.getNativeUsage()));
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private static long find(JsonNode node) {
+        if (node == null || !node.isObject()) {
+            return 0;
+        }
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (CACHED_TOKEN_FIELDS.contains(field.getKey()) && field.getValue().canConvertToLong()) {
+                return field.getValue().asLong();
+            }
+            long nested = find(field.getValue());
+            if (nested > 0) {
+                return nested;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,132 @@
+package com.zhishi.aiagent.ratelimit;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 每日配额的持久化存储
+ * 用量保存在内存中，定期写入文件（先写临时文件再原子替换），服务重启后当日用量不会清零；配额按北京时间零点重置
+ */
+@Slf4j
+public class QuotaStore {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Usage {
+
+        private String date;
+
+        private long used;
+
+        // 上游已返回配额耗尽，当日不再发起请求
+        private boolean exhausted;
+    }
+
+    private final File file;
+
+    private final Map<String, Usage> usage = new HashMap<>();
+
+    private boolean dirty;
+
+    public QuotaStore(File file) {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * 当日是否还有剩余配额，不消耗配额
+     */
+    public synchronized boolean hasRemaining(String name, long limit) {
+        Usage today = today(name);
+        return !today.isExhausted() && today.getUsed() < limit;
+    }
+
+    /**
+     * 消耗一次配额
+     *
+     * @return 配额已用完时返回 false
+     */
+    public synchronized boolean tryConsume(String name, long limit) {
+        Usage today = today(name);
+        if (today.isExhausted() || today.getUsed() >= limit) {
+            return false;
+        }
+        today.setUsed(today.getUsed() + 1);
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * 标记当日配额耗尽并立即保存
+     */
+    public synchronized void exhaust(String name) {
+        today(name).setExhausted(true);
+        dirty = true;
+        flush();
+    }
+
+    public synchronized long used(String name) {
+        return today(name).getUsed();
+    }
+
+    public synchronized boolean isExhausted(String name) {
+        return today(name).isExhausted();
+    }
+
+    /**
+     * 有变更时写入文件
+     */
+    public synchronized void flush() {
+        if (!dirty) {
+            return;
+        }
+        try {
+            FileUtil.mkParentDirs(file);
+            File tmp = new File(file.getPath() + ".tmp");
+            FileUtil.writeString(JSONUtil.toJsonStr(usage), tmp, StandardCharsets.UTF_8);
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (Exception e) {
+            log.warn("Failed to save quota usage: {}", e.getMessage());
+        }
+    }
+
+    private Usage today(String name) {
+        String date = LocalDate.now(ZONE).toString();
+        Usage current = usage.get(name);
+        if (current == null || !date.equals(current.getDate())) {
+            current = new Usage(date, 0, false);
+            usage.put(name, current);
+        }
+        return current;
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            JSONObject stored = JSONUtil.parseObj(FileUtil.readUtf8String(file));
+            stored.forEach((name, value) -> usage.put(name, JSONUtil.toBean((JSONObject) value, Usage.class)));
+        } catch (Exception e) {
+            log.warn("Failed to load quota usage, starting from zero: {}", e.getMessage());
+        }
+    }
+}
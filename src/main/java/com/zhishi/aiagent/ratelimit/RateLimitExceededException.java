@@ -0,0 +1,11 @@
+package com.zhishi.aiagent.ratelimit;
+
+/**
+ * 排队超过截止时间或当日配额已用完
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    public RateLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,100 @@
+package com.zhishi.aiagent.ratelimit;
+
+import cn.hutool.core.util.StrUtil;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 受限流控制的 ChatModel：调用前按提示词长度预估 token 并排队获取 RPM、TPM 许可，调用后按实际用量修正
+ */
+public class RateLimitedChatModel implements ChatModel {
+
+    // 预估时为输出预留的 token 数
+    private static final long OUTPUT_TOKEN_ALLOWANCE = 800;
+
+    // 上游返回限流后的退避时间
+    private static final Duration THROTTLE_BACKOFF = Duration.ofSeconds(5);
+
+    private final ChatModel delegate;
+
+    private final RateLimiter rateLimiter;
+
+    public RateLimitedChatModel(ChatModel delegate, RateLimiter rateLimiter) {
+        this.delegate = delegate;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        long reserved = rateLimiter.acquire(estimateTokens(prompt));
+        ChatResponse response = null;
+        try {
+            response = delegate.call(prompt);
+            return response;
+        } catch (RuntimeException e) {
+            onError(e);
+            throw e;
+        } finally {
+            // 失败的调用按未消耗 token 处理
+            rateLimiter.reconcile(reserved, response == null ? 0 : usedTokens(response, reserved));
+        }
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        long estimate = estimateTokens(prompt);
+        // 排队等待会阻塞，放到弹性线程池，不占用请求线程和事件循环
+        return Mono.fromCallable(() -> rateLimiter.acquire(estimate))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(reserved -> Flux.defer(() -> {
+                    AtomicLong used = new AtomicLong();
+                    return delegate.stream(prompt)
+                            .doOnNext(response -> {
+                                long tokens = usedTokens(response, 0);
+                                if (tokens > 0) {
+                                    used.set(tokens);
+                                }
+                            })
+                            .doOnError(this::onError)
+                            .doFinally(signal -> rateLimiter.reconcile(reserved, used.get() > 0 ? used.get() : reserved));
+                }));
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+
+    private void onError(Throwable e) {
+        String message = e.getMessage();
+        if (message != null && (message.contains("Throttling") || message.contains("429"))) {
+            rateLimiter.penalize(THROTTLE_BACKOFF);
+        }
+    }
+
+    /**
+     * 按字符数粗略预估 token：中文约每 1.5 个字符一个 token
+     */
+    static long estimateTokens(Prompt prompt) {
+        String contents = StrUtil.nullToEmpty(prompt.getContents());
+        return contents.length() * 2L / 3 + OUTPUT_TOKEN_ALLOWANCE;
+    }
+
+    private static long usedTokens(ChatResponse response, long fallback) {
+        if (response.getMetadata() == null) {
+            return fallback;
+        }
+        Usage usage = response.getMetadata().getUsage();
+        Integer total = usage == null ? null : usage.getTotalTokens();
+        return total == null || total <= 0 ? fallback : total;
+    }
+}
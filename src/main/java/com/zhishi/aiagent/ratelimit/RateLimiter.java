@@ -0,0 +1,217 @@
+package com.zhishi.aiagent.ratelimit;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个上游的限流器：请求数令牌桶、可选的 token 令牌桶（模型的 TPM）和每日配额
+ * 调用方在锁内按到达顺序预约令牌，在锁外等待到预约时间，先到先得；预计等待超过截止时间的调用直接拒绝，不占用令牌
+ * 每日配额在等待结束、确定放行时才扣减，排队被中断的调用不消耗配额
+ */
+@Slf4j
+public class RateLimiter {
+
+    private final String name;
+
+    // 为 null 表示不限制
+    private final TokenBucket requestBucket;
+    private final TokenBucket tokenBucket;
+
+    // 每日请求配额，0 表示不限
+    private final long dailyQuota;
+
+    private final QuotaStore quotaStore;
+
+    private final Duration maxWait;
+
+    private final LongAdder granted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalWaitMs = new LongAdder();
+    private final AtomicLong maxWaitMs = new AtomicLong();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    /**
+     * @param name              上游名称
+     * @param requestsPerPeriod 每个周期允许的请求数，不大于 0 表示不限
+     * @param requestPeriod     请求数的统计周期
+     * @param tokensPerMinute   每分钟允许的 token 数，不大于 0 表示不限
+     * @param dailyQuota        每日请求配额，不大于 0 表示不限
+     * @param quotaStore        配额存储
+     * @param maxWait           最长排队时间
+     */
+    public RateLimiter(String name, double requestsPerPeriod, Duration requestPeriod, long tokensPerMinute,
+                       long dailyQuota, QuotaStore quotaStore, Duration maxWait) {
+        long now = System.nanoTime();
+        this.name = name;
+        this.requestBucket = requestsPerPeriod > 0 ? new TokenBucket(requestsPerPeriod, requestPeriod, now) : null;
+        this.tokenBucket = tokensPerMinute > 0 ? new TokenBucket(tokensPerMinute, Duration.ofMinutes(1), now) : null;
+        this.dailyQuota = Math.max(0, dailyQuota);
+        this.quotaStore = quotaStore;
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * 不限流的限流器
+     */
+    public static RateLimiter unlimited(String name) {
+        return new RateLimiter(name, 0, Duration.ofSeconds(1), 0, 0, null, Duration.ZERO);
+    }
+
+    /**
+     * 获取一次请求的许可，必要时排队等待
+     *
+     * @throws RateLimitExceededException 排队时间将超过截止时间或当日配额已用完
+     */
+    public void acquire() {
+        acquire(0, true);
+    }
+
+    /**
+     * 重试同一请求时获取许可：同样排队，但不再扣减每日配额
+     *
+     * @throws RateLimitExceededException 排队时间将超过截止时间
+     */
+    public void reacquire() {
+        acquire(0, false);
+    }
+
+    /**
+     * 获取一次请求和指定数量 token 的许可，必要时排队等待
+     *
+     * @param tokens 预估消耗的 token 数，超过每分钟上限时按上限预约
+     * @return 实际预约的 token 数，调用结束后通过 {@link #reconcile} 按实际用量修正
+     * @throws RateLimitExceededException 排队时间将超过截止时间或当日配额已用完
+     */
+    public long acquire(long tokens) {
+        return acquire(tokens, true);
+    }
+
+    private long acquire(long tokens, boolean consumeQuota) {
+        long waitNanos = 0;
+        long reserved = 0;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (requestBucket != null) {
+                requestBucket.refill(now);
+                waitNanos = requestBucket.waitNanos(1);
+            }
+            if (tokenBucket != null && tokens > 0) {
+                // 预估超过桶容量的请求永远等不到足够的令牌，按容量预约，超出部分在修正时记为欠账
+                reserved = (long) Math.min(tokens, tokenBucket.capacity());
+                tokenBucket.refill(now);
+                waitNanos = Math.max(waitNanos, tokenBucket.waitNanos(reserved));
+            }
+            if (waitNanos > maxWait.toNanos()) {
+                rejected.increment();
+                throw new RateLimitExceededException(String.format("%s 请求繁忙，需排队约 %d 毫秒，超过 %d 毫秒上限，请稍后再试",
+                        name, TimeUnit.NANOSECONDS.toMillis(waitNanos), maxWait.toMillis()));
+            }
+            // 配额用完时不占用令牌；真正扣减在排队结束、确定放行之后
+            if (consumeQuota && dailyQuota > 0 && !quotaStore.hasRemaining(name, dailyQuota)) {
+                rejected.increment();
+                throw new RateLimitExceededException(name + " 今日调用配额已用完，请勿重试");
+            }
+            if (requestBucket != null) {
+                requestBucket.take(1);
+            }
+            if (reserved > 0) {
+                tokenBucket.take(reserved);
+            }
+        }
+        if (waitNanos > 0) {
+            waiting.incrementAndGet();
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                release(reserved);
+                rejected.increment();
+                throw new RateLimitExceededException(name + " 排队等待被中断");
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+        // 排队期间其他调用可能已用完配额
+        if (consumeQuota && dailyQuota > 0 && !quotaStore.tryConsume(name, dailyQuota)) {
+            release(reserved);
+            rejected.increment();
+            throw new RateLimitExceededException(name + " 今日调用配额已用完，请勿重试");
+        }
+        granted.increment();
+        long waitMs = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+        totalWaitMs.add(waitMs);
+        maxWaitMs.accumulateAndGet(waitMs, Math::max);
+        return reserved;
+    }
+
+    /**
+     * 未放行的调用退还预约的 token；请求令牌已按预约时间排好队，不退还
+     */
+    private synchronized void release(long reserved) {
+        if (reserved > 0) {
+            tokenBucket.give(reserved);
+        }
+    }
+
+    /**
+     * 按实际用量修正预约的 token
+     */
+    public synchronized void reconcile(long reservedTokens, long actualTokens) {
+        if (tokenBucket == null || reservedTokens == actualTokens) {
+            return;
+        }
+        if (actualTokens > reservedTokens) {
+            tokenBucket.take(actualTokens - reservedTokens);
+        } else {
+            tokenBucket.give(reservedTokens - actualTokens);
+        }
+    }
+
+    /**
+     * 上游返回限流时暂停放行一段时间
+     */
+    public synchronized void penalize(Duration duration) {
+        if (requestBucket != null) {
+            requestBucket.refill(System.nanoTime());
+            requestBucket.drainFor(duration);
+        }
+        log.warn("Upstream {} throttled, backing off {} ms", name, duration.toMillis());
+    }
+
+    /**
+     * 上游返回配额耗尽，当日不再放行
+     */
+    public void exhaustQuota() {
+        if (quotaStore != null) {
+            log.warn("Upstream {} reported daily quota exhausted", name);
+            quotaStore.exhaust(name);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized RateLimiterStats getStats() {
+        long now = System.nanoTime();
+        double requestUtilisation = 0;
+        double tokenUtilisation = 0;
+        if (requestBucket != null) {
+            requestBucket.refill(now);
+            requestUtilisation = requestBucket.utilisation();
+        }
+        if (tokenBucket != null) {
+            tokenBucket.refill(now);
+            tokenUtilisation = tokenBucket.utilisation();
+        }
+        long count = granted.sum();
+        return new RateLimiterStats(count, rejected.sum(), waiting.get(), count == 0 ? 0 : totalWaitMs.sum() / count,
+                maxWaitMs.get(), requestUtilisation, tokenUtilisation,
+                quotaStore == null ? 0 : quotaStore.used(name), dailyQuota);
+    }
+}
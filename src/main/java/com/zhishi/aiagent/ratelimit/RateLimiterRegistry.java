@@ -0,0 +1,70 @@
+package com.zhishi.aiagent.ratelimit;
+
+import com.zhishi.aiagent.constant.FileConstant;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上游限流器注册表，同一上游的所有调用方共享一个限流器
+ */
+@Component
+@Slf4j
+public class RateLimiterRegistry {
+
+    public static final String AMAP = "amap";
+    public static final String DASHSCOPE = "dashscope";
+
+    // 配额用量写入文件的间隔
+    private static final long QUOTA_FLUSH_SECONDS = 10;
+
+    private final Map<String, RateLimiter> limiters = new LinkedHashMap<>();
+
+    private final QuotaStore quotaStore;
+
+    private final Disposable quotaFlushTask;
+
+    public RateLimiterRegistry(@Value("${rate-limit.max-wait-seconds:30}") long maxWaitSeconds,
+                               @Value("${rate-limit.amap.qps:3}") double amapQps,
+                               @Value("${rate-limit.amap.daily-quota:5000}") long amapDailyQuota,
+                               @Value("${rate-limit.dashscope.rpm:60}") double dashscopeRpm,
+                               @Value("${rate-limit.dashscope.tpm:100000}") long dashscopeTpm,
+                               @Value("${rate-limit.dashscope.daily-quota:0}") long dashscopeDailyQuota) {
+        this.quotaStore = new QuotaStore(new File(FileConstant.FILE_SAVE_DIR + "/quota/usage.json"));
+        Duration maxWait = Duration.ofSeconds(maxWaitSeconds);
+        limiters.put(AMAP, new RateLimiter(AMAP, amapQps, Duration.ofSeconds(1), 0, amapDailyQuota, quotaStore, maxWait));
+        limiters.put(DASHSCOPE, new RateLimiter(DASHSCOPE, dashscopeRpm, Duration.ofMinutes(1), dashscopeTpm,
+                dashscopeDailyQuota, quotaStore, maxWait));
+        this.quotaFlushTask = Schedulers.parallel().schedulePeriodically(quotaStore::flush,
+                QUOTA_FLUSH_SECONDS, QUOTA_FLUSH_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public RateLimiter get(String name) {
+        RateLimiter limiter = limiters.get(name);
+        return limiter != null ? limiter : RateLimiter.unlimited(name);
+    }
+
+    /**
+     * 各上游的限流统计
+     */
+    public Map<String, RateLimiterStats> getStats() {
+        Map<String, RateLimiterStats> stats = new LinkedHashMap<>();
+        limiters.forEach((name, limiter) -> stats.put(name, limiter.getStats()));
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        quotaFlushTask.dispose();
+        quotaStore.flush();
+    }
+}
@@ -0,0 +1,18 @@
+package com.zhishi.aiagent.ratelimit;
+
+/**
+ * 限流器的统计快照
+ *
+ * @param granted            放行的调用数
+ * @param rejected           排队超时或配额耗尽被拒绝的调用数
+ * @param waiting            当前排队等待的调用数
+ * @param avgWaitMs          放行调用的平均等待时间
+ * @param maxWaitMs          最长等待时间
+ * @param requestUtilisation 请求令牌桶使用率，超过 1 表示存在排队
+ * @param tokenUtilisation   token 令牌桶使用率，未限制 token 时为 0
+ * @param quotaUsed          当日已用配额
+ * @param quotaLimit         每日配额，0 表示不限
+ */
+public record RateLimiterStats(long granted, long rejected, int waiting, long avgWaitMs, long maxWaitMs,
+                               double requestUtilisation, double tokenUtilisation, long quotaUsed, long quotaLimit) {
+}
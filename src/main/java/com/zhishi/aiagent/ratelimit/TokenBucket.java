@@ -0,0 +1,68 @@
+package com.zhishi.aiagent.ratelimit;
+
+import java.time.Duration;
+
+/**
+ * 令牌桶，余额允许为负：预约超出余额的令牌时记为欠账，后来者需要等待欠账还清，从而按到达顺序排队
+ * 非线程安全，由 RateLimiter 加锁访问
+ */
+class TokenBucket {
+
+    private final double capacity;
+
+    // 每纳秒补充的令牌数
+    private final double refillPerNano;
+
+    private double available;
+
+    private long lastRefillNanos;
+
+    /**
+     * @param capacity 每个周期补充的令牌数，同时是允许的突发上限
+     * @param period   补充周期
+     */
+    TokenBucket(double capacity, Duration period, long nowNanos) {
+        this.capacity = capacity;
+        this.refillPerNano = capacity / period.toNanos();
+        this.available = capacity;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    double capacity() {
+        return capacity;
+    }
+
+    void refill(long nowNanos) {
+        available = Math.min(capacity, available + (nowNanos - lastRefillNanos) * refillPerNano);
+        lastRefillNanos = nowNanos;
+    }
+
+    /**
+     * 获得指定数量令牌需要等待的时间
+     */
+    long waitNanos(double permits) {
+        return available >= permits ? 0 : (long) Math.ceil((permits - available) / refillPerNano);
+    }
+
+    void take(double permits) {
+        available -= permits;
+    }
+
+    void give(double permits) {
+        available = Math.min(capacity, available + permits);
+    }
+
+    /**
+     * 清空令牌并欠账一段时间，上游返回限流时让排队的调用一起退避
+     */
+    void drainFor(Duration duration) {
+        available = Math.min(available, 0) - duration.toNanos() * refillPerNano;
+    }
+
+    /**
+     * 使用率，超过 1 表示存在排队等待的欠账
+     */
+    double utilisation() {
+        return 1 - available / capacity;
+    }
+}
@@ -0,0 +1,92 @@
+package com.zhishi.aiagent.render;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译模板
+ * 启动时把模板中的 {{name}} 占位符切分为字面量片段和参数片段，渲染时只做顺序拼接，不再扫描模板文本
+ */
+public class CompiledTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    // 偶数下标为字面量，奇数下标为占位符名称
+    private final String[] parts;
+
+    private final int literalLength;
+
+    private CompiledTemplate(String[] parts, int literalLength) {
+        this.parts = parts;
+        this.literalLength = literalLength;
+    }
+
+    /**
+     * 编译模板
+     *
+     * @param template 模板文本
+     * @return 编译后的模板
+     */
+    public static CompiledTemplate compile(String template) {
+        List<String> parts = new ArrayList<>();
+        int literalLength = 0;
+        int from = 0;
+        while (true) {
+            int open = template.indexOf(OPEN, from);
+            int close = open < 0 ? -1 : template.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                String literal = template.substring(from);
+                parts.add(literal);
+                literalLength += literal.length();
+                break;
+            }
+            String literal = template.substring(from, open);
+            parts.add(literal);
+            literalLength += literal.length();
+            parts.add(template.substring(open + OPEN.length(), close).strip());
+            from = close + CLOSE.length();
+        }
+        return new CompiledTemplate(parts.toArray(String[]::new), literalLength);
+    }
+
+    /**
+     * 渲染模板，未提供的参数输出为空
+     *
+     * @param params 参数（值应已按输出位置完成转义）
+     * @return 渲染结果
+     */
+    public String render(Map<String, ? extends CharSequence> params) {
+        int capacity = literalLength;
+        for (CharSequence value : params.values()) {
+            capacity += value == null ? 0 : value.length();
+        }
+        StringBuilder out = new StringBuilder(capacity);
+        render(params, out);
+        return out.toString();
+    }
+
+    /**
+     * 渲染模板到指定缓冲区
+     */
+    public void render(Map<String, ? extends CharSequence> params, StringBuilder out) {
+        for (int i = 0; i < parts.length; i++) {
+            if (i % 2 == 0) {
+                out.append(parts[i]);
+            } else {
+                CharSequence value = params.get(parts[i]);
+                if (value != null) {
+                    out.append(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * 模板中字面量部分的总长度，可用于预估输出大小
+     */
+    public int getLiteralLength() {
+        return literalLength;
+    }
+}
@@ -0,0 +1,209 @@
+package com.zhishi.aiagent.render;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 地图片段渲染
+ * 地图 HTML 和脚本模板在类加载时编译一次；地点列表直接写入预估大小的缓冲区，
+ * 标记数据一次遍历按类型分组，以紧凑 JSON 嵌入脚本，由页面脚本还原，样式集中在一个 style 块中，不再逐项内联
+ */
+public final class MapFragmentRenderer {
+
+    private static final CompiledTemplate HTML_TEMPLATE = load("templates/map/MapFragment.html");
+    private static final CompiledTemplate SCRIPT_TEMPLATE = load("templates/map/MapScript.js");
+
+    // 单个地点在列表和标记数据中的预估长度，用于预分配缓冲区
+    private static final int ITEM_ESTIMATE = 256;
+    private static final int MARKER_ESTIMATE = 160;
+
+    // 列表中描述的最大长度
+    private static final int MAX_DESCRIPTION_CHARS = 80;
+
+    private static final String OTHER = "other";
+
+    private MapFragmentRenderer() {
+    }
+
+    /**
+     * 解析地点 JSON 数组，跳过缺少坐标或坐标无法解析的地点
+     *
+     * @param locationsJson 格式：[{"name","type","time","description","lng","lat","address"},...]
+     */
+    public static List<MapLocation> parse(String locationsJson) {
+        JSONArray array = JSONUtil.parseArray(locationsJson);
+        List<MapLocation> locations = new ArrayList<>(array.size());
+        for (int i = 0; i < array.size(); i++) {
+            JSONObject loc = array.getJSONObject(i);
+            if (loc == null) {
+                continue;
+            }
+            String lng = loc.getStr("lng");
+            String lat = loc.getStr("lat");
+            if (!NumberUtil.isNumber(lng) || !NumberUtil.isNumber(lat)) {
+                continue;
+            }
+            locations.add(new MapLocation(loc.getStr("name", ""), loc.getStr("type", OTHER), loc.getStr("time", ""),
+                    loc.getStr("description", ""), loc.getStr("address", ""), Double.parseDouble(lng), Double.parseDouble(lat)));
+        }
+        return locations;
+    }
+
+    /**
+     * 渲染地图 section：地图容器、地点列表和样式
+     */
+    public static String renderHtml(List<MapLocation> locations) {
+        StringBuilder items = new StringBuilder(locations.size() * ITEM_ESTIMATE);
+        for (int i = 0; i < locations.size(); i++) {
+            MapLocation loc = locations.get(i);
+            String description = StrUtil.nullToEmpty(loc.description());
+            if (description.length() > MAX_DESCRIPTION_CHARS) {
+                description = description.substring(0, MAX_DESCRIPTION_CHARS) + "...";
+            }
+            items.append("        <div class=\"location-item-embedded\" data-index=\"").append(i).append("\"><div class=\"loc-name\">")
+                    .append(iconOf(normalizeType(loc.type()))).append(' ');
+            appendHtml(items, loc.name());
+            items.append("</div><div class=\"loc-time\">");
+            appendHtml(items, loc.time());
+            items.append("</div><div class=\"loc-desc\">");
+            appendHtml(items, description);
+            items.append("</div></div>\n");
+        }
+        StringBuilder out = new StringBuilder(HTML_TEMPLATE.getLiteralLength() + items.length());
+        HTML_TEMPLATE.render(Map.of("items", items), out);
+        return out.toString();
+    }
+
+    /**
+     * 渲染初始化地图的脚本，地点数据按类型分组：{"attraction":[[列表索引,经度,纬度,名称,时间,描述,地址],...],...}
+     */
+    public static String renderScript(List<MapLocation> locations, String jsApiKey, String securityJsCode) {
+        Map<String, StringBuilder> groups = new LinkedHashMap<>();
+        for (int i = 0; i < locations.size(); i++) {
+            MapLocation loc = locations.get(i);
+            String type = normalizeType(loc.type());
+            StringBuilder group = groups.get(type);
+            if (group == null) {
+                group = new StringBuilder(locations.size() * MARKER_ESTIMATE);
+                groups.put(type, group);
+            } else {
+                group.append(',');
+            }
+            group.append('[').append(i).append(',').append(loc.lng()).append(',').append(loc.lat()).append(',');
+            appendJson(group, loc.name());
+            group.append(',');
+            appendJson(group, loc.time());
+            group.append(',');
+            appendJson(group, loc.description());
+            group.append(',');
+            appendJson(group, loc.address());
+            group.append(']');
+        }
+        int markersLength = 2;
+        for (StringBuilder group : groups.values()) {
+            markersLength += group.length() + 16;
+        }
+        StringBuilder markers = new StringBuilder(markersLength).append('{');
+        groups.forEach((type, group) -> {
+            if (markers.length() > 1) {
+                markers.append(',');
+            }
+            markers.append('"').append(type).append("\":[").append(group).append(']');
+        });
+        markers.append('}');
+
+        StringBuilder apiKey = new StringBuilder();
+        appendJson(apiKey, jsApiKey);
+        StringBuilder securityCode = new StringBuilder();
+        appendJson(securityCode, securityJsCode);
+        Map<String, CharSequence> params = new HashMap<>();
+        params.put("apiKey", apiKey);
+        params.put("securityJsCode", securityCode);
+        params.put("markers", markers);
+        params.put("count", String.valueOf(locations.size()));
+        StringBuilder out = new StringBuilder(SCRIPT_TEMPLATE.getLiteralLength() + markers.length() + apiKey.length() + securityCode.length() + 8);
+        SCRIPT_TEMPLATE.render(params, out);
+        return out.toString();
+    }
+
+    private static String normalizeType(String type) {
+        return switch (StrUtil.nullToEmpty(type)) {
+            case "attraction", "restaurant", "hotel" -> type;
+            default -> OTHER;
+        };
+    }
+
+    /**
+     * 根据类型获取图标HTML
+     */
+    private static String iconOf(String type) {
+        return switch (type) {
+            case "restaurant" -> "<i class=\"fas fa-utensils\"></i>";
+            case "hotel" -> "<i class=\"fas fa-hotel\"></i>";
+            case "attraction" -> "<i class=\"fas fa-monument\"></i>";
+            default -> "<i class=\"fas fa-map-marker-alt\"></i>";
+        };
+    }
+
+    /**
+     * 转义 HTML 特殊字符并写入缓冲区
+     */
+    static void appendHtml(StringBuilder out, String text) {
+        if (text == null) {
+            return;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&' -> out.append("&amp;");
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+
+    /**
+     * 写入 JSON 字符串字面量；尖括号、& 和行分隔符同样转义，嵌入 script 标签时不会提前结束脚本
+     */
+    static void appendJson(StringBuilder out, String text) {
+        out.append('"');
+        if (text != null) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '"' -> out.append("\\\"");
+                    case '\\' -> out.append("\\\\");
+                    case '\n' -> out.append("\\n");
+                    case '\r' -> out.append("\\r");
+                    case '\t' -> out.append("\\t");
+                    default -> {
+                        if (c < 0x20 || c == '<' || c == '>' || c == '&' || c == '\u2028' || c == '\u2029') {
+                            out.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            out.append(c);
+                        }
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    private static CompiledTemplate load(String path) {
+        return CompiledTemplate.compile(ResourceUtil.readStr(path, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,9 @@
+package com.zhishi.aiagent.render;
+
+/**
+ * 地图上的一个地点
+ *
+ * @param type 地点类型：attraction | restaurant | hotel，其他值按 other 处理
+ */
+public record MapLocation(String name, String type, String time, String description, String address, double lng, double lat) {
+}
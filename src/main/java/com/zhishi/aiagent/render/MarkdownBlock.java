@@ -0,0 +1,58 @@
+package com.zhishi.aiagent.render;
+
+import java.util.List;
+
+/**
+ * Markdown 块级元素
+ *
+ * @param type  块类型
+ * @param level 标题级别（1-6）或列表缩进层级（从 0 开始）
+ * @param text  文本内容（图片为替代文本）
+ * @param url   图片地址，仅 IMAGE 类型有值
+ * @param rows  表格行，仅 TABLE 类型有值，第一行为表头
+ */
+public record MarkdownBlock(Type type, int level, String text, String url, List<List<String>> rows) {
+
+    public enum Type {
+        HEADING,
+        PARAGRAPH,
+        LIST_ITEM,
+        ORDERED_LIST_ITEM,
+        TABLE,
+        IMAGE,
+        CODE,
+        RULE
+    }
+
+    public static MarkdownBlock heading(int level, String text) {
+        return new MarkdownBlock(Type.HEADING, level, text, null, null);
+    }
+
+    public static MarkdownBlock paragraph(String text) {
+        return new MarkdownBlock(Type.PARAGRAPH, 0, text, null, null);
+    }
+
+    public static MarkdownBlock listItem(int level, boolean ordered, String text) {
+        return new MarkdownBlock(ordered ? Type.ORDERED_LIST_ITEM : Type.LIST_ITEM, level, text, null, null);
+    }
+
+    public static MarkdownBlock table(List<List<String>> rows) {
+        return new MarkdownBlock(Type.TABLE, 0, null, null, rows);
+    }
+
+    public static MarkdownBlock image(String alt, String url) {
+        return new MarkdownBlock(Type.IMAGE, 0, alt, url, null);
+    }
+
+    public static MarkdownBlock code(String text) {
+        return new MarkdownBlock(Type.CODE, 0, text, null, null);
+    }
+
+    public static MarkdownBlock rule() {
+        return new MarkdownBlock(Type.RULE, 0, null, null, null);
+    }
+
+    public boolean isListItem() {
+        return type == Type.LIST_ITEM || type == Type.ORDERED_LIST_ITEM;
+    }
+}
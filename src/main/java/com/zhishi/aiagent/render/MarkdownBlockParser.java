@@ -0,0 +1,160 @@
+package com.zhishi.aiagent.render;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 增量 Markdown 块解析器
+ * 逐行输入，每识别出一个完整的块就立即回调，无需等待整篇文档，适合边解析边渲染
+ * 只覆盖大模型攻略中常见的语法：标题、段落、列表、表格、图片、代码块、分隔线
+ */
+public class MarkdownBlockParser {
+
+    private static final Pattern HEADING = Pattern.compile("^(#{1,6})\\s+(.*?)\\s*#*\\s*$");
+    private static final Pattern LIST_ITEM = Pattern.compile("^(\\s*)([-*+]|\\d+[.)])\\s+(.*)$");
+    private static final Pattern IMAGE = Pattern.compile("^!\\[(.*?)]\\((\\S+?)(?:\\s+\"[^\"]*\")?\\)$");
+    private static final Pattern RULE = Pattern.compile("^\\s*([-*_])(\\s*\\1){2,}\\s*$");
+    private static final Pattern TABLE_SEPARATOR = Pattern.compile("^\\|?\\s*:?-{2,}:?\\s*(\\|\\s*:?-{2,}:?\\s*)*\\|?$");
+
+    private final Consumer<MarkdownBlock> consumer;
+
+    private final StringBuilder paragraph = new StringBuilder();
+    private final List<List<String>> tableRows = new ArrayList<>();
+    private StringBuilder code;
+
+    public MarkdownBlockParser(Consumer<MarkdownBlock> consumer) {
+        this.consumer = consumer;
+    }
+
+    /**
+     * 一次性解析整篇 Markdown
+     *
+     * @param markdown Markdown 文本
+     * @return 块列表
+     */
+    public static List<MarkdownBlock> parse(String markdown) {
+        List<MarkdownBlock> blocks = new ArrayList<>();
+        MarkdownBlockParser parser = new MarkdownBlockParser(blocks::add);
+        if (markdown != null) {
+            markdown.lines().forEach(parser::accept);
+        }
+        parser.finish();
+        return blocks;
+    }
+
+    /**
+     * 输入一行文本
+     */
+    public void accept(String line) {
+        String trimmed = line.strip();
+        // 代码块
+        if (trimmed.startsWith("```")) {
+            if (code != null) {
+                consumer.accept(MarkdownBlock.code(code.toString()));
+                code = null;
+            } else {
+                flush();
+                String lang = trimmed.substring(3).strip();
+                // 模型常把整篇输出包在 ```markdown 中，这种围栏直接忽略
+                if (!lang.isEmpty() && !lang.equalsIgnoreCase("markdown") && !lang.equalsIgnoreCase("md")) {
+                    code = new StringBuilder();
+                }
+            }
+            return;
+        }
+        if (code != null) {
+            if (!code.isEmpty()) {
+                code.append('\n');
+            }
+            code.append(line);
+            return;
+        }
+        // 表格
+        if (trimmed.startsWith("|")) {
+            flushParagraph();
+            if (!TABLE_SEPARATOR.matcher(trimmed).matches()) {
+                tableRows.add(splitRow(trimmed));
+            }
+            return;
+        }
+        flushTable();
+        if (trimmed.isEmpty()) {
+            flushParagraph();
+            return;
+        }
+        Matcher matcher = HEADING.matcher(trimmed);
+        if (matcher.matches()) {
+            flushParagraph();
+            consumer.accept(MarkdownBlock.heading(matcher.group(1).length(), matcher.group(2)));
+            return;
+        }
+        if (RULE.matcher(trimmed).matches()) {
+            flushParagraph();
+            consumer.accept(MarkdownBlock.rule());
+            return;
+        }
+        matcher = LIST_ITEM.matcher(line);
+        if (matcher.matches()) {
+            flushParagraph();
+            int indent = matcher.group(1).replace("\t", "    ").length();
+            boolean ordered = Character.isDigit(matcher.group(2).charAt(0));
+            consumer.accept(MarkdownBlock.listItem(indent / 2, ordered, matcher.group(3).strip()));
+            return;
+        }
+        matcher = IMAGE.matcher(trimmed);
+        if (matcher.matches()) {
+            flushParagraph();
+            consumer.accept(MarkdownBlock.image(matcher.group(1), matcher.group(2)));
+            return;
+        }
+        if (trimmed.startsWith(">")) {
+            trimmed = trimmed.replaceFirst("^>+\\s*", "");
+        }
+        if (!paragraph.isEmpty()) {
+            paragraph.append('\n');
+        }
+        paragraph.append(trimmed);
+    }
+
+    /**
+     * 输入结束，输出缓存中尚未完成的块
+     */
+    public void finish() {
+        if (code != null) {
+            consumer.accept(MarkdownBlock.code(code.toString()));
+            code = null;
+        }
+        flush();
+    }
+
+    private void flush() {
+        flushParagraph();
+        flushTable();
+    }
+
+    private void flushParagraph() {
+        if (!paragraph.isEmpty()) {
+            consumer.accept(MarkdownBlock.paragraph(paragraph.toString()));
+            paragraph.setLength(0);
+        }
+    }
+
+    private void flushTable() {
+        if (!tableRows.isEmpty()) {
+            consumer.accept(MarkdownBlock.table(List.copyOf(tableRows)));
+            tableRows.clear();
+        }
+    }
+
+    private List<String> splitRow(String row) {
+        String content = row.substring(1);
+        if (content.endsWith("|")) {
+            content = content.substring(0, content.length() - 1);
+        }
+        return Arrays.stream(content.split("\\|", -1)).map(String::strip).toList();
+    }
+}
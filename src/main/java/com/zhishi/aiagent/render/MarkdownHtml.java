@@ -0,0 +1,141 @@
+package com.zhishi.aiagent.render;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Markdown 块转 HTML
+ */
+public final class MarkdownHtml {
+
+    private static final Pattern INLINE_IMAGE = Pattern.compile("!\\[([^\\]]*)]\\((https?://[^)\\s]+)\\)");
+    private static final Pattern LINK = Pattern.compile("\\[([^\\]]+)]\\((https?://[^)\\s]+)\\)");
+    private static final Pattern BOLD = Pattern.compile("\\*\\*(.+?)\\*\\*|__(.+?)__");
+    private static final Pattern ITALIC = Pattern.compile("(?<![*\\w])\\*(?!\\s)(.+?)(?<!\\s)\\*(?![*\\w])");
+    private static final Pattern CODE = Pattern.compile("`([^`]+)`");
+
+    private MarkdownHtml() {
+    }
+
+    /**
+     * 渲染一段 Markdown 文本
+     */
+    public static void render(String markdown, StringBuilder out) {
+        render(MarkdownBlockParser.parse(markdown), out);
+    }
+
+    /**
+     * 渲染块列表，连续的列表项合并为嵌套的 ul/ol
+     */
+    public static void render(List<MarkdownBlock> blocks, StringBuilder out) {
+        // 记录当前打开的列表标签，下标为缩进层级
+        String[] openLists = new String[16];
+        int depth = 0;
+        for (MarkdownBlock block : blocks) {
+            if (block.isListItem()) {
+                int level = Math.min(block.level(), openLists.length - 1);
+                String tag = block.type() == MarkdownBlock.Type.ORDERED_LIST_ITEM ? "ol" : "ul";
+                while (depth > level + 1) {
+                    out.append("</li></").append(openLists[--depth]).append('>');
+                }
+                if (depth == level + 1 && !tag.equals(openLists[level])) {
+                    out.append("</li></").append(openLists[--depth]).append('>');
+                }
+                if (depth == level + 1) {
+                    out.append("</li>");
+                } else {
+                    while (depth <= level) {
+                        openLists[depth++] = tag;
+                        out.append('<').append(tag).append('>');
+                    }
+                }
+                out.append("<li>").append(inline(block.text()));
+                continue;
+            }
+            while (depth > 0) {
+                out.append("</li></").append(openLists[--depth]).append('>');
+            }
+            appendBlock(block, out);
+        }
+        while (depth > 0) {
+            out.append("</li></").append(openLists[--depth]).append('>');
+        }
+    }
+
+    private static void appendBlock(MarkdownBlock block, StringBuilder out) {
+        switch (block.type()) {
+            case HEADING -> {
+                int level = Math.min(6, block.level() + 1);
+                out.append("<h").append(level).append('>').append(inline(block.text()))
+                        .append("</h").append(level).append(">\n");
+            }
+            case PARAGRAPH -> out.append("<p>").append(inline(block.text()).replace("\n", "<br>")).append("</p>\n");
+            case TABLE -> {
+                out.append("<div class=\"table-wrapper\"><table>");
+                List<List<String>> rows = block.rows();
+                for (int i = 0; i < rows.size(); i++) {
+                    String cell = i == 0 ? "th" : "td";
+                    out.append("<tr>");
+                    for (String value : rows.get(i)) {
+                        out.append('<').append(cell).append('>').append(inline(value))
+                                .append("</").append(cell).append('>');
+                    }
+                    out.append("</tr>");
+                }
+                out.append("</table></div>\n");
+            }
+            case IMAGE -> out.append("<p><img src=\"").append(escape(block.url())).append("\" alt=\"")
+                    .append(escape(block.text())).append("\" loading=\"lazy\"></p>\n");
+            case CODE -> out.append("<pre><code>").append(escape(block.text())).append("</code></pre>\n");
+            case RULE -> out.append("<hr>\n");
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * 行内元素：图片、链接、粗体、斜体、行内代码
+     */
+    public static String inline(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String html = escape(text);
+        html = CODE.matcher(html).replaceAll("<code>$1</code>");
+        html = INLINE_IMAGE.matcher(html).replaceAll("<img src=\"$2\" alt=\"$1\" loading=\"lazy\">");
+        html = LINK.matcher(html).replaceAll("<a href=\"$2\" target=\"_blank\" rel=\"noopener\">$1</a>");
+        Matcher bold = BOLD.matcher(html);
+        html = bold.replaceAll(match -> "<strong>" + Matcher.quoteReplacement(
+                match.group(1) != null ? match.group(1) : match.group(2)) + "</strong>");
+        html = ITALIC.matcher(html).replaceAll("<em>$1</em>");
+        return html;
+    }
+
+    /**
+     * 去掉行内 Markdown 标记，得到纯文本
+     */
+    public static String plain(String text) {
+        if (text == null) {
+            return "";
+        }
+        String plain = INLINE_IMAGE.matcher(text).replaceAll("$1");
+        plain = LINK.matcher(plain).replaceAll("$1");
+        plain = BOLD.matcher(plain).replaceAll(match -> Matcher.quoteReplacement(
+                match.group(1) != null ? match.group(1) : match.group(2)));
+        plain = CODE.matcher(plain).replaceAll("$1");
+        return plain.replace("*", "").strip();
+    }
+
+    /**
+     * 转义HTML特殊字符
+     */
+    public static String escape(String str) {
+        if (str == null) return "";
+        return str.replace("&", "&amp;")
+                .replace("<", "&lt;")
+                .replace(">", "&gt;")
+                .replace("\"", "&quot;")
+                .replace("'", "&#39;");
+    }
+}
@@ -0,0 +1,262 @@
+package com.zhishi.aiagent.render;
+
+import cn.hutool.http.HttpRequest;
+import cn.hutool.http.HttpResponse;
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.FontProgramFactory;
+import com.itextpdf.io.image.ImageDataFactory;
+import com.itextpdf.kernel.colors.ColorConstants;
+import com.itextpdf.kernel.colors.DeviceRgb;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.WriterProperties;
+import com.itextpdf.kernel.pdf.canvas.draw.SolidLine;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.element.Cell;
+import com.itextpdf.layout.element.IBlockElement;
+import com.itextpdf.layout.element.Image;
+import com.itextpdf.layout.element.LineSeparator;
+import com.itextpdf.layout.element.Paragraph;
+import com.itextpdf.layout.element.Table;
+import com.itextpdf.layout.element.Text;
+import com.itextpdf.layout.properties.UnitValue;
+import com.zhishi.aiagent.constant.FileConstant;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Markdown 流式写入 PDF
+ * 每个 Markdown 块解析完成后立即转换为 iText 元素加入文档，文档使用 immediateFlush 模式，
+ * 已排版完成的页面随即写出并释放，内存占用与文档总长度无关
+ * 非线程安全，每个文档使用一个实例
+ */
+@Slf4j
+public class PdfMarkdownWriter implements Consumer<MarkdownBlock>, Closeable {
+
+    // 内置中文字体
+    private static final String CJK_FONT = "STSongStd-Light";
+    private static final String CJK_ENCODING = "UniGB-UCS2-H";
+
+    private static final float[] HEADING_SIZES = {20, 17, 15, 13, 12, 12};
+    static final int MAX_IMAGE_BYTES = 10 * 1024 * 1024;
+    private static final int IMAGE_TIMEOUT_MS = 10000;
+
+    private static final Pattern INLINE = Pattern.compile("\\*\\*(.+?)\\*\\*|!?\\[([^\\]]*)]\\(([^)\\s]+)\\)");
+
+    // 字体程序解析开销较大且与文档无关，全局只加载一次；PdfFont 绑定文档，需每个文档单独创建
+    private static volatile FontProgram cjkFontProgram;
+
+    private final Document document;
+    private final MarkdownBlockParser parser;
+
+    // 本地图片只允许来自该目录
+    private final Path imageRoot;
+
+    // 各缩进层级的有序列表序号
+    private final int[] orderedCounters = new int[16];
+
+    public PdfMarkdownWriter(String filePath) throws IOException {
+        this(filePath, Path.of(FileConstant.FILE_SAVE_DIR));
+    }
+
+    PdfMarkdownWriter(String filePath, Path imageRoot) throws IOException {
+        this.imageRoot = imageRoot;
+        PdfDocument pdf = new PdfDocument(new PdfWriter(filePath, new WriterProperties().setFullCompressionMode(true)));
+        this.document = new Document(pdf, PageSize.A4, true);
+        PdfFont font = PdfFontFactory.createFont(cjkFontProgram(), CJK_ENCODING);
+        this.document.setFont(font);
+        this.parser = new MarkdownBlockParser(this);
+    }
+
+    private static FontProgram cjkFontProgram() throws IOException {
+        FontProgram program = cjkFontProgram;
+        if (program == null) {
+            synchronized (PdfMarkdownWriter.class) {
+                program = cjkFontProgram;
+                if (program == null) {
+                    program = FontProgramFactory.createFont(CJK_FONT);
+                    cjkFontProgram = program;
+                }
+            }
+        }
+        return program;
+    }
+
+    /**
+     * 写入一行 Markdown
+     */
+    public void writeLine(String line) {
+        parser.accept(line);
+    }
+
+    /**
+     * 写入一段 Markdown
+     */
+    public void write(String markdown) {
+        markdown.lines().forEach(parser::accept);
+    }
+
+    @Override
+    public void accept(MarkdownBlock block) {
+        if (!block.isListItem()) {
+            Arrays.fill(orderedCounters, 0);
+        }
+        switch (block.type()) {
+            case HEADING -> document.add(paragraph(block.text())
+                    .setFontSize(HEADING_SIZES[Math.min(block.level(), HEADING_SIZES.length) - 1])
+                    .simulateBold()
+                    .setMarginTop(block.level() <= 2 ? 14 : 8));
+            case PARAGRAPH -> document.add(paragraph(block.text()));
+            case LIST_ITEM, ORDERED_LIST_ITEM -> {
+                int level = Math.min(block.level(), orderedCounters.length - 1);
+                // 进入更浅层级时重置更深层级的序号
+                Arrays.fill(orderedCounters, level + 1, orderedCounters.length, 0);
+                String marker = block.type() == MarkdownBlock.Type.ORDERED_LIST_ITEM
+                        ? ++orderedCounters[level] + ". " : "• ";
+                document.add(paragraph(marker, block.text())
+                        .setMarginLeft(14 * (level + 1))
+                        .setMarginTop(1).setMarginBottom(1));
+            }
+            case TABLE -> document.add(table(block.rows()));
+            case IMAGE -> document.add(image(block));
+            case CODE -> document.add(new Paragraph(block.text())
+                    .setFontSize(9)
+                    .setBackgroundColor(new DeviceRgb(0xF4, 0xF6, 0xF8))
+                    .setPadding(6));
+            case RULE -> document.add(new LineSeparator(new SolidLine(0.5f)).setMarginTop(6).setMarginBottom(6));
+        }
+    }
+
+    /**
+     * 解析行内粗体和链接
+     */
+    private Paragraph paragraph(String markdown) {
+        return paragraph(null, markdown);
+    }
+
+    private Paragraph paragraph(String prefix, String markdown) {
+        Paragraph paragraph = new Paragraph().setFontSize(11).setMultipliedLeading(1.4f);
+        if (prefix != null) {
+            paragraph.add(new Text(prefix));
+        }
+        Matcher matcher = INLINE.matcher(markdown);
+        int last = 0;
+        while (matcher.find()) {
+            if (matcher.start() > last) {
+                paragraph.add(new Text(markdown.substring(last, matcher.start())));
+            }
+            if (matcher.group(1) != null) {
+                paragraph.add(new Text(matcher.group(1)).simulateBold());
+            } else {
+                String label = matcher.group(2).isEmpty() ? matcher.group(3) : matcher.group(2);
+                paragraph.add(new Text(label).setFontColor(ColorConstants.BLUE).setUnderline());
+            }
+            last = matcher.end();
+        }
+        if (last < markdown.length()) {
+            paragraph.add(new Text(markdown.substring(last)));
+        }
+        return paragraph;
+    }
+
+    private Table table(List<List<String>> rows) {
+        int columns = rows.stream().mapToInt(List::size).max().orElse(1);
+        Table table = new Table(UnitValue.createPercentArray(columns)).useAllAvailableWidth().setMarginTop(4).setMarginBottom(4);
+        for (int i = 0; i < rows.size(); i++) {
+            List<String> row = rows.get(i);
+            for (int j = 0; j < columns; j++) {
+                Cell cell = new Cell().add(paragraph(j < row.size() ? row.get(j) : "").setFontSize(10));
+                if (i == 0) {
+                    table.addHeaderCell(cell.setBackgroundColor(new DeviceRgb(0xF1, 0xF4, 0xF8)));
+                } else {
+                    table.addCell(cell);
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * 图片支持 http(s) 地址和文件保存目录下的本地文件，加载失败时以文字占位
+     */
+    private IBlockElement image(MarkdownBlock block) {
+        try {
+            Image image = new Image(ImageDataFactory.create(loadImage(block.url())));
+            image.setAutoScaleWidth(true);
+            return new Paragraph().add(image);
+        } catch (Exception e) {
+            log.warn("Failed to embed image {}: {}", block.url(), e.getMessage());
+            return new Paragraph("[图片] " + block.text() + " " + block.url()).setFontSize(9).setFontColor(ColorConstants.GRAY);
+        }
+    }
+
+    /**
+     * 读取图片，超过 {@link #MAX_IMAGE_BYTES} 时在读完之前放弃
+     */
+    byte[] loadImage(String url) throws IOException {
+        if (url.startsWith("http://") || url.startsWith("https://")) {
+            try (HttpResponse response = HttpRequest.get(url).timeout(IMAGE_TIMEOUT_MS).executeAsync()) {
+                if (!response.isOk()) {
+                    throw new IOException("HTTP " + response.getStatus());
+                }
+                long length = response.contentLength();
+                if (length > MAX_IMAGE_BYTES) {
+                    throw new IOException("image too large: " + length + " bytes");
+                }
+                return readBounded(response.bodyStream(), MAX_IMAGE_BYTES);
+            }
+        }
+        // 按路径组件比较，符号链接也解析到真实位置
+        Path root = imageRoot.toRealPath();
+        Path file = root.resolve(url).normalize().toRealPath();
+        if (!file.startsWith(root)) {
+            throw new IOException("image path outside of " + imageRoot);
+        }
+        long size = Files.size(file);
+        if (size > MAX_IMAGE_BYTES) {
+            throw new IOException("image too large: " + size + " bytes");
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            return readBounded(in, MAX_IMAGE_BYTES);
+        }
+    }
+
+    /**
+     * 最多读取 limit 字节，超出时立即失败，不再继续读取
+     */
+    static byte[] readBounded(InputStream in, int limit) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            if (out.size() + read > limit) {
+                throw new IOException("image larger than " + limit + " bytes");
+            }
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 输出剩余的块并关闭文档
+     */
+    @Override
+    public void close() {
+        parser.finish();
+        document.close();
+    }
+}
@@ -0,0 +1,160 @@
+package com.zhishi.aiagent.render;
+
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.util.StrUtil;
+import com.zhishi.aiagent.itinerary.Itinerary;
+import com.zhishi.aiagent.itinerary.ItineraryDay;
+import com.zhishi.aiagent.itinerary.ItinerarySection;
+import com.zhishi.aiagent.itinerary.ItinerarySlot;
+import com.zhishi.aiagent.service.MapService;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 旅行攻略 HTML 渲染器
+ * 基于预编译的页面模板直接渲染结构化行程，替代让大模型逐字生成 HTML
+ */
+@Component
+public class TravelHtmlRenderer {
+
+    private final CompiledTemplate pageTemplate;
+
+    public TravelHtmlRenderer(ResourceLoader resourceLoader) {
+        try (InputStream in = resourceLoader.getResource("classpath:templates/TravelPlanPage.html").getInputStream()) {
+            this.pageTemplate = CompiledTemplate.compile(IoUtil.read(in, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load travel page template", e);
+        }
+    }
+
+    /**
+     * 渲染完整的 HTML 页面
+     *
+     * @param itinerary   结构化行程
+     * @param mapFragment 地图片段，可为 null
+     * @return HTML 页面
+     */
+    public String render(Itinerary itinerary, MapService.MapFragment mapFragment) {
+        String destination = StrUtil.nullToEmpty(itinerary.getDestination());
+        String title = StrUtil.blankToDefault(itinerary.getTitle(), destination + "旅游规划");
+
+        StringBuilder overview = new StringBuilder();
+        if (StrUtil.isNotBlank(itinerary.getOverview())) {
+            appendSection(overview, "fa-compass", "旅行概览", itinerary.getOverview());
+        }
+
+        StringBuilder days = new StringBuilder(itinerary.getDays().size() * 1024);
+        for (ItineraryDay day : itinerary.getDays()) {
+            appendDay(days, day);
+        }
+
+        StringBuilder sections = new StringBuilder();
+        for (ItinerarySection section : itinerary.getSections()) {
+            appendSection(sections, iconOf(section.getTitle()), MarkdownHtml.escape(section.getTitle()), section.getContent());
+        }
+
+        if (itinerary.getTotalCost() != null && itinerary.getTotalCost() > 0) {
+            appendSection(sections, "fa-wallet", "总预估花费", "**" + formatCost(itinerary.getTotalCost()) + "**");
+        }
+
+        Map<String, CharSequence> params = new HashMap<>();
+        params.put("title", MarkdownHtml.escape(title));
+        params.put("destination", MarkdownHtml.escape(destination));
+        params.put("dayCount", StrUtil.isNotBlank(itinerary.getTravelDates())
+                ? MarkdownHtml.escape(itinerary.getTravelDates()) : itinerary.getDays().size() + " 天行程");
+        params.put("overview", overview);
+        params.put("days", days);
+        params.put("sections", sections);
+        params.put("generatedTime", DateUtil.now());
+        if (mapFragment != null) {
+            params.put("mapSection", mapFragment.html());
+            params.put("mapScript", "<script>\n" + mapFragment.script() + "</script>\n");
+        }
+        return pageTemplate.render(params);
+    }
+
+    private void appendDay(StringBuilder out, ItineraryDay day) {
+        out.append("        <div class=\"day\">\n");
+        out.append("            <h3><i class=\"fas fa-calendar-day\"></i> ").append(MarkdownHtml.escape(day.getTitle())).append("</h3>\n");
+        for (ItinerarySlot slot : day.getSlots()) {
+            String type = slot.getPoi() == null ? null : slot.getPoi().getType();
+            out.append("            <div class=\"activity ").append(MarkdownHtml.escape(StrUtil.blankToDefault(type, "attraction"))).append("\">\n");
+            out.append("                <div class=\"activity-time\">").append(MarkdownHtml.escape(slot.getTime())).append("</div>\n");
+            out.append("                <div>\n");
+            out.append("                    <div class=\"activity-title\">").append(MarkdownHtml.inline(slot.getTitle())).append("</div>\n");
+            if (StrUtil.isNotBlank(slot.getDetails())) {
+                out.append("                    <div class=\"activity-details\">").append(MarkdownHtml.inline(slot.getDetails())).append("</div>\n");
+            }
+            if (slot.getPoi() != null && StrUtil.isNotBlank(slot.getPoi().getAddress())) {
+                out.append("                    <div class=\"activity-details\"><i class=\"fas fa-map-marker-alt\"></i> ")
+                        .append(MarkdownHtml.escape(slot.getPoi().getAddress())).append("</div>\n");
+            }
+            if (StrUtil.isNotBlank(slot.getTransport())) {
+                out.append("                    <div class=\"activity-details\"><i class=\"fas fa-bus\"></i> ")
+                        .append(MarkdownHtml.inline(slot.getTransport())).append("</div>\n");
+            }
+            if (slot.getCost() != null && slot.getCost() > 0) {
+                out.append("                    <div class=\"activity-details\"><i class=\"fas fa-yen-sign\"></i> ")
+                        .append(formatCost(slot.getCost())).append("</div>\n");
+            }
+            out.append("                </div>\n");
+            out.append("            </div>\n");
+        }
+        if (day.getCost() != null && day.getCost() > 0) {
+            out.append("            <div class=\"day-notes\"><strong>当日预估花费：</strong>").append(formatCost(day.getCost())).append("</div>\n");
+        }
+        if (StrUtil.isNotBlank(day.getNotes())) {
+            out.append("            <div class=\"day-notes\">\n");
+            MarkdownHtml.render(day.getNotes(), out);
+            out.append("            </div>\n");
+        }
+        out.append("        </div>\n");
+    }
+
+    private void appendSection(StringBuilder out, String icon, String title, String markdown) {
+        out.append("    <div class=\"section\">\n");
+        out.append("        <h2 class=\"section-title\"><i class=\"fas ").append(icon).append("\"></i> ").append(title).append("</h2>\n");
+        MarkdownHtml.render(markdown, out);
+        out.append("    </div>\n");
+    }
+
+    private String formatCost(Double cost) {
+        return "￥" + (cost % 1 == 0 ? String.valueOf(cost.longValue()) : String.format("%.2f", cost)) + "（参考价）";
+    }
+
+    /**
+     * 根据章节标题选择图标
+     */
+    private String iconOf(String title) {
+        if (title == null) {
+            return "fa-info-circle";
+        }
+        if (title.contains("天气") || title.contains("穿衣")) {
+            return "fa-cloud-sun";
+        }
+        if (title.contains("交通")) {
+            return "fa-bus";
+        }
+        if (title.contains("住宿") || title.contains("酒店")) {
+            return "fa-hotel";
+        }
+        if (title.contains("花费") || title.contains("预算") || title.contains("费用")) {
+            return "fa-wallet";
+        }
+        if (title.contains("美食") || title.contains("餐")) {
+            return "fa-utensils";
+        }
+        if (title.contains("注意") || title.contains("提示") || title.contains("清单")) {
+            return "fa-exclamation-circle";
+        }
+        return "fa-info-circle";
+    }
+}
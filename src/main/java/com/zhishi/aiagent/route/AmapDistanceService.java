@@ -0,0 +1,50 @@
+package com.zhishi.aiagent.route;
+
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.zhishi.aiagent.tools.AmapAPITool;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 基于高德距离测量接口的路网距离，一次请求得到一列（多个起点到同一终点）
+ */
+@Slf4j
+public class AmapDistanceService implements DistanceService {
+
+    private final AmapAPITool amapAPITool;
+
+    public AmapDistanceService(AmapAPITool amapAPITool) {
+        this.amapAPITool = amapAPITool;
+    }
+
+    @Override
+    public Leg[] toDestination(List<RouteStop> origins, RouteStop destination, TravelMode mode) {
+        Leg[] legs = new Leg[origins.size()];
+        try {
+            String origin = origins.stream().map(RouteStop::location).collect(Collectors.joining("|"));
+            JSONObject response = JSONUtil.parseObj(amapAPITool.distance(origin, destination.location(), mode.getAmapType()));
+            if (!"1".equals(response.getStr("status"))) {
+                log.debug("Amap distance failed: {}", response.getStr("info"));
+                return legs;
+            }
+            JSONArray results = response.getJSONArray("results");
+            for (int i = 0; results != null && i < results.size(); i++) {
+                JSONObject result = results.getJSONObject(i);
+                // origin_id 从 1 开始
+                int index = result.getInt("origin_id", 0) - 1;
+                Double meters = result.getDouble("distance");
+                Double seconds = result.getDouble("duration");
+                if (index >= 0 && index < legs.length && meters != null && seconds != null) {
+                    legs[index] = new Leg(meters, seconds);
+                }
+            }
+        } catch (Exception e) {
+            log.debug("Amap distance error: {}", e.getMessage());
+        }
+        return legs;
+    }
+}
@@ -0,0 +1,81 @@
+package com.zhishi.aiagent.route;
+
+import java.util.List;
+
+/**
+ * 地点之间的距离和耗时矩阵，初始为本地估算，可逐项替换为实际路网数据
+ */
+public class DistanceMatrix {
+
+    // 地球平均半径，米
+    private static final double EARTH_RADIUS = 6371008.8;
+
+    private final int size;
+
+    private final double[][] meters;
+
+    private final double[][] seconds;
+
+    // 已替换为实际路网数据的有向点对数
+    private int refined;
+
+    private DistanceMatrix(int size) {
+        this.size = size;
+        this.meters = new double[size][size];
+        this.seconds = new double[size][size];
+    }
+
+    /**
+     * 按直线距离和出行方式估算
+     */
+    public static DistanceMatrix estimate(List<RouteStop> stops, TravelMode mode) {
+        DistanceMatrix matrix = new DistanceMatrix(stops.size());
+        for (int i = 0; i < stops.size(); i++) {
+            for (int j = i + 1; j < stops.size(); j++) {
+                RouteStop a = stops.get(i);
+                RouteStop b = stops.get(j);
+                double distance = haversine(a.lng(), a.lat(), b.lng(), b.lat()) * mode.getDetourFactor();
+                double duration = distance / mode.getSpeed();
+                matrix.meters[i][j] = matrix.meters[j][i] = distance;
+                matrix.seconds[i][j] = matrix.seconds[j][i] = duration;
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * 替换为实际路网数据
+     */
+    public void refine(int from, int to, Leg leg) {
+        meters[from][to] = leg.meters();
+        seconds[from][to] = leg.seconds();
+        refined++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double meters(int from, int to) {
+        return meters[from][to];
+    }
+
+    public double seconds(int from, int to) {
+        return seconds[from][to];
+    }
+
+    public int getRefined() {
+        return refined;
+    }
+
+    /**
+     * 两点间的球面距离，米
+     */
+    public static double haversine(double lng1, double lat1, double lng2, double lat2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
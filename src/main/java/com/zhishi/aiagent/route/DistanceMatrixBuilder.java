@@ -0,0 +1,100 @@
+package com.zhishi.aiagent.route;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 距离矩阵构建
+ * 先按直线距离估算全部点对，地点数不超过上限时再用实际路网数据逐列修正；
+ * 路网数据按坐标和出行方式缓存，按最近最少使用淘汰，已缓存的点对不再请求
+ */
+public class DistanceMatrixBuilder {
+
+    private record CachedLeg(Leg leg, long expiresAt) {
+    }
+
+    private final DistanceService distanceService;
+
+    // 超过该地点数只用本地估算，修正需要的请求数与地点数相同
+    private final int maxRefinedStops;
+
+    private final long ttlMillis;
+
+    private final Map<String, CachedLeg> cache;
+
+    /**
+     * @param distanceService 路网距离来源，为 null 时只用本地估算
+     */
+    public DistanceMatrixBuilder(DistanceService distanceService, int maxRefinedStops, int maxCachedLegs, long ttlMillis) {
+        this.distanceService = distanceService;
+        this.maxRefinedStops = maxRefinedStops;
+        this.ttlMillis = ttlMillis;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedLeg> eldest) {
+                return size() > maxCachedLegs;
+            }
+        };
+    }
+
+    public DistanceMatrix build(List<RouteStop> stops, TravelMode mode, boolean refine) {
+        DistanceMatrix matrix = DistanceMatrix.estimate(stops, mode);
+        if (!refine || distanceService == null || stops.size() < 2 || stops.size() > maxRefinedStops) {
+            return matrix;
+        }
+        for (int to = 0; to < stops.size(); to++) {
+            // 先用缓存，剩下的起点一次请求
+            List<Integer> missing = new ArrayList<>();
+            for (int from = 0; from < stops.size(); from++) {
+                if (from == to) {
+                    continue;
+                }
+                Leg cached = cached(key(stops.get(from), stops.get(to), mode));
+                if (cached != null) {
+                    matrix.refine(from, to, cached);
+                } else {
+                    missing.add(from);
+                }
+            }
+            if (missing.isEmpty()) {
+                continue;
+            }
+            List<RouteStop> origins = missing.stream().map(stops::get).toList();
+            Leg[] legs = distanceService.toDestination(origins, stops.get(to), mode);
+            for (int k = 0; k < missing.size(); k++) {
+                if (legs[k] == null) {
+                    continue;
+                }
+                int from = missing.get(k);
+                matrix.refine(from, to, legs[k]);
+                put(key(stops.get(from), stops.get(to), mode), legs[k]);
+            }
+        }
+        return matrix;
+    }
+
+    private Leg cached(String key) {
+        synchronized (cache) {
+            CachedLeg cached = cache.get(key);
+            if (cached == null || cached.expiresAt() < System.currentTimeMillis()) {
+                return null;
+            }
+            return cached.leg();
+        }
+    }
+
+    private void put(String key, Leg leg) {
+        synchronized (cache) {
+            cache.put(key, new CachedLeg(leg, System.currentTimeMillis() + ttlMillis));
+        }
+    }
+
+    /**
+     * 坐标保留 5 位小数（约 1 米），同一地点的细微差异共用缓存
+     */
+    private static String key(RouteStop from, RouteStop to, TravelMode mode) {
+        return String.format("%s|%.5f,%.5f|%.5f,%.5f", mode.getValue(), from.lng(), from.lat(), to.lng(), to.lat());
+    }
+}
@@ -0,0 +1,16 @@
+package com.zhishi.aiagent.route;
+
+import java.util.List;
+
+/**
+ * 实际路网距离的来源
+ */
+public interface DistanceService {
+
+    /**
+     * 多个起点到同一终点的路程
+     *
+     * @return 与 origins 一一对应，查询失败的位置为 null
+     */
+    Leg[] toDestination(List<RouteStop> origins, RouteStop destination, TravelMode mode);
+}
@@ -0,0 +1,10 @@
+package com.zhishi.aiagent.route;
+
+/**
+ * 两点之间的路程
+ *
+ * @param meters  距离，米
+ * @param seconds 耗时，秒
+ */
+public record Leg(double meters, double seconds) {
+}
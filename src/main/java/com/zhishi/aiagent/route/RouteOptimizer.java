@@ -0,0 +1,223 @@
+package com.zhishi.aiagent.route;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 带时间窗的游览顺序优化
+ * 以行程总时长（路上耗时加等待时间）为目标，超出时间窗按重罚计入；
+ * 先用最近邻构造初始顺序，再用 2-opt（翻转区间）和 or-opt（移动单点）局部搜索直到不再改进，
+ * 起点不固定时对每个起点各做一次，取最优；二三十个地点在毫秒级完成
+ */
+public final class RouteOptimizer {
+
+    // 每超出时间窗一分钟计入的代价，满足时间窗的顺序总是优先
+    private static final double LATE_PENALTY = 1000;
+
+    // 局部搜索的最大轮数
+    private static final int MAX_PASSES = 50;
+
+    private static final double EPSILON = 1e-6;
+
+    private final List<RouteStop> stops;
+
+    private final DistanceMatrix matrix;
+
+    private final double startMinutes;
+
+    private final boolean returnToStart;
+
+    private RouteOptimizer(List<RouteStop> stops, DistanceMatrix matrix, double startMinutes, boolean returnToStart) {
+        this.stops = stops;
+        this.matrix = matrix;
+        this.startMinutes = startMinutes;
+        this.returnToStart = returnToStart;
+    }
+
+    /**
+     * 优化游览顺序
+     *
+     * @param startMinutes  出发时间（当天分钟数）
+     * @param fixStart      是否固定从第一个地点（如酒店）出发
+     * @param returnToStart 是否最后返回出发地点
+     */
+    public static RoutePlan optimize(List<RouteStop> stops, DistanceMatrix matrix, int startMinutes, boolean fixStart,
+                                     boolean returnToStart) {
+        RouteOptimizer optimizer = new RouteOptimizer(stops, matrix, startMinutes, returnToStart);
+        int[] best = null;
+        double bestCost = Double.MAX_VALUE;
+        int starts = fixStart ? 1 : stops.size();
+        for (int start = 0; start < starts; start++) {
+            int[] order = optimizer.nearestNeighbour(start);
+            double cost = optimizer.improve(order, fixStart ? 1 : 0);
+            if (cost < bestCost - EPSILON) {
+                best = order;
+                bestCost = cost;
+            }
+        }
+        return optimizer.schedule(best);
+    }
+
+    /**
+     * 最近邻：每次选择最早能开始游览的地点，相同时优先最晚时间更早的
+     */
+    private int[] nearestNeighbour(int start) {
+        int n = stops.size();
+        int[] order = new int[n];
+        boolean[] visited = new boolean[n];
+        order[0] = start;
+        visited[start] = true;
+        double time = Math.max(startMinutes, openOf(start)) + stops.get(start).stayMinutes();
+        for (int k = 1; k < n; k++) {
+            int current = order[k - 1];
+            int next = -1;
+            double nextReady = Double.MAX_VALUE;
+            for (int j = 0; j < n; j++) {
+                if (visited[j]) {
+                    continue;
+                }
+                double ready = Math.max(time + matrix.seconds(current, j) / 60, openOf(j));
+                if (ready < nextReady - EPSILON || (Math.abs(ready - nextReady) <= EPSILON && closeOf(j) < closeOf(next))) {
+                    next = j;
+                    nextReady = ready;
+                }
+            }
+            order[k] = next;
+            visited[next] = true;
+            time = nextReady + stops.get(next).stayMinutes();
+        }
+        return order;
+    }
+
+    /**
+     * 局部搜索，原地修改顺序
+     *
+     * @param first 可调整的第一个位置，固定起点时为 1
+     * @return 改进后的代价
+     */
+    private double improve(int[] order, int first) {
+        double best = cost(order);
+        int n = order.length;
+        for (int pass = 0; pass < MAX_PASSES; pass++) {
+            boolean improved = false;
+            // 2-opt：翻转 [i, k]
+            for (int i = first; i < n - 1; i++) {
+                for (int k = i + 1; k < n; k++) {
+                    reverse(order, i, k);
+                    double cost = cost(order);
+                    if (cost < best - EPSILON) {
+                        best = cost;
+                        improved = true;
+                    } else {
+                        reverse(order, i, k);
+                    }
+                }
+            }
+            // or-opt：把位置 i 的地点移到位置 j
+            for (int i = first; i < n; i++) {
+                for (int j = first; j < n; j++) {
+                    if (i == j) {
+                        continue;
+                    }
+                    move(order, i, j);
+                    double cost = cost(order);
+                    if (cost < best - EPSILON) {
+                        best = cost;
+                        improved = true;
+                    } else {
+                        move(order, j, i);
+                    }
+                }
+            }
+            if (!improved) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 代价：结束时间减出发时间，加上超出时间窗的罚分
+     */
+    private double cost(int[] order) {
+        double time = startMinutes;
+        double late = 0;
+        for (int k = 0; k < order.length; k++) {
+            int stop = order[k];
+            if (k > 0) {
+                time += matrix.seconds(order[k - 1], stop) / 60;
+            }
+            time = Math.max(time, openOf(stop)) + stops.get(stop).stayMinutes();
+            late += Math.max(0, time - closeOf(stop));
+        }
+        if (returnToStart && order.length > 1) {
+            time += matrix.seconds(order[order.length - 1], order[0]) / 60;
+        }
+        return time - startMinutes + late * LATE_PENALTY;
+    }
+
+    private RoutePlan schedule(int[] order) {
+        List<RoutePlan.Visit> visits = new ArrayList<>(order.length);
+        double time = startMinutes;
+        double totalMeters = 0;
+        double travel = 0;
+        double wait = 0;
+        double late = 0;
+        for (int k = 0; k < order.length; k++) {
+            int stop = order[k];
+            double legMeters = k == 0 ? 0 : matrix.meters(order[k - 1], stop);
+            double legMinutes = k == 0 ? 0 : matrix.seconds(order[k - 1], stop) / 60;
+            double arrive = time + legMinutes;
+            double start = Math.max(arrive, openOf(stop));
+            double depart = start + stops.get(stop).stayMinutes();
+            double stopLate = Math.max(0, depart - closeOf(stop));
+            visits.add(new RoutePlan.Visit(stop, legMeters, legMinutes, arrive, start, depart, stopLate));
+            totalMeters += legMeters;
+            travel += legMinutes;
+            wait += start - arrive;
+            late += stopLate;
+            time = depart;
+        }
+        if (returnToStart && order.length > 1) {
+            int last = order[order.length - 1];
+            totalMeters += matrix.meters(last, order[0]);
+            travel += matrix.seconds(last, order[0]) / 60;
+            time += matrix.seconds(last, order[0]) / 60;
+        }
+        return new RoutePlan(visits, totalMeters, travel, wait, late, time);
+    }
+
+    private double openOf(int stop) {
+        Integer open = stops.get(stop).openMinutes();
+        return open == null ? Double.NEGATIVE_INFINITY : open;
+    }
+
+    private double closeOf(int stop) {
+        if (stop < 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        Integer close = stops.get(stop).closeMinutes();
+        return close == null ? Double.POSITIVE_INFINITY : close;
+    }
+
+    private static void reverse(int[] order, int i, int k) {
+        while (i < k) {
+            int tmp = order[i];
+            order[i++] = order[k];
+            order[k--] = tmp;
+        }
+    }
+
+    /**
+     * 把位置 from 的元素移到位置 to，中间元素顺移；move(to, from) 可还原
+     */
+    private static void move(int[] order, int from, int to) {
+        int value = order[from];
+        if (from < to) {
+            System.arraycopy(order, from + 1, order, from, to - from);
+        } else {
+            System.arraycopy(order, to, order, to + 1, from - to);
+        }
+        order[to] = value;
+    }
+}
@@ -0,0 +1,32 @@
+package com.zhishi.aiagent.route;
+
+import java.util.List;
+
+/**
+ * 优化后的游览顺序和时间安排，时间均为当天分钟数
+ *
+ * @param visits        按游览顺序排列
+ * @param totalMeters   总路程（含返回起点）
+ * @param travelMinutes 路上总耗时（含返回起点）
+ * @param waitMinutes   等待开门的总时长
+ * @param lateMinutes   超出各地点最晚时间的总时长，为 0 表示所有时间窗都满足
+ * @param finishMinutes 行程结束时间
+ */
+public record RoutePlan(List<Visit> visits, double totalMeters, double travelMinutes, double waitMinutes, double lateMinutes,
+                        double finishMinutes) {
+
+    /**
+     * 单个地点的安排
+     *
+     * @param stop          地点在输入中的下标
+     * @param legMeters     从上一地点到此的路程
+     * @param legMinutes    从上一地点到此的耗时
+     * @param arriveMinutes 到达时间
+     * @param startMinutes  开始游览时间（到早了等待开门）
+     * @param departMinutes 离开时间
+     * @param lateMinutes   超出最晚时间的时长
+     */
+    public record Visit(int stop, double legMeters, double legMinutes, double arriveMinutes, double startMinutes,
+                        double departMinutes, double lateMinutes) {
+    }
+}
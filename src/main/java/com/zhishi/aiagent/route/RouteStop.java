@@ -0,0 +1,18 @@
+package com.zhishi.aiagent.route;
+
+/**
+ * 路线中的一个地点
+ *
+ * @param openMinutes  最早开始游览的时间（当天分钟数），为 null 时不限
+ * @param closeMinutes 最晚结束游览的时间（当天分钟数），为 null 时不限
+ * @param stayMinutes  停留时长
+ */
+public record RouteStop(String name, double lng, double lat, Integer openMinutes, Integer closeMinutes, int stayMinutes) {
+
+    /**
+     * 坐标，格式：经度,纬度，保留 6 位小数
+     */
+    public String location() {
+        return String.format("%.6f,%.6f", lng, lat);
+    }
+}
@@ -0,0 +1,56 @@
+package com.zhishi.aiagent.route;
+
+/**
+ * 出行方式
+ * 本地估算时，直线距离乘以绕行系数作为路程，再按平均速度折算耗时
+ */
+public enum TravelMode {
+
+    WALKING("walking", "3", 1.3, 1.2),
+    DRIVING("driving", "1", 1.4, 8.0);
+
+    private final String value;
+
+    // 高德距离测量接口的 type 参数
+    private final String amapType;
+
+    private final double detourFactor;
+
+    // 平均速度，米/秒
+    private final double speed;
+
+    TravelMode(String value, String amapType, double detourFactor, double speed) {
+        this.value = value;
+        this.amapType = amapType;
+        this.detourFactor = detourFactor;
+        this.speed = speed;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getAmapType() {
+        return amapType;
+    }
+
+    public double getDetourFactor() {
+        return detourFactor;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * 按名称查找，无法识别时为步行
+     */
+    public static TravelMode of(String value) {
+        for (TravelMode mode : values()) {
+            if (mode.value.equalsIgnoreCase(value)) {
+                return mode;
+            }
+        }
+        return WALKING;
+    }
+}
@@ -0,0 +1,27 @@
+package com.zhishi.aiagent.routing;
+
+/**
+ * 可选的模型后端档位
+ */
+public enum ModelRoute {
+
+    /**
+     * 本地 Ollama 模型（不支持工具调用）
+     */
+    LOCAL,
+
+    /**
+     * DashScope 小模型（如 qwen-turbo）
+     */
+    SMALL,
+
+    /**
+     * DashScope 中等模型（如 qwen-plus）
+     */
+    MEDIUM,
+
+    /**
+     * DashScope 旗舰模型（如 qwen3-max）
+     */
+    LARGE
+}
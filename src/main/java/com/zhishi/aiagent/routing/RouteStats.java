@@ -0,0 +1,71 @@
+package com.zhishi.aiagent.routing;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个路由的调用统计（调用次数、失败次数、耗时、提示词 token 及其中命中前缀缓存的部分）
+ */
+public class RouteStats {
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalLatencyMs = new LongAdder();
+    private final AtomicLong maxLatencyMs = new AtomicLong();
+    private final LongAdder promptTokens = new LongAdder();
+    private final LongAdder cachedTokens = new LongAdder();
+
+    void record(long latencyMs, boolean success) {
+        calls.increment();
+        if (!success) {
+            errors.increment();
+        }
+        totalLatencyMs.add(latencyMs);
+        maxLatencyMs.accumulateAndGet(latencyMs, Math::max);
+    }
+
+    void recordUsage(long prompt, long cached) {
+        promptTokens.add(prompt);
+        cachedTokens.add(cached);
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getAvgLatencyMs() {
+        long count = calls.sum();
+        return count == 0 ? 0 : totalLatencyMs.sum() / count;
+    }
+
+    public long getMaxLatencyMs() {
+        return maxLatencyMs.get();
+    }
+
+    public long getPromptTokens() {
+        return promptTokens.sum();
+    }
+
+    public long getCachedTokens() {
+        return cachedTokens.sum();
+    }
+
+    /**
+     * 提示词 token 中命中缓存的百分比
+     */
+    public long getCacheHitPercent() {
+        long prompt = promptTokens.sum();
+        return prompt == 0 ? 0 : cachedTokens.sum() * 100 / prompt;
+    }
+
+    @Override
+    public String toString() {
+        return "calls=" + getCalls() + ", errors=" + getErrors()
+                + ", avgLatencyMs=" + getAvgLatencyMs() + ", maxLatencyMs=" + getMaxLatencyMs()
+                + ", promptTokens=" + getPromptTokens() + ", cachedTokens=" + getCachedTokens();
+    }
+}
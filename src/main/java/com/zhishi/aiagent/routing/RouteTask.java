@@ -0,0 +1,27 @@
+package com.zhishi.aiagent.routing;
+
+/**
+ * 模型路由的任务类型，由调用方声明，用于决定请求交给哪一档模型
+ */
+public enum RouteTask {
+
+    /**
+     * 旅行规划等需要完整推理能力的生成任务
+     */
+    PLANNING,
+
+    /**
+     * 智能体的单步决策（选择下一个工具）
+     */
+    AGENT_STEP,
+
+    /**
+     * Markdown 转 HTML 等格式化任务
+     */
+    HTML_RENDER,
+
+    /**
+     * 情感陪聊等普通对话
+     */
+    CHAT
+}
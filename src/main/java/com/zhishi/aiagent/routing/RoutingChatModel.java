@@ -0,0 +1,208 @@
+package com.zhishi.aiagent.routing;
+
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.cloud.ai.dashscope.chat.DashScopeChatOptions;
+import com.zhishi.aiagent.prompt.PromptPrefix;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 模型路由 ChatModel：按任务类型、提示词规模和配置策略为每次请求挑选后端模型
+ * 旗舰模型只用于规划类任务，格式化和短对话下沉到小模型或本地模型，以降低 token 开销
+ */
+@Slf4j
+public class RoutingChatModel implements ChatModel {
+
+    private final ChatModel dashscopeChatModel;
+
+    // 本地 Ollama 模型，未配置时为 null
+    private final ChatModel ollamaChatModel;
+
+    private final RoutingPolicy policy;
+
+    // 路由统计，key 为 "任务类型->模型档位"
+    private final Map<String, RouteStats> routeStats = new ConcurrentHashMap<>();
+
+    public RoutingChatModel(ChatModel dashscopeChatModel, ChatModel ollamaChatModel, RoutingPolicy policy) {
+        this.dashscopeChatModel = dashscopeChatModel;
+        this.ollamaChatModel = ollamaChatModel;
+        this.policy = policy;
+    }
+
+    /**
+     * 获取绑定了任务类型的 ChatModel，供 ChatClient.builder 使用
+     *
+     * @param task 任务类型
+     * @return 绑定任务类型的 ChatModel
+     */
+    public ChatModel forTask(RouteTask task) {
+        return new TaskChatModel(task);
+    }
+
+    /**
+     * 未声明任务类型的调用按规划任务处理，保证效果不低于原先直连旗舰模型
+     */
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        return call(RouteTask.PLANNING, prompt);
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return stream(RouteTask.PLANNING, prompt);
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return dashscopeChatModel.getDefaultOptions();
+    }
+
+    /**
+     * 获取各路由的调用统计
+     */
+    public Map<String, RouteStats> getRouteStats() {
+        return Collections.unmodifiableMap(routeStats);
+    }
+
+    private ChatResponse call(RouteTask task, Prompt prompt) {
+        ModelRoute route = decide(task, prompt);
+        RouteStats stats = statsOf(task, route);
+        long start = System.currentTimeMillis();
+        boolean success = false;
+        try {
+            ChatResponse response = backendOf(route).call(rewritePrompt(route, prompt));
+            success = true;
+            recordUsage(task, route, stats, usageOf(response));
+            return response;
+        } finally {
+            long latency = System.currentTimeMillis() - start;
+            stats.record(latency, success);
+            log.info("Model route {} -> {} finished in {} ms, success: {}", task, route, latency, success);
+        }
+    }
+
+    private Flux<ChatResponse> stream(RouteTask task, Prompt prompt) {
+        return Flux.defer(() -> {
+            ModelRoute route = decide(task, prompt);
+            RouteStats stats = statsOf(task, route);
+            long start = System.currentTimeMillis();
+            // 流式响应的用量在最后的分片中
+            AtomicReference<Usage> usage = new AtomicReference<>();
+            return backendOf(route).stream(rewritePrompt(route, prompt))
+                    .doOnNext(response -> {
+                        Usage chunkUsage = usageOf(response);
+                        if (chunkUsage != null && chunkUsage.getPromptTokens() != null && chunkUsage.getPromptTokens() > 0) {
+                            usage.set(chunkUsage);
+                        }
+                    })
+                    .doOnComplete(() -> {
+                        stats.record(System.currentTimeMillis() - start, true);
+                        recordUsage(task, route, stats, usage.get());
+                    })
+                    .doOnError(e -> stats.record(System.currentTimeMillis() - start, false));
+        });
+    }
+
+    private static Usage usageOf(ChatResponse response) {
+        return response.getMetadata() == null ? null : response.getMetadata().getUsage();
+    }
+
+    /**
+     * 记录提示词 token 数和命中前缀缓存的 token 数
+     */
+    private void recordUsage(RouteTask task, ModelRoute route, RouteStats stats, Usage usage) {
+        if (usage == null || usage.getPromptTokens() == null) {
+            return;
+        }
+        long cached = PromptPrefix.cachedTokens(usage);
+        stats.recordUsage(usage.getPromptTokens(), cached);
+        log.info("Model route {} -> {} prompt tokens: {}, cached: {}", task, route, usage.getPromptTokens(), cached);
+    }
+
+    private ModelRoute decide(RouteTask task, Prompt prompt) {
+        ModelRoute route = policy.decide(task, prompt);
+        if (route == ModelRoute.LOCAL && ollamaChatModel == null) {
+            route = ModelRoute.SMALL;
+        }
+        log.info("Model route decision: task={}, route={}, promptChars={}", task, route, prompt.getContents().length());
+        return route;
+    }
+
+    private RouteStats statsOf(RouteTask task, ModelRoute route) {
+        return routeStats.computeIfAbsent(task + "->" + route, key -> new RouteStats());
+    }
+
+    private ChatModel backendOf(ModelRoute route) {
+        return route == ModelRoute.LOCAL ? ollamaChatModel : dashscopeChatModel;
+    }
+
+    /**
+     * 按路由改写提示词的模型选项
+     */
+    private Prompt rewritePrompt(ModelRoute route, Prompt prompt) {
+        if (route == ModelRoute.LOCAL) {
+            // DashScope 选项（模型名、联网搜索等）对本地模型无意义，只保留消息
+            return new Prompt(prompt.getInstructions());
+        }
+        String model = switch (route) {
+            case SMALL -> policy.getSmallModel();
+            case MEDIUM -> policy.getMediumModel();
+            default -> policy.getLargeModel();
+        };
+        if (StrUtil.isBlank(model)) {
+            return prompt;
+        }
+        DashScopeChatOptions options;
+        if (prompt.getOptions() instanceof DashScopeChatOptions dashScopeChatOptions) {
+            options = DashScopeChatOptions.fromOptions(dashScopeChatOptions);
+        } else if (prompt.getOptions() == null) {
+            options = DashScopeChatOptions.builder().build();
+        } else {
+            log.warn("Unsupported chat options {}, keep default model", prompt.getOptions().getClass().getSimpleName());
+            return prompt;
+        }
+        options.setModel(model);
+        if (route == ModelRoute.SMALL) {
+            // 小模型只做格式化和短对话，不需要联网搜索
+            options.setEnableSearch(false);
+        }
+        return new Prompt(prompt.getInstructions(), options);
+    }
+
+    /**
+     * 绑定任务类型的 ChatModel 视图
+     */
+    private class TaskChatModel implements ChatModel {
+
+        private final RouteTask task;
+
+        private TaskChatModel(RouteTask task) {
+            this.task = task;
+        }
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            return RoutingChatModel.this.call(task, prompt);
+        }
+
+        @Override
+        public Flux<ChatResponse> stream(Prompt prompt) {
+            return RoutingChatModel.this.stream(task, prompt);
+        }
+
+        @Override
+        public ChatOptions getDefaultOptions() {
+            return RoutingChatModel.this.getDefaultOptions();
+        }
+    }
+}
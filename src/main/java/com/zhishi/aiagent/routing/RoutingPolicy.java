@@ -0,0 +1,83 @@
+package com.zhishi.aiagent.routing;
+
+import cn.hutool.core.collection.CollUtil;
+import lombok.Data;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+
+import java.util.List;
+
+/**
+ * 模型路由策略：根据任务类型和提示词规模决定使用哪一档模型
+ */
+@Data
+public class RoutingPolicy {
+
+    // 关闭时所有请求都走旗舰模型，与未引入路由前的行为一致
+    private boolean enabled = true;
+
+    // 是否允许把短对话交给本地 Ollama 模型
+    private boolean localEnabled = false;
+
+    private String smallModel = "qwen-turbo";
+    private String mediumModel = "qwen-plus";
+    // 为空时沿用 spring.ai.dashscope.chat.options.model
+    private String largeModel;
+
+    // 单条用户消息不超过该长度视为短对话
+    private int shortMessageChars = 200;
+
+    // 整个提示词超过该长度时升一档，避免小模型截断输出
+    private int longPromptChars = 12000;
+
+    /**
+     * 决定本次请求的路由
+     *
+     * @param task   任务类型
+     * @param prompt 完整提示词
+     * @return 模型档位
+     */
+    public ModelRoute decide(RouteTask task, Prompt prompt) {
+        if (!enabled) {
+            return ModelRoute.LARGE;
+        }
+        int promptChars = prompt.getContents().length();
+        boolean longPrompt = promptChars > longPromptChars;
+        return switch (task) {
+            case PLANNING -> ModelRoute.LARGE;
+            // 第一步需要拆解任务，交给旗舰模型；之后的单步决策用中等模型即可
+            case AGENT_STEP -> hasHistory(prompt.getInstructions()) && !longPrompt
+                    ? ModelRoute.MEDIUM : ModelRoute.LARGE;
+            case HTML_RENDER -> longPrompt ? ModelRoute.MEDIUM : ModelRoute.SMALL;
+            case CHAT -> {
+                if (longPrompt || lastUserMessageChars(prompt.getInstructions()) > shortMessageChars) {
+                    yield ModelRoute.MEDIUM;
+                }
+                // 本地模型不支持工具调用，带工具的请求不下沉到本地
+                yield localEnabled && !hasToolCallbacks(prompt) ? ModelRoute.LOCAL : ModelRoute.SMALL;
+            }
+        };
+    }
+
+    private boolean hasHistory(List<Message> messages) {
+        return messages.stream().anyMatch(message -> message.getMessageType() == MessageType.ASSISTANT
+                || message.getMessageType() == MessageType.TOOL);
+    }
+
+    private int lastUserMessageChars(List<Message> messages) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            Message message = messages.get(i);
+            if (message.getMessageType() == MessageType.USER) {
+                return message.getText() == null ? 0 : message.getText().length();
+            }
+        }
+        return 0;
+    }
+
+    private boolean hasToolCallbacks(Prompt prompt) {
+        return prompt.getOptions() instanceof ToolCallingChatOptions options
+                && (CollUtil.isNotEmpty(options.getToolCallbacks()) || CollUtil.isNotEmpty(options.getToolNames()));
+    }
+}
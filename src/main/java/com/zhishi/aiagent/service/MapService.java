@@ -0,0 +1,141 @@
+package com.zhishi.aiagent.service;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.zhishi.aiagent.itinerary.Itinerary;
+import com.zhishi.aiagent.itinerary.ItineraryDay;
+import com.zhishi.aiagent.itinerary.ItinerarySlot;
+import com.zhishi.aiagent.itinerary.Poi;
+import com.zhishi.aiagent.ratelimit.RateLimiterRegistry;
+import com.zhishi.aiagent.render.MapFragmentRenderer;
+import com.zhishi.aiagent.render.MapLocation;
+import com.zhishi.aiagent.tools.AmapAPITool;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 地图服务：为结构化行程补全坐标，并生成可嵌入页面的地图片段
+ * 行程中已带坐标的地点（结构化输出）直接使用，不再重复地理编码
+ */
+@Service
+@Slf4j
+public class MapService {
+
+    private final AmapAPITool amapAPITool;
+
+    private final boolean mapEnabled;
+
+    private final String jsApiKey;
+
+    private final String securityJsCode;
+
+    // 单份行程最多标记的地点数，避免地理编码请求过多
+    @Value("${travel.html.max-map-locations:20}")
+    private int maxLocations;
+
+    public MapService(@Value("${amap.api-key}") String amapApiKey,
+                      @Value("${map.js-key:}") String jsApiKey,
+                      @Value("${map.security-js-code:}") String securityJsCode,
+                      RateLimiterRegistry rateLimiterRegistry) {
+        this.mapEnabled = StrUtil.isNotBlank(jsApiKey) && StrUtil.isNotBlank(securityJsCode);
+        this.jsApiKey = jsApiKey;
+        this.securityJsCode = securityJsCode;
+        this.amapAPITool = new AmapAPITool(amapApiKey,
+                StrUtil.emptyToNull(jsApiKey), StrUtil.emptyToNull(securityJsCode),
+                rateLimiterRegistry.get(RateLimiterRegistry.AMAP));
+    }
+
+    /**
+     * 地图片段
+     *
+     * @param html   地图 section 的 HTML
+     * @param script 初始化地图的 JavaScript
+     */
+    public record MapFragment(String html, String script) {
+    }
+
+    /**
+     * 为行程生成地图片段
+     *
+     * @param itinerary 结构化行程
+     * @return 地图片段，未配置地图密钥或没有可定位的地点时返回 null
+     */
+    public MapFragment buildMapFragment(Itinerary itinerary) {
+        if (!mapEnabled) {
+            return null;
+        }
+        // 直接传入地点列表渲染，不再序列化为 JSON 再解析
+        List<MapLocation> locations = geocodeLocations(itinerary);
+        if (locations.isEmpty()) {
+            return null;
+        }
+        return new MapFragment(MapFragmentRenderer.renderHtml(locations),
+                MapFragmentRenderer.renderScript(locations, jsApiKey, securityJsCode));
+    }
+
+    /**
+     * 收集行程中的地点，缺少坐标的并发地理编码并回填到行程中，同名地点只查询一次
+     */
+    private List<MapLocation> geocodeLocations(Itinerary itinerary) {
+        Map<String, ItinerarySlot> places = new LinkedHashMap<>();
+        for (ItineraryDay day : itinerary.getDays()) {
+            for (ItinerarySlot slot : day.getSlots()) {
+                Poi poi = slot.getPoi();
+                if (poi != null && StrUtil.isNotBlank(poi.getName()) && places.size() < maxLocations) {
+                    places.putIfAbsent(poi.getName(), slot);
+                }
+            }
+        }
+        List<MapLocation> locations = new ArrayList<>(places.size());
+        if (places.isEmpty()) {
+            return locations;
+        }
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (ItinerarySlot slot : places.values()) {
+                if (!slot.getPoi().hasLocation()) {
+                    futures.add(CompletableFuture.runAsync(() -> geocode(slot.getPoi(), itinerary.getDestination()), executor));
+                }
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        }
+        for (ItinerarySlot slot : places.values()) {
+            Poi poi = slot.getPoi();
+            if (!poi.hasLocation()) {
+                continue;
+            }
+            locations.add(new MapLocation(poi.getName(), StrUtil.blankToDefault(poi.getType(), "attraction"), slot.getTime(),
+                    StrUtil.blankToDefault(slot.getDetails(), slot.getTitle()), StrUtil.nullToEmpty(poi.getAddress()),
+                    poi.getLng(), poi.getLat()));
+        }
+        return locations;
+    }
+
+    private void geocode(Poi poi, String city) {
+        String result = amapAPITool.geocode(poi.getName(), city);
+        if (!result.startsWith("{")) {
+            log.debug("Geocode skipped for {}: {}", poi.getName(), result);
+            return;
+        }
+        JSONObject geocode = JSONUtil.parseObj(result);
+        String[] lngLat = StrUtil.splitToArray(geocode.getStr("location", ""), ',');
+        if (lngLat.length != 2) {
+            return;
+        }
+        poi.setLng(Double.valueOf(lngLat[0]));
+        poi.setLat(Double.valueOf(lngLat[1]));
+        if (StrUtil.isBlank(poi.getAddress())) {
+            poi.setAddress(geocode.getStr("formatted_address"));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.zhishi.aiagent.sse;
+
+import cn.hutool.json.JSONObject;
+
+/**
+ * 流式事件
+ *
+ * @param type 事件类型
+ * @param data 事件内容，工具相关事件为 JSON
+ * @param id   事件序号，对应 SSE 的 id 字段，用于断线后按 Last-Event-ID 续传；不需要续传的流为 null
+ */
+public record AgentEvent(AgentEventType type, String data, Long id) {
+
+    public static AgentEvent of(AgentEventType type, String data) {
+        return new AgentEvent(type, data == null ? "" : data, null);
+    }
+
+    public static AgentEvent toolCall(String name, String arguments) {
+        return of(AgentEventType.TOOL_CALL,
+                new JSONObject().set("name", name).set("arguments", arguments).toString());
+    }
+
+    public static AgentEvent toolResult(String name, String result) {
+        return of(AgentEventType.TOOL_RESULT,
+                new JSONObject().set("name", name).set("result", result).toString());
+    }
+
+    public AgentEvent withId(long id) {
+        return new AgentEvent(type, data, id);
+    }
+
+    /**
+     * 是否为终止事件
+     */
+    public boolean isTerminal() {
+        return type == AgentEventType.FINAL || type == AgentEventType.ERROR;
+    }
+}
@@ -0,0 +1,62 @@
+package com.zhishi.aiagent.sse;
+
+/**
+ * 流式事件类型，对应 SSE 的 event 字段
+ */
+public enum AgentEventType {
+
+    /**
+     * 代理运行已创建，内容为运行 ID，用于断线后重连
+     */
+    RUN("run"),
+
+    /**
+     * 代理完成一个步骤
+     */
+    STEP("step"),
+
+    /**
+     * 模型的思考内容
+     */
+    THOUGHT("thought"),
+
+    /**
+     * 回答的增量文本
+     */
+    TOKEN("token"),
+
+    /**
+     * 发起工具调用
+     */
+    TOOL_CALL("tool_call"),
+
+    /**
+     * 工具调用结果
+     */
+    TOOL_RESULT("tool_result"),
+
+    /**
+     * 工具执行过程中的进度
+     */
+    PROGRESS("progress"),
+
+    /**
+     * 最终结果，流随后结束
+     */
+    FINAL("final"),
+
+    /**
+     * 错误，流随后结束
+     */
+    ERROR("error");
+
+    private final String value;
+
+    AgentEventType(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
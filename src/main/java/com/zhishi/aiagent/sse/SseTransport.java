@@ -0,0 +1,105 @@
+package com.zhishi.aiagent.sse;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 统一的 SSE 输出
+ * 所有代理和应用的流式接口都经由这里转换为带类型的 ServerSentEvent：
+ * 相邻的增量文本在短时间窗口内合并后再发送；待发送事件有上限，客户端过慢时结束流并取消上游；
+ * 空闲时定期发送心跳注释，防止代理和负载均衡断开连接；客户端断开时取消订阅，上游模型调用随之取消
+ */
+@Slf4j
+public final class SseTransport {
+
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(15);
+
+    // 增量文本合并窗口
+    private static final int COALESCE_MAX_EVENTS = 32;
+    private static final Duration COALESCE_WINDOW = Duration.ofMillis(50);
+
+    // 客户端来不及接收时最多积压的事件数
+    private static final int MAX_PENDING_EVENTS = 256;
+
+    // 结束标记，只用于终止心跳，不会发送给客户端
+    private static final ServerSentEvent<String> END = ServerSentEvent.<String>builder().comment("end").build();
+
+    private SseTransport() {
+    }
+
+    /**
+     * 事件流转换为 SSE
+     */
+    public static Flux<ServerSentEvent<String>> stream(Flux<AgentEvent> events) {
+        Flux<ServerSentEvent<String>> data = events
+                .bufferTimeout(COALESCE_MAX_EVENTS, COALESCE_WINDOW, true)
+                .concatMapIterable(SseTransport::coalesce)
+                .onBackpressureBuffer(MAX_PENDING_EVENTS)
+                .onErrorResume(e -> {
+                    log.warn("Stream terminated with error: {}", e.getMessage());
+                    return Flux.just(AgentEvent.of(AgentEventType.ERROR, e.getMessage()));
+                })
+                .map(SseTransport::toServerSentEvent)
+                .concatWithValues(END);
+        Flux<ServerSentEvent<String>> heartbeat = Flux.interval(HEARTBEAT_INTERVAL)
+                .map(tick -> ServerSentEvent.<String>builder().comment("heartbeat").build());
+        return Flux.merge(data, heartbeat)
+                .takeWhile(event -> event != END);
+    }
+
+    /**
+     * 模型的增量文本转换为 SSE：逐段发送 token 事件，结束时发送包含完整回答的 final 事件
+     */
+    public static Flux<ServerSentEvent<String>> streamText(Flux<String> chunks) {
+        return stream(Flux.defer(() -> {
+            StringBuilder answer = new StringBuilder();
+            return chunks
+                    .doOnNext(answer::append)
+                    .map(chunk -> AgentEvent.of(AgentEventType.TOKEN, chunk))
+                    .concatWith(Flux.defer(() -> Flux.just(AgentEvent.of(AgentEventType.FINAL, answer.toString()))));
+        }));
+    }
+
+    public static ServerSentEvent<String> toServerSentEvent(AgentEvent event) {
+        ServerSentEvent.Builder<String> builder = ServerSentEvent.<String>builder()
+                .event(event.type().getValue())
+                .data(event.data());
+        if (event.id() != null) {
+            builder.id(String.valueOf(event.id()));
+        }
+        return builder.build();
+    }
+
+    /**
+     * 合并同一批次中相邻的增量文本事件，其余事件原样保留；合并后的事件沿用最后一段的序号
+     */
+    static List<AgentEvent> coalesce(List<AgentEvent> batch) {
+        List<AgentEvent> merged = new ArrayList<>(batch.size());
+        StringBuilder tokens = null;
+        Long lastTokenId = null;
+        for (AgentEvent event : batch) {
+            if (event.type() == AgentEventType.TOKEN) {
+                if (tokens == null) {
+                    tokens = new StringBuilder();
+                }
+                tokens.append(event.data());
+                lastTokenId = event.id();
+                continue;
+            }
+            if (tokens != null) {
+                merged.add(new AgentEvent(AgentEventType.TOKEN, tokens.toString(), lastTokenId));
+                tokens = null;
+            }
+            merged.add(event);
+        }
+        if (tokens != null) {
+            merged.add(new AgentEvent(AgentEventType.TOKEN, tokens.toString(), lastTokenId));
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,11 @@
+package com.zhishi.aiagent.startup;
+
+/**
+ * 单个 Bean 的创建耗时
+ *
+ * @param beanName Bean 名
+ * @param totalMs  含依赖 Bean 的总耗时
+ * @param selfMs   去掉依赖 Bean 创建后的耗时
+ */
+public record BeanStartupTime(String beanName, long totalMs, long selfMs) {
+}
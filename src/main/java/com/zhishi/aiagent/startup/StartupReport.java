@@ -0,0 +1,67 @@
+package com.zhishi.aiagent.startup;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 启动报告
+ *
+ * @param readyMs         从 JVM 启动到应用就绪的耗时，包含类加载，用于判断启动是否变慢
+ * @param contextMs       Spring 启动到就绪的耗时
+ * @param phases          各顶层阶段的耗时，按开始顺序
+ * @param slowestBeans    自身耗时最长的 Bean
+ * @param beanCount       启动阶段创建的 Bean 数
+ * @param previousReadyMs 上次启动的就绪耗时，没有记录时为 0
+ * @param regressed       是否比上次慢出阈值
+ */
+public record StartupReport(long readyMs, long contextMs, Map<String, Long> phases, List<BeanStartupTime> slowestBeans,
+                            int beanCount, long previousReadyMs, boolean regressed) {
+
+    private static final String BEAN_INSTANTIATE = "spring.beans.instantiate";
+
+    /**
+     * 从启动时间线汇总
+     *
+     * @param steps 按开始顺序排列的步骤
+     * @param top   列出的 Bean 数
+     */
+    public static StartupReport of(List<StartupStep> steps, long readyMs, long contextMs, int top) {
+        // 子步骤耗时合计，用于计算自身耗时
+        Map<Long, Long> childMs = new HashMap<>();
+        Map<String, Long> phases = new LinkedHashMap<>();
+        for (StartupStep step : steps) {
+            if (step.parentId() == null) {
+                phases.merge(step.name(), step.durationMs(), Long::sum);
+            } else {
+                childMs.merge(step.parentId(), step.durationMs(), Long::sum);
+            }
+        }
+        List<StartupStep> beans = steps.stream()
+                .filter(step -> BEAN_INSTANTIATE.equals(step.name()) && step.beanName() != null)
+                .toList();
+        List<BeanStartupTime> slowest = beans.stream()
+                .map(step -> new BeanStartupTime(step.beanName(), step.durationMs(),
+                        Math.max(0, step.durationMs() - childMs.getOrDefault(step.id(), 0L))))
+                .sorted(Comparator.comparingLong(BeanStartupTime::selfMs).reversed())
+                .limit(top)
+                .toList();
+        return new StartupReport(readyMs, contextMs, phases, slowest, beans.size(), 0, false);
+    }
+
+    /**
+     * 与上次启动比较
+     *
+     * @param previous          上次的报告，没有时为 null
+     * @param regressionPercent 就绪耗时超过上次的百分比阈值
+     */
+    public StartupReport compareWith(StartupReport previous, int regressionPercent) {
+        if (previous == null || previous.readyMs() <= 0) {
+            return this;
+        }
+        boolean slower = readyMs * 100 > previous.readyMs() * (100L + regressionPercent);
+        return new StartupReport(readyMs, contextMs, phases, slowestBeans, beanCount, previous.readyMs(), slower);
+    }
+}
@@ -0,0 +1,13 @@
+package com.zhishi.aiagent.startup;
+
+/**
+ * 启动时间线中的一个步骤
+ *
+ * @param id         步骤 ID
+ * @param parentId   父步骤 ID，顶层步骤为 null
+ * @param name       步骤名，如 spring.beans.instantiate
+ * @param beanName   创建的 Bean 名，其他步骤为 null
+ * @param durationMs 耗时（含子步骤）
+ */
+public record StartupStep(long id, Long parentId, String name, String beanName, long durationMs) {
+}
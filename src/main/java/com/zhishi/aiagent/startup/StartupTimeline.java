@@ -0,0 +1,115 @@
+package com.zhishi.aiagent.startup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zhishi.aiagent.constant.FileConstant;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline.TimelineEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep.Tag;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 启动时间线报告
+ * 应用就绪时汇总启动阶段记录的步骤（需要在 main 中启用 {@link BufferingApplicationStartup}），
+ * 输出各阶段耗时和自身耗时最长的 Bean，与上次启动比较，变慢超过阈值时告警
+ */
+@Component
+@Lazy(false)
+@Slf4j
+public class StartupTimeline implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    // 报告中列出的 Bean 数
+    private static final int TOP_BEANS = 15;
+
+    private final ApplicationStartup applicationStartup;
+
+    private final int regressionPercent;
+
+    private final Path reportFile = Path.of(FileConstant.FILE_SAVE_DIR, "startup", "last.json");
+
+    private volatile StartupReport report;
+
+    public StartupTimeline(ApplicationStartup applicationStartup,
+                           @Value("${startup.regression-percent:20}") int regressionPercent) {
+        this.applicationStartup = applicationStartup;
+        this.regressionPercent = regressionPercent;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        long readyMs = ManagementFactory.getRuntimeMXBean().getUptime();
+        long contextMs = event.getTimeTaken() == null ? 0 : event.getTimeTaken().toMillis();
+        List<StartupStep> steps = new ArrayList<>();
+        if (applicationStartup instanceof BufferingApplicationStartup buffering) {
+            for (TimelineEvent timelineEvent : buffering.getBufferedTimeline().getEvents()) {
+                steps.add(step(timelineEvent));
+            }
+        }
+        StartupReport current = StartupReport.of(steps, readyMs, contextMs, TOP_BEANS).compareWith(load(), regressionPercent);
+        report = current;
+        save(current);
+        log.info("Started in {} ms (context {} ms, {} beans instantiated), phases: {}", current.readyMs(), current.contextMs(),
+                current.beanCount(), current.phases());
+        current.slowestBeans().forEach(bean -> log.info("  {} ms (self {} ms) {}", bean.totalMs(), bean.selfMs(), bean.beanName()));
+        if (current.regressed()) {
+            log.warn("Startup regressed: {} ms, previous {} ms (threshold {}%)", current.readyMs(), current.previousReadyMs(),
+                    regressionPercent);
+        }
+    }
+
+    /**
+     * 本次启动的报告，应用就绪前为 null
+     */
+    public StartupReport getReport() {
+        return report;
+    }
+
+    private static StartupStep step(TimelineEvent event) {
+        org.springframework.core.metrics.StartupStep step = event.getStartupStep();
+        String beanName = null;
+        for (Tag tag : step.getTags()) {
+            if ("beanName".equals(tag.getKey())) {
+                beanName = tag.getValue();
+            }
+        }
+        return new StartupStep(step.getId(), step.getParentId(), step.getName(), beanName, event.getDuration().toMillis());
+    }
+
+    private StartupReport load() {
+        if (!Files.exists(reportFile)) {
+            return null;
+        }
+        try {
+            return OBJECT_MAPPER.readValue(reportFile.toFile(), StartupReport.class);
+        } catch (IOException e) {
+            log.warn("Failed to read previous startup report: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void save(StartupReport current) {
+        try {
+            Files.createDirectories(reportFile.getParent());
+            Path tmp = reportFile.resolveSibling(reportFile.getFileName() + ".tmp");
+            OBJECT_MAPPER.writeValue(tmp.toFile(), current);
+            Files.move(tmp, reportFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to save startup report: {}", e.getMessage());
+        }
+    }
+}
@@ -4,12 +4,21 @@ import cn.hutool.http.HttpUtil;
 import cn.hutool.json.JSONArray;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
+import com.zhishi.aiagent.poi.PoiHit;
+import com.zhishi.aiagent.poi.PoiIndex;
+import com.zhishi.aiagent.poi.PoiTypeFilter;
+import com.zhishi.aiagent.ratelimit.RateLimiter;
+import com.zhishi.aiagent.render.MapFragmentRenderer;
+import com.zhishi.aiagent.render.MapLocation;
+import com.zhishi.aiagent.tools.cache.Idempotent;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -29,21 +38,69 @@ public class AmapAPITool {
     private static final String WALKING_DIRECTION_URL = AMAP_BASE_URL + "/direction/walking";
     // 兴趣点搜索API
     private static final String PLACE_SEARCH_URL = AMAP_BASE_URL + "/place/text";
+    // 周边搜索API
+    private static final String AROUND_SEARCH_URL = AMAP_BASE_URL + "/place/around";
+    // 距离测量API（多起点到单终点）
+    private static final String DISTANCE_URL = AMAP_BASE_URL + "/distance";
+
+    // 高德返回的 QPS 超限和日配额耗尽状态码
+    private static final Set<String> QPS_EXCEEDED_CODES = Set.of("10004", "10014", "10019", "10020", "10021");
+    private static final Set<String> QUOTA_EXCEEDED_CODES = Set.of("10003", "10044");
+    // QPS 超限后的退避时间和重试次数
+    private static final Duration THROTTLE_BACKOFF = Duration.ofSeconds(1);
+    private static final int MAX_THROTTLE_RETRIES = 2;
 
     private final String apiKey;
     private final String jsApiKey;
     private final String securityJsCode;
 
+    // 所有高德调用方共享的限流器
+    private final RateLimiter rateLimiter;
+
+    // 搜索返回过的兴趣点，周边搜索优先查询，为 null 时不收录
+    private final PoiIndex poiIndex;
+
     public AmapAPITool(String apiKey) {
-        this.apiKey = apiKey;
-        this.jsApiKey = null;
-        this.securityJsCode = null;
+        this(apiKey, null, null);
     }
 
     public AmapAPITool(String apiKey, String jsApiKey, String securityJsCode) {
+        this(apiKey, jsApiKey, securityJsCode, RateLimiter.unlimited("amap"));
+    }
+
+    public AmapAPITool(String apiKey, String jsApiKey, String securityJsCode, RateLimiter rateLimiter) {
+        this(apiKey, jsApiKey, securityJsCode, rateLimiter, null);
+    }
+
+    public AmapAPITool(String apiKey, String jsApiKey, String securityJsCode, RateLimiter rateLimiter, PoiIndex poiIndex) {
         this.apiKey = apiKey;
         this.jsApiKey = jsApiKey;
         this.securityJsCode = securityJsCode;
+        this.rateLimiter = rateLimiter;
+        this.poiIndex = poiIndex;
+    }
+
+    /**
+     * 经过限流的高德接口请求：排队获取许可后再发起请求；返回 QPS 超限时退避后重试（重试不再扣减日配额），返回日配额耗尽时当日不再请求
+     */
+    private String amapGet(String url, Map<String, Object> paramMap) {
+        for (int attempt = 0; ; attempt++) {
+            if (attempt == 0) {
+                rateLimiter.acquire();
+            } else {
+                rateLimiter.reacquire();
+            }
+            String response = HttpUtil.get(url, paramMap);
+            String infocode = JSONUtil.isTypeJSONObject(response) ? JSONUtil.parseObj(response).getStr("infocode") : null;
+            if (QPS_EXCEEDED_CODES.contains(infocode) && attempt < MAX_THROTTLE_RETRIES) {
+                rateLimiter.penalize(THROTTLE_BACKOFF);
+                continue;
+            }
+            if (QUOTA_EXCEEDED_CODES.contains(infocode)) {
+                rateLimiter.exhaustQuota();
+            }
+            return response;
+        }
     }
 
     /**
@@ -52,6 +109,7 @@ public class AmapAPITool {
      * @param city 城市名称（可选，用于提高解析精度）
      * @return 经纬度坐标信息
      */
+    @Idempotent(ttlSeconds = 3600, failureMarkers = {"失败：", "异常："})
     @Tool(description = "将地址转换为经纬度坐标")
     public String geocode(
             @ToolParam(description = "详细地址") String address,
@@ -64,7 +122,7 @@ public class AmapAPITool {
         paramMap.put("key", apiKey);
         
         try {
-            String response = HttpUtil.get(GEOCODE_URL, paramMap);
+            String response = amapGet(GEOCODE_URL, paramMap);
             JSONObject jsonObject = JSONUtil.parseObj(response);
             
             if ("1".equals(jsonObject.getStr("status"))) {
@@ -86,6 +144,7 @@ public class AmapAPITool {
      * @param radius 搜索半径（可选，单位：米，默认1000）
      * @return 地址信息
      */
+    @Idempotent(ttlSeconds = 3600, failureMarkers = {"失败：", "异常："})
     @Tool(description = "将经纬度坐标转换为地址信息")
     public String reverseGeocode(
             @ToolParam(description = "经纬度坐标，格式：经度,纬度") String location,
@@ -99,7 +158,7 @@ public class AmapAPITool {
         paramMap.put("extensions", "all"); // 返回详细信息
         
         try {
-            String response = HttpUtil.get(REVERSE_GEOCODE_URL, paramMap);
+            String response = amapGet(REVERSE_GEOCODE_URL, paramMap);
             JSONObject jsonObject = JSONUtil.parseObj(response);
             
             if ("1".equals(jsonObject.getStr("status"))) {
@@ -121,6 +180,7 @@ public class AmapAPITool {
      * @param waypoints 途经点（可选，多个途经点用|分隔）
      * @return 路径规划信息
      */
+    @Idempotent(ttlSeconds = 3600, failureMarkers = {"失败：", "异常："})
     @Tool(description = "驾车路径规划")
     public String drivingDirection(
             @ToolParam(description = "起点坐标，格式：经度,纬度") String origin,
@@ -136,7 +196,7 @@ public class AmapAPITool {
         paramMap.put("extensions", "all"); // 返回详细信息
         
         try {
-            String response = HttpUtil.get(DRIVING_DIRECTION_URL, paramMap);
+            String response = amapGet(DRIVING_DIRECTION_URL, paramMap);
             JSONObject jsonObject = JSONUtil.parseObj(response);
             
             if ("1".equals(jsonObject.getStr("status"))) {
@@ -166,6 +226,7 @@ public class AmapAPITool {
      * @param offset 返回结果数量（可选，默认10）
      * @return 兴趣点搜索结果
      */
+    @Idempotent(ttlSeconds = 3600, failureMarkers = {"失败：", "异常："})
     @Tool(description = "兴趣点搜索")
     public String placeSearch(
             @ToolParam(description = "搜索关键词") String keywords,
@@ -182,11 +243,14 @@ public class AmapAPITool {
         paramMap.put("key", apiKey);
         
         try {
-            String response = HttpUtil.get(PLACE_SEARCH_URL, paramMap);
+            String response = amapGet(PLACE_SEARCH_URL, paramMap);
             JSONObject jsonObject = JSONUtil.parseObj(response);
             
             if ("1".equals(jsonObject.getStr("status"))) {
                 JSONArray pois = jsonObject.getJSONArray("pois");
+                if (poiIndex != null) {
+                    poiIndex.addAll(pois);
+                }
                 if (pois != null && pois.size() > 0) {
                     return pois.stream()
                             .map(obj -> obj.toString())
@@ -199,12 +263,104 @@ public class AmapAPITool {
         }
     }
 
+    /**
+     * 周边搜索：先查本地兴趣点索引，半径内结果足够或该区域已请求过时直接返回，否则请求高德并收录结果
+     * @param location 中心点坐标，格式：经度,纬度
+     * @param types 兴趣点类型编码（可选，多个用|分隔，如：050000 餐饮、100000 住宿、110000 风景名胜）
+     * @param radius 搜索半径（可选，单位：米，默认1000）
+     * @param offset 返回结果数量（可选，默认10）
+     * @return 按距离排序的兴趣点
+     */
+    @Idempotent(ttlSeconds = 3600, failureMarkers = {"失败：", "异常："})
+    @Tool(description = "周边搜索：查找某个坐标附近的餐厅、酒店、景点等兴趣点，按距离排序")
+    public String nearbySearch(
+            @ToolParam(description = "中心点坐标，格式：经度,纬度") String location,
+            @ToolParam(description = "兴趣点类型编码（可选，多个用|分隔，如：050000 餐饮、100000 住宿、110000 风景名胜）") String types,
+            @ToolParam(description = "搜索半径（可选，单位：米，默认1000）") Integer radius,
+            @ToolParam(description = "返回结果数量（可选，默认10）") Integer offset) {
+        int searchRadius = radius != null && radius > 0 ? Math.min(radius, 50000) : 1000;
+        int limit = offset != null && offset > 0 ? Math.min(offset, 25) : 10;
+        double lng;
+        double lat;
+        try {
+            String[] parts = location.split(",");
+            lng = Double.parseDouble(parts[0].trim());
+            lat = Double.parseDouble(parts[1].trim());
+        } catch (Exception e) {
+            return "周边搜索失败：坐标格式应为 经度,纬度";
+        }
+        PoiTypeFilter filter = PoiTypeFilter.of(types);
+        if (poiIndex != null) {
+            List<PoiHit> hits = poiIndex.within(lng, lat, filter, searchRadius, limit);
+            if (hits.size() >= limit || poiIndex.isCovered(lng, lat, filter, searchRadius)) {
+                poiIndex.recordLocalHit();
+                if (hits.isEmpty()) {
+                    return "周边搜索失败：附近没有符合条件的兴趣点";
+                }
+                return hits.stream()
+                        .map(AmapAPITool::toJson)
+                        .collect(Collectors.joining(","));
+            }
+            poiIndex.recordFallback();
+        }
+        Map<String, Object> paramMap = new HashMap<>();
+        paramMap.put("location", location);
+        if (types != null && !types.isEmpty()) {
+            paramMap.put("types", types);
+        }
+        paramMap.put("radius", searchRadius);
+        paramMap.put("offset", limit);
+        paramMap.put("sortrule", "distance");
+        paramMap.put("key", apiKey);
+
+        try {
+            String response = amapGet(AROUND_SEARCH_URL, paramMap);
+            JSONObject jsonObject = JSONUtil.parseObj(response);
+
+            if ("1".equals(jsonObject.getStr("status"))) {
+                JSONArray pois = jsonObject.getJSONArray("pois");
+                if (poiIndex != null) {
+                    poiIndex.addAll(pois);
+                    // 高德按距离返回最近的结果，不足请求数说明该区域本来就不多
+                    if (pois == null || pois.size() < limit) {
+                        poiIndex.markCovered(lng, lat, filter, searchRadius);
+                    }
+                }
+                if (pois != null && pois.size() > 0) {
+                    return pois.stream()
+                            .map(obj -> obj.toString())
+                            .collect(Collectors.joining(","));
+                }
+                return "周边搜索失败：附近没有符合条件的兴趣点";
+            }
+            return "周边搜索失败：" + jsonObject.getStr("info", "未知错误");
+        } catch (Exception e) {
+            return "周边搜索异常：" + e.getMessage();
+        }
+    }
+
+    /**
+     * 本地索引的结果，字段与高德返回的兴趣点一致
+     */
+    private static String toJson(PoiHit hit) {
+        JSONObject poi = new JSONObject();
+        poi.set("id", hit.poi().id());
+        poi.set("name", hit.poi().name());
+        poi.set("type", hit.poi().type());
+        poi.set("typecode", hit.poi().typecode());
+        poi.set("address", hit.poi().address());
+        poi.set("location", hit.poi().lng() + "," + hit.poi().lat());
+        poi.set("distance", String.valueOf(Math.round(hit.meters())));
+        return poi.toString();
+    }
+
     /**
      * 步行路径规划
      * @param origin 起点坐标，格式：经度,纬度
      * @param destination 终点坐标，格式：经度,纬度
      * @return 路径规划信息
      */
+    @Idempotent(ttlSeconds = 3600, failureMarkers = {"失败：", "异常："})
     @Tool(description = "步行路径规划")
     public String walkingDirection(
             @ToolParam(description = "起点坐标，格式：经度,纬度") String origin,
@@ -216,7 +372,7 @@ public class AmapAPITool {
         paramMap.put("extensions", "all"); // 返回详细信息
         
         try {
-            String response = HttpUtil.get(WALKING_DIRECTION_URL, paramMap);
+            String response = amapGet(WALKING_DIRECTION_URL, paramMap);
             JSONObject jsonObject = JSONUtil.parseObj(response);
             
             if ("1".equals(jsonObject.getStr("status"))) {
@@ -238,6 +394,22 @@ public class AmapAPITool {
         }
     }
 
+    /**
+     * 距离测量：多个起点到同一终点的距离和耗时，供路线优化构建距离矩阵，不作为工具暴露给模型
+     * @param origins 起点坐标，格式：经度,纬度|经度,纬度，最多100个
+     * @param destination 终点坐标，格式：经度,纬度
+     * @param type 测量方式：0 直线距离，1 驾车，3 步行
+     * @return 接口原始响应
+     */
+    public String distance(String origins, String destination, String type) {
+        Map<String, Object> paramMap = new HashMap<>();
+        paramMap.put("origins", origins);
+        paramMap.put("destination", destination);
+        paramMap.put("type", type);
+        paramMap.put("key", apiKey);
+        return amapGet(DISTANCE_URL, paramMap);
+    }
+
     /**
      * 生成地图HTML片段，用于嵌入到旅游规划HTML中
      * @param locationsJson 地点信息JSON数组，格式：[{"name":"地点名","type":"attraction|restaurant|hotel","time":"时间","description":"描述","lng":"经度","lat":"纬度","address":"地址"},...]
@@ -252,72 +424,11 @@ public class AmapAPITool {
             if (jsApiKey == null || securityJsCode == null) {
                 return "地图功能未配置：缺少JS API密钥或安全密钥";
             }
-
-            JSONArray locations = JSONUtil.parseArray(locationsJson);
-            if (locations == null || locations.size() == 0) {
+            List<MapLocation> locations = MapFragmentRenderer.parse(locationsJson);
+            if (locations.isEmpty()) {
                 return "地点信息为空，无法生成地图";
             }
-
-            StringBuilder html = new StringBuilder();
-            
-            // 地图section开始
-            html.append("<div id=\"travel-map-section\" class=\"section\">\n");
-            html.append("    <h2 class=\"section-title\"><i class=\"fas fa-map-marked-alt\"></i> 旅游路线地图</h2>\n");
-            
-            // 地图容器
-            html.append("    <div class=\"map-wrapper\" style=\"margin-top: 20px; border-radius: 12px; overflow: hidden; box-shadow: 0 4px 15px rgba(0,0,0,0.1);\">\n");
-            html.append("        <div id=\"travel-map\" style=\"width:100%;height:600px;\"></div>\n");
-            html.append("    </div>\n");
-            
-            // 地点列表容器
-            html.append("    <div id=\"location-list\" class=\"location-list-embedded\" style=\"margin-top: 20px; display: grid; grid-template-columns: repeat(auto-fill, minmax(250px, 1fr)); gap: 15px;\">\n");
-            
-            // 添加地点项
-            for (int i = 0; i < locations.size(); i++) {
-                JSONObject loc = locations.getJSONObject(i);
-                String lng = loc.getStr("lng");
-                String lat = loc.getStr("lat");
-                
-                if (lng != null && lat != null && !lng.isEmpty() && !lat.isEmpty()) {
-                    String name = escapeHtml(loc.getStr("name", ""));
-                    String type = loc.getStr("type", "other");
-                    String time = escapeHtml(loc.getStr("time", ""));
-                    String description = escapeHtml(loc.getStr("description", ""));
-                    if (description.length() > 80) {
-                        description = description.substring(0, 80) + "...";
-                    }
-                    
-                    html.append("        <div class=\"location-item-embedded\" data-index=\"").append(i).append("\" ");
-                    html.append("style=\"background: #f8f9fa; border-radius: 8px; padding: 15px; cursor: pointer; transition: all 0.3s ease; border-left: 4px solid #3498db;\">\n");
-                    html.append("            <div style=\"font-weight: bold; color: #2c3e50; margin-bottom: 5px;\">");
-                    html.append(getIconForType(type)).append(" ").append(name);
-                    html.append("            </div>\n");
-                    html.append("            <div style=\"font-size: 0.9rem; color: #e74c3c; margin-bottom: 5px;\">");
-                    html.append(time);
-                    html.append("            </div>\n");
-                    html.append("            <div style=\"font-size: 0.85rem; color: #666; line-height: 1.4;\">");
-                    html.append(description);
-                    html.append("            </div>\n");
-                    html.append("        </div>\n");
-                }
-            }
-            
-            html.append("    </div>\n");
-            html.append("</div>\n");
-            
-            // 添加地图样式
-            html.append("<style>\n");
-            html.append("    .location-item-embedded:hover {\n");
-            html.append("        transform: translateY(-2px);\n");
-            html.append("        box-shadow: 0 6px 12px rgba(0,0,0,0.1);\n");
-            html.append("    }\n");
-            html.append("    .location-item-embedded.active {\n");
-            html.append("        border-left-color: #e74c3c;\n");
-            html.append("        background: #fff5f5;\n");
-            html.append("    }\n");
-            html.append("</style>\n");
-            
-            return html.toString();
+            return MapFragmentRenderer.renderHtml(locations);
         } catch (Exception e) {
             return "生成地图HTML片段失败：" + e.getMessage();
         }
@@ -337,258 +448,13 @@ public class AmapAPITool {
             if (jsApiKey == null || securityJsCode == null) {
                 return "地图功能未配置：缺少JS API密钥或安全密钥";
             }
-
-            JSONArray locations = JSONUtil.parseArray(locationsJson);
-            if (locations == null || locations.size() == 0) {
+            List<MapLocation> locations = MapFragmentRenderer.parse(locationsJson);
+            if (locations.isEmpty()) {
                 return "地点信息为空，无法生成地图脚本";
             }
-
-            StringBuilder script = new StringBuilder();
-            
-            // 安全密钥配置和脚本加载
-            script.append("(function() {\n");
-            script.append("    var apiKey = '").append(escapeJs(jsApiKey)).append("';\n");
-            script.append("    var securityJsCode = '").append(escapeJs(securityJsCode)).append("';\n");
-            script.append("    \n");
-            script.append("    // 设置安全密钥配置（必须在JS API加载之前）\n");
-            script.append("    window._AMapSecurityConfig = {\n");
-            script.append("        securityJsCode: securityJsCode\n");
-            script.append("    };\n");
-            script.append("    \n");
-            script.append("    // 动态加载地图脚本\n");
-            script.append("    var script1 = document.createElement('script');\n");
-            script.append("    script1.src = 'https://webapi.amap.com/maps?v=2.0&key=' + apiKey;\n");
-            script.append("    script1.onerror = function() {\n");
-            script.append("        console.error('地图脚本加载失败，请检查网络连接和API密钥');\n");
-            script.append("        var errorDiv = document.getElementById('travel-map');\n");
-            script.append("        if (errorDiv) {\n");
-            script.append("            errorDiv.innerHTML = '<div style=\"padding: 20px; text-align: center; color: #e74c3c;\"><i class=\"fas fa-exclamation-triangle\"></i> 地图加载失败，请检查网络连接</div>';\n");
-            script.append("        }\n");
-            script.append("    };\n");
-            script.append("    script1.onload = function() {\n");
-            script.append("        var script2 = document.createElement('script');\n");
-            script.append("        script2.src = 'https://webapi.amap.com/ui/1.1/main.js';\n");
-            script.append("        script2.onerror = function() {\n");
-            script.append("            console.error('地图UI脚本加载失败');\n");
-            script.append("            initMap();\n");
-            script.append("        };\n");
-            script.append("        script2.onload = function() {\n");
-            script.append("            initMap();\n");
-            script.append("        };\n");
-            script.append("        document.head.appendChild(script2);\n");
-            script.append("    };\n");
-            script.append("    document.head.appendChild(script1);\n");
-            script.append("    \n");
-            script.append("    function initMap() {\n");
-            
-            // 地图初始化代码
-            script.append("        // 检查地图容器是否存在\n");
-            script.append("        var mapContainer = document.getElementById('travel-map');\n");
-            script.append("        if (!mapContainer) {\n");
-            script.append("            console.error('地图容器不存在');\n");
-            script.append("            return;\n");
-            script.append("        }\n\n");
-            script.append("        // 初始化地图\n");
-            script.append("        var map = new AMap.Map('travel-map', {\n");
-            script.append("            zoom: 13,\n");
-            script.append("            center: [119.973, 31.810], // 默认中心点\n");
-            script.append("            viewMode: '3D',\n");
-            script.append("            resizeEnable: true\n");
-            script.append("        });\n\n");
-            script.append("        // 等待地图加载完成\n");
-            script.append("        map.on('complete', function() {\n");
-            script.append("            console.log('地图加载完成');\n");
-            script.append("        });\n\n");
-            script.append("        var markers = [];\n");
-            script.append("        var infoWindows = [];\n");
-            script.append("        var polyline = null;\n\n");
-            
-            // 地点数据
-            script.append("        // 地点数据（只包含有坐标的地点）\n");
-            script.append("        var locations = [];\n");
-            script.append("        var locationIndexMap = {}; // 列表项索引 -> locations数组索引\n");
-            
-            int validIndex = 0;
-            for (int i = 0; i < locations.size(); i++) {
-                JSONObject loc = locations.getJSONObject(i);
-                String lng = loc.getStr("lng");
-                String lat = loc.getStr("lat");
-                
-                if (lng != null && lat != null && !lng.isEmpty() && !lat.isEmpty()) {
-                    script.append("        locations.push({\n");
-                    script.append("            name: '").append(escapeJs(loc.getStr("name", ""))).append("',\n");
-                    script.append("            type: '").append(escapeJs(loc.getStr("type", "other"))).append("',\n");
-                    script.append("            time: '").append(escapeJs(loc.getStr("time", ""))).append("',\n");
-                    script.append("            description: '").append(escapeJs(loc.getStr("description", ""))).append("',\n");
-                    script.append("            lng: ").append(lng).append(",\n");
-                    script.append("            lat: ").append(lat).append(",\n");
-                    script.append("            address: '").append(escapeJs(loc.getStr("address", ""))).append("',\n");
-                    script.append("            listIndex: ").append(i).append(" // 原始列表索引\n");
-                    script.append("        });\n");
-                    script.append("        locationIndexMap[").append(i).append("] = ").append(validIndex).append(";\n");
-                    validIndex++;
-                }
-            }
-            script.append("\n");
-            
-            // 创建标记和信息窗口
-            script.append("        // 创建标记和信息窗口（等待地图加载完成）\n");
-            script.append("        function addMarkers() {\n");
-            script.append("            locations.forEach(function(loc, mapIndex) {\n");
-            script.append("                var marker = new AMap.Marker({\n");
-            script.append("                    position: [loc.lng, loc.lat],\n");
-            script.append("                    title: loc.name,\n");
-            script.append("                    icon: getMarkerIcon(loc.type),\n");
-            script.append("                    offset: new AMap.Pixel(-13, -30)\n");
-            script.append("                });\n\n");
-            script.append("                var infoWindow = new AMap.InfoWindow({\n");
-            script.append("                    content: '<div style=\"padding: 10px; min-width: 200px; max-width: 300px; box-sizing: border-box;\">' +\n");
-            script.append("                        '<h3 style=\"margin: 0 0 10px 0; color: #2c3e50; font-size: 16px; font-weight: bold; word-wrap: break-word;\">' + loc.name + '</h3>' +\n");
-            script.append("                        '<p style=\"margin: 5px 0; color: #e74c3c; font-size: 13px; word-wrap: break-word;\"><i class=\"fas fa-clock\"></i> ' + loc.time + '</p>' +\n");
-            script.append("                        '<p style=\"margin: 5px 0; color: #666; font-size: 13px; line-height: 1.5; word-wrap: break-word;\">' + loc.description + '</p>' +\n");
-            script.append("                        (loc.address ? '<p style=\"margin: 5px 0; color: #999; font-size: 12px; word-wrap: break-word;\"><i class=\"fas fa-map-marker-alt\"></i> ' + loc.address + '</p>' : '') +\n");
-            script.append("                        '</div>',\n");
-            script.append("                    offset: new AMap.Pixel(0, -31),\n");
-            script.append("                    closeWhenClickMap: true,\n");
-            script.append("                    autoMove: false\n");
-            script.append("                });\n\n");
-            script.append("                marker.on('click', function() {\n");
-            script.append("                    // 关闭其他信息窗口\n");
-            script.append("                    infoWindows.forEach(function(iw) {\n");
-            script.append("                        iw.close();\n");
-            script.append("                    });\n");
-            script.append("                    // 使用标记的位置打开信息窗口\n");
-            script.append("                    var position = marker.getPosition();\n");
-            script.append("                    infoWindow.open(map, position);\n");
-            script.append("                    // 高亮对应的列表项\n");
-            script.append("                    document.querySelectorAll('.location-item-embedded').forEach(function(item) {\n");
-            script.append("                        item.classList.remove('active');\n");
-            script.append("                    });\n");
-            script.append("                    var listIndex = loc.listIndex;\n");
-            script.append("                    var listItem = document.querySelector('.location-item-embedded[data-index=\"' + listIndex + '\"]');\n");
-            script.append("                    if (listItem) {\n");
-            script.append("                        listItem.classList.add('active');\n");
-            script.append("                        listItem.scrollIntoView({ behavior: 'smooth', block: 'nearest' });\n");
-            script.append("                    }\n");
-            script.append("                });\n\n");
-            script.append("                markers.push(marker);\n");
-            script.append("                infoWindows.push(infoWindow);\n");
-            script.append("                map.add(marker);\n");
-            script.append("            });\n");
-            script.append("            \n");
-            script.append("            // 绘制路线\n");
-            script.append("            if (locations.length > 1) {\n");
-            script.append("                var path = locations.map(function(loc) {\n");
-            script.append("                    return [loc.lng, loc.lat];\n");
-            script.append("                });\n\n");
-            script.append("                polyline = new AMap.Polyline({\n");
-            script.append("                    path: path,\n");
-            script.append("                    isOutline: true,\n");
-            script.append("                    outlineColor: '#ffeeff',\n");
-            script.append("                    borderWeight: 3,\n");
-            script.append("                    strokeColor: '#3366FF',\n");
-            script.append("                    strokeOpacity: 1,\n");
-            script.append("                    strokeWeight: 5,\n");
-            script.append("                    strokeStyle: 'solid',\n");
-            script.append("                    lineJoin: 'round',\n");
-            script.append("                    lineCap: 'round',\n");
-            script.append("                    zIndex: 50\n");
-            script.append("                });\n\n");
-            script.append("                map.add(polyline);\n");
-            script.append("                map.setFitView([polyline], false, [50, 50, 50, 50]);\n");
-            script.append("            } else if (locations.length === 1) {\n");
-            script.append("                map.setCenter([locations[0].lng, locations[0].lat]);\n");
-            script.append("                map.setZoom(15);\n");
-            script.append("            }\n");
-            script.append("        }\n\n");
-            script.append("        // 地图加载完成后添加标记\n");
-            script.append("        if (map.getStatus() === 'complete') {\n");
-            script.append("            addMarkers();\n");
-            script.append("        } else {\n");
-            script.append("            map.on('complete', function() {\n");
-            script.append("                addMarkers();\n");
-            script.append("            });\n");
-            script.append("        }\n\n");
-            
-            // 列表项点击事件
-            script.append("        // 列表项点击事件\n");
-            script.append("        document.querySelectorAll('.location-item-embedded').forEach(function(item) {\n");
-            script.append("            item.addEventListener('click', function() {\n");
-            script.append("                var listIndex = parseInt(item.getAttribute('data-index'));\n");
-            script.append("                var mapIndex = locationIndexMap[listIndex];\n");
-            script.append("                if (mapIndex !== undefined && locations[mapIndex]) {\n");
-            script.append("                    var loc = locations[mapIndex];\n");
-            script.append("                    // 关闭其他信息窗口\n");
-            script.append("                    infoWindows.forEach(function(iw) {\n");
-            script.append("                        iw.close();\n");
-            script.append("                    });\n");
-            script.append("                    map.setZoomAndCenter(16, [loc.lng, loc.lat]);\n");
-            script.append("                    // 延迟打开信息窗口，确保地图已移动完成\n");
-            script.append("                    setTimeout(function() {\n");
-            script.append("                        infoWindows[mapIndex].open(map, [loc.lng, loc.lat]);\n");
-            script.append("                    }, 500);\n");
-            script.append("                    \n");
-            script.append("                    // 高亮列表项\n");
-            script.append("                    document.querySelectorAll('.location-item-embedded').forEach(function(i) {\n");
-            script.append("                        i.classList.remove('active');\n");
-            script.append("                    });\n");
-            script.append("                    item.classList.add('active');\n");
-            script.append("                }\n");
-            script.append("            });\n");
-            script.append("        });\n\n");
-            
-            // 获取标记图标函数
-            script.append("        // 根据类型获取标记图标\n");
-            script.append("        function getMarkerIcon(type) {\n");
-            script.append("            var iconUrl = 'https://webapi.amap.com/theme/v1.3/markers/n/mark_';\n");
-            script.append("            var iconColor = 'b';\n");
-            script.append("            if (type === 'restaurant') iconColor = 'r';\n");
-            script.append("            else if (type === 'hotel') iconColor = 'g';\n");
-            script.append("            else if (type === 'attraction') iconColor = 'b';\n");
-            script.append("            return iconUrl + iconColor + '.png';\n");
-            script.append("        }\n");
-            
-            script.append("    }\n");
-            script.append("})();\n");
-            
-            return script.toString();
+            return MapFragmentRenderer.renderScript(locations, jsApiKey, securityJsCode);
         } catch (Exception e) {
             return "生成地图JavaScript代码失败：" + e.getMessage();
         }
     }
-
-    /**
-     * 根据类型获取图标HTML
-     */
-    private String getIconForType(String type) {
-        return switch (type) {
-            case "restaurant" -> "<i class=\"fas fa-utensils\"></i>";
-            case "hotel" -> "<i class=\"fas fa-hotel\"></i>";
-            case "attraction" -> "<i class=\"fas fa-monument\"></i>";
-            default -> "<i class=\"fas fa-map-marker-alt\"></i>";
-        };
-    }
-
-    /**
-     * 转义HTML特殊字符
-     */
-    private String escapeHtml(String str) {
-        if (str == null) return "";
-        return str.replace("&", "&amp;")
-                  .replace("<", "&lt;")
-                  .replace(">", "&gt;")
-                  .replace("\"", "&quot;")
-                  .replace("'", "&#39;");
-    }
-
-    /**
-     * 转义JavaScript字符串
-     */
-    private String escapeJs(String str) {
-        if (str == null) return "";
-        return str.replace("\\", "\\\\")
-                  .replace("'", "\\'")
-                  .replace("\n", "\\n")
-                  .replace("\r", "\\r");
-    }
 }
\ No newline at end of file
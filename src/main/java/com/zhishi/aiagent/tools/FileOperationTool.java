@@ -2,39 +2,157 @@ package com.zhishi.aiagent.tools;
 
 import cn.hutool.core.io.FileUtil;
 import com.zhishi.aiagent.constant.FileConstant;
+import com.zhishi.aiagent.file.FilePatcher;
+import com.zhishi.aiagent.file.LineIndex;
+import com.zhishi.aiagent.file.LineIndexCache;
+import com.zhishi.aiagent.file.MappedFileReader;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.regex.Pattern;
+
 /**
  * 文件操作工具类（提供文件读写功能）
+ * 大文件按行、字节区间或搜索结果分片读取，避免整份内容进入上下文
  */
 public class FileOperationTool {
 
-    private final String FILE_DIR = FileConstant.FILE_SAVE_DIR + "/file";
+    private final String FILE_DIR;
+
+    // 超过该大小的文件 readFile 只返回开头部分
+    private static final long FULL_READ_LIMIT = 64 * 1024;
+    private static final int PREVIEW_LINES = 100;
+
+    // 单次分片读取的上限
+    private static final int MAX_LINES = 500;
+    private static final int MAX_BYTES = 64 * 1024;
+    private static final int MAX_MATCHES = 50;
+
+    public FileOperationTool() {
+        this(FileConstant.FILE_SAVE_DIR + "/file");
+    }
+
+    FileOperationTool(String fileDir) {
+        this.FILE_DIR = fileDir;
+    }
 
-    @Tool(description = "Read content from a file")
+    @Tool(description = "Read content from a file. Large files only return the first lines, use readFileLines, grepFile or readFileBytes for the rest")
     public String readFile(@ToolParam(description = "Name of a file to read") String fileName) {
-        String filePath = FILE_DIR + "/" + fileName;
         try {
-            return FileUtil.readUtf8String(filePath);
+            Path path = resolve(fileName);
+            if (Files.size(path) <= FULL_READ_LIMIT) {
+                return FileUtil.readUtf8String(path.toFile());
+            }
+            LineIndex index = LineIndexCache.get(path);
+            return String.format("File is large (%s, %d lines). Showing lines 1-%d, use readFileLines, grepFile or readFileBytes to read other parts.\n",
+                    FileUtil.readableFileSize(index.getSize()), index.getLineCount(), Math.min(PREVIEW_LINES, index.getLineCount()))
+                    + MappedFileReader.readLines(path, 1, PREVIEW_LINES);
+        } catch (Exception e) {
+            return "Error reading file: " + e.getMessage();
+        }
+    }
+
+    @Tool(description = "Read a range of lines from a file, each line is prefixed with its line number")
+    public String readFileLines(@ToolParam(description = "Name of a file to read") String fileName,
+                                @ToolParam(description = "First line to read, starting from 1") int startLine,
+                                @ToolParam(description = "Number of lines to read, at most 500") int lineCount) {
+        try {
+            Path path = resolve(fileName);
+            LineIndex index = LineIndexCache.get(path);
+            int count = Math.max(1, Math.min(lineCount, MAX_LINES));
+            int first = Math.max(1, startLine);
+            if (first > index.getLineCount()) {
+                return String.format("Line %d is past the end of the file (%d lines)", first, index.getLineCount());
+            }
+            // 标题按实际返回的行号区间
+            int last = Math.min(first + count - 1, index.getLineCount());
+            return String.format("Lines %d-%d of %d:\n", first, last, index.getLineCount())
+                    + MappedFileReader.readLines(path, first, count);
+        } catch (Exception e) {
+            return "Error reading file: " + e.getMessage();
+        }
+    }
+
+    @Tool(description = "Read a byte range from a file, decoded as UTF-8")
+    public String readFileBytes(@ToolParam(description = "Name of a file to read") String fileName,
+                                @ToolParam(description = "Byte offset to start reading from") long offset,
+                                @ToolParam(description = "Number of bytes to read, at most 65536") int length) {
+        try {
+            return MappedFileReader.readBytes(resolve(fileName), Math.max(0, offset), Math.min(length, MAX_BYTES));
         } catch (Exception e) {
             return "Error reading file: " + e.getMessage();
         }
     }
 
+    @Tool(description = "Search a file line by line with a regular expression, returning matching lines with line numbers and surrounding context")
+    public String grepFile(@ToolParam(description = "Name of a file to search") String fileName,
+                           @ToolParam(description = "Java regular expression to search for") String pattern,
+                           @ToolParam(description = "Number of context lines before and after each match") int contextLines) {
+        try {
+            String result = MappedFileReader.grep(resolve(fileName), Pattern.compile(pattern),
+                    Math.max(0, Math.min(contextLines, 10)), MAX_MATCHES);
+            return result.isEmpty() ? "No matches found" : result;
+        } catch (Exception e) {
+            return "Error searching file: " + e.getMessage();
+        }
+    }
+
     @Tool(description = "Write content to a file")
     public String writeFile(@ToolParam(description = "Name of the file to write") String fileName,
                             @ToolParam(description = "Content to write to the file") String content
     ) {
-        String filePath = FILE_DIR + "/" + fileName;
+        try {
+            // 与读取相同，不允许写到文件目录之外
+            Path path = resolve(fileName);
+            FileUtil.writeUtf8String(content, path.toFile());
+            // 修改时间精度不足时，覆盖写入后大小不变的文件会命中旧索引
+            LineIndexCache.invalidate(path);
+            return "File written successfully to: " + path;
+        } catch (Exception e) {
+            return "Error writing to file: " + e.getMessage();
+        }
+    }
 
+    @Tool(description = "Append content to the end of a file, creating it if missing")
+    public String appendFile(@ToolParam(description = "Name of the file to append to") String fileName,
+                             @ToolParam(description = "Content to append") String content) {
         try {
-            // 创建目录
             FileUtil.mkdir(FILE_DIR);
-            FileUtil.writeUtf8String(content, filePath);
-            return "File written successfully to: " + filePath;
+            Path path = resolve(fileName);
+            FilePatcher.append(path, content);
+            return "Content appended successfully to: " + path;
         } catch (Exception e) {
-            return "Error writing to file: " + e.getMessage();
+            return "Error appending to file: " + e.getMessage();
+        }
+    }
+
+    @Tool(description = "Replace lines startLine to endLine (inclusive) of a file with new content. Use endLine = startLine - 1 to insert before startLine, and empty content to delete lines")
+    public String patchFile(@ToolParam(description = "Name of the file to patch") String fileName,
+                            @ToolParam(description = "First line to replace, starting from 1") int startLine,
+                            @ToolParam(description = "Last line to replace, inclusive") int endLine,
+                            @ToolParam(description = "New content for the line range") String content) {
+        try {
+            Path path = resolve(fileName);
+            FilePatcher.replaceLines(path, startLine, endLine, content);
+            return "File patched successfully: " + path;
+        } catch (Exception e) {
+            return "Error patching file: " + e.getMessage();
+        }
+    }
+
+    /**
+     * 解析文件路径，不允许访问文件目录之外的文件
+     */
+    private Path resolve(String fileName) throws IOException {
+        Path dir = Paths.get(FILE_DIR).toAbsolutePath().normalize();
+        Path path = dir.resolve(fileName).normalize();
+        if (!path.startsWith(dir)) {
+            throw new IOException("Access denied: " + fileName);
         }
+        return path;
     }
 }
@@ -1,52 +1,77 @@
 package com.zhishi.aiagent.tools;
 
 import cn.hutool.core.io.FileUtil;
-import com.itextpdf.kernel.font.PdfFont;
-import com.itextpdf.kernel.font.PdfFontFactory;
-import com.itextpdf.kernel.pdf.PdfDocument;
-import com.itextpdf.kernel.pdf.PdfWriter;
-import com.itextpdf.layout.Document;
-import com.itextpdf.layout.element.Paragraph;
 import com.zhishi.aiagent.constant.FileConstant;
+import com.zhishi.aiagent.render.PdfMarkdownWriter;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
 
-import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * PDF 生成工具
+ * 内容按 Markdown 解析，逐块写入 PDF；导出在有界线程池中执行，避免并发导出占满请求线程
  */
 public class PDFGenerationTool {
 
-    @Tool(description = "Generate a PDF file with given content", returnDirect = false)
+    // 同时导出的最大数量和排队上限
+    private static final int MAX_CONCURRENT_EXPORTS = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+    private static final int MAX_QUEUED_EXPORTS = 32;
+    private static final long EXPORT_TIMEOUT_SECONDS = 120;
+
+    private static final ThreadPoolExecutor EXPORT_EXECUTOR = createExecutor();
+
+    private static ThreadPoolExecutor createExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_CONCURRENT_EXPORTS, MAX_CONCURRENT_EXPORTS,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(MAX_QUEUED_EXPORTS),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "pdf-export-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Tool(description = "Generate a PDF file with given content. Markdown headings, lists, tables and images are rendered", returnDirect = false)
     public String generatePDF(
             @ToolParam(description = "Name of the file to save the generated PDF") String fileName,
-            @ToolParam(description = "Content to be included in the PDF") String content) {
+            @ToolParam(description = "Content to be included in the PDF, plain text or Markdown") String content) {
         String fileDir = FileConstant.FILE_SAVE_DIR + "/pdf";
         String filePath = fileDir + "/" + fileName;
+        Future<?> future;
+        try {
+            future = EXPORT_EXECUTOR.submit(() -> {
+                // 创建目录
+                FileUtil.mkdir(fileDir);
+                try (PdfMarkdownWriter writer = new PdfMarkdownWriter(filePath)) {
+                    writer.write(content);
+                }
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            return "Error generating PDF: too many PDF exports in progress, please retry later";
+        }
         try {
-            // 创建目录
-            FileUtil.mkdir(fileDir);
-            // 创建 PdfWriter 和 PdfDocument 对象
-            try (PdfWriter writer = new PdfWriter(filePath);
-                 PdfDocument pdf = new PdfDocument(writer);
-                 Document document = new Document(pdf)) {
-                // 自定义字体（需要人工下载字体文件到特定目录）
-//                String fontPath = Paths.get("src/main/resources/static/fonts/simsun.ttf")
-//                        .toAbsolutePath().toString();
-//                PdfFont font = PdfFontFactory.createFont(fontPath,
-//                        PdfFontFactory.EmbeddingStrategy.PREFER_EMBEDDED);
-                // 使用内置中文字体
-                PdfFont font = PdfFontFactory.createFont("STSongStd-Light", "UniGB-UCS2-H");
-                document.setFont(font);
-                // 创建段落
-                Paragraph paragraph = new Paragraph(content);
-                // 添加段落并关闭文档
-                document.add(paragraph);
-            }
+            future.get(EXPORT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
             return "PDF generated successfully to: " + filePath;
-        } catch (IOException e) {
-            return "Error generating PDF: " + e.getMessage();
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return "Error generating PDF: timed out after " + EXPORT_TIMEOUT_SECONDS + "s";
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return "Error generating PDF: interrupted";
+        } catch (ExecutionException e) {
+            return "Error generating PDF: " + e.getCause().getMessage();
         }
     }
 }
@@ -1,28 +1,45 @@
 package com.zhishi.aiagent.tools;
 
 import cn.hutool.core.io.FileUtil;
-import cn.hutool.http.HttpUtil;
 import com.zhishi.aiagent.constant.FileConstant;
+import com.zhishi.aiagent.download.DownloadEngine;
+import com.zhishi.aiagent.download.DownloadResult;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
 
-import java.io.File;
+import java.nio.file.Paths;
 
 /**
  * 资源下载工具
  */
 public class ResourceDownloadTool {
 
+    // 默认单个资源的大小上限
+    private static final long DEFAULT_MAX_BYTES = 200L * 1024 * 1024;
+
+    private final DownloadEngine downloadEngine;
+
+    public ResourceDownloadTool() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    public ResourceDownloadTool(long maxBytes) {
+        this.downloadEngine = new DownloadEngine(Paths.get(FileConstant.FILE_SAVE_DIR, "download"), maxBytes);
+    }
+
     @Tool(description = "Download a resource from a given URL")
     public String downloadResource(@ToolParam(description = "URL of the resource to download") String url, @ToolParam(description = "Name of the file to save the downloaded resource") String fileName) {
-        String fileDir = FileConstant.FILE_SAVE_DIR + "/download";
-        String filePath = fileDir + "/" + fileName;
         try {
-            // 创建目录
-            FileUtil.mkdir(fileDir);
-            // 使用 Hutool 的 downloadFile 方法下载资源
-            HttpUtil.downloadFile(url, new File(filePath));
-            return "Resource downloaded successfully to: " + filePath;
+            DownloadResult result = downloadEngine.download(url, fileName, ToolProgress.current());
+            StringBuilder message = new StringBuilder("Resource downloaded successfully to: ").append(result.path())
+                    .append(" (").append(FileUtil.readableFileSize(result.size()));
+            if (result.deduplicated()) {
+                message.append(", identical content already downloaded");
+            }
+            if (result.resumed()) {
+                message.append(", resumed from previous attempt");
+            }
+            return message.append(")").toString();
         } catch (Exception e) {
             return "Error downloading resource: " + e.getMessage();
         }
@@ -0,0 +1,145 @@
+package com.zhishi.aiagent.tools;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.zhishi.aiagent.route.DistanceMatrix;
+import com.zhishi.aiagent.route.DistanceMatrixBuilder;
+import com.zhishi.aiagent.route.RouteOptimizer;
+import com.zhishi.aiagent.route.RoutePlan;
+import com.zhishi.aiagent.route.RouteStop;
+import com.zhishi.aiagent.route.TravelMode;
+import com.zhishi.aiagent.tools.cache.Idempotent;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 路线优化工具
+ * 一次调用给出多个地点的游览顺序和时间安排，替代模型逐段调用路径规划再自行排序
+ */
+public class RouteOptimizationTool {
+
+    private static final int MAX_STOPS = 25;
+
+    // 未填写停留时长时的默认值，分钟
+    private static final int DEFAULT_STAY_MINUTES = 60;
+
+    private static final int DEFAULT_START_MINUTES = 9 * 60;
+
+    private final DistanceMatrixBuilder matrixBuilder;
+
+    public RouteOptimizationTool(DistanceMatrixBuilder matrixBuilder) {
+        this.matrixBuilder = matrixBuilder;
+    }
+
+    /**
+     * 优化游览顺序
+     * @param stopsJson 地点JSON数组
+     * @param mode 出行方式：walking 或 driving
+     * @param startTime 出发时间，格式：HH:mm
+     * @param fixStart 是否固定从第一个地点出发
+     * @param returnToStart 是否最后返回出发地点
+     * @return 顺序和时间安排
+     */
+    @Idempotent(ttlSeconds = 600, failureMarkers = {"失败："})
+    @Tool(description = "优化多个地点的游览顺序：按实际路程和开放时间给出总耗时最短的顺序，以及每个地点的到达、离开时间。安排一天行程时优先使用，不必逐段调用路径规划")
+    public String optimizeRoute(
+            @ToolParam(description = "地点信息JSON数组，格式：[{\"name\":\"地点名\",\"lng\":\"经度\",\"lat\":\"纬度\",\"open\":\"09:00\",\"close\":\"17:00\",\"stay\":90},...]，open/close 为可选的开放时间，stay 为停留分钟数") String stopsJson,
+            @ToolParam(description = "出行方式（可选）：walking 或 driving，默认 walking") String mode,
+            @ToolParam(description = "出发时间（可选），格式：HH:mm，默认 09:00") String startTime,
+            @ToolParam(description = "是否固定从第一个地点（如酒店）出发（可选）") Boolean fixStart,
+            @ToolParam(description = "是否最后返回出发地点（可选）") Boolean returnToStart) {
+        List<RouteStop> stops;
+        int start;
+        try {
+            stops = parseStops(stopsJson);
+            start = StrUtil.isBlank(startTime) ? DEFAULT_START_MINUTES : parseTime(startTime);
+        } catch (Exception e) {
+            return "路线优化失败：" + e.getMessage();
+        }
+        if (stops.size() < 2) {
+            return "路线优化失败：至少需要两个地点";
+        }
+        if (stops.size() > MAX_STOPS) {
+            return "路线优化失败：地点数不能超过 " + MAX_STOPS;
+        }
+        TravelMode travelMode = TravelMode.of(mode);
+        DistanceMatrix matrix = matrixBuilder.build(stops, travelMode, true);
+        RoutePlan plan = RouteOptimizer.optimize(stops, matrix, start, Boolean.TRUE.equals(fixStart),
+                Boolean.TRUE.equals(returnToStart));
+        return toJson(stops, matrix, travelMode, plan);
+    }
+
+    private static List<RouteStop> parseStops(String stopsJson) {
+        JSONArray array = JSONUtil.parseArray(stopsJson);
+        List<RouteStop> stops = new ArrayList<>(array.size());
+        for (int i = 0; i < array.size(); i++) {
+            JSONObject stop = array.getJSONObject(i);
+            Double lng = stop.getDouble("lng");
+            Double lat = stop.getDouble("lat");
+            String name = stop.getStr("name", "地点" + (i + 1));
+            if (lng == null || lat == null) {
+                throw new IllegalArgumentException(name + " 缺少经纬度");
+            }
+            String open = stop.getStr("open");
+            String close = stop.getStr("close");
+            stops.add(new RouteStop(name, lng, lat,
+                    StrUtil.isBlank(open) ? null : parseTime(open),
+                    StrUtil.isBlank(close) ? null : parseTime(close),
+                    stop.getInt("stay", DEFAULT_STAY_MINUTES)));
+        }
+        return stops;
+    }
+
+    private static int parseTime(String time) {
+        String[] parts = StrUtil.splitToArray(StrUtil.trim(time), ':');
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("时间格式应为 HH:mm：" + time);
+        }
+        return Integer.parseInt(parts[0].trim()) * 60 + Integer.parseInt(parts[1].trim());
+    }
+
+    private static String formatTime(double minutes) {
+        long rounded = Math.round(minutes);
+        // 超过午夜时标注为次日
+        return String.format("%s%02d:%02d", rounded >= 24 * 60 ? "次日" : "", rounded / 60 % 24, rounded % 60);
+    }
+
+    private static String toJson(List<RouteStop> stops, DistanceMatrix matrix, TravelMode mode, RoutePlan plan) {
+        int pairs = stops.size() * (stops.size() - 1);
+        JSONObject result = new JSONObject();
+        result.set("mode", mode.getValue());
+        // 距离来源：全部为路网数据、全部为估算或两者混合
+        result.set("distanceSource", matrix.getRefined() == 0 ? "estimate" : matrix.getRefined() >= pairs ? "amap" : "mixed");
+        result.set("totalDistanceMeters", Math.round(plan.totalMeters()));
+        result.set("totalTravelMinutes", Math.round(plan.travelMinutes()));
+        result.set("finishTime", formatTime(plan.finishMinutes()));
+        JSONArray order = new JSONArray();
+        List<String> warnings = new ArrayList<>();
+        for (RoutePlan.Visit visit : plan.visits()) {
+            RouteStop stop = stops.get(visit.stop());
+            JSONObject item = new JSONObject();
+            item.set("name", stop.name());
+            item.set("arrive", formatTime(visit.arriveMinutes()));
+            item.set("depart", formatTime(visit.departMinutes()));
+            item.set("waitMinutes", Math.round(visit.startMinutes() - visit.arriveMinutes()));
+            item.set("legDistanceMeters", Math.round(visit.legMeters()));
+            item.set("legMinutes", Math.round(visit.legMinutes()));
+            item.set("late", visit.lateMinutes() > 0);
+            order.add(item);
+            if (visit.lateMinutes() > 0) {
+                warnings.add(stop.name() + " 超出开放时间约 " + Math.round(visit.lateMinutes()) + " 分钟");
+            }
+        }
+        result.set("order", order);
+        if (matrix.getRefined() < pairs) {
+            warnings.add("部分路程为直线距离估算，实际耗时可能不同");
+        }
+        result.set("warnings", warnings);
+        return result.toString();
+    }
+}
@@ -1,36 +1,50 @@
 package com.zhishi.aiagent.tools;
 
+import com.zhishi.aiagent.constant.FileConstant;
+import com.zhishi.aiagent.process.ProcessResult;
+import com.zhishi.aiagent.process.ProcessRunner;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
 
-import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.time.Duration;
 
 /**
  * 终端操作工具
+ * 使用平台对应的 shell 执行命令，工作目录为文件保存目录，超时后终止整个进程树，输出实时推送并截断
  */
 public class TerminalOperationTool {
 
+    private final ProcessRunner processRunner;
+
+    public TerminalOperationTool() {
+        this(Duration.ofSeconds(60), Duration.ofSeconds(30), 16000);
+    }
+
+    public TerminalOperationTool(Duration wallTimeout, Duration cpuTimeout, int maxOutputChars) {
+        this.processRunner = new ProcessRunner(new File(FileConstant.FILE_SAVE_DIR), wallTimeout, cpuTimeout, maxOutputChars);
+    }
+
     @Tool(description = "Execute a command in the terminal")
     public String executeTerminalCommand(@ToolParam(description = "Command to execute in the terminal") String command) {
         StringBuilder output = new StringBuilder();
         try {
-            ProcessBuilder builder = new ProcessBuilder("cmd.exe", "/c", command);
-//            Process process = Runtime.getRuntime().exec(command);
-            Process process = builder.start();
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    output.append(line).append("\n");
-                }
+            ProcessResult result = processRunner.run(command, ToolProgress.current());
+            output.append(result.stdout());
+            if (!result.stderr().isEmpty()) {
+                output.append("[stderr]\n").append(result.stderr());
             }
-            int exitCode = process.waitFor();
-            if (exitCode != 0) {
-                output.append("Command execution failed with exit code: ").append(exitCode);
+            if (result.timeout() != null) {
+                output.append("Command terminated: ").append(result.timeout());
+            } else if (result.exitCode() != 0) {
+                output.append("Command execution failed with exit code: ").append(result.exitCode());
             }
-        } catch (IOException | InterruptedException e) {
+        } catch (IOException e) {
             output.append("Error executing command: ").append(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            output.append("Error executing command: interrupted");
         }
         return output.toString();
     }
@@ -0,0 +1,45 @@
+package com.zhishi.aiagent.tools;
+
+import java.util.function.Consumer;
+
+/**
+ * 工具执行进度通道
+ * 代理流式运行时将当前输出通道绑定到执行线程，工具在长时间执行过程中上报进度，由代理转发给客户端；
+ * 未绑定时上报的进度直接丢弃
+ */
+public final class ToolProgress {
+
+    private static final Consumer<String> NO_OP = message -> {
+    };
+
+    private static final ThreadLocal<Consumer<String>> LISTENER = new ThreadLocal<>();
+
+    private ToolProgress() {
+    }
+
+    /**
+     * 绑定当前线程的进度监听
+     */
+    public static void bind(Consumer<String> listener) {
+        LISTENER.set(listener);
+    }
+
+    public static void unbind() {
+        LISTENER.remove();
+    }
+
+    /**
+     * 获取当前线程的进度监听，工具把工作交给其他线程时先取出再传递
+     */
+    public static Consumer<String> current() {
+        Consumer<String> listener = LISTENER.get();
+        return listener == null ? NO_OP : listener;
+    }
+
+    /**
+     * 上报进度
+     */
+    public static void report(String message) {
+        current().accept(message);
+    }
+}
@@ -1,17 +1,62 @@
 package com.zhishi.aiagent.tools;
 
-import org.springframework.ai.support.ToolCallbacks;
+import com.zhishi.aiagent.agent.prefetch.PrefetchRules;
+import com.zhishi.aiagent.agent.prefetch.PrefetchSettings;
+import com.zhishi.aiagent.agent.select.ToolCatalog;
+import com.zhishi.aiagent.constant.FileConstant;
+import com.zhishi.aiagent.mcp.McpServerSpec;
+import com.zhishi.aiagent.mcp.McpToolRegistry;
+import com.zhishi.aiagent.poi.PoiIndex;
+import com.zhishi.aiagent.prompt.PromptPrefix;
+import com.zhishi.aiagent.ratelimit.RateLimiterRegistry;
+import com.zhishi.aiagent.route.AmapDistanceService;
+import com.zhishi.aiagent.route.DistanceMatrixBuilder;
+import com.zhishi.aiagent.tools.cache.ToolMemoizer;
+import com.zhishi.aiagent.tools.schema.ToolSchemas;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.tool.ToolCallback;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.StreamUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * 集中的工具注册类
  */
 @Configuration
+@Slf4j
 public class ToolRegistration {
 
+    /**
+     * 本地工具类，构建时据此预生成工具定义
+     */
+    public static final List<Class<?>> TOOL_CLASSES = List.of(
+            FileOperationTool.class,
+//            WebSearchTool.class,
+            WebScrapingTool.class,
+            ResourceDownloadTool.class,
+            TerminalOperationTool.class,
+            PDFGenerationTool.class,
+            TerminateTool.class,
+            AmapAPITool.class,
+            RouteOptimizationTool.class
+    );
+
 //    @Value("${search-api.api-key}")
     private String searchApiKey;
     
@@ -24,25 +69,186 @@ public class ToolRegistration {
     @Value("${map.security-js-code:}")
     private String securityJsCode;
 
+    @Resource
+    private RateLimiterRegistry rateLimiterRegistry;
+
+    @Resource
+    private EmbeddingModel dashscopeEmbeddingModel;
+
+    @Resource
+    private ResourceLoader resourceLoader;
+
+    // 兴趣点索引关闭（tools.poi.enabled=false）时为空
+    @Autowired
+    private ObjectProvider<PoiIndex> poiIndexProvider;
+
+    // 单个下载资源的大小上限
+    @Value("${tools.download.max-size-mb:200}")
+    private long downloadMaxSizeMb;
+
+    // 终端命令的墙钟超时、CPU 时间上限和输出保留字符数
+    @Value("${tools.terminal.timeout-seconds:60}")
+    private long terminalTimeoutSeconds;
+
+    @Value("${tools.terminal.cpu-timeout-seconds:30}")
+    private long terminalCpuTimeoutSeconds;
+
+    @Value("${tools.terminal.max-output-chars:16000}")
+    private int terminalMaxOutputChars;
+
+    // 代理思考期间的工具预取
+    @Value("${tools.prefetch.enabled:true}")
+    private boolean prefetchEnabled;
+
+    @Value("${tools.prefetch.ttl-seconds:30}")
+    private long prefetchTtlSeconds;
+
+    @Value("${tools.prefetch.max-calls-per-step:3}")
+    private int prefetchMaxCallsPerStep;
+
+    @Value("${tools.prefetch.rules:placeSearch:geocode,placeSearch:walkingDirection}")
+    private String[] prefetchRules;
+
+    // 代理每步只提供相关的工具
+    @Value("${tools.selection.enabled:true}")
+    private boolean selectionEnabled;
+
+    @Value("${tools.selection.max-tools:8}")
+    private int selectionMaxTools;
+
+    @Value("${tools.selection.min-score:0.3}")
+    private double selectionMinScore;
+
+    @Value("${tools.selection.always-include:doTerminate}")
+    private String[] selectionAlwaysInclude;
+
+    // 幂等工具的结果复用
+    @Value("${tools.cache.enabled:true}")
+    private boolean toolCacheEnabled;
+
+    @Value("${tools.cache.max-entries:2000}")
+    private int toolCacheMaxEntries;
+
+    // 路线优化：路网修正的地点数上限和路程缓存
+    @Value("${tools.route.max-refined-stops:12}")
+    private int routeMaxRefinedStops;
+
+    @Value("${tools.route.max-cached-legs:5000}")
+    private int routeMaxCachedLegs;
+
+    @Value("${tools.route.cache-ttl-hours:24}")
+    private long routeCacheTtlHours;
+
+    // 兴趣点索引：最多收录的点数和已请求区域的有效期
+    @Value("${tools.poi.max-points:200000}")
+    private int poiMaxPoints;
+
+    @Value("${tools.poi.coverage-ttl-hours:168}")
+    private long poiCoverageTtlHours;
+
+    // MCP 服务：常驻进程数、请求超时、没有工具列表缓存时的启动等待和缓存有效期
+    @Value("${mcp.enabled:true}")
+    private boolean mcpEnabled;
+
+    @Value("${mcp.servers-configuration:classpath:mcp-servers.json}")
+    private String mcpServersConfiguration;
+
+    @Value("${mcp.pool-size:2}")
+    private int mcpPoolSize;
+
+    @Value("${mcp.request-timeout-seconds:60}")
+    private long mcpRequestTimeoutSeconds;
+
+    @Value("${mcp.startup-timeout-seconds:30}")
+    private long mcpStartupTimeoutSeconds;
+
+    @Value("${mcp.tools-cache-ttl-hours:24}")
+    private long mcpToolsCacheTtlHours;
+
     @Bean
     public ToolCallback[] allTools() {
-        FileOperationTool fileOperationTool = new FileOperationTool();
-//        WebSearchTool webSearchTool = new WebSearchTool(searchApiKey);
-        WebScrapingTool webScrapingTool = new WebScrapingTool();
-        ResourceDownloadTool resourceDownloadTool = new ResourceDownloadTool();
-        TerminalOperationTool terminalOperationTool = new TerminalOperationTool();
-        PDFGenerationTool pdfGenerationTool = new PDFGenerationTool();
-        TerminateTool terminateTool = new TerminateTool();
-        AmapAPITool amapAPITool = new AmapAPITool(amapApiKey, jsApiKey, securityJsCode);
-        return ToolCallbacks.from(
-                fileOperationTool,
-//                webSearchTool,
-                webScrapingTool,
-                resourceDownloadTool,
-                terminalOperationTool,
-                pdfGenerationTool,
-                terminateTool,
-                amapAPITool
-        );
+        // 工具定义优先使用构建时预生成的结果，工具对象在首次调用时才创建
+        ToolSchemas schemas = ToolSchemas.load();
+        List<ToolCallback> callbacks = new ArrayList<>();
+        callbacks.addAll(schemas.callbacks(FileOperationTool.class, FileOperationTool::new));
+//        callbacks.addAll(schemas.callbacks(WebSearchTool.class, () -> new WebSearchTool(searchApiKey)));
+        callbacks.addAll(schemas.callbacks(WebScrapingTool.class, WebScrapingTool::new));
+        callbacks.addAll(schemas.callbacks(ResourceDownloadTool.class,
+                () -> new ResourceDownloadTool(downloadMaxSizeMb * 1024 * 1024)));
+        callbacks.addAll(schemas.callbacks(TerminalOperationTool.class,
+                () -> new TerminalOperationTool(Duration.ofSeconds(terminalTimeoutSeconds),
+                        Duration.ofSeconds(terminalCpuTimeoutSeconds), terminalMaxOutputChars)));
+        callbacks.addAll(schemas.callbacks(PDFGenerationTool.class, PDFGenerationTool::new));
+        callbacks.addAll(schemas.callbacks(TerminateTool.class, TerminateTool::new));
+        callbacks.addAll(schemas.callbacks(AmapAPITool.class, this::amapAPITool));
+        callbacks.addAll(schemas.callbacks(RouteOptimizationTool.class,
+                () -> new RouteOptimizationTool(new DistanceMatrixBuilder(
+                        new AmapDistanceService(amapAPITool()), routeMaxRefinedStops, routeMaxCachedLegs,
+                        Duration.ofHours(routeCacheTtlHours).toMillis()))));
+        log.info("Tool definitions: {} pre-generated, {} generated at startup", schemas.getPregenerated(), schemas.getGenerated());
+        ToolCallback[] localTools = toolMemoizer().wrap(callbacks.toArray(ToolCallback[]::new),
+                TOOL_CLASSES.toArray(Class<?>[]::new));
+        // 本地工具与 MCP 工具合并，按工具名排序，所有使用方的工具定义顺序一致，便于命中前缀缓存；重名时本地工具优先
+        return PromptPrefix.canonicalTools(Stream.concat(Arrays.stream(localTools),
+                        Arrays.stream(mcpToolRegistry().getToolCallbacks()))
+                .toArray(ToolCallback[]::new));
+    }
+
+    /**
+     * 地图工具，路线优化共用同一实例；首次调用地图或路线工具时才创建
+     */
+    @Bean
+    @Lazy
+    public AmapAPITool amapAPITool() {
+        return new AmapAPITool(amapApiKey, jsApiKey, securityJsCode, rateLimiterRegistry.get(RateLimiterRegistry.AMAP),
+                poiIndexProvider.getIfAvailable());
+    }
+
+    @Bean(destroyMethod = "close")
+    public McpToolRegistry mcpToolRegistry() {
+        List<McpServerSpec> specs = List.of();
+        if (mcpEnabled) {
+            org.springframework.core.io.Resource configuration = resourceLoader.getResource(mcpServersConfiguration);
+            if (configuration.exists()) {
+                try {
+                    specs = McpServerSpec.parse(StreamUtils.copyToString(configuration.getInputStream(), StandardCharsets.UTF_8),
+                            mcpPoolSize);
+                } catch (Exception e) {
+                    log.warn("Failed to read MCP servers configuration {}: {}", mcpServersConfiguration, e.getMessage());
+                }
+            } else {
+                log.info("MCP servers configuration {} not found, no MCP tools registered", mcpServersConfiguration);
+            }
+        }
+        return McpToolRegistry.start(specs, Path.of(FileConstant.FILE_SAVE_DIR, "mcp", "tools.json"),
+                Duration.ofSeconds(mcpRequestTimeoutSeconds), Duration.ofSeconds(mcpStartupTimeoutSeconds),
+                Duration.ofHours(mcpToolsCacheTtlHours));
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "tools.poi.enabled", havingValue = "true", matchIfMissing = true)
+    public PoiIndex poiIndex() {
+        return PoiIndex.open(Path.of(FileConstant.FILE_SAVE_DIR, "poi", "poi-index.bin"), poiMaxPoints,
+                Duration.ofHours(poiCoverageTtlHours));
+    }
+
+    @Bean
+    public ToolMemoizer toolMemoizer() {
+        return new ToolMemoizer(toolCacheEnabled, toolCacheMaxEntries);
+    }
+
+    @Bean
+    public ToolCatalog toolCatalog() {
+        return new ToolCatalog(allTools(), dashscopeEmbeddingModel::embed, selectionEnabled, selectionMaxTools,
+                selectionMinScore, List.of(selectionAlwaysInclude));
+    }
+
+    @Bean
+    public PrefetchSettings prefetchSettings() {
+        if (!prefetchEnabled) {
+            return PrefetchSettings.disabled();
+        }
+        return new PrefetchSettings(true, Duration.ofSeconds(prefetchTtlSeconds), prefetchMaxCallsPerStep,
+                PrefetchRules.of(List.of(prefetchRules)));
     }
 }
@@ -1,5 +1,6 @@
 package com.zhishi.aiagent.tools;
 
+import com.zhishi.aiagent.tools.cache.Idempotent;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.springframework.ai.tool.annotation.Tool;
@@ -10,6 +11,7 @@ import org.springframework.ai.tool.annotation.ToolParam;
  */
 public class WebScrapingTool {
 
+    @Idempotent(ttlSeconds = 600, failureMarkers = "Error scraping web page")
     @Tool(description = "Scrape the content of a web page")
     public String scrapeWebPage(@ToolParam(description = "URL of the web page to scrape") String url) {
         try {
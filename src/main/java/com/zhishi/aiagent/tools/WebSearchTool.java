@@ -4,6 +4,7 @@ import cn.hutool.http.HttpUtil;
 import cn.hutool.json.JSONArray;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
+import com.zhishi.aiagent.tools.cache.Idempotent;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
 
@@ -26,6 +27,7 @@ public class WebSearchTool {
         this.apiKey = apiKey;
     }
 
+    @Idempotent(ttlSeconds = 600, failureMarkers = "Error searching Baidu")
     @Tool(description = "Search for information from Baidu Search Engine")
     public String searchWeb(
             @ToolParam(description = "Search query keyword") String query) {
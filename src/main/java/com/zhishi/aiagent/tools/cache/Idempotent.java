@@ -0,0 +1,32 @@
+package com.zhishi.aiagent.tools.cache;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记只读且幂等的工具方法，相同参数的调用结果可以复用
+ * 未标记的工具每次都会真正执行
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Idempotent {
+
+    /**
+     * 结果有效期（秒）
+     */
+    long ttlSeconds() default 600;
+
+    /**
+     * 是否在所有运行之间共享；为 false 时只在同一次运行内复用
+     */
+    boolean shared() default true;
+
+    /**
+     * 结果中出现这些标记时视为调用失败，不缓存
+     */
+    String[] failureMarkers() default {};
+}
@@ -0,0 +1,88 @@
+package com.zhishi.aiagent.tools.cache;
+
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+import java.util.function.Supplier;
+
+/**
+ * 复用幂等工具结果的工具回调：先查当前运行的缓存，再查全局缓存（仅限可共享的工具），都未命中时执行工具
+ */
+class MemoizingToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+
+    private final Idempotent idempotent;
+
+    private final ToolResultCache globalCache;
+
+    private final ToolCacheStats stats;
+
+    MemoizingToolCallback(ToolCallback delegate, Idempotent idempotent, ToolResultCache globalCache, ToolCacheStats stats) {
+        this.delegate = delegate;
+        this.idempotent = idempotent;
+        this.globalCache = globalCache;
+        this.stats = stats;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return memoize(toolInput, () -> delegate.call(toolInput));
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        return memoize(toolInput, () -> delegate.call(toolInput, toolContext));
+    }
+
+    private String memoize(String toolInput, Supplier<String> execute) {
+        String key = ToolCallKey.of(getToolDefinition().name(), toolInput);
+        long ttlMillis = idempotent.ttlSeconds() * 1000;
+        ToolResultCache.Source[] source = {ToolResultCache.Source.COMPUTED};
+        Supplier<String> global = !idempotent.shared() ? execute : () -> {
+            ToolResultCache.Lookup lookup = globalCache.getOrCompute(key, ttlMillis, execute, this::cacheable);
+            source[0] = lookup.source();
+            return lookup.result();
+        };
+        ToolResultCache runCache = ToolCacheScope.current();
+        String result;
+        if (runCache != null) {
+            ToolResultCache.Lookup lookup = runCache.getOrCompute(key, ttlMillis, global, this::cacheable);
+            if (lookup.source() != ToolResultCache.Source.COMPUTED) {
+                source[0] = lookup.source();
+            }
+            result = lookup.result();
+        } else {
+            result = global.get();
+        }
+        stats.record(source[0]);
+        return result;
+    }
+
+    /**
+     * 失败信息可能跟在部分成功的结果之后，整个结果中出现失败标记都不缓存
+     */
+    private boolean cacheable(String result) {
+        if (result == null) {
+            return false;
+        }
+        for (String marker : idempotent.failureMarkers()) {
+            if (result.contains(marker)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
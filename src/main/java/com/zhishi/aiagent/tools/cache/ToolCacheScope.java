@@ -0,0 +1,28 @@
+package com.zhishi.aiagent.tools.cache;
+
+/**
+ * 当前运行的工具结果缓存，由代理在执行循环所在线程上绑定
+ * 同一次运行内即使是不跨运行共享的工具，相同调用也只执行一次
+ */
+public final class ToolCacheScope {
+
+    private static final ThreadLocal<ToolResultCache> CURRENT = new ThreadLocal<>();
+
+    private ToolCacheScope() {
+    }
+
+    public static void bind(ToolResultCache cache) {
+        CURRENT.set(cache);
+    }
+
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 当前运行的缓存，不在运行中时返回 null
+     */
+    public static ToolResultCache current() {
+        return CURRENT.get();
+    }
+}
@@ -0,0 +1,48 @@
+package com.zhishi.aiagent.tools.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个工具的缓存统计（命中、合并到进行中调用、实际执行）
+ */
+public class ToolCacheStats {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    void record(ToolResultCache.Source source) {
+        switch (source) {
+            case HIT -> hits.increment();
+            case COALESCED -> coalesced.increment();
+            case COMPUTED -> misses.increment();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * 未实际执行的调用占比
+     */
+    public double getHitRate() {
+        long saved = getHits() + getCoalesced();
+        long total = saved + getMisses();
+        return total == 0 ? 0 : (double) saved / total;
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + getHits() + ", coalesced=" + getCoalesced() + ", misses=" + getMisses()
+                + ", hitRate=" + String.format("%.2f", getHitRate());
+    }
+}
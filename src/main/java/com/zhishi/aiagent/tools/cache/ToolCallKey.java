@@ -0,0 +1,49 @@
+package com.zhishi.aiagent.tools.cache;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 工具调用的规范化缓存键：工具名加规范化参数
+ * 参数中的对象按键排序、去掉空值，字符串去掉首尾空白，使顺序或格式不同的等价调用得到相同的键
+ */
+public final class ToolCallKey {
+
+    private ToolCallKey() {
+    }
+
+    public static String of(String toolName, String arguments) {
+        if (StrUtil.isBlank(arguments)) {
+            return toolName + ":{}";
+        }
+        try {
+            return toolName + ":" + JSONUtil.toJsonStr(normalize(JSONUtil.parse(arguments)));
+        } catch (Exception e) {
+            return toolName + ":" + StrUtil.trim(arguments);
+        }
+    }
+
+    private static Object normalize(Object value) {
+        if (value instanceof JSONObject object) {
+            Map<String, Object> sorted = new TreeMap<>();
+            object.forEach((key, item) -> {
+                if (item != null && !JSONUtil.isNull(item)) {
+                    sorted.put(key, normalize(item));
+                }
+            });
+            return sorted;
+        }
+        if (value instanceof JSONArray array) {
+            return array.stream().map(ToolCallKey::normalize).toList();
+        }
+        if (value instanceof CharSequence text) {
+            return StrUtil.trim(text);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,90 @@
+package com.zhishi.aiagent.tools.cache;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.support.ToolCallbacks;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.annotation.Tool;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 工具结果复用
+ * 为标注了 {@link Idempotent} 的工具方法包装缓存，其余工具原样返回；全局缓存在所有运行之间共享
+ */
+@Slf4j
+public class ToolMemoizer {
+
+    // 每次运行内缓存的调用数
+    public static final int RUN_CACHE_SIZE = 256;
+
+    private final boolean enabled;
+
+    private final ToolResultCache globalCache;
+
+    private final Map<String, ToolCacheStats> stats = new ConcurrentHashMap<>();
+
+    public ToolMemoizer(boolean enabled, int maxEntries) {
+        this.enabled = enabled;
+        this.globalCache = new ToolResultCache(maxEntries);
+    }
+
+    /**
+     * 从工具对象创建工具回调，幂等工具包装缓存
+     */
+    public ToolCallback[] wrap(Object... toolObjects) {
+        return wrap(ToolCallbacks.from(toolObjects), Arrays.stream(toolObjects).map(Object::getClass).toArray(Class<?>[]::new));
+    }
+
+    /**
+     * 为已创建的工具回调包装缓存，幂等工具按工具类上的注解识别，不需要工具对象
+     */
+    public ToolCallback[] wrap(ToolCallback[] callbacks, Class<?>... toolClasses) {
+        if (!enabled) {
+            return callbacks;
+        }
+        Map<String, Idempotent> idempotentTools = idempotentTools(toolClasses);
+        log.info("Memoizing idempotent tools: {}", idempotentTools.keySet());
+        return Arrays.stream(callbacks)
+                .map(callback -> {
+                    String name = callback.getToolDefinition().name();
+                    Idempotent idempotent = idempotentTools.get(name);
+                    if (idempotent == null) {
+                        return callback;
+                    }
+                    return (ToolCallback) new MemoizingToolCallback(callback, idempotent, globalCache,
+                            stats.computeIfAbsent(name, key -> new ToolCacheStats()));
+                })
+                .toArray(ToolCallback[]::new);
+    }
+
+    /**
+     * 各工具的缓存统计
+     */
+    public Map<String, ToolCacheStats> getStats() {
+        return new TreeMap<>(stats);
+    }
+
+    public int getGlobalCacheSize() {
+        return globalCache.size();
+    }
+
+    private static Map<String, Idempotent> idempotentTools(Class<?>... toolClasses) {
+        Map<String, Idempotent> result = new HashMap<>();
+        for (Class<?> toolClass : toolClasses) {
+            for (Method method : toolClass.getMethods()) {
+                Tool tool = method.getAnnotation(Tool.class);
+                Idempotent idempotent = method.getAnnotation(Idempotent.class);
+                if (tool != null && idempotent != null) {
+                    result.put(StrUtil.blankToDefault(tool.name(), method.getName()), idempotent);
+                }
+            }
+        }
+        return result;
+    }
+}
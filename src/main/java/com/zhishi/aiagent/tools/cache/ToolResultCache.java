@@ -0,0 +1,103 @@
+package com.zhishi.aiagent.tools.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 工具结果缓存，按最近最少使用淘汰，条目带有效期
+ * 缓存的是调用的 Future：相同键的并发调用等待同一次执行，只有第一个调用真正执行工具；
+ * 执行失败或结果不可缓存时移除条目，下次调用重新执行
+ */
+public class ToolResultCache {
+
+    /**
+     * 结果来源
+     */
+    public enum Source {
+        HIT, COALESCED, COMPUTED
+    }
+
+    public record Lookup(String result, Source source) {
+    }
+
+    private record Entry(CompletableFuture<String> result, long expiresAt) {
+    }
+
+    private final Map<String, Entry> entries;
+
+    public ToolResultCache(int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 查找缓存，不存在时执行调用
+     *
+     * @param key       规范化的调用键
+     * @param ttlMillis 结果有效期
+     * @param call      实际调用
+     * @param cacheable 判断结果是否可缓存
+     */
+    public Lookup getOrCompute(String key, long ttlMillis, Supplier<String> call, Predicate<String> cacheable) {
+        Entry entry;
+        boolean owner = false;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry == null || entry.expiresAt() < System.currentTimeMillis()) {
+                entry = new Entry(new CompletableFuture<>(), System.currentTimeMillis() + ttlMillis);
+                entries.put(key, entry);
+                owner = true;
+            }
+        }
+        if (!owner) {
+            Source source = entry.result().isDone() ? Source.HIT : Source.COALESCED;
+            try {
+                return new Lookup(entry.result().join(), source);
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            String result = call.get();
+            if (!cacheable.test(result)) {
+                remove(key, entry);
+            }
+            entry.result().complete(result);
+            return new Lookup(result, Source.COMPUTED);
+        } catch (Throwable e) {
+            // 包括 Error：等待同一次执行的调用必须得到结果，否则会一直阻塞
+            remove(key, entry);
+            entry.result().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private void remove(String key, Entry entry) {
+        synchronized (entries) {
+            entries.remove(key, entry);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.zhishi.aiagent.tools.schema;
+
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+import org.springframework.ai.tool.method.MethodToolCallback;
+import org.springframework.ai.tool.support.ToolUtils;
+
+import java.lang.reflect.Method;
+import java.util.function.Supplier;
+
+/**
+ * 工具定义预先确定、工具对象在首次调用时才创建的工具回调
+ */
+class LazyToolCallback implements ToolCallback {
+
+    private final ToolDefinition definition;
+
+    private final ToolMetadata metadata;
+
+    private final Method method;
+
+    private final Supplier<?> instance;
+
+    private volatile ToolCallback delegate;
+
+    LazyToolCallback(ToolDefinition definition, Method method, Supplier<?> instance) {
+        this.definition = definition;
+        this.metadata = ToolMetadata.from(method);
+        this.method = method;
+        this.instance = instance;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return definition;
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return metadata;
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return delegate().call(toolInput);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        return delegate().call(toolInput, toolContext);
+    }
+
+    private ToolCallback delegate() {
+        ToolCallback callback = delegate;
+        if (callback == null) {
+            synchronized (this) {
+                callback = delegate;
+                if (callback == null) {
+                    callback = MethodToolCallback.builder()
+                            .toolDefinition(definition)
+                            .toolMetadata(metadata)
+                            .toolMethod(method)
+                            .toolObject(instance.get())
+                            .toolCallResultConverter(ToolUtils.getToolCallResultConverter(method))
+                            .build();
+                    delegate = callback;
+                }
+            }
+        }
+        return callback;
+    }
+}
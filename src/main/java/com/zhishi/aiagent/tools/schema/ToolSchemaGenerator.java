@@ -0,0 +1,23 @@
+package com.zhishi.aiagent.tools.schema;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zhishi.aiagent.tools.ToolRegistration;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * 构建时生成工具定义，由 Maven 的 startup 配置在编译后执行
+ * 参数：输出文件路径，默认写入 target/classes/{@value ToolSchemas#RESOURCE}
+ */
+public class ToolSchemaGenerator {
+
+    public static void main(String[] args) throws Exception {
+        Path output = Path.of(args.length > 0 ? args[0] : "target/classes/" + ToolSchemas.RESOURCE);
+        Map<String, ToolSchemas.Entry> entries = ToolSchemas.generate(ToolRegistration.TOOL_CLASSES);
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(output.toFile(), entries);
+        System.out.println("Generated " + entries.size() + " tool definitions to " + output);
+    }
+}
@@ -0,0 +1,182 @@
+package com.zhishi.aiagent.tools.schema;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.support.ToolDefinitions;
+import org.springframework.util.ReflectionUtils;
+
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 预生成的工具定义
+ * 构建时由 {@link ToolSchemaGenerator} 为所有 @Tool 方法生成参数结构，保存在类路径的 {@value #RESOURCE} 中；
+ * 启动时直接读取，不再逐个方法反射生成 JSON Schema。方法签名或注解变化后指纹不一致，该方法回退到运行时生成
+ * 工具对象在首次调用时才创建，不常用的工具不占用启动时间
+ */
+@Slf4j
+public final class ToolSchemas {
+
+    public static final String RESOURCE = "META-INF/tool-schemas.json";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * @param fingerprint 方法签名和注解的指纹
+     * @param name        工具名
+     * @param description 描述
+     * @param inputSchema 参数的 JSON Schema
+     */
+    record Entry(String fingerprint, String name, String description, String inputSchema) {
+    }
+
+    private final Map<String, Entry> entries;
+
+    private final AtomicInteger pregenerated = new AtomicInteger();
+    private final AtomicInteger generated = new AtomicInteger();
+
+    ToolSchemas(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * 读取类路径中的预生成结果，不存在时所有工具在运行时生成
+     */
+    public static ToolSchemas load() {
+        try (InputStream in = ToolSchemas.class.getClassLoader().getResourceAsStream(RESOURCE)) {
+            if (in != null) {
+                return new ToolSchemas(OBJECT_MAPPER.readValue(in, new TypeReference<Map<String, Entry>>() {
+                }));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to read pre-generated tool schemas: {}", e.getMessage());
+        }
+        return new ToolSchemas(Map.of());
+    }
+
+    /**
+     * 为工具类的所有 @Tool 方法创建工具回调
+     *
+     * @param instance 创建工具对象，首次调用其中任一工具时执行一次
+     */
+    public List<ToolCallback> callbacks(Class<?> type, Supplier<?> instance) {
+        Supplier<?> shared = new SharedInstance(instance);
+        return toolMethods(type).stream()
+                .map(method -> (ToolCallback) new LazyToolCallback(definition(method), method, shared))
+                .toList();
+    }
+
+    /**
+     * 使用预生成结果的工具数
+     */
+    public int getPregenerated() {
+        return pregenerated.get();
+    }
+
+    /**
+     * 运行时生成的工具数
+     */
+    public int getGenerated() {
+        return generated.get();
+    }
+
+    private ToolDefinition definition(Method method) {
+        Entry entry = entries.get(key(method));
+        if (entry != null && entry.fingerprint().equals(fingerprint(method))) {
+            pregenerated.incrementAndGet();
+            return ToolDefinition.builder()
+                    .name(entry.name())
+                    .description(entry.description())
+                    .inputSchema(entry.inputSchema())
+                    .build();
+        }
+        generated.incrementAndGet();
+        return ToolDefinitions.from(method);
+    }
+
+    /**
+     * 生成工具类所有 @Tool 方法的定义
+     */
+    static Map<String, Entry> generate(Collection<Class<?>> types) {
+        Map<String, Entry> result = new TreeMap<>();
+        for (Class<?> type : types) {
+            for (Method method : toolMethods(type)) {
+                ToolDefinition definition = ToolDefinitions.from(method);
+                result.put(key(method), new Entry(fingerprint(method), definition.name(), definition.description(),
+                        definition.inputSchema()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 与 Spring AI 的 MethodToolCallbackProvider 相同：类中声明的、标注了 @Tool 的方法
+     */
+    static List<Method> toolMethods(Class<?> type) {
+        return Arrays.stream(ReflectionUtils.getDeclaredMethods(type))
+                .filter(method -> method.isAnnotationPresent(Tool.class))
+                .sorted(Comparator.comparing(ToolSchemas::key))
+                .toList();
+    }
+
+    static String key(Method method) {
+        return method.getDeclaringClass().getName() + "#" + method.getName()
+                + Arrays.toString(method.getParameterTypes());
+    }
+
+    /**
+     * 方法签名和注解的指纹，决定参数结构的内容都包含在内
+     */
+    static String fingerprint(Method method) {
+        StringBuilder text = new StringBuilder(method.toGenericString())
+                .append('\n').append(method.getAnnotation(Tool.class));
+        for (Parameter parameter : method.getParameters()) {
+            text.append('\n').append(parameter.getName()).append(' ').append(parameter.getParameterizedType().getTypeName())
+                    .append(' ').append(Arrays.toString(parameter.getAnnotations()));
+        }
+        return DigestUtil.md5Hex(text.toString());
+    }
+
+    /**
+     * 同一工具类的多个工具共享一个工具对象
+     */
+    private static final class SharedInstance implements Supplier<Object> {
+
+        private final Supplier<?> factory;
+
+        private volatile Object value;
+
+        private SharedInstance(Supplier<?> factory) {
+            this.factory = factory;
+        }
+
+        @Override
+        public Object get() {
+            Object current = value;
+            if (current == null) {
+                synchronized (this) {
+                    current = value;
+                    if (current == null) {
+                        current = factory.get();
+                        value = current;
+                    }
+                }
+            }
+            return current;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+(function() {
+    var apiKey = {{apiKey}};
+    var securityJsCode = {{securityJsCode}};
+    // 按类型分组的地点：[列表索引, 经度, 纬度, 名称, 时间, 描述, 地址]
+    var groups = {{markers}};
+    var count = {{count}};
+
+    // 设置安全密钥配置（必须在JS API加载之前）
+    window._AMapSecurityConfig = {
+        securityJsCode: securityJsCode
+    };
+
+    // 动态加载地图脚本
+    var script1 = document.createElement('script');
+    script1.src = 'https://webapi.amap.com/maps?v=2.0&key=' + apiKey;
+    script1.onerror = function() {
+        console.error('地图脚本加载失败，请检查网络连接和API密钥');
+        var errorDiv = document.getElementById('travel-map');
+        if (errorDiv) {
+            errorDiv.innerHTML = '<div style="padding: 20px; text-align: center; color: #e74c3c;"><i class="fas fa-exclamation-triangle"></i> 地图加载失败，请检查网络连接</div>';
+        }
+    };
+    script1.onload = function() {
+        var script2 = document.createElement('script');
+        script2.src = 'https://webapi.amap.com/ui/1.1/main.js';
+        script2.onerror = function() {
+            console.error('地图UI脚本加载失败');
+            initMap();
+        };
+        script2.onload = function() {
+            initMap();
+        };
+        document.head.appendChild(script2);
+    };
+    document.head.appendChild(script1);
+
+    function escapeHtml(text) {
+        return String(text).replace(/[&<>"']/g, function(c) {
+            return { '&': '&amp;', '<': '&lt;', '>': '&gt;', '"': '&quot;', "'": '&#39;' }[c];
+        });
+    }
+
+    // 根据类型获取标记图标
+    function getMarkerIcon(type) {
+        var iconColor = type === 'restaurant' ? 'r' : type === 'hotel' ? 'g' : 'b';
+        return 'https://webapi.amap.com/theme/v1.3/markers/n/mark_' + iconColor + '.png';
+    }
+
+    function initMap() {
+        // 检查地图容器是否存在
+        var mapContainer = document.getElementById('travel-map');
+        if (!mapContainer) {
+            console.error('地图容器不存在');
+            return;
+        }
+
+        // 初始化地图
+        var map = new AMap.Map('travel-map', {
+            zoom: 13,
+            center: [119.973, 31.810], // 默认中心点
+            viewMode: '3D',
+            resizeEnable: true
+        });
+
+        // 按列表顺序还原地点，同一类型的图标只计算一次
+        var locations = new Array(count);
+        Object.keys(groups).forEach(function(type) {
+            var icon = getMarkerIcon(type);
+            groups[type].forEach(function(m) {
+                locations[m[0]] = { type: type, icon: icon, lng: m[1], lat: m[2], name: m[3], time: m[4], description: m[5], address: m[6] };
+            });
+        });
+        var markers = [];
+        var infoWindows = [];
+
+        function highlight(index) {
+            document.querySelectorAll('.location-item-embedded').forEach(function(item) {
+                item.classList.remove('active');
+            });
+            var listItem = document.querySelector('.location-item-embedded[data-index="' + index + '"]');
+            if (listItem) {
+                listItem.classList.add('active');
+                listItem.scrollIntoView({ behavior: 'smooth', block: 'nearest' });
+            }
+        }
+
+        // 创建标记和信息窗口（等待地图加载完成）
+        function addMarkers() {
+            locations.forEach(function(loc, index) {
+                var marker = new AMap.Marker({
+                    position: [loc.lng, loc.lat],
+                    title: loc.name,
+                    icon: loc.icon,
+                    offset: new AMap.Pixel(-13, -30)
+                });
+
+                var infoWindow = new AMap.InfoWindow({
+                    content: '<div style="padding: 10px; min-width: 200px; max-width: 300px; box-sizing: border-box;">' +
+                        '<h3 style="margin: 0 0 10px 0; color: #2c3e50; font-size: 16px; font-weight: bold; word-wrap: break-word;">' + escapeHtml(loc.name) + '</h3>' +
+                        '<p style="margin: 5px 0; color: #e74c3c; font-size: 13px; word-wrap: break-word;"><i class="fas fa-clock"></i> ' + escapeHtml(loc.time) + '</p>' +
+                        '<p style="margin: 5px 0; color: #666; font-size: 13px; line-height: 1.5; word-wrap: break-word;">' + escapeHtml(loc.description) + '</p>' +
+                        (loc.address ? '<p style="margin: 5px 0; color: #999; font-size: 12px; word-wrap: break-word;"><i class="fas fa-map-marker-alt"></i> ' + escapeHtml(loc.address) + '</p>' : '') +
+                        '</div>',
+                    offset: new AMap.Pixel(0, -31),
+                    closeWhenClickMap: true,
+                    autoMove: false
+                });
+
+                marker.on('click', function() {
+                    // 关闭其他信息窗口
+                    infoWindows.forEach(function(iw) {
+                        iw.close();
+                    });
+                    infoWindow.open(map, marker.getPosition());
+                    highlight(index);
+                });
+
+                markers.push(marker);
+                infoWindows.push(infoWindow);
+                map.add(marker);
+            });
+
+            // 绘制路线
+            if (locations.length > 1) {
+                var polyline = new AMap.Polyline({
+                    path: locations.map(function(loc) {
+                        return [loc.lng, loc.lat];
+                    }),
+                    isOutline: true,
+                    outlineColor: '#ffeeff',
+                    borderWeight: 3,
+                    strokeColor: '#3366FF',
+                    strokeOpacity: 1,
+                    strokeWeight: 5,
+                    strokeStyle: 'solid',
+                    lineJoin: 'round',
+                    lineCap: 'round',
+                    zIndex: 50
+                });
+                map.add(polyline);
+                map.setFitView([polyline], false, [50, 50, 50, 50]);
+            } else if (locations.length === 1) {
+                map.setCenter([locations[0].lng, locations[0].lat]);
+                map.setZoom(15);
+            }
+        }
+
+        // 地图加载完成后添加标记
+        if (map.getStatus() === 'complete') {
+            addMarkers();
+        } else {
+            map.on('complete', addMarkers);
+        }
+
+        // 列表项点击事件
+        document.querySelectorAll('.location-item-embedded').forEach(function(item) {
+            item.addEventListener('click', function() {
+                var index = parseInt(item.getAttribute('data-index'));
+                var loc = locations[index];
+                if (!loc) {
+                    return;
+                }
+                infoWindows.forEach(function(iw) {
+                    iw.close();
+                });
+                map.setZoomAndCenter(16, [loc.lng, loc.lat]);
+                // 延迟打开信息窗口，确保地图已移动完成
+                setTimeout(function() {
+                    if (infoWindows[index]) {
+                        infoWindows[index].open(map, [loc.lng, loc.lat]);
+                    }
+                }, 500);
+                highlight(index);
+            });
+        });
+    }
+})();
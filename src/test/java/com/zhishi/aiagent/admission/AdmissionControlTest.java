@@ -0,0 +1,81 @@
+package com.zhishi.aiagent.admission;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class AdmissionControlTest {
+
+    @Test
+    void interactiveFirstAndFairAcrossUsers() throws Exception {
+        // 全局只有一个并发，每个用户同时只执行一个请求
+        AdmissionControl admissionControl = new AdmissionControl(true, 1, 1, 4, 4, 4);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch blockerStarted = new CountDownLatch(1);
+        CountDownLatch releaseBlocker = new CountDownLatch(1);
+        CountDownLatch allDone = new CountDownLatch(4);
+        CompletableFuture<Void> blocker = CompletableFuture.runAsync(() -> admissionControl.call(AdmissionLane.TRIPMIND, "blocker", () -> {
+            blockerStarted.countDown();
+            await(releaseBlocker);
+            return null;
+        }));
+        Assertions.assertTrue(blockerStarted.await(5, TimeUnit.SECONDS));
+
+        // 订阅时同步入队，到达顺序即订阅顺序
+        List<Disposable> subscriptions = new ArrayList<>();
+        for (String[] request : new String[][]{{"manus", "A", "manusA1"}, {"manus", "A", "manusA2"},
+                {"manus", "B", "manusB"}, {"master", "C", "masterC"}}) {
+            AdmissionLane lane = request[0].equals("master") ? AdmissionLane.MASTER : AdmissionLane.MANUS;
+            subscriptions.add(admissionControl.acquire(lane, request[1]).subscribe(permit -> {
+                order.add(request[2]);
+                permit.release();
+                allDone.countDown();
+            }));
+        }
+        Assertions.assertEquals(3, admissionControl.getStats().get("manus").queued());
+        Assertions.assertEquals(0, admissionControl.getStats().get("manus").running());
+        releaseBlocker.countDown();
+
+        Assertions.assertTrue(allDone.await(5, TimeUnit.SECONDS));
+        blocker.get(5, TimeUnit.SECONDS);
+        // 交互式请求优先；同一通道内 B 不必等 A 的所有请求
+        Assertions.assertEquals(List.of("masterC", "manusA1", "manusB", "manusA2"), order);
+        Assertions.assertEquals(3, admissionControl.getStats().get("manus").admitted());
+        subscriptions.forEach(Disposable::dispose);
+    }
+
+    @Test
+    void permitOutlivesSubscriberUntilReleased() throws Exception {
+        AdmissionControl admissionControl = new AdmissionControl(true, 1, 1, 4, 4, 4);
+        CompletableFuture<AdmissionControl.Permit> granted = new CompletableFuture<>();
+        admissionControl.acquire(AdmissionLane.MANUS, "A").subscribe(granted::complete).dispose();
+        AdmissionControl.Permit permit = granted.get(5, TimeUnit.SECONDS);
+
+        // 订阅结束后许可仍被占用，下一个请求排队
+        CompletableFuture<AdmissionControl.Permit> next = new CompletableFuture<>();
+        admissionControl.acquire(AdmissionLane.MASTER, "B").subscribe(next::complete);
+        Assertions.assertFalse(next.isDone());
+        Assertions.assertEquals(1, admissionControl.getStats().get("manus").running());
+
+        permit.release();
+        permit.release();
+        next.get(5, TimeUnit.SECONDS).release();
+        Assertions.assertEquals(0, admissionControl.getStats().get("manus").running());
+        Assertions.assertEquals(0, admissionControl.getStats().get("master").running());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,15 +1,20 @@
 package com.zhishi.aiagent.agent;
 
+import com.zhishi.aiagent.routing.RoutingChatModel;
 import jakarta.annotation.Resource;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.springframework.ai.tool.ToolCallback;
 import org.springframework.boot.test.context.SpringBootTest;
 
 @SpringBootTest
 class BaseAgentTest {
 
     @Resource
-    private  MyManus myManus;
+    private ToolCallback[] allTools;
+
+    @Resource
+    private RoutingChatModel routingChatModel;
 
     @Test
     public void run() {
@@ -20,6 +25,7 @@ class BaseAgentTest {
                 String userPrompt = """
                 我居住在上海市静安区，请帮我找到 5 公里内合适的吃饭地点，
                 并以 PDF 格式输出""";
+        MyManus myManus = new MyManus(allTools, routingChatModel);
         String answer = myManus.run(userPrompt);
         Assertions.assertNotNull(answer);
     }
@@ -0,0 +1,148 @@
+package com.zhishi.aiagent.agent;
+
+import com.zhishi.aiagent.agent.model.PlanTask;
+import com.zhishi.aiagent.routing.RoutingChatModel;
+import com.zhishi.aiagent.routing.RoutingPolicy;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.tool.ToolCallback;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+class PlanExecuteAgentTest {
+
+    /**
+     * 子代理由测试提供，模型固定返回同一段文本
+     */
+    static class ScriptedPlanAgent extends PlanExecuteAgent {
+
+        private final Function<PlanTask, BaseAgent> subAgents;
+
+        ScriptedPlanAgent(String modelReply, Function<PlanTask, BaseAgent> subAgents) {
+            super(new ToolCallback[0], new RoutingChatModel(
+                    prompt -> new ChatResponse(List.of(new Generation(new AssistantMessage(modelReply)))),
+                    null, new RoutingPolicy()));
+            this.subAgents = subAgents;
+            getMessageList().add(new UserMessage("帮我规划北京一日游"));
+        }
+
+        @Override
+        protected BaseAgent createSubAgent(PlanTask task) {
+            return subAgents.apply(task);
+        }
+    }
+
+    static class StubAgent extends BaseAgent {
+
+        private final Function<StubAgent, String> step;
+
+        StubAgent(Function<StubAgent, String> step) {
+            this.step = step;
+            setName("stub");
+            setMaxSteps(1);
+        }
+
+        @Override
+        public String step() {
+            return step.apply(this);
+        }
+    }
+
+    @Test
+    void cancellationStopsRunningSubAgents() throws Exception {
+        CountDownLatch started = new CountDownLatch(2);
+        Map<String, StubAgent> created = new ConcurrentHashMap<>();
+        ScriptedPlanAgent agent = new ScriptedPlanAgent("", task -> created.computeIfAbsent(task.getId(), id -> new StubAgent(self -> {
+            started.countDown();
+            // 忽略中断，只在取消标记置位后结束
+            while (!self.isCancelled()) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    // 继续等待取消标记
+                }
+            }
+            return "cancelled";
+        })));
+        agent.setTasks(List.of(task("a"), task("b")));
+        agent.setCurrentStep(2);
+
+        Thread[] runner = new Thread[1];
+        CompletableFuture<String> result = new CompletableFuture<>();
+        runner[0] = Thread.ofVirtual().start(() -> result.complete(agent.step()));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        runner[0].interrupt();
+
+        Assertions.assertEquals("执行被取消", result.get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(created.values().stream().allMatch(BaseAgent::isCancelled));
+    }
+
+    @Test
+    void failedSubtaskIsReportedAndDependentsStillRun() {
+        ScriptedPlanAgent agent = new ScriptedPlanAgent("", task -> new StubAgent(self -> {
+            if (task.getId().equals("weather")) {
+                throw new AssertionError("天气服务不可用");
+            }
+            return "完成 " + task.getId();
+        }));
+        agent.setTasks(PlanExecuteAgent.order(List.of(task("weather"), task("route", "weather"))));
+        agent.setCurrentStep(2);
+
+        String summary = Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), agent::step);
+
+        Assertions.assertTrue(summary.contains("天气服务不可用"), summary);
+        Assertions.assertEquals("子任务执行失败：天气服务不可用", agent.getTaskResults().get("weather"));
+        Assertions.assertTrue(agent.getTaskResults().get("route").contains("完成 route"));
+    }
+
+    @Test
+    void malformedPlanRunsRequestAsSingleTask() {
+        ScriptedPlanAgent agent = new ScriptedPlanAgent("这不是 JSON", task -> new StubAgent(self -> "ok"));
+        agent.setCurrentStep(1);
+
+        agent.step();
+
+        Assertions.assertEquals(1, agent.getTasks().size());
+        Assertions.assertEquals("帮我规划北京一日游", agent.getTasks().get(0).getDescription());
+    }
+
+    @Test
+    void orderTopologically() {
+        List<PlanTask> ordered = PlanExecuteAgent.order(List.of(
+                task("merge", "weather", "food"),
+                task("weather"),
+                task("food", "unknown", "food")));
+        Assertions.assertEquals(List.of("weather", "food", "merge"), ordered.stream().map(PlanTask::getId).toList());
+        // 未知依赖和自依赖被移除
+        Assertions.assertTrue(ordered.get(1).getDependsOn().isEmpty());
+    }
+
+    @Test
+    void cycleFallsBackToSequential() {
+        List<PlanTask> ordered = PlanExecuteAgent.order(List.of(task("a", "b"), task("b", "a"), task("c")));
+        Assertions.assertEquals(List.of("a", "b", "c"), ordered.stream().map(PlanTask::getId).toList());
+        Assertions.assertTrue(ordered.get(0).getDependsOn().isEmpty());
+        Assertions.assertEquals(List.of("a"), ordered.get(1).getDependsOn());
+        Assertions.assertEquals(List.of("b"), ordered.get(2).getDependsOn());
+    }
+
+    private static PlanTask task(String id, String... dependsOn) {
+        PlanTask task = new PlanTask();
+        task.setId(id);
+        task.setDescription(id);
+        task.setDependsOn(new ArrayList<>(List.of(dependsOn)));
+        return task;
+    }
+}
@@ -0,0 +1,68 @@
+package com.zhishi.aiagent.agent.prefetch;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+class ToolPrefetcherTest {
+
+    @Test
+    void keyIgnoresArgumentOrder() {
+        Assertions.assertEquals(
+                ToolPrefetcher.key("geocode", "{\"address\":\"故宫\",\"city\":\"北京\"}"),
+                ToolPrefetcher.key("geocode", "{\"city\":\"北京\", \"address\":\"故宫\"}"));
+    }
+
+    @Test
+    void prefetchedCallIsServedFromCache() {
+        AtomicInteger geocodeCalls = new AtomicInteger();
+        ToolCallback geocode = tool("geocode", input -> {
+            geocodeCalls.incrementAndGet();
+            return "116.397,39.918";
+        });
+        ToolPrefetcher prefetcher = new ToolPrefetcher(new ToolCallback[]{geocode},
+                new PrefetchSettings(true, Duration.ofSeconds(30), 3, PrefetchRules.of(List.of("placeSearch:geocode"))));
+
+        String pois = "{\"name\":\"故宫博物院\",\"location\":\"116.397,39.918\"},{\"name\":\"景山公园\",\"location\":\"116.396,39.925\"}";
+        List<Message> messages = List.of(
+                new AssistantMessage("", Map.of(), List.of(new AssistantMessage.ToolCall("call-1", "function", "placeSearch",
+                        "{\"keywords\":\"景点\",\"city\":\"北京\"}"))),
+                new ToolResponseMessage(List.of(new ToolResponseMessage.ToolResponse("call-1", "placeSearch",
+                        "\"" + pois.replace("\"", "\\\"") + "\""))));
+        prefetcher.prefetch(messages);
+        Assertions.assertEquals(2, prefetcher.getIssued());
+
+        ToolCallback wrapped = prefetcher.wrap(new ToolCallback[]{geocode})[0];
+        Assertions.assertEquals("116.397,39.918", wrapped.call("{\"city\":\"北京\",\"address\":\"故宫博物院\"}"));
+        wrapped.call("{\"address\":\"景山公园\",\"city\":\"北京\"}");
+        Assertions.assertEquals(2, prefetcher.getHits());
+        // 未预取的调用照常执行
+        wrapped.call("{\"city\":\"北京\",\"address\":\"天坛\"}");
+        Assertions.assertEquals(3, geocodeCalls.get());
+    }
+
+    private static ToolCallback tool(String name, Function<String, String> body) {
+        ToolDefinition definition = ToolDefinition.builder().name(name).description(name).inputSchema("{}").build();
+        return new ToolCallback() {
+            @Override
+            public ToolDefinition getToolDefinition() {
+                return definition;
+            }
+
+            @Override
+            public String call(String toolInput) {
+                return body.apply(toolInput);
+            }
+        };
+    }
+}
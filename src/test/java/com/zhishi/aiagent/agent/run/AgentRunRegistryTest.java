@@ -0,0 +1,95 @@
+package com.zhishi.aiagent.agent.run;
+
+import com.zhishi.aiagent.agent.BaseAgent;
+import com.zhishi.aiagent.sse.AgentEvent;
+import com.zhishi.aiagent.sse.AgentEventType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class AgentRunRegistryTest {
+
+    /**
+     * 每步先输出思考再结束；第 2 步可以阻塞，模拟服务在步骤中途停止
+     */
+    static class ScriptedAgent extends BaseAgent {
+
+        private final CountDownLatch blockSecondStep;
+
+        ScriptedAgent(CountDownLatch blockSecondStep) {
+            this.blockSecondStep = blockSecondStep;
+            setName("scripted");
+            setMaxSteps(2);
+        }
+
+        @Override
+        public String step() {
+            emit(AgentEvent.of(AgentEventType.THOUGHT, "thinking " + getCurrentStep()));
+            if (getCurrentStep() == 2 && blockSecondStep != null) {
+                try {
+                    blockSecondStep.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException("interrupted", e);
+                }
+            }
+            return "done " + getCurrentStep();
+        }
+    }
+
+    @Test
+    void resumedRunContinuesAfterEventsAlreadyDelivered(@TempDir Path dir) throws Exception {
+        RunCheckpointStore store = new RunCheckpointStore(dir);
+        CountDownLatch never = new CountDownLatch(1);
+        AgentRunRegistry registry = new AgentRunRegistry(store, () -> new ScriptedAgent(never));
+        AgentRun run = registry.start("task");
+
+        // 客户端收到第 2 步的思考后，服务停止；该事件晚于最后一个检查点
+        List<AgentEvent> received = new CopyOnWriteArrayList<>();
+        CountDownLatch secondThought = new CountDownLatch(1);
+        run.events(0).subscribe(event -> {
+            received.add(event);
+            if ("thinking 2".equals(event.data())) {
+                secondThought.countDown();
+            }
+        });
+        Assertions.assertTrue(secondThought.await(5, TimeUnit.SECONDS));
+        long lastEventId = received.get(received.size() - 1).id();
+        Assertions.assertEquals(AgentEventType.THOUGHT, received.get(received.size() - 1).type());
+        Assertions.assertTrue(lastEventId > store.load(run.getRunId()).getLastEventId());
+        run.stop();
+
+        // 重启后从检查点恢复，客户端按真实的 Last-Event-ID 重连
+        AgentRunRegistry restarted = new AgentRunRegistry(store, () -> new ScriptedAgent(null));
+        AgentRun resumed = restarted.find(run.getRunId());
+        List<AgentEvent> replayed = resumed.events(lastEventId).collectList().block(Duration.ofSeconds(5));
+
+        Assertions.assertNotNull(replayed);
+        Assertions.assertEquals(AgentEventType.RUN, replayed.get(0).type());
+        Assertions.assertTrue(replayed.get(0).id() > lastEventId);
+        Assertions.assertEquals(List.of(AgentEventType.RUN, AgentEventType.THOUGHT, AgentEventType.STEP, AgentEventType.FINAL),
+                replayed.stream().map(AgentEvent::type).toList());
+    }
+
+    @Test
+    void completionCallbackFollowsRunNotSubscriber(@TempDir Path dir) throws Exception {
+        CountDownLatch finishStep = new CountDownLatch(1);
+        CountDownLatch completed = new CountDownLatch(1);
+        AgentRunRegistry registry = new AgentRunRegistry(new RunCheckpointStore(dir), () -> new ScriptedAgent(finishStep));
+        AgentRun run = registry.start("task", completed::countDown);
+
+        // 客户端收到首个事件后断开，运行继续执行
+        run.events(0).take(1).blockLast(Duration.ofSeconds(5));
+        Assertions.assertEquals(1, completed.getCount());
+
+        finishStep.countDown();
+        Assertions.assertTrue(completed.await(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(run.isCompleted());
+    }
+}
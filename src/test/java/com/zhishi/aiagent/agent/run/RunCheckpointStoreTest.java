@@ -0,0 +1,41 @@
+package com.zhishi.aiagent.agent.run;
+
+import cn.hutool.json.JSONUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.List;
+import java.util.Map;
+
+class RunCheckpointStoreTest {
+
+    @Test
+    void roundTrip() {
+        List<Message> messages = List.of(
+                new UserMessage("查找附近的餐厅"),
+                new AssistantMessage("", Map.of(), List.of(
+                        new AssistantMessage.ToolCall("call_1", "function", "placeSearch", "{\"keywords\":\"餐厅\"}"))),
+                new ToolResponseMessage(List.of(
+                        new ToolResponseMessage.ToolResponse("call_1", "placeSearch", "[{\"name\":\"老字号\"}]"))));
+        RunCheckpoint checkpoint = new RunCheckpoint();
+        checkpoint.setRunId(RunIds.next());
+        checkpoint.setCurrentStep(1);
+        checkpoint.setMessages(RunCheckpointStore.toStored(messages));
+
+        RunCheckpoint loaded = JSONUtil.toBean(JSONUtil.toJsonStr(checkpoint), RunCheckpoint.class);
+        List<Message> restored = RunCheckpointStore.fromStored(loaded.getMessages());
+
+        Assertions.assertEquals(3, restored.size());
+        Assertions.assertEquals("查找附近的餐厅", restored.get(0).getText());
+        AssistantMessage assistantMessage = (AssistantMessage) restored.get(1);
+        Assertions.assertEquals("placeSearch", assistantMessage.getToolCalls().get(0).name());
+        Assertions.assertEquals("{\"keywords\":\"餐厅\"}", assistantMessage.getToolCalls().get(0).arguments());
+        ToolResponseMessage toolResponseMessage = (ToolResponseMessage) restored.get(2);
+        Assertions.assertEquals("call_1", toolResponseMessage.getResponses().get(0).id());
+        Assertions.assertTrue(RunIds.isValid(loaded.getRunId()));
+    }
+}
@@ -0,0 +1,114 @@
+package com.zhishi.aiagent.agent.select;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+class ToolSelectorTest {
+
+    private static final List<String> KEYWORDS = List.of("map", "file", "pdf", "web", "stop");
+
+    // 按关键词出现次数构造向量
+    private static final Function<List<String>, List<float[]>> EMBEDDER = texts -> texts.stream()
+            .map(text -> {
+                float[] vector = new float[KEYWORDS.size()];
+                for (int i = 0; i < vector.length; i++) {
+                    vector[i] = text.toLowerCase().contains(KEYWORDS.get(i)) ? 1 : 0;
+                }
+                return vector;
+            })
+            .toList();
+
+    private static ToolCallback tool(String name, String description) {
+        ToolDefinition definition = ToolDefinition.builder()
+                .name(name)
+                .description(description)
+                .inputSchema("""
+                        {
+                          "$schema" : "https://json-schema.org/draft/2020-12/schema",
+                          "type" : "object",
+                          "properties" : {
+                            "input" : { "type" : "string", "description" : "Input of the tool" }
+                          }
+                        }
+                        """)
+                .build();
+        return new ToolCallback() {
+            @Override
+            public ToolDefinition getToolDefinition() {
+                return definition;
+            }
+
+            @Override
+            public String call(String toolInput) {
+                return name;
+            }
+        };
+    }
+
+    private static final ToolCallback[] TOOLS = {
+            tool("doTerminate", "Stop the interaction"),
+            tool("generatePDF", "Generate a pdf"),
+            tool("geocode", "Convert an address to map coordinates"),
+            tool("readDocument", "Read a document"),
+            tool("scrapeWebPage", "Scrape a web page"),
+            tool("walkingDirection", "Walking route on the map"),
+            tool("writeFile", "Write a file"),
+    };
+
+    private static List<String> names(ToolCallback[] tools) {
+        return Arrays.stream(tools).map(tool -> tool.getToolDefinition().name()).toList();
+    }
+
+    @Test
+    void selectsRelevantToolsInCatalogOrder() {
+        ToolCatalog catalog = new ToolCatalog(TOOLS, EMBEDDER, true, 3, 0.5, List.of("doTerminate"));
+        List<Message> messages = new ArrayList<>(List.of(new UserMessage("Plan a walk on the map")));
+        ToolCallback[] selected = catalog.newSelector().select(messages);
+        Assertions.assertEquals(List.of("doTerminate", "geocode", "walkingDirection"), names(selected));
+        Assertions.assertEquals(3, catalog.getStats().averageTools());
+    }
+
+    @Test
+    void keepsToolsSelectedOrUsedEarlierInTheRun() {
+        ToolCatalog catalog = new ToolCatalog(TOOLS, EMBEDDER, true, 3, 0.5, List.of("doTerminate"));
+        ToolSelector selector = catalog.newSelector();
+        List<Message> messages = new ArrayList<>(List.of(new UserMessage("Plan a walk on the map")));
+        selector.select(messages);
+        messages.add(new AssistantMessage("Now write it to a file", Map.of(),
+                List.of(new AssistantMessage.ToolCall("1", "function", "generatePDF", "{}"))));
+        ToolCallback[] selected = selector.select(messages);
+        Assertions.assertEquals(List.of("doTerminate", "generatePDF", "geocode", "walkingDirection", "writeFile"),
+                names(selected));
+    }
+
+    @Test
+    void exposesAllToolsWhenEmbeddingFails() {
+        ToolCatalog catalog = new ToolCatalog(TOOLS, texts -> {
+            throw new IllegalStateException("unavailable");
+        }, true, 3, 0.5, List.of("doTerminate"));
+        ToolSelector selector = catalog.newSelector();
+        Assertions.assertEquals(TOOLS.length, selector.select(List.of(new UserMessage("Plan a walk on the map"))).length);
+        Assertions.assertTrue(selector.isExpanded());
+        Assertions.assertEquals(1, catalog.getStats().fallbacks());
+    }
+
+    @Test
+    void compactsSchemas() {
+        ToolCallback compacted = ToolCatalog.compact(TOOLS[2]);
+        Assertions.assertEquals("{\"type\":\"object\",\"properties\":{\"input\":{\"type\":\"string\",\"description\":\"Input of the tool\"}}}",
+                compacted.getToolDefinition().inputSchema());
+        Assertions.assertEquals("geocode", compacted.call("{}"));
+        Assertions.assertTrue(ToolCatalog.embeddingText(TOOLS[2]).contains("input: Input of the tool"));
+    }
+}
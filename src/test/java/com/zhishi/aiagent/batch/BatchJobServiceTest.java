@@ -0,0 +1,134 @@
+package com.zhishi.aiagent.batch;
+
+import com.zhishi.aiagent.admission.AdmissionControl;
+import com.zhishi.aiagent.entity.PlanRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class BatchJobServiceTest {
+
+    private final AdmissionControl admissionControl = new AdmissionControl(false, 1, 1, 1, 1, 1);
+
+    @Test
+    void deduplicatesAndPersistsResults(@TempDir Path dir) throws Exception {
+        AtomicInteger generated = new AtomicInteger();
+        BatchJobStore store = new BatchJobStore(dir);
+        BatchJobService service = new BatchJobService(store, request -> {
+            generated.incrementAndGet();
+            if (request.getDestination().equals("火星")) {
+                throw new IllegalStateException("无法生成");
+            }
+            return "攻略：" + request.getDestination();
+        }, admissionControl, 2, 10, 1, Duration.ofHours(1));
+
+        BatchJob job = service.submit(List.of(request("杭州"), request(" 杭州 "), request("火星")));
+        Assertions.assertEquals(2, job.getDistinct());
+        BatchJob done = awaitCompleted(service, job.getJobId());
+
+        Assertions.assertEquals(2, generated.get());
+        Assertions.assertEquals(2, done.getSucceeded());
+        Assertions.assertEquals(1, done.getFailed());
+        // 任务状态已持久化
+        Assertions.assertEquals(BatchJobStatus.COMPLETED, store.loadJob(job.getJobId()).getStatus());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.writeResults(done, out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        Assertions.assertEquals(3, lines.length);
+        Assertions.assertTrue(lines[1].contains("攻略：杭州"));
+        Assertions.assertTrue(lines[2].contains("无法生成"));
+
+        // 有效期内再次提交直接复用结果
+        awaitCompleted(service, service.submit(List.of(request("杭州"))).getJobId());
+        Assertions.assertEquals(2, generated.get());
+    }
+
+    @Test
+    void shutdownKeepsInterruptedItemsPending(@TempDir Path dir) throws Exception {
+        BatchJobStore store = new BatchJobStore(dir);
+        CountDownLatch started = new CountDownLatch(1);
+        BatchJobService service = new BatchJobService(store, request -> {
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+                return "攻略";
+            } catch (InterruptedException e) {
+                // 模型客户端把中断包装为运行时异常
+                throw new IllegalStateException("调用被中断", e);
+            }
+        }, admissionControl, 2, 10, 3, Duration.ofHours(1));
+
+        BatchJob job = service.submit(List.of(request("杭州")));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        service.shutdown();
+
+        BatchJob stored = store.loadJob(job.getJobId());
+        Assertions.assertEquals(BatchItemStatus.PENDING, stored.getItems().get(0).getStatus());
+        Assertions.assertNotEquals(BatchJobStatus.COMPLETED, stored.getStatus());
+    }
+
+    @Test
+    void getJobReturnsSnapshot(@TempDir Path dir) throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        BatchJobService service = new BatchJobService(new BatchJobStore(dir), request -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "攻略";
+        }, admissionControl, 2, 10, 1, Duration.ofHours(1));
+        String jobId = service.submit(List.of(request("杭州"))).getJobId();
+
+        // 修改执行中任务的副本不影响任务本身
+        BatchJob running = service.getJob(jobId);
+        running.getItems().get(0).setStatus(BatchItemStatus.FAILED);
+        running.getItems().clear();
+        Assertions.assertEquals(BatchItemStatus.PENDING, service.getJob(jobId).getItems().get(0).getStatus());
+
+        release.countDown();
+        BatchJob done = awaitCompleted(service, jobId);
+        Assertions.assertEquals(1, done.getSucceeded());
+        // 副本也不随任务之后的变化而变化
+        Assertions.assertEquals(BatchJobStatus.QUEUED, running.getStatus());
+    }
+
+    @Test
+    void keyIgnoresWhitespaceAndCase() {
+        PlanRequest a = request("Kyoto  Japan");
+        PlanRequest b = request(" kyoto japan");
+        Assertions.assertEquals(PlanRequestKey.of(a), PlanRequestKey.of(b));
+        b.setBudget("1000");
+        Assertions.assertNotEquals(PlanRequestKey.of(a), PlanRequestKey.of(b));
+    }
+
+    private static BatchJob awaitCompleted(BatchJobService service, String jobId) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            BatchJob job = service.getJob(jobId);
+            if (job.getStatus() == BatchJobStatus.COMPLETED) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("batch job did not complete");
+    }
+
+    private static PlanRequest request(String destination) {
+        PlanRequest request = new PlanRequest();
+        request.setDestination(destination);
+        request.setTravelDates("2025年10月1日-10月3日");
+        request.setInterests("美食");
+        request.setBudget("");
+        return request;
+    }
+}
@@ -0,0 +1,134 @@
+package com.zhishi.aiagent.dedup;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class MessageCoalescerTest {
+
+    @Test
+    void concurrentDuplicatesShareOneCall() throws Exception {
+        MessageCoalescer coalescer = new MessageCoalescer(true, 30, 100, 180);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> coalescer.call("c1", "我失恋了", () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "抱抱你";
+        }));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> coalescer.call("c1", " 我失恋了 ", () -> {
+            calls.incrementAndGet();
+            return "另一次回答";
+        }));
+        // 等第二个请求开始等待第一次调用
+        long deadline = System.currentTimeMillis() + 5000;
+        while (coalescer.getStats().coalesced() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        Assertions.assertEquals("抱抱你", first.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("抱抱你", second.get(5, TimeUnit.SECONDS));
+        // 完成后窗口期内的重复消息直接返回已有回答，其他会话不受影响
+        Assertions.assertEquals("抱抱你", coalescer.call("c1", "我失恋了", () -> "另一次回答"));
+        Assertions.assertEquals("另一次回答", coalescer.call("c2", "我失恋了", () -> "另一次回答"));
+        Assertions.assertEquals(1, calls.get());
+        Assertions.assertEquals(new DedupStats(2, 2, 1, 1), coalescer.getStats());
+    }
+
+    @Test
+    void failedCallIsNotCached() {
+        MessageCoalescer coalescer = new MessageCoalescer(true, 30, 100, 180);
+        Assertions.assertThrows(IllegalStateException.class, () -> coalescer.call("c1", "你好", () -> {
+            throw new IllegalStateException("模型不可用");
+        }));
+        Assertions.assertEquals("你好呀", coalescer.call("c1", "你好", () -> "你好呀"));
+    }
+
+    @Test
+    void lateStreamSubscribersReplayFromStart() {
+        MessageCoalescer coalescer = new MessageCoalescer(true, 30, 100, 180);
+        AtomicInteger subscriptions = new AtomicInteger();
+        Sinks.Many<String> tokens = Sinks.many().unicast().onBackpressureBuffer();
+        Flux<String> source = tokens.asFlux().doOnSubscribe(subscription -> subscriptions.incrementAndGet());
+
+        CompletableFuture<List<String>> first = coalescer.stream("c1", "讲个故事", () -> source).collectList().toFuture();
+        tokens.tryEmitNext("从前");
+        CompletableFuture<List<String>> second = coalescer.stream("c1", "讲个故事", () -> source).collectList().toFuture();
+        tokens.tryEmitNext("有座山");
+        tokens.tryEmitComplete();
+
+        Assertions.assertEquals(List.of("从前", "有座山"), first.join());
+        Assertions.assertEquals(List.of("从前", "有座山"), second.join());
+        Assertions.assertEquals(1, subscriptions.get());
+        // 流式回答完成后，同步的重复消息得到完整回答
+        Assertions.assertEquals("从前有座山", coalescer.call("c1", "讲个故事", () -> "另一次回答"));
+    }
+
+    @Test
+    void errorInCallIsNotCached() {
+        MessageCoalescer coalescer = new MessageCoalescer(true, 30, 100, 180);
+        Assertions.assertThrows(StackOverflowError.class, () -> coalescer.call("c1", "你好", () -> {
+            throw new StackOverflowError();
+        }));
+        Assertions.assertEquals("你好呀", coalescer.call("c1", "你好", () -> "你好呀"));
+    }
+
+    @Test
+    void inFlightEntriesSurviveEviction() throws Exception {
+        MessageCoalescer coalescer = new MessageCoalescer(true, 30, 1, 180);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> coalescer.call("c1", "在吗", () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "在的";
+        }));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // 超出上限时淘汰已完成的条目，执行中的条目保留
+        Assertions.assertEquals("晚安", coalescer.call("c2", "晚安", () -> "晚安"));
+        Assertions.assertEquals("早安", coalescer.call("c3", "早安", () -> "早安"));
+        Assertions.assertEquals("晚安呀", coalescer.call("c2", "晚安", () -> "晚安呀"));
+        CompletableFuture<String> duplicate = CompletableFuture.supplyAsync(() -> coalescer.call("c1", "在吗", () -> {
+            calls.incrementAndGet();
+            return "另一次回答";
+        }));
+        release.countDown();
+
+        Assertions.assertEquals("在的", first.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("在的", duplicate.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, calls.get());
+    }
+
+    @Test
+    void stalledStreamTimesOutAndIsRetried() {
+        MessageCoalescer coalescer = new MessageCoalescer(true, 30, 100, 1);
+        Assertions.assertThrows(Exception.class, () -> coalescer.stream("c1", "讲个故事", Flux::never)
+                .collectList().block(Duration.ofSeconds(5)));
+        Assertions.assertEquals(List.of("从前"), coalescer.stream("c1", "讲个故事", () -> Flux.just("从前"))
+                .collectList().block(Duration.ofSeconds(5)));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
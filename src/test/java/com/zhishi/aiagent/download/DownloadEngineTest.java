@@ -0,0 +1,121 @@
+package com.zhishi.aiagent.download;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class DownloadEngineTest {
+
+    // 大于分段阈值，拆成两段
+    private static final byte[] CONTENT = new byte[(int) (DownloadEngine.SEGMENT_THRESHOLD + 1024 * 1024)];
+
+    static {
+        new Random(42).nextBytes(CONTENT);
+    }
+
+    private HttpServer server;
+
+    // 大于 0 时，下一个从 0 开始的分段请求只返回这么多字节后断开
+    private final AtomicInteger truncateNextFirstSegment = new AtomicInteger();
+
+    private final AtomicInteger rangeRequests = new AtomicInteger();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/file.bin", this::serveRange);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void largeFileIsSegmentedAndResumedAfterFailure(@TempDir Path dir) throws Exception {
+        DownloadEngine engine = new DownloadEngine(dir, Long.MAX_VALUE);
+        truncateNextFirstSegment.set(2 * 1024 * 1024 + 100);
+
+        Assertions.assertThrows(IOException.class, () -> engine.download(url(), "file.bin", message -> {
+        }));
+        Assertions.assertFalse(Files.exists(dir.resolve("file.bin")));
+
+        rangeRequests.set(0);
+        DownloadResult result = engine.download(url(), "file.bin", message -> {
+        });
+
+        Assertions.assertTrue(result.resumed());
+        Assertions.assertEquals(2, result.segments());
+        Assertions.assertArrayEquals(CONTENT, Files.readAllBytes(result.path()));
+        Assertions.assertEquals(DigestUtil.sha256Hex(CONTENT), result.sha256());
+        // 探测请求加上未完成的首段，已完成的第二段不再请求
+        Assertions.assertEquals(2, rangeRequests.get());
+        try (var files = Files.list(dir)) {
+            Assertions.assertTrue(files.noneMatch(file -> file.getFileName().toString().contains(".part")));
+        }
+    }
+
+    @Test
+    void identicalContentIsDetectedWithoutStoringASecondCopy(@TempDir Path dir) throws Exception {
+        DownloadEngine engine = new DownloadEngine(dir, Long.MAX_VALUE);
+
+        DownloadResult first = engine.download(url(), "a.bin", message -> {
+        });
+        DownloadResult second = engine.download(url(), "b.bin", message -> {
+        });
+
+        Assertions.assertFalse(first.deduplicated());
+        Assertions.assertTrue(second.deduplicated());
+        // 登记只记录文件，不另存一份内容
+        Assertions.assertTrue(Files.size(dir.resolve(".blobs").resolve(first.sha256())) < 1024);
+        // 修改一个文件不影响另一个，登记随之失效
+        Files.write(first.path(), new byte[]{1, 2, 3});
+        Assertions.assertArrayEquals(CONTENT, Files.readAllBytes(second.path()));
+        DownloadResult third = engine.download(url(), "c.bin", message -> {
+        });
+        Assertions.assertFalse(third.deduplicated());
+        Assertions.assertTrue(engine.download(url(), "d.bin", message -> {
+        }).deduplicated());
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/file.bin";
+    }
+
+    private void serveRange(HttpExchange exchange) throws IOException {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        try (exchange; OutputStream out = exchange.getResponseBody()) {
+            if (range == null) {
+                exchange.sendResponseHeaders(200, CONTENT.length);
+                out.write(CONTENT);
+                return;
+            }
+            rangeRequests.incrementAndGet();
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            int start = Integer.parseInt(bounds[0]);
+            int end = Integer.parseInt(bounds[1]);
+            int length = end - start + 1;
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + CONTENT.length);
+            exchange.getResponseHeaders().set("ETag", "\"v1\"");
+            // 截断的响应：正文在分段结束前终止
+            int truncate = start == 0 && length > 1 ? truncateNextFirstSegment.getAndSet(0) : 0;
+            int sent = truncate > 0 ? truncate : length;
+            exchange.sendResponseHeaders(206, sent);
+            out.write(CONTENT, start, sent);
+        }
+    }
+}
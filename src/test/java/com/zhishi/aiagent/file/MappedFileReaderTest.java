@@ -0,0 +1,55 @@
+package com.zhishi.aiagent.file;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+class MappedFileReaderTest {
+
+    @TempDir
+    Path dir;
+
+    private Path writeLines(int count) throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= count; i++) {
+            content.append("第").append(i).append("行\n");
+        }
+        Path file = dir.resolve("lines.txt");
+        Files.writeString(file, content);
+        return file;
+    }
+
+    @Test
+    void readLines() throws Exception {
+        // 跨越多个索引检查点
+        Path file = writeLines(1000);
+        Assertions.assertEquals(1000, LineIndexCache.get(file).getLineCount());
+        Assertions.assertEquals("130\t第130行\n131\t第131行\n", MappedFileReader.readLines(file, 130, 2));
+        Assertions.assertEquals("1000\t第1000行\n", MappedFileReader.readLines(file, 1000, 5));
+        Assertions.assertEquals("", MappedFileReader.readLines(file, 1001, 5));
+    }
+
+    @Test
+    void grep() throws Exception {
+        Path file = writeLines(30);
+        String result = MappedFileReader.grep(file, Pattern.compile("第(5|20)行"), 1, 10);
+        Assertions.assertEquals("4\t第4行\n5\t第5行\n6\t第6行\n--\n19\t第19行\n20\t第20行\n21\t第21行\n", result);
+    }
+
+    @Test
+    void replaceLines() throws Exception {
+        Path file = writeLines(5);
+        // 先建立索引，验证写入后索引失效
+        Assertions.assertEquals(5, LineIndexCache.get(file).getLineCount());
+        FilePatcher.replaceLines(file, 2, 3, "替换");
+        Assertions.assertEquals("第1行\n替换\n第4行\n第5行\n", Files.readString(file));
+        FilePatcher.replaceLines(file, 1, 0, "插入\n");
+        FilePatcher.append(file, "追加\n");
+        Assertions.assertEquals("插入\n第1行\n替换\n第4行\n第5行\n追加\n", Files.readString(file));
+        Assertions.assertEquals(6, LineIndexCache.get(file).getLineCount());
+    }
+}
@@ -0,0 +1,50 @@
+package com.zhishi.aiagent.itinerary;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class MarkdownItineraryParserTest {
+
+    @Test
+    void parse() {
+        String travelPlan = """
+                # 北京三日游
+
+                一次文化与美食之旅。
+
+                ## 第一天：皇城根下
+                - 上午：参观**故宫博物院**，感受明清皇家建筑（门票￥60）
+                  - 建议提前 7 天预约
+                - 下午：游览天安门广场
+                - 晚上：品尝北京烤鸭
+                - 交通：地铁1号线
+
+                ## 第二天
+                ### 上午
+                - 爬八达岭长城
+                ### 14:00-17:00 颐和园
+
+                ## 天气与穿衣
+                - 气温 -5~5℃，注意保暖
+                """;
+        Itinerary itinerary = MarkdownItineraryParser.parse(travelPlan, "北京");
+        Assertions.assertEquals("北京三日游", itinerary.getTitle());
+        Assertions.assertEquals(2, itinerary.getDays().size());
+
+        ItineraryDay firstDay = itinerary.getDays().get(0);
+        Assertions.assertEquals(3, firstDay.getSlots().size());
+        ItinerarySlot morning = firstDay.getSlots().get(0);
+        Assertions.assertEquals("上午", morning.getTime());
+        Assertions.assertEquals("故宫博物院", morning.getPoi().getName());
+        Assertions.assertTrue(morning.getDetails().contains("建议提前 7 天预约"));
+        Assertions.assertEquals("restaurant", firstDay.getSlots().get(2).getPoi().getType());
+        Assertions.assertTrue(firstDay.getNotes().contains("交通"));
+
+        ItineraryDay secondDay = itinerary.getDays().get(1);
+        Assertions.assertEquals("上午", secondDay.getSlots().get(0).getTime());
+        Assertions.assertEquals("14:00-17:00", secondDay.getSlots().get(1).getTime());
+
+        Assertions.assertEquals(1, itinerary.getSections().size());
+        Assertions.assertEquals("天气与穿衣", itinerary.getSections().get(0).getTitle());
+    }
+}
@@ -0,0 +1,32 @@
+package com.zhishi.aiagent.itinerary;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class StreamingItineraryParserTest {
+
+    @Test
+    void feed() {
+        String json = """
+                ```json
+                {"title":"南京两日游","days":[
+                  {"day":1,"title":"第一天","slots":[{"time":"上午","title":"中山陵","poi":{"name":"中山陵","lng":118.848,"lat":32.064},"cost":0}],"cost":120},
+                  {"day":2,"title":"第二天 {夫子庙}","slots":[],"notes":"含\\"引号\\"的备注"}
+                ],"sections":[{"title":"天气","content":"晴"}],"totalCost":300}
+                ```""";
+        StreamingItineraryParser parser = new StreamingItineraryParser();
+        List<ItineraryDay> days = new ArrayList<>();
+        // 模拟流式输出，每次输入 7 个字符
+        for (int i = 0; i < json.length(); i += 7) {
+            days.addAll(parser.feed(json.substring(i, Math.min(json.length(), i + 7))));
+        }
+        Assertions.assertEquals(2, days.size());
+        Assertions.assertEquals("中山陵", days.get(0).getSlots().get(0).getPoi().getName());
+        Assertions.assertTrue(days.get(0).getSlots().get(0).getPoi().hasLocation());
+        Assertions.assertEquals("第二天 {夫子庙}", days.get(1).getTitle());
+        Assertions.assertEquals(json, parser.getText());
+    }
+}
@@ -0,0 +1,97 @@
+package com.zhishi.aiagent.mcp;
+
+import io.modelcontextprotocol.spec.McpSchema;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.tool.ToolCallback;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+class McpServerPoolTest {
+
+    private static String text(McpSchema.CallToolResult result) {
+        return ((McpSchema.TextContent) result.content().get(0)).text();
+    }
+
+    private static void awaitAll(McpServerPool pool, int live) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 20_000;
+        while (pool.getStats().live() < live && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        Assertions.assertEquals(live, pool.getStats().live());
+    }
+
+    @Test
+    void spreadsConcurrentCallsAcrossWarmProcesses() throws Exception {
+        McpServerPool pool = new McpServerPool(StubMcpServer.spec("stub", 2), Duration.ofSeconds(10));
+        pool.start();
+        try {
+            awaitAll(pool, 2);
+            CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> text(pool.call("sleep", Map.of("millis", 500))));
+            CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> text(pool.call("sleep", Map.of("millis", 500))));
+            Assertions.assertNotEquals(first.get(), second.get());
+            Assertions.assertEquals(2, pool.getStats().tools().get("sleep").getCalls());
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    void restartsCrashedProcess() throws Exception {
+        McpServerPool pool = new McpServerPool(StubMcpServer.spec("stub", 1), Duration.ofSeconds(2));
+        pool.start();
+        try {
+            awaitAll(pool, 1);
+            Assertions.assertThrows(RuntimeException.class, () -> pool.call("crash", Map.of("code", 3)));
+            // 调用失败后探活发现进程已退出，按退避重新拉起
+            long deadline = System.currentTimeMillis() + 20_000;
+            while (pool.getStats().restarts() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            awaitAll(pool, 1);
+            Assertions.assertEquals("hello", text(pool.call("echo", Map.of("text", "hello"))));
+            Assertions.assertEquals(1, pool.getStats().restarts());
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    void registersToolsFromCacheWithoutWaiting(@TempDir Path dir) {
+        Path cacheFile = dir.resolve("tools.json");
+        McpServerSpec spec = StubMcpServer.spec("stub", 1);
+        McpToolRegistry discovered = McpToolRegistry.start(List.of(spec), cacheFile, Duration.ofSeconds(10),
+                Duration.ofSeconds(20), Duration.ofHours(1));
+        try {
+            Assertions.assertEquals(List.of("stub_crash", "stub_echo", "stub_sleep"), names(discovered.getToolCallbacks()));
+            Assertions.assertTrue(Files.exists(cacheFile));
+        } finally {
+            discovered.close();
+        }
+        // 有缓存时不等待进程启动
+        long start = System.currentTimeMillis();
+        McpToolRegistry cached = McpToolRegistry.start(List.of(spec), cacheFile, Duration.ofSeconds(10),
+                Duration.ofSeconds(20), Duration.ofHours(1));
+        try {
+            Assertions.assertTrue(System.currentTimeMillis() - start < 1000);
+            ToolCallback echo = Arrays.stream(cached.getToolCallbacks())
+                    .filter(tool -> tool.getToolDefinition().name().equals("stub_echo"))
+                    .findFirst()
+                    .orElseThrow();
+            Assertions.assertEquals("hi", echo.call("{\"text\":\"hi\"}"));
+        } finally {
+            cached.close();
+        }
+    }
+
+    private static List<String> names(ToolCallback[] tools) {
+        return Arrays.stream(tools).map(tool -> tool.getToolDefinition().name()).sorted().toList();
+    }
+}
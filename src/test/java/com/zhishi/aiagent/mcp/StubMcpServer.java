@@ -0,0 +1,94 @@
+package com.zhishi.aiagent.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 测试用的 stdio MCP 服务，逐条处理请求（与大多数 stdio 服务一样不并发）
+ * 工具：echo 原样返回 text；sleep 等待 millis 毫秒后返回进程号；crash 直接退出进程
+ */
+public final class StubMcpServer {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private StubMcpServer() {
+    }
+
+    /**
+     * 启动本服务的配置，使用当前 JVM 和类路径
+     */
+    static McpServerSpec spec(String name, int poolSize) {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        return new McpServerSpec(name, java, List.of("-cp", System.getProperty("java.class.path"), StubMcpServer.class.getName()),
+                Map.of(), poolSize);
+    }
+
+    public static void main(String[] args) throws Exception {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        PrintStream out = new PrintStream(new FileOutputStream(FileDescriptor.out), true, StandardCharsets.UTF_8);
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode request = OBJECT_MAPPER.readTree(line);
+            // 通知没有响应
+            if (!request.has("id") || !request.has("method")) {
+                continue;
+            }
+            ObjectNode response = OBJECT_MAPPER.createObjectNode().put("jsonrpc", "2.0");
+            response.set("id", request.get("id"));
+            JsonNode params = request.path("params");
+            switch (request.get("method").asText()) {
+                case "initialize" -> response.set("result", OBJECT_MAPPER.valueToTree(Map.of(
+                        "protocolVersion", params.path("protocolVersion").asText(),
+                        "capabilities", Map.of("tools", Map.of()),
+                        "serverInfo", Map.of("name", "stub", "version", "1.0.0"))));
+                case "ping" -> response.set("result", OBJECT_MAPPER.createObjectNode());
+                case "tools/list" -> response.set("result", OBJECT_MAPPER.valueToTree(Map.of("tools", List.of(
+                        tool("echo", "Echo the text back", "text", "string"),
+                        tool("sleep", "Sleep and return the process id", "millis", "integer"),
+                        tool("crash", "Exit the server process", "code", "integer")))));
+                case "tools/call" -> response.set("result", call(params.path("name").asText(), params.path("arguments")));
+                default -> response.set("error", OBJECT_MAPPER.valueToTree(Map.of("code", -32601, "message", "Method not found")));
+            }
+            out.println(OBJECT_MAPPER.writeValueAsString(response));
+        }
+    }
+
+    private static Map<String, Object> tool(String name, String description, String parameter, String type) {
+        return Map.of("name", name, "description", description, "inputSchema", Map.of(
+                "type", "object",
+                "properties", Map.of(parameter, Map.of("type", type)),
+                "required", List.of(parameter)));
+    }
+
+    private static JsonNode call(String name, JsonNode arguments) throws InterruptedException {
+        String text = switch (name) {
+            case "echo" -> arguments.path("text").asText();
+            case "sleep" -> {
+                Thread.sleep(arguments.path("millis").asLong());
+                yield String.valueOf(ProcessHandle.current().pid());
+            }
+            case "crash" -> {
+                System.exit(arguments.path("code").asInt(1));
+                yield "";
+            }
+            default -> null;
+        };
+        return OBJECT_MAPPER.valueToTree(Map.of(
+                "content", List.of(Map.of("type", "text", "text", text == null ? "Unknown tool " + name : text)),
+                "isError", text == null));
+    }
+}
@@ -0,0 +1,85 @@
+package com.zhishi.aiagent.memory;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+class LongTermMemoryTest {
+
+    private static final List<String> TOPICS = List.of("猫", "工作", "失恋", "旅行");
+
+    // 按关键词出现与否构造向量
+    private static final Function<List<String>, List<float[]>> EMBEDDER = texts -> texts.stream()
+            .map(text -> {
+                float[] vector = new float[TOPICS.size()];
+                for (int i = 0; i < TOPICS.size(); i++) {
+                    vector[i] = text.contains(TOPICS.get(i)) ? 1 : 0;
+                }
+                return vector;
+            })
+            .toList();
+
+    private static LongTermMemory memory(Path dir, int maxFacts) {
+        // 把对话中的每条用户消息原样当作事实
+        Function<String, List<String>> summarizer = transcript -> transcript.lines()
+                .filter(line -> line.startsWith("用户："))
+                .map(line -> line.substring(3))
+                .toList();
+        // 单线程执行，总结按提交顺序合并
+        return new LongTermMemory(new MemoryStore(dir), summarizer, EMBEDDER, 2, 0.5, maxFacts,
+                Executors.newSingleThreadExecutor());
+    }
+
+    @Test
+    void recallsMostRelevantFactsAndSurvivesRestart(@TempDir Path dir) {
+        LongTermMemory memory = memory(dir, 100);
+        memory.remember("chat", List.of(new UserMessage("我养了一只猫"), new AssistantMessage("真好"),
+                new UserMessage("最近工作压力很大"), new UserMessage("上个月失恋了")));
+        memory.shutdown();
+        Assertions.assertEquals(3, memory.size("chat"));
+        Assertions.assertEquals(List.of("最近工作压力很大"), memory.recall("chat", "今天工作又加班"));
+        Assertions.assertEquals(List.of(), memory.recall("chat", "想去旅行"));
+        Assertions.assertEquals(List.of(), memory.recall("other", "工作"));
+
+        LongTermMemory reloaded = memory(dir, 100);
+        Assertions.assertEquals(List.of("我养了一只猫"), reloaded.recall("chat", "猫生病了"));
+    }
+
+    @Test
+    void replacesDuplicatesAndCapsFacts(@TempDir Path dir) {
+        LongTermMemory memory = memory(dir, 2);
+        memory.remember("chat", List.of(new UserMessage("喜欢猫"), new UserMessage("喜欢旅行")));
+        memory.remember("chat", List.of(new UserMessage("现在更喜欢猫了")));
+        memory.remember("chat", List.of(new UserMessage("工作换了")));
+        memory.shutdown();
+        Assertions.assertEquals(2, memory.size("chat"));
+        Assertions.assertEquals(List.of("现在更喜欢猫了"), memory.recall("chat", "猫"));
+        Assertions.assertEquals(List.of("工作换了"), memory.recall("chat", "工作"));
+    }
+
+    @Test
+    void keepsRecentWindowStartingWithUserMessage() {
+        List<Message> evicted = new ArrayList<>();
+        SummarizingChatMemory chatMemory = new SummarizingChatMemory(new InMemoryChatMemoryRepository(), 3, 2,
+                (chatId, messages) -> evicted.addAll(messages));
+        for (int i = 0; i < 2; i++) {
+            chatMemory.add("chat", List.of(new UserMessage("问" + i), new AssistantMessage("答" + i)));
+        }
+        Assertions.assertTrue(evicted.isEmpty());
+        chatMemory.add("chat", List.of(new UserMessage("问2")));
+        // 5 条时移出前 2 条，保留的窗口从用户消息开始
+        Assertions.assertEquals(List.of("问0", "答0"), evicted.stream().map(Message::getText).toList());
+        List<Message> recent = chatMemory.get("chat");
+        Assertions.assertEquals(List.of("问1", "答1", "问2"), recent.stream().map(Message::getText).toList());
+    }
+}
@@ -0,0 +1,99 @@
+package com.zhishi.aiagent.poi;
+
+import cn.hutool.json.JSONUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+class PoiIndexTest {
+
+    private static final PoiTypeFilter RESTAURANT = PoiTypeFilter.of("050000");
+
+    private static PoiIndex sample(PoiIndex index) {
+        // 沿经度方向每隔约 850 米一个点，跨越多个网格
+        for (int i = 0; i < 20; i++) {
+            String typecode = i % 2 == 0 ? "050100" : "100100";
+            index.add(new Poi("B" + i, "poi" + i, "", typecode, "", 116.40 + i * 0.01, 39.90));
+        }
+        return index;
+    }
+
+    @Test
+    void nearestReturnsClosestOfCategoryInOrder() {
+        PoiIndex index = sample(new PoiIndex(1000, Duration.ofHours(1)));
+        List<PoiHit> hits = index.nearest(116.4551, 39.90, RESTAURANT, 3);
+        Assertions.assertEquals(List.of("poi6", "poi4", "poi8"), hits.stream().map(hit -> hit.poi().name()).toList());
+        Assertions.assertTrue(hits.get(0).meters() < hits.get(1).meters());
+    }
+
+    @Test
+    void withinRespectsRadius() {
+        PoiIndex index = sample(new PoiIndex(1000, Duration.ofHours(1)));
+        Assertions.assertEquals(3, index.within(116.40, 39.90, PoiTypeFilter.ANY, 2000, 10).size());
+        Assertions.assertEquals(2, index.within(116.40, 39.90, PoiTypeFilter.of("100100"), 3000, 10).size());
+    }
+
+    @Test
+    void updatesExistingIdAndStopsAtCapacity() {
+        PoiIndex index = new PoiIndex(2, Duration.ofHours(1));
+        Assertions.assertTrue(index.add(new Poi("A", "old", "", "050100", "", 116.40, 39.90)));
+        Assertions.assertTrue(index.add(new Poi("A", "moved", "", "050100", "", 116.50, 39.90)));
+        Assertions.assertTrue(index.add(new Poi("B", "b", "", "050100", "", 116.41, 39.90)));
+        Assertions.assertFalse(index.add(new Poi("C", "c", "", "050100", "", 116.42, 39.90)));
+        Assertions.assertEquals("moved", index.nearest(116.50, 39.90, RESTAURANT, 1).get(0).poi().name());
+        Assertions.assertEquals(2, index.getStats().points());
+    }
+
+    @Test
+    void parsesAmapPoisSkippingEmptyFields() {
+        PoiIndex index = new PoiIndex(1000, Duration.ofHours(1));
+        int added = index.addAll(JSONUtil.parseArray("""
+                [{"id":"B1","name":"全聚德","type":"餐饮服务;中餐厅","typecode":"050100","address":[],"location":"116.4,39.9"},
+                 {"id":"B2","name":"无坐标","typecode":"050100","location":[]}]
+                """));
+        Assertions.assertEquals(1, added);
+        Assertions.assertEquals("", index.nearest(116.4, 39.9, RESTAURANT, 1).get(0).poi().address());
+    }
+
+    @Test
+    void coverageExpiresAndDependsOnRadius() {
+        PoiIndex index = new PoiIndex(1000, Duration.ofHours(1));
+        index.markCovered(116.40, 39.90, RESTAURANT, 1000);
+        Assertions.assertTrue(index.isCovered(116.401, 39.901, RESTAURANT, 500));
+        Assertions.assertFalse(index.isCovered(116.401, 39.901, RESTAURANT, 2000));
+        Assertions.assertFalse(index.isCovered(116.401, 39.901, PoiTypeFilter.of("100000"), 500));
+    }
+
+    @Test
+    void coverageComparesCirclesNotCells() {
+        PoiIndex index = new PoiIndex(1000, Duration.ofHours(1));
+        index.markCovered(116.401, 39.901, RESTAURANT, 300);
+        // 同一网格但超出已请求的圆
+        Assertions.assertFalse(index.isCovered(116.409, 39.909, RESTAURANT, 100));
+
+        index.markCovered(116.405, 39.905, RESTAURANT, 2000);
+        // 相邻网格但完全落在圆内
+        Assertions.assertTrue(index.isCovered(116.411, 39.905, RESTAURANT, 500));
+        // 圆心在圆内，查询圆越过边界
+        Assertions.assertFalse(index.isCovered(116.420, 39.905, RESTAURANT, 900));
+    }
+
+    @Test
+    void survivesRestart(@TempDir Path dir) {
+        Path file = dir.resolve("poi-index.bin");
+        PoiIndex index = sample(PoiIndex.open(file, 1000, Duration.ofHours(1)));
+        index.close();
+
+        PoiIndex reopened = PoiIndex.open(file, 1000, Duration.ofHours(1));
+        try {
+            Assertions.assertEquals(20, reopened.getStats().points());
+            Assertions.assertEquals("poi6", reopened.nearest(116.4551, 39.90, RESTAURANT, 1).get(0).poi().name());
+        } finally {
+            reopened.close();
+        }
+    }
+}
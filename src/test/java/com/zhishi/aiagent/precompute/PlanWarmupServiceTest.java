@@ -0,0 +1,81 @@
+package com.zhishi.aiagent.precompute;
+
+import com.zhishi.aiagent.entity.PlanRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+class PlanWarmupServiceTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    @Test
+    void warmsMostPopularWithinTokenBudget(@TempDir Path dir) {
+        List<String> generated = new ArrayList<>();
+        PlanWarmupService service = service(dir, "2025-10-01T03:00:00+08:00", generated);
+        record(service, "杭州", 3);
+        record(service, "苏州", 1);
+        record(service, "南京", 2);
+
+        // 预算 25000，每份消耗 10000：生成两份后剩余预算不够下一份
+        Assertions.assertEquals(2, service.warmUp());
+        Assertions.assertEquals(List.of("杭州", "南京"), generated);
+        Assertions.assertEquals("token budget exhausted", service.getStats().lastStopReason());
+
+        Assertions.assertEquals("攻略：杭州", service.lookup(request("杭州")).getTravelPlan());
+        Assertions.assertNull(service.lookup(request("苏州")));
+        Assertions.assertEquals(1, service.getStats().hits());
+
+        // 已是最新的不会重复生成
+        Assertions.assertEquals(0, service.warmUp());
+        Assertions.assertEquals(2, generated.size());
+    }
+
+    @Test
+    void skipsOutsideOffPeakWindow(@TempDir Path dir) {
+        List<String> generated = new ArrayList<>();
+        PlanWarmupService service = service(dir, "2025-10-01T12:00:00+08:00", generated);
+        record(service, "杭州", 1);
+        service.scheduledWarmUp();
+        Assertions.assertEquals(0, service.warmUp());
+        Assertions.assertEquals("off-peak window ended", service.getStats().lastStopReason());
+        Assertions.assertTrue(generated.isEmpty());
+    }
+
+    private static PlanWarmupService service(Path dir, String now, List<String> generated) {
+        Clock clock = Clock.fixed(OffsetDateTime.parse(now).toInstant(), ZONE);
+        return new PlanWarmupService(new PlanUsageStore(dir.resolve("usage.json").toFile(), clock, 7),
+                new PrecomputedPlanStore(dir.resolve("plans")),
+                request -> {
+                    generated.add(request.getDestination());
+                    PrecomputedPlan plan = new PrecomputedPlan();
+                    plan.setTravelPlan("攻略：" + request.getDestination());
+                    plan.setTotalTokens(10000);
+                    return plan;
+                },
+                clock, true, 10, Duration.ofHours(24), Duration.ofHours(72), 25000, 1, 7);
+    }
+
+    private static void record(PlanWarmupService service, String destination, int times) {
+        for (int i = 0; i < times; i++) {
+            service.record(request(destination));
+        }
+    }
+
+    private static PlanRequest request(String destination) {
+        PlanRequest request = new PlanRequest();
+        request.setDestination(destination);
+        request.setTravelDates("2025年10月1日-10月3日");
+        request.setInterests("美食");
+        request.setBudget("1000");
+        return request;
+    }
+}
@@ -0,0 +1,73 @@
+package com.zhishi.aiagent.process;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@DisabledOnOs(OS.WINDOWS)
+class ProcessRunnerTest {
+
+    @Test
+    void wallTimeoutKillsProcessTree(@TempDir Path dir) throws Exception {
+        ProcessRunner runner = new ProcessRunner(dir.toFile(), Duration.ofMillis(500), Duration.ofMinutes(1), 10_000);
+
+        // 后台子进程的 PID 先输出，超时后它也应被终止
+        ProcessResult result = runner.run("sleep 30 & echo $!; wait", chunk -> {
+        });
+
+        Assertions.assertEquals(-1, result.exitCode());
+        Assertions.assertTrue(result.timeout().startsWith("wall-clock timeout"), result.timeout());
+        Assertions.assertTrue(result.elapsedMillis() < 10_000);
+        long childPid = Long.parseLong(result.stdout().trim());
+        Assertions.assertFalse(ProcessHandle.of(childPid).map(ProcessHandle::isAlive).orElse(false));
+    }
+
+    @Test
+    void cpuTimeoutStopsBusyLoop(@TempDir Path dir) throws Exception {
+        ProcessRunner runner = new ProcessRunner(dir.toFile(), Duration.ofSeconds(30), Duration.ofMillis(500), 10_000);
+
+        ProcessResult result = runner.run("while :; do :; done", chunk -> {
+        });
+
+        Assertions.assertEquals(-1, result.exitCode());
+        Assertions.assertTrue(result.timeout().startsWith("CPU time limit"), result.timeout());
+    }
+
+    @Test
+    void outputKeepsHeadAndTailWithinLimit(@TempDir Path dir) throws Exception {
+        ProcessRunner runner = new ProcessRunner(dir.toFile(), Duration.ofSeconds(30), Duration.ofSeconds(30), 1000);
+
+        ProcessResult result = runner.run("seq 1 100000; echo failed >&2; exit 3", chunk -> {
+        });
+
+        Assertions.assertEquals(3, result.exitCode());
+        Assertions.assertNull(result.timeout());
+        Assertions.assertTrue(result.stdout().startsWith("1\n2\n"));
+        Assertions.assertTrue(result.stdout().endsWith("99999\n100000\n"));
+        Assertions.assertTrue(result.stdout().contains("chars omitted"));
+        Assertions.assertTrue(result.stdout().length() < 1100, "length " + result.stdout().length());
+        Assertions.assertEquals("failed\n", result.stderr());
+    }
+
+    @Test
+    void liveOutputIsDeliveredInFullInBoundedChunks(@TempDir Path dir) throws Exception {
+        ProcessRunner runner = new ProcessRunner(dir.toFile(), Duration.ofSeconds(30), Duration.ofSeconds(30), 1000);
+        List<String> chunks = new CopyOnWriteArrayList<>();
+
+        runner.run("seq 1 20000", chunks::add);
+
+        String expected = IntStream.rangeClosed(1, 20000).mapToObj(i -> i + "\n").collect(Collectors.joining());
+        Assertions.assertEquals(expected, String.join("", chunks));
+        Assertions.assertTrue(chunks.size() > 1);
+        Assertions.assertTrue(chunks.stream().allMatch(chunk -> chunk.length() <= ProcessRunner.MAX_LIVE_CHUNK));
+    }
+}
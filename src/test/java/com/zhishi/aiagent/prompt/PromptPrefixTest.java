@@ -0,0 +1,46 @@
+package com.zhishi.aiagent.prompt;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+class PromptPrefixTest {
+
+    private static ToolCallback tool(String name, String description) {
+        ToolDefinition definition = ToolDefinition.builder().name(name).description(description).inputSchema("{}").build();
+        return new ToolCallback() {
+            @Override
+            public ToolDefinition getToolDefinition() {
+                return definition;
+            }
+
+            @Override
+            public String call(String toolInput) {
+                return description;
+            }
+        };
+    }
+
+    @Test
+    void sortsToolsByNameKeepingFirstDuplicate() {
+        ToolCallback[] tools = {tool("search", "a"), tool("geocode", "b"), tool("search", "c")};
+        ToolCallback[] canonical = PromptPrefix.canonicalTools(tools);
+        Assertions.assertEquals(List.of("geocode", "search"),
+                Arrays.stream(canonical).map(tool -> tool.getToolDefinition().name()).toList());
+        Assertions.assertEquals("a", canonical[1].call("{}"));
+    }
+
+    @Test
+    void readsCachedTokensFromNativeUsage() {
+        Object nativeUsage = Map.of("input_tokens", 2000, "prompt_tokens_details", Map.of("cached_tokens", 1536));
+        Assertions.assertEquals(1536, PromptPrefix.cachedTokens(new DefaultUsage(2000, 100, 2100, nativeUsage)));
+        Assertions.assertEquals(0, PromptPrefix.cachedTokens(new DefaultUsage(2000, 100, 2100, Map.of("input_tokens", 2000))));
+        Assertions.assertEquals(0, PromptPrefix.cachedTokens(null));
+    }
+}
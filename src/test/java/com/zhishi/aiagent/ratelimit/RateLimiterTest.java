@@ -0,0 +1,99 @@
+package com.zhishi.aiagent.ratelimit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+class RateLimiterTest {
+
+    @Test
+    void queuesCallersWithinDeadline() {
+        RateLimiter limiter = new RateLimiter("amap", 10, Duration.ofSeconds(1), 0, 0, null, Duration.ofSeconds(5));
+        long start = System.nanoTime();
+        for (int i = 0; i < 12; i++) {
+            limiter.acquire();
+        }
+        // 突发 10 次后，后两次各需等待约 100 ms
+        Assertions.assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 150);
+        Assertions.assertEquals(12, limiter.getStats().granted());
+    }
+
+    @Test
+    void rejectsWhenWaitExceedsDeadline() {
+        RateLimiter limiter = new RateLimiter("amap", 1, Duration.ofSeconds(1), 0, 0, null, Duration.ofMillis(100));
+        limiter.acquire();
+        Assertions.assertThrows(RateLimitExceededException.class, limiter::acquire);
+        Assertions.assertEquals(1, limiter.getStats().rejected());
+    }
+
+    @Test
+    void reconcileReturnsUnusedTokens() {
+        RateLimiter limiter = new RateLimiter("dashscope", 0, Duration.ofMinutes(1), 1000, 0, null, Duration.ofMillis(100));
+        limiter.acquire(900);
+        limiter.reconcile(900, 100);
+        // 修正后余额足够，不需要排队
+        limiter.acquire(800);
+        Assertions.assertEquals(0, limiter.getStats().rejected());
+    }
+
+    @Test
+    void dailyQuotaSurvivesRestart(@TempDir Path dir) {
+        File file = dir.resolve("usage.json").toFile();
+        QuotaStore quotaStore = new QuotaStore(file);
+        RateLimiter limiter = new RateLimiter("amap", 0, Duration.ofSeconds(1), 0, 2, quotaStore, Duration.ofSeconds(1));
+        limiter.acquire();
+        limiter.acquire();
+        Assertions.assertThrows(RateLimitExceededException.class, limiter::acquire);
+        quotaStore.flush();
+
+        QuotaStore reloaded = new QuotaStore(file);
+        Assertions.assertEquals(2, reloaded.used("amap"));
+        Assertions.assertFalse(reloaded.tryConsume("amap", 2));
+    }
+
+    @Test
+    void oversizedEstimateIsClampedToBudget() {
+        RateLimiter limiter = new RateLimiter("dashscope", 0, Duration.ofMinutes(1), 1000, 0, null, Duration.ofMillis(100));
+        Assertions.assertEquals(1000, limiter.acquire(5000));
+        Assertions.assertEquals(1, limiter.getStats().granted());
+    }
+
+    @Test
+    void retriesDoNotConsumeQuota(@TempDir Path dir) {
+        QuotaStore quotaStore = new QuotaStore(dir.resolve("usage.json").toFile());
+        RateLimiter limiter = new RateLimiter("amap", 0, Duration.ofSeconds(1), 0, 5, quotaStore, Duration.ofSeconds(1));
+        limiter.acquire();
+        limiter.reacquire();
+        limiter.reacquire();
+        Assertions.assertEquals(1, quotaStore.used("amap"));
+    }
+
+    @Test
+    void interruptedWaitDoesNotConsumeQuota(@TempDir Path dir) throws Exception {
+        QuotaStore quotaStore = new QuotaStore(dir.resolve("usage.json").toFile());
+        RateLimiter limiter = new RateLimiter("amap", 1, Duration.ofSeconds(10), 0, 5, quotaStore, Duration.ofSeconds(30));
+        limiter.acquire();
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        Thread waiter = Thread.ofVirtual().start(() -> {
+            try {
+                limiter.acquire();
+                failure.complete(null);
+            } catch (Throwable e) {
+                failure.complete(e);
+            }
+        });
+        while (limiter.getStats().waiting() == 0) {
+            Thread.onSpinWait();
+        }
+        waiter.interrupt();
+
+        Assertions.assertInstanceOf(RateLimitExceededException.class, failure.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, quotaStore.used("amap"));
+    }
+}
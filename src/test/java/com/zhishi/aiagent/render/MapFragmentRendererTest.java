@@ -0,0 +1,43 @@
+package com.zhishi.aiagent.render;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class MapFragmentRendererTest {
+
+    @Test
+    void parseSkipsLocationsWithoutCoordinates() {
+        List<MapLocation> locations = MapFragmentRenderer.parse("""
+                [{"name":"故宫","type":"attraction","lng":"116.397","lat":"39.918"},
+                 {"name":"未知","lng":"","lat":"39.9"},
+                 {"name":"注入","lng":"alert(1)","lat":"39.9"}]
+                """);
+        Assertions.assertEquals(1, locations.size());
+        Assertions.assertEquals(116.397, locations.get(0).lng());
+    }
+
+    @Test
+    void groupsMarkersByTypeKeepingListIndex() {
+        List<MapLocation> locations = List.of(
+                new MapLocation("故宫", "attraction", "09:00", "", "", 116.397, 39.918),
+                new MapLocation("全聚德", "restaurant", "12:00", "", "", 116.4, 39.91),
+                new MapLocation("天坛", "attraction", "15:00", "", "", 116.41, 39.88));
+        String script = MapFragmentRenderer.renderScript(locations, "key", "code");
+        Assertions.assertTrue(script.contains("var groups = {\"attraction\":[[0,116.397,39.918,\"故宫\",\"09:00\",\"\",\"\"],"
+                + "[2,116.41,39.88,\"天坛\",\"15:00\",\"\",\"\"]],\"restaurant\":[[1,116.4,39.91,\"全聚德\",\"12:00\",\"\",\"\"]]};"));
+        Assertions.assertTrue(script.contains("var count = 3;"));
+    }
+
+    @Test
+    void escapesTextForHtmlAndScript() {
+        List<MapLocation> locations = List.of(new MapLocation("</script><b>", "hotel", "", "\"引号\"", "", 1, 2));
+        String html = MapFragmentRenderer.renderHtml(locations);
+        Assertions.assertTrue(html.contains("&lt;/script&gt;&lt;b&gt;"));
+        Assertions.assertTrue(html.contains("data-index=\"0\""));
+        String script = MapFragmentRenderer.renderScript(locations, "key", "code");
+        Assertions.assertFalse(script.contains("</script>"));
+        Assertions.assertTrue(script.contains("\"\\\"引号\\\"\""));
+    }
+}
@@ -0,0 +1,90 @@
+package com.zhishi.aiagent.render;
+
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+class PdfMarkdownWriterTest {
+
+    @Test
+    void embedsLocalImage(@TempDir Path dir) throws Exception {
+        Path images = Files.createDirectory(dir.resolve("images"));
+        ImageIO.write(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), "png", images.resolve("map.png").toFile());
+        Path pdfFile = dir.resolve("trip.pdf");
+
+        try (PdfMarkdownWriter writer = new PdfMarkdownWriter(pdfFile.toString(), images)) {
+            writer.write("# 行程\n\n![地图](map.png)\n");
+        }
+
+        try (PdfDocument pdf = new PdfDocument(new PdfReader(pdfFile.toString()))) {
+            Assertions.assertFalse(pdf.getPage(1).getResources().getResourceNames(PdfName.XObject).isEmpty());
+        }
+    }
+
+    @Test
+    void rejectsPathsOutsideImageRoot(@TempDir Path dir) throws Exception {
+        Path images = Files.createDirectory(dir.resolve("images"));
+        // 同名前缀的兄弟目录也不允许
+        Path sibling = Files.createDirectory(dir.resolve("images-private"));
+        Files.write(sibling.resolve("secret.png"), new byte[]{1});
+        Files.write(dir.resolve("outside.png"), new byte[]{1});
+        PdfMarkdownWriter writer = new PdfMarkdownWriter(dir.resolve("out.pdf").toString(), images);
+        try {
+            Assertions.assertThrows(IOException.class, () -> writer.loadImage("../outside.png"));
+            Assertions.assertThrows(IOException.class, () -> writer.loadImage("../images-private/secret.png"));
+            Assertions.assertThrows(IOException.class, () -> writer.loadImage(dir.resolve("outside.png").toString()));
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    void capsImageSize(@TempDir Path dir) throws Exception {
+        byte[] chunk = new byte[64 * 1024];
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        // 声明的长度超过上限：读取正文之前拒绝
+        server.createContext("/declared", exchange -> {
+            exchange.sendResponseHeaders(200, PdfMarkdownWriter.MAX_IMAGE_BYTES + 1L);
+            exchange.close();
+        });
+        // 分块传输、不声明长度：读到上限即停止
+        server.createContext("/chunked", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (int sent = 0; sent <= PdfMarkdownWriter.MAX_IMAGE_BYTES; sent += chunk.length) {
+                    out.write(chunk);
+                }
+            } catch (IOException e) {
+                // 客户端提前断开
+            }
+        });
+        server.start();
+        PdfMarkdownWriter writer = new PdfMarkdownWriter(dir.resolve("out.pdf").toString(), dir);
+        try {
+            String base = "http://127.0.0.1:" + server.getAddress().getPort();
+            Assertions.assertTrue(Assertions.assertThrows(IOException.class, () -> writer.loadImage(base + "/declared"))
+                    .getMessage().contains("too large"));
+            Assertions.assertTrue(Assertions.assertThrows(IOException.class, () -> writer.loadImage(base + "/chunked"))
+                    .getMessage().contains("larger than"));
+            Assertions.assertArrayEquals(new byte[3], PdfMarkdownWriter.readBounded(new ByteArrayInputStream(new byte[3]), 3));
+            Assertions.assertThrows(IOException.class,
+                    () -> PdfMarkdownWriter.readBounded(new ByteArrayInputStream(new byte[4]), 3));
+        } finally {
+            writer.close();
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.zhishi.aiagent.route;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class RouteOptimizerTest {
+
+    // 同一纬度上间隔约 1 公里的四个点
+    private static RouteStop stop(String name, int x, Integer open, Integer close) {
+        return new RouteStop(name, 116.40 + x * 0.0117, 39.90, open, close, 30);
+    }
+
+    @Test
+    void visitsPointsOnALineInOrder() {
+        List<RouteStop> stops = List.of(stop("A", 0, null, null), stop("C", 2, null, null),
+                stop("B", 1, null, null), stop("D", 3, null, null));
+        DistanceMatrix matrix = DistanceMatrix.estimate(stops, TravelMode.WALKING);
+        RoutePlan plan = RouteOptimizer.optimize(stops, matrix, 9 * 60, true, false);
+        Assertions.assertEquals(List.of("A", "B", "C", "D"), names(stops, plan));
+        Assertions.assertEquals(0, plan.lateMinutes());
+    }
+
+    @Test
+    void respectsTimeWindows() {
+        // D 只在上午开放，顺路走到 D 会迟到，应先去 D
+        List<RouteStop> stops = List.of(stop("A", 0, null, null), stop("B", 1, null, null),
+                stop("C", 2, null, null), stop("D", 3, null, 11 * 60));
+        DistanceMatrix matrix = DistanceMatrix.estimate(stops, TravelMode.WALKING);
+        RoutePlan plan = RouteOptimizer.optimize(stops, matrix, 9 * 60, true, false);
+        Assertions.assertEquals(0, plan.lateMinutes());
+        Assertions.assertEquals("D", names(stops, plan).get(1));
+    }
+
+    @Test
+    void waitsUntilOpening() {
+        List<RouteStop> stops = List.of(stop("A", 0, null, null), stop("B", 1, 11 * 60, null));
+        RoutePlan plan = RouteOptimizer.optimize(stops, DistanceMatrix.estimate(stops, TravelMode.WALKING), 9 * 60, true, false);
+        RoutePlan.Visit visit = plan.visits().get(1);
+        Assertions.assertEquals(11 * 60, visit.startMinutes());
+        Assertions.assertTrue(plan.waitMinutes() > 0);
+    }
+
+    @Test
+    void refinesWithCachedRoadDistances() {
+        AtomicInteger requests = new AtomicInteger();
+        DistanceService service = (origins, destination, mode) -> {
+            requests.incrementAndGet();
+            Leg[] legs = new Leg[origins.size()];
+            for (int i = 0; i < legs.length; i++) {
+                legs[i] = new Leg(2000, 1500);
+            }
+            return legs;
+        };
+        DistanceMatrixBuilder builder = new DistanceMatrixBuilder(service, 12, 100, 60_000);
+        List<RouteStop> stops = List.of(stop("A", 0, null, null), stop("B", 1, null, null), stop("C", 2, null, null));
+
+        DistanceMatrix first = builder.build(stops, TravelMode.WALKING, true);
+        Assertions.assertEquals(3, requests.get());
+        Assertions.assertEquals(6, first.getRefined());
+        Assertions.assertEquals(2000, first.meters(0, 1));
+
+        DistanceMatrix second = builder.build(stops, TravelMode.WALKING, true);
+        Assertions.assertEquals(3, requests.get());
+        Assertions.assertEquals(6, second.getRefined());
+
+        // 超过上限只用估算
+        DistanceMatrix estimated = new DistanceMatrixBuilder(service, 2, 100, 60_000).build(stops, TravelMode.WALKING, true);
+        Assertions.assertEquals(0, estimated.getRefined());
+    }
+
+    private static List<String> names(List<RouteStop> stops, RoutePlan plan) {
+        return plan.visits().stream().map(visit -> stops.get(visit.stop()).name()).toList();
+    }
+}
@@ -0,0 +1,29 @@
+package com.zhishi.aiagent.routing;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.util.List;
+
+class RoutingPolicyTest {
+
+    private final RoutingPolicy policy = new RoutingPolicy();
+
+    @Test
+    void decide() {
+        Prompt firstStep = new Prompt(List.of(new UserMessage("帮我规划南京一日游")));
+        Prompt laterStep = new Prompt(List.of(new UserMessage("帮我规划南京一日游"), new AssistantMessage("好的")));
+        Assertions.assertEquals(ModelRoute.LARGE, policy.decide(RouteTask.PLANNING, firstStep));
+        Assertions.assertEquals(ModelRoute.LARGE, policy.decide(RouteTask.AGENT_STEP, firstStep));
+        Assertions.assertEquals(ModelRoute.MEDIUM, policy.decide(RouteTask.AGENT_STEP, laterStep));
+        Assertions.assertEquals(ModelRoute.SMALL, policy.decide(RouteTask.HTML_RENDER, firstStep));
+        Assertions.assertEquals(ModelRoute.SMALL, policy.decide(RouteTask.CHAT, new Prompt("今天有点累")));
+        policy.setLocalEnabled(true);
+        Assertions.assertEquals(ModelRoute.LOCAL, policy.decide(RouteTask.CHAT, new Prompt("今天有点累")));
+        policy.setEnabled(false);
+        Assertions.assertEquals(ModelRoute.LARGE, policy.decide(RouteTask.CHAT, new Prompt("今天有点累")));
+    }
+}
@@ -0,0 +1,50 @@
+package com.zhishi.aiagent.sse;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+class SseTransportTest {
+
+    @Test
+    void coalesce() {
+        List<AgentEvent> merged = SseTransport.coalesce(List.of(
+                AgentEvent.of(AgentEventType.TOKEN, "你"),
+                AgentEvent.of(AgentEventType.TOKEN, "好"),
+                AgentEvent.toolCall("placeSearch", "{}"),
+                AgentEvent.of(AgentEventType.TOKEN, "！")));
+        Assertions.assertEquals(3, merged.size());
+        Assertions.assertEquals("你好", merged.get(0).data());
+        Assertions.assertEquals(AgentEventType.TOOL_CALL, merged.get(1).type());
+        Assertions.assertEquals("！", merged.get(2).data());
+    }
+
+    @Test
+    void streamText() {
+        List<ServerSentEvent<String>> events = SseTransport.streamText(Flux.just("今天", "天气", "不错"))
+                .collectList()
+                .block();
+        Assertions.assertNotNull(events);
+        ServerSentEvent<String> last = events.get(events.size() - 1);
+        Assertions.assertEquals("final", last.event());
+        Assertions.assertEquals("今天天气不错", last.data());
+        String tokens = events.stream()
+                .filter(event -> "token".equals(event.event()))
+                .map(ServerSentEvent::data)
+                .reduce("", String::concat);
+        Assertions.assertEquals("今天天气不错", tokens);
+    }
+
+    @Test
+    void streamError() {
+        List<ServerSentEvent<String>> events = SseTransport.stream(Flux.error(new IllegalStateException("boom")))
+                .collectList()
+                .block();
+        Assertions.assertNotNull(events);
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertEquals("error", events.get(0).event());
+    }
+}
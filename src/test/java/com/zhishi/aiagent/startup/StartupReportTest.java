@@ -0,0 +1,38 @@
+package com.zhishi.aiagent.startup;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class StartupReportTest {
+
+    @Test
+    void beanSelfTimeExcludesDependencies() {
+        List<StartupStep> steps = List.of(
+                new StartupStep(1, null, "spring.context.refresh", null, 900),
+                new StartupStep(2, 1L, "spring.beans.instantiate", "toolCatalog", 500),
+                new StartupStep(3, 2L, "spring.beans.instantiate", "allTools", 450),
+                new StartupStep(4, 1L, "spring.beans.instantiate", "admissionControl", 20),
+                new StartupStep(5, null, "spring.boot.application.ready", null, 5));
+
+        StartupReport report = StartupReport.of(steps, 3000, 1200, 2);
+
+        Assertions.assertEquals(3, report.beanCount());
+        Assertions.assertEquals(List.of("spring.context.refresh", "spring.boot.application.ready"),
+                List.copyOf(report.phases().keySet()));
+        Assertions.assertEquals(List.of(new BeanStartupTime("allTools", 450, 450), new BeanStartupTime("toolCatalog", 500, 50)),
+                report.slowestBeans());
+    }
+
+    @Test
+    void regressionIsFlaggedAboveThreshold() {
+        StartupReport previous = new StartupReport(2000, 1000, null, List.of(), 0, 0, false);
+        StartupReport same = StartupReport.of(List.of(), 2300, 1100, 5).compareWith(previous, 20);
+        StartupReport slower = StartupReport.of(List.of(), 2500, 1100, 5).compareWith(previous, 20);
+
+        Assertions.assertFalse(same.regressed());
+        Assertions.assertTrue(slower.regressed());
+        Assertions.assertEquals(2000, slower.previousReadyMs());
+    }
+}
@@ -0,0 +1,43 @@
+package com.zhishi.aiagent.tools;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+class FileOperationToolTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void rewriteInvalidatesLineIndex() throws Exception {
+        FileOperationTool tool = new FileOperationTool(dir.toString());
+        tool.writeFile("notes.txt", lines("很长的一行", 100) + lines("短", 100));
+        Assertions.assertEquals("Lines 130-130 of 200:\n130\t短\n", tool.readFileLines("notes.txt", 130, 1));
+
+        // 总字节数相同、行长度不同，并恢复原修改时间，只能靠主动失效发现变化；行号超过索引步长才会用到索引中的偏移
+        Path file = dir.resolve("notes.txt");
+        FileTime modified = Files.getLastModifiedTime(file);
+        tool.writeFile("notes.txt", lines("短", 100) + lines("很长的一行", 100));
+        Files.setLastModifiedTime(file, modified);
+
+        Assertions.assertEquals("Lines 130-131 of 200:\n130\t很长的一行\n131\t很长的一行\n",
+                tool.readFileLines("notes.txt", 130, 2));
+        Assertions.assertEquals("Lines 100-100 of 200:\n100\t短\n", tool.readFileLines("notes.txt", 100, 1));
+    }
+
+    @Test
+    void writeOutsideFileDirectoryIsRejected() {
+        FileOperationTool tool = new FileOperationTool(dir.resolve("file").toString());
+        Assertions.assertTrue(tool.writeFile("../escape.txt", "x").startsWith("Error writing to file"));
+        Assertions.assertFalse(Files.exists(dir.resolve("escape.txt")));
+    }
+
+    private static String lines(String line, int count) {
+        return (line + "\n").repeat(count);
+    }
+}
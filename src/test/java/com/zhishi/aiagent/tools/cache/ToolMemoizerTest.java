@@ -0,0 +1,118 @@
+package com.zhishi.aiagent.tools.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ToolMemoizerTest {
+
+    static class GeoTool {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Idempotent(ttlSeconds = 60, failureMarkers = "失败：")
+        @Tool(description = "geocode")
+        public String geocode(@ToolParam(description = "address") String address,
+                              @ToolParam(description = "city") String city) {
+            calls.incrementAndGet();
+            if (address.equals("批量")) {
+                // 失败信息出现在较长结果的末尾
+                return "故宫,天安门,".repeat(20) + "景山地理编码失败：无结果";
+            }
+            return address.isBlank() ? "地理编码失败：地址为空" : city + address;
+        }
+    }
+
+    @Test
+    void equivalentCallsExecuteOnce() {
+        GeoTool geoTool = new GeoTool();
+        ToolMemoizer memoizer = new ToolMemoizer(true, 100);
+        ToolCallback geocode = memoizer.wrap(geoTool)[0];
+
+        String first = geocode.call("{\"address\":\"故宫\",\"city\":\"北京\"}");
+        String second = geocode.call("{ \"city\": \"北京\", \"address\": \" 故宫 \" }");
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(1, geoTool.calls.get());
+        Assertions.assertEquals(1, memoizer.getStats().get("geocode").getHits());
+
+        // 失败结果不缓存
+        geocode.call("{\"address\":\"\",\"city\":\"北京\"}");
+        geocode.call("{\"address\":\"\",\"city\":\"北京\"}");
+        Assertions.assertEquals(3, geoTool.calls.get());
+        geocode.call("{\"address\":\"批量\",\"city\":\"北京\"}");
+        geocode.call("{\"address\":\"批量\",\"city\":\"北京\"}");
+        Assertions.assertEquals(5, geoTool.calls.get());
+    }
+
+    @Test
+    void errorInOwnerReleasesWaiters() throws Exception {
+        ToolResultCache cache = new ToolResultCache(10);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<ToolResultCache.Lookup> owner = CompletableFuture.supplyAsync(() ->
+                cache.getOrCompute("k", 60_000, () -> {
+                    started.countDown();
+                    await(release);
+                    throw new StackOverflowError("deep");
+                }, result -> true));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<ToolResultCache.Lookup> waiter = CompletableFuture.supplyAsync(() ->
+                // 等待者晚于条目移除到达时会自己执行，其结果不缓存，避免影响后面的断言
+                cache.getOrCompute("k", 60_000, () -> "unused", result -> false));
+        release.countDown();
+
+        ExecutionException ownerError = Assertions.assertThrows(ExecutionException.class, () -> owner.get(5, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(StackOverflowError.class, ownerError.getCause());
+        // 等待者要么拿到同一个错误，要么在条目移除后自己执行
+        try {
+            Assertions.assertEquals("unused", waiter.get(5, TimeUnit.SECONDS).result());
+        } catch (ExecutionException e) {
+            Assertions.assertInstanceOf(StackOverflowError.class, e.getCause());
+        }
+        Assertions.assertEquals("again", cache.getOrCompute("k", 60_000, () -> "again", result -> true).result());
+    }
+
+    @Test
+    void concurrentCallsShareOneExecution() throws Exception {
+        ToolResultCache cache = new ToolResultCache(10);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        CompletableFuture<ToolResultCache.Lookup> first = CompletableFuture.supplyAsync(() ->
+                cache.getOrCompute("k", 60_000, () -> {
+                    executions.incrementAndGet();
+                    started.countDown();
+                    await(release);
+                    return "result";
+                }, result -> true));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<ToolResultCache.Lookup> second = CompletableFuture.supplyAsync(() ->
+                cache.getOrCompute("k", 60_000, () -> {
+                    executions.incrementAndGet();
+                    return "other";
+                }, result -> true));
+        Thread.sleep(100);
+        release.countDown();
+
+        Assertions.assertEquals(ToolResultCache.Source.COMPUTED, first.get(5, TimeUnit.SECONDS).source());
+        Assertions.assertEquals(ToolResultCache.Source.COALESCED, second.get(5, TimeUnit.SECONDS).source());
+        Assertions.assertEquals("result", second.get().result());
+        Assertions.assertEquals(1, executions.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.zhishi.aiagent.tools.schema;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
+import org.springframework.ai.tool.support.ToolDefinitions;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ToolSchemasTest {
+
+    static class WeatherTool {
+
+        @Tool(description = "Current weather of a city")
+        public String weather(@ToolParam(description = "City name") String city) {
+            return "晴 " + city;
+        }
+
+        @Tool(description = "Weather forecast of a city")
+        public String forecast(@ToolParam(description = "City name") String city,
+                               @ToolParam(description = "Number of days") int days) {
+            return days + " 天晴 " + city;
+        }
+    }
+
+    @Test
+    void toolObjectIsCreatedOnFirstCall() {
+        ToolSchemas schemas = new ToolSchemas(ToolSchemas.generate(List.of(WeatherTool.class)));
+        AtomicInteger created = new AtomicInteger();
+        List<ToolCallback> callbacks = schemas.callbacks(WeatherTool.class, () -> {
+            created.incrementAndGet();
+            return new WeatherTool();
+        });
+
+        Assertions.assertEquals(2, callbacks.size());
+        Assertions.assertEquals(2, schemas.getPregenerated());
+        Assertions.assertEquals(0, created.get());
+
+        ToolCallback weather = callbacks.stream().filter(tool -> tool.getToolDefinition().name().equals("weather")).findFirst().orElseThrow();
+        ToolCallback forecast = callbacks.stream().filter(tool -> tool.getToolDefinition().name().equals("forecast")).findFirst().orElseThrow();
+        Assertions.assertEquals("\"晴 北京\"", weather.call("{\"city\":\"北京\"}"));
+        Assertions.assertEquals("\"3 天晴 上海\"", forecast.call("{\"city\":\"上海\",\"days\":3}"));
+        // 同一工具类的工具共享一个对象
+        Assertions.assertEquals(1, created.get());
+    }
+
+    @Test
+    void staleDefinitionFallsBackToReflection() throws Exception {
+        Map<String, ToolSchemas.Entry> entries = new HashMap<>(ToolSchemas.generate(List.of(WeatherTool.class)));
+        String key = ToolSchemas.key(WeatherTool.class.getMethod("weather", String.class));
+        ToolSchemas.Entry entry = entries.get(key);
+        entries.put(key, new ToolSchemas.Entry("outdated", entry.name(), "old description", "{}"));
+        ToolSchemas schemas = new ToolSchemas(entries);
+
+        ToolCallback weather = schemas.callbacks(WeatherTool.class, WeatherTool::new).stream()
+                .filter(tool -> tool.getToolDefinition().name().equals("weather")).findFirst().orElseThrow();
+        Assertions.assertEquals(ToolDefinitions.from(WeatherTool.class.getMethod("weather", String.class)),
+                weather.getToolDefinition());
+        Assertions.assertEquals(1, schemas.getPregenerated());
+        Assertions.assertEquals(1, schemas.getGenerated());
+    }
+}